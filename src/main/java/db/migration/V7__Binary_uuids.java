@@ -0,0 +1,77 @@
+package db.migration;
+
+import fr.oukilson.backend.entity.BinaryUuidConverter;
+import fr.oukilson.backend.entity.TimeOrderedUuid;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import java.sql.*;
+
+/**
+ * Store the uuids of the events and of the games in 16 bytes instead of their text.
+ * The uuids already given to the clients are kept : only their storage changes.
+ * A text that is not a uuid, which no client could have used, is replaced by a new uuid.
+ * Written in Java as MySQL and H2 have no common function to read a hexadecimal text as bytes.
+ */
+public class V7__Binary_uuids extends BaseJavaMigration {
+    private static final int BATCH_SIZE = 1000;
+    private final BinaryUuidConverter converter = new BinaryUuidConverter();
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        this.migrate(connection, "event");
+        this.migrate(connection, "game");
+    }
+
+    /**
+     * Replace the text uuid column of a table by a binary one, with the same unique key
+     * @param connection Connection of the migration
+     * @param table Table's name
+     * @throws SQLException If a statement fails
+     */
+    private void migrate(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter table "+table+" add column binary_uuid varbinary(16)");
+        }
+        this.copy(connection, table);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter table "+table+" drop column uuid");
+            statement.execute("alter table "+table+" change column binary_uuid uuid varbinary(16)");
+            statement.execute("alter table "+table+" add constraint uk_"+table+"_uuid unique (uuid)");
+        }
+    }
+
+    /**
+     * Copy the uuids of a table into its binary column, by batches of rows in the order of their ids
+     * @param connection Connection of the migration
+     * @param table Table's name
+     * @throws SQLException If a statement fails
+     */
+    private void copy(Connection connection, String table) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                     "select id, uuid from "+table+" where id > ? order by id limit "+BATCH_SIZE);
+             PreparedStatement update = connection.prepareStatement(
+                     "update "+table+" set binary_uuid = ? where id = ?")) {
+            long lastId = 0;
+            int count;
+            do {
+                count = 0;
+                select.setLong(1, lastId);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        lastId = rows.getLong(1);
+                        byte[] uuid = this.converter.convertToDatabaseColumn(rows.getString(2));
+                        if (uuid==null)
+                            uuid = this.converter.convertToDatabaseColumn(TimeOrderedUuid.generate());
+                        update.setBytes(1, uuid);
+                        update.setLong(2, lastId);
+                        update.addBatch();
+                        count++;
+                    }
+                }
+                if (count>0)
+                    update.executeBatch();
+            } while (count==BATCH_SIZE);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package fr.oukilson.backend.configuration;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.EntityMapper;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.service.GameService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Caches are configured by spring.cache (Caffeine spec : size, TTL and statistics),
+ * their hit/miss/eviction metrics are exposed by the actuator under cache.*
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+    /**
+     * Load the game catalogue in the cache at startup, so the first requests don't all hit the database
+     * @param repository GameRepository
+     * @param mapper Mapper of the cached GameDTO
+     * @param cacheManager CacheManager
+     * @param enabled True to warm the cache up
+     * @param size Maximal number of games to load
+     * @return ApplicationRunner
+     */
+    @Bean
+    public ApplicationRunner gameCacheWarmer(GameRepository repository, EntityMapper<Game, GameDTO> mapper,
+                                             CacheManager cacheManager,
+                                             @Value("${environment.gameCacheWarmup:true}") boolean enabled,
+                                             @Value("${environment.gameCacheWarmupSize:10000}") int size) {
+        return args -> {
+            Cache cache = cacheManager.getCache(GameService.CACHE);
+            if (enabled && cache!=null) {
+                for (Game game : repository.findAll(PageRequest.of(0, size, Sort.by("id"))))
+                    cache.put(game.getUuid(), mapper.map(game));
+            }
+        };
+    }
+}
@@ -1,13 +1,22 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.mapper.EntityMapper;
 import fr.oukilson.backend.repository.EventRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.repository.LocationRepository;
 import fr.oukilson.backend.repository.UserRepository;
+import fr.oukilson.backend.service.DeniedIndex;
+import fr.oukilson.backend.service.EventPurger;
 import fr.oukilson.backend.service.EventService;
+import fr.oukilson.backend.service.TownService;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Configuration
 public class EventConfiguration {
@@ -16,7 +25,28 @@ public class EventConfiguration {
                                      UserRepository userRepo,
                                      GameRepository gameRepo,
                                      LocationRepository locationRepo,
-                                     ModelMapper mapper) {
-        return new EventService(eventRepo, userRepo, gameRepo, locationRepo, mapper);
+                                     ModelMapper mapper,
+                                     EntityMapper<Event, EventDTO> eventMapper,
+                                     PlatformTransactionManager transactionManager,
+                                     DeniedIndex deniedIndex,
+                                     TownService townService) {
+        return new EventService(eventRepo, userRepo, gameRepo, locationRepo, mapper, eventMapper,
+                new TransactionTemplate(transactionManager), deniedIndex, townService);
+    }
+
+    /**
+     * Purger of the deleted events, run at the time set by environment.eventPurge.cron
+     * @param eventRepo EventRepository
+     * @param locationRepo LocationRepository
+     * @param transactionManager PlatformTransactionManager
+     * @param batchSize Number of events purged in each transaction
+     * @return EventPurger
+     */
+    @Bean
+    public EventPurger eventPurger(EventRepository eventRepo,
+                                   LocationRepository locationRepo,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${environment.eventPurge.batchSize:500}") int batchSize) {
+        return new EventPurger(eventRepo, locationRepo, new TransactionTemplate(transactionManager), batchSize);
     }
 }
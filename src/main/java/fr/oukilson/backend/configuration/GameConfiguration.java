@@ -1,15 +1,31 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.EntityMapper;
 import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.service.GameNameIndex;
 import fr.oukilson.backend.service.GameService;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class GameConfiguration {
     @Bean
-    public GameService gameService(GameRepository repository, ModelMapper mapper) {
-        return new GameService(repository, mapper);
+    public GameService gameService(GameRepository repository, GameNameIndex index,
+                                   EntityMapper<Game, GameDTO> mapper) {
+        return new GameService(repository, index, mapper);
+    }
+
+    /**
+     * Index of the games' names, loaded from the game table then kept up to date by GameNameIndexListener
+     * @param repository GameRepository
+     * @return GameNameIndex
+     */
+    @Bean
+    public GameNameIndex gameNameIndex(GameRepository repository) {
+        GameNameIndex index = new GameNameIndex();
+        repository.findAll().forEach(index::put);
+        return index;
     }
 }
@@ -1,13 +1,69 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.*;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Entity to DTO mappings are hand-written by default ("manual").
+ * Each one can go back to ModelMapper ("modelmapper") with the properties environment.mappers.*
+ */
 @Configuration
 public class MapperConfiguration {
+    /**
+     * ModelMapper, which never reads the friend list of a user : UserService adds its count and first page
+     * @return ModelMapper
+     */
     @Bean
     public ModelMapper modelMapper() {
-        return new ModelMapper();
+        ModelMapper result = new ModelMapper();
+        result.typeMap(User.class, UserDTO.class).addMappings(mapping -> mapping.skip(UserDTO::setFriendList));
+        return result;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public EntityMapper<Event, EventDTO> eventDTOMapper(ModelMapper modelMapper,
+                                                        @Value("${environment.mappers.event:manual}") String kind) {
+        return this.select(kind, new EventDTOMapper(), new ModelMapperAdapter<>(modelMapper, EventDTO.class));
+    }
+
+    @Bean
+    public EntityMapper<Game, GameDTO> gameDTOMapper(ModelMapper modelMapper,
+                                                     @Value("${environment.mappers.game:manual}") String kind) {
+        return this.select(kind, new GameDTOMapper(), new ModelMapperAdapter<>(modelMapper, GameDTO.class));
+    }
+
+    @Bean
+    public EntityMapper<User, UserDTO> userDTOMapper(ModelMapper modelMapper,
+                                                     @Value("${environment.mappers.user:manual}") String kind) {
+        return this.select(kind, new UserDTOMapper(), new ModelMapperAdapter<>(modelMapper, UserDTO.class));
+    }
+
+    /**
+     * Choose the implementation of a mapping
+     * @param kind "manual" or "modelmapper"
+     * @param manual Hand-written mapper
+     * @param reflective ModelMapper adapter
+     * @return The chosen mapper
+     * @throws IllegalArgumentException If the kind is unknown
+     */
+    private <E, D> EntityMapper<E, D> select(String kind, EntityMapper<E, D> manual, EntityMapper<E, D> reflective)
+            throws IllegalArgumentException {
+        switch (kind) {
+            case "manual":
+                return manual;
+            case "modelmapper":
+                return reflective;
+            default:
+                throw new IllegalArgumentException("Mapper configuration : Unknown mapper "+kind);
+        }
+    }
+}
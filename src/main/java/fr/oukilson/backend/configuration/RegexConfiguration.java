@@ -1,18 +1,56 @@
 package fr.oukilson.backend.configuration;
 
 import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.validator.CharacterClassValidator;
+import fr.oukilson.backend.validator.EmailValidator;
+import fr.oukilson.backend.validator.PatternValidator;
+import fr.oukilson.backend.validator.TextValidator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import java.util.regex.Pattern;
 
+/**
+ * Texts are checked by hand-written validators by default ("manual"), when they know the configured regex;
+ * the other regexes are run as they are. All of them can go back to the regexes ("regex")
+ * with the property environment.validators.
+ */
 @Configuration
 public class RegexConfiguration {
     @Bean
     public RegexCollection regexCollection(@Value("${environment.emailRegex}") String emailPattern,
                                            @Value("${environment.nicknameRegex}") String nicknamePattern,
-                                           @Value("${environment.nameRegex}") String namePattern) {
-        return new RegexCollection(Pattern.compile(emailPattern),Pattern.compile(nicknamePattern),
-                Pattern.compile(namePattern));
+                                           @Value("${environment.nameRegex}") String namePattern,
+                                           @Value("${environment.validators:manual}") String kind) {
+        Pattern email = Pattern.compile(emailPattern);
+        Pattern nickname = Pattern.compile(nicknamePattern);
+        Pattern name = Pattern.compile(namePattern);
+        TextValidator emailValidator = new PatternValidator(email);
+        TextValidator nicknameValidator = new PatternValidator(nickname);
+        TextValidator nameValidator = new PatternValidator(name);
+        switch (kind) {
+            case "manual":
+                if (EmailValidator.REGEX.equals(emailPattern))
+                    emailValidator = new EmailValidator();
+                nicknameValidator = this.select(nicknamePattern, nicknameValidator);
+                nameValidator = this.select(namePattern, nameValidator);
+                break;
+            case "regex":
+                break;
+            default:
+                throw new IllegalArgumentException("Regex configuration : Unknown validator "+kind);
+        }
+        return new RegexCollection(email, nickname, name, emailValidator, nicknameValidator, nameValidator);
     }
-}
\ No newline at end of file
+
+    /**
+     * Use a CharacterClassValidator if the regex is a single class of characters
+     * @param regex Regex
+     * @param reflective Validator running the regex
+     * @return The chosen validator
+     */
+    private TextValidator select(String regex, TextValidator reflective) {
+        TextValidator manual = CharacterClassValidator.of(regex);
+        return manual==null ? reflective : manual;
+    }
+}
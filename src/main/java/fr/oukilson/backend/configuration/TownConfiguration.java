@@ -0,0 +1,49 @@
+package fr.oukilson.backend.configuration;
+
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.TownRepository;
+import fr.oukilson.backend.service.TownIndex;
+import fr.oukilson.backend.service.TownService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class TownConfiguration {
+    @Bean
+    public TownService townService(TownRepository repository, LocationRepository locationRepository, TownIndex index,
+                                   PlatformTransactionManager transactionManager) {
+        return new TownService(repository, locationRepository, index, new TransactionTemplate(transactionManager));
+    }
+
+    /**
+     * Index of the town dictionary, loaded from the town table then kept up to date by TownIndexListener
+     * @param repository TownRepository
+     * @return TownIndex
+     */
+    @Bean
+    public TownIndex townIndex(TownRepository repository) {
+        TownIndex index = new TownIndex();
+        repository.findAll().forEach(index::put);
+        return index;
+    }
+
+    /**
+     * Link the locations written before the town dictionary to their town at startup.
+     * Once they are all linked, it only costs one query.
+     * @param service TownService
+     * @param enabled True to link the locations
+     * @return ApplicationRunner
+     */
+    @Bean
+    public ApplicationRunner townLinker(TownService service,
+                                        @Value("${environment.townLinkAtStartup:true}") boolean enabled) {
+        return args -> {
+            if (enabled)
+                service.linkLocations();
+        };
+    }
+}
@@ -1,17 +1,109 @@
 package fr.oukilson.backend.configuration;
 
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EntityMapper;
 import fr.oukilson.backend.model.RegexCollection;
 import fr.oukilson.backend.repository.UserRepository;
+import fr.oukilson.backend.service.DeniedIndex;
+import fr.oukilson.backend.service.FriendGraph;
+import fr.oukilson.backend.service.FriendshipStore;
+import fr.oukilson.backend.service.PasswordHasher;
 import fr.oukilson.backend.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class UserConfiguration {
     @Bean
     public UserService userService(UserRepository userRepository, ModelMapper modelMapper,
-                                   RegexCollection regexCollection){
-        return new UserService(userRepository, modelMapper, regexCollection);
+                                   EntityMapper<User, UserDTO> userMapper, RegexCollection regexCollection,
+                                   FriendshipStore friendshipStore, FriendGraph friendGraph,
+                                   DeniedIndex deniedIndex, PasswordHasher passwordHasher,
+                                   @Qualifier("userWriteExecutor") Executor userWriteExecutor,
+                                   PlatformTransactionManager transactionManager){
+        return new UserService(userRepository, modelMapper, userMapper, regexCollection, friendshipStore,
+                friendGraph, deniedIndex, passwordHasher, userWriteExecutor,
+                new TransactionTemplate(transactionManager));
     }
-}
\ No newline at end of file
+
+    /**
+     * Bcrypt hashing of the passwords, on its own threads
+     * @param registry Where to publish the metrics
+     * @param cost Bcrypt cost factor
+     * @param threads Number of hashing threads
+     * @param queueSize Maximal number of hashes waiting for a thread
+     * @return PasswordHasher
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PasswordHasher passwordHasher(MeterRegistry registry,
+                                         @Value("${environment.passwordHash.cost:10}") int cost,
+                                         @Value("${environment.passwordHash.threads:2}") int threads,
+                                         @Value("${environment.passwordHash.queueSize:100}") int queueSize) {
+        return new PasswordHasher(cost, threads, queueSize, registry);
+    }
+
+    /**
+     * Threads saving the new users once their passwords are hashed, so that the hashing threads only hash.
+     * The waiting writes are kept in a bounded queue : when it is full, the write is refused
+     * and the sign-up is answered as unavailable, as when the PasswordHasher is full.
+     * @param threads Number of writing threads, at most the size of the connection pool
+     * @param queueSize Maximal number of writes waiting for a thread
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor userWriteExecutor(@Value("${environment.userWrite.threads:4}") int threads,
+                                                    @Value("${environment.userWrite.queueSize:100}") int queueSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueSize);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("user-write-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    /**
+     * Friend lists of all the users, loaded from the friend list table then kept up to date by the store itself,
+     * and loaded again at environment.friendshipReload.cron
+     * @param userRepository UserRepository
+     * @param friendGraph Graph of the friend lists, filled by the store
+     * @return FriendshipStore
+     */
+    @Bean
+    public FriendshipStore friendshipStore(UserRepository userRepository, FriendGraph friendGraph) {
+        FriendshipStore store = new FriendshipStore(userRepository, friendGraph);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Denied lists of all the users, loaded from the denied list table then kept up to date by the index itself,
+     * and loaded again at environment.deniedIndexReload.cron
+     * @param userRepository UserRepository
+     * @param bits Number of bits of each bloom filter
+     * @return DeniedIndex
+     */
+    @Bean
+    public DeniedIndex deniedIndex(UserRepository userRepository,
+                                   @Value("${environment.deniedIndexBits:8388608}") int bits) {
+        DeniedIndex index = new DeniedIndex(userRepository, bits);
+        index.load();
+        return index;
+    }
+
+    @Bean
+    public FriendGraph friendGraph() {
+        return new FriendGraph();
+    }
+}
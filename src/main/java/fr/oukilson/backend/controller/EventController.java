@@ -1,21 +1,29 @@
 package fr.oukilson.backend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.oukilson.backend.dto.event.*;
+import fr.oukilson.backend.model.EventExport;
 import fr.oukilson.backend.service.EventService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 @CrossOrigin
 @RestController
-@CrossOrigin
 @RequestMapping("/events")
 public class EventController {
     private EventService service;
+    private ObjectMapper objectMapper;
 
-    public EventController(EventService service) {
+    public EventController(EventService service, ObjectMapper objectMapper) {
         this.service = service;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -35,19 +43,121 @@ public class EventController {
     }
 
     /**
-     * Search for events by one of this two options :
-     * - date after the provided date
-     * - happening in a town
-     * For now, if both parameter are included, only the date will be taken into consideration
-     * @param date Date to look after
-     * @param town Town to look
-     * @return List<EventDTO>
+     * Search for events matching all the given filters, ordered by starting date.
+     * Results are paginated : the next page is obtained by sending back the returned cursor.
+     * @param filters EventSearchDTO, read from the request's parameters
+     * @return EventPageDTO or a bad request if a filter is invalid
      */
-    @ResponseBody
     @GetMapping("/search")
-    public List<EventDTO> findAllByFilters(@RequestParam(name="date", defaultValue = "") String date,
-                                           @RequestParam(name="town", defaultValue = "") String town) {
-        return this.service.findByFilter(date, town);
+    public ResponseEntity<EventPageDTO> findAllByFilters(EventSearchDTO filters) {
+        ResponseEntity<EventPageDTO> result;
+        try {
+            result = ResponseEntity.ok(this.service.search(filters));
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
+    /**
+     * Get the upcoming events in which a user's friends are registered, the ones with most friends first.
+     * The next page is obtained by sending back the returned cursor.
+     * @param nickname User's nickname
+     * @param cursor Token of the previous page; first page if not given
+     * @param size Number of events per page
+     * @return FriendsEventPageDTO, not found if the user doesn't exist, or a bad request if a parameter is invalid
+     */
+    @GetMapping("/search/friends")
+    public ResponseEntity<FriendsEventPageDTO> findFriendsEvents(@RequestParam String nickname,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer size) {
+        ResponseEntity<FriendsEventPageDTO> result;
+        try {
+            FriendsEventPageDTO page = this.service.findFriendsEvents(nickname, cursor, size);
+            if (page!=null)
+                result = ResponseEntity.ok(page);
+            else
+                result = ResponseEntity.notFound().build();
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
+    /**
+     * Get the upcoming events placed within a distance of a point, the nearest first.
+     * The next page is obtained by sending back the returned cursor.
+     * @param lat Point's latitude, in degrees
+     * @param lon Point's longitude, in degrees
+     * @param radiusKm Maximal distance from the point, in kilometers
+     * @param cursor Token of the previous page; first page if not given
+     * @param size Number of events per page
+     * @return NearbyEventPageDTO or a bad request if a parameter is invalid
+     */
+    @GetMapping("/search/nearby")
+    public ResponseEntity<NearbyEventPageDTO> findNearbyEvents(@RequestParam Double lat, @RequestParam Double lon,
+                                                               @RequestParam Double radiusKm,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer size) {
+        ResponseEntity<NearbyEventPageDTO> result;
+        try {
+            result = ResponseEntity.ok(this.service.findNearbyEvents(lat, lon, radiusKm, cursor, size));
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
+    /**
+     * Export all the events matching the given filters, ordered by starting date, as newline-delimited JSON :
+     * one EventDTO per line. The events are written while they are read from the database.
+     * @param filters EventSearchDTO, read from the request's parameters; the page size is ignored
+     * @return Stream of EventDTO or a bad request if a filter is invalid
+     */
+    @GetMapping(value = "/search/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllByFilters(EventSearchDTO filters) {
+        ResponseEntity<StreamingResponseBody> result;
+        try {
+            EventExport export = this.service.export(filters);
+            result = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(output -> this.write(export, output));
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
+    /**
+     * Write the events of an export, one per line, flushing the output after each chunk
+     * @param export Events to write
+     * @param output Response's body
+     * @throws IOException If the client has gone
+     */
+    private void write(EventExport export, OutputStream output) throws IOException {
+        JsonGenerator generator = this.objectMapper.getFactory().createGenerator(output);
+        generator.setRootValueSeparator(null);
+        try {
+            export.forEachChunk(events -> {
+                try {
+                    for (EventDTO event : events) {
+                        generator.writeObject(event);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
@@ -95,12 +205,16 @@ public class EventController {
     /**
      * Route to delete the event by its uuid
      * @param toDelete EventDeleteDTO
-     * @return Always true
+     * @return True if deleted; 404 if the event doesn't exist or is already deleted
      */
     @DeleteMapping
     public ResponseEntity<Boolean> deleteByUuid(@RequestBody EventDeleteDTO toDelete) {
-        this.service.deleteByUuid(toDelete.getUuid());
-        return ResponseEntity.ok(true);
+        ResponseEntity<Boolean> result;
+        if (this.service.deleteByUuid(toDelete.getUuid()))
+            result = ResponseEntity.ok(true);
+        else
+            result = ResponseEntity.notFound().build();
+        return result;
     }
 
     /**
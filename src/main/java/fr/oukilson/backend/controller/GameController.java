@@ -9,7 +9,6 @@ import java.util.List;
 
 @CrossOrigin
 @RestController
-@CrossOrigin
 @RequestMapping("/games")
 public class GameController {
     private GameService service;
@@ -35,12 +34,21 @@ public class GameController {
     }
 
     /**
-     * Get all the games sharing the same name or at least a part of it.
+     * Get the games sharing the same name or at least a part of it, the ones starting with it first.
      * @param name The string to search
-     * @return A list of GameDTO
+     * @param limit Maximal number of games, optional : all the games found if absent
+     * @return A list of GameUuidDTO or a bad request if the limit is invalid
      */
     @GetMapping("/search")
-    public ResponseEntity<List<GameUuidDTO>> findByName(@RequestParam(name = "name") String name) {
-        return ResponseEntity.ok().body(service.findByName(name));
+    public ResponseEntity<List<GameUuidDTO>> findByName(@RequestParam(name = "name") String name,
+                                                        @RequestParam(name = "limit", required = false) Integer limit) {
+        ResponseEntity<List<GameUuidDTO>> result;
+        try {
+            result = ResponseEntity.ok().body(service.findByName(name, limit));
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
     }
 }
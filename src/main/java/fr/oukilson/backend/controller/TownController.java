@@ -0,0 +1,37 @@
+package fr.oukilson.backend.controller;
+
+import fr.oukilson.backend.dto.location.TownDTO;
+import fr.oukilson.backend.service.TownService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/towns")
+public class TownController {
+    private TownService service;
+
+    public TownController(TownService service) {
+        this.service = service;
+    }
+
+    /**
+     * Autocomplete a town : get the towns whose name, or zip code, starts with the typed text.
+     * @param name The typed text
+     * @param limit Maximal number of towns, optional
+     * @return A list of TownDTO or a bad request if the limit is invalid
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<TownDTO>> findByName(@RequestParam(name = "name") String name,
+                                                    @RequestParam(name = "limit", required = false) Integer limit) {
+        ResponseEntity<List<TownDTO>> result;
+        try {
+            result = ResponseEntity.ok().body(this.service.findByName(name, limit));
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+}
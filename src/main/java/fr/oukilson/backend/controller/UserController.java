@@ -1,12 +1,21 @@
 package fr.oukilson.backend.controller;
 
+import fr.oukilson.backend.dto.user.FriendAddResultDTO;
+import fr.oukilson.backend.dto.user.FriendPageDTO;
+import fr.oukilson.backend.dto.user.FriendSuggestionDTO;
+import fr.oukilson.backend.dto.user.MutualFriendsDTO;
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
 import fr.oukilson.backend.service.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @CrossOrigin
@@ -39,26 +48,151 @@ public class UserController {
         return result;
     }
 
-    /* Method to save a user in the database
+    /**
+     * Get a page of a user's friend list. The next page is obtained by sending back the returned cursor.
+     * @param nickname User's nickname
+     * @param cursor Token of the previous page; first page if not given
+     * @param size Number of friends per page
+     * @return FriendPageDTO, not found if the user doesn't exist, or a bad request if a parameter is invalid
+     */
+    @GetMapping("{nickname}/friends")
+    public ResponseEntity<FriendPageDTO> findFriends(@PathVariable String nickname,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size) {
+        ResponseEntity<FriendPageDTO> result;
+        try {
+            FriendPageDTO page = this.userService.findFriends(nickname, cursor, size);
+            if (page!=null)
+                result = ResponseEntity.ok(page);
+            else
+                result = ResponseEntity.notFound().build();
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
+    /**
+     * Suggest new friends to a user, from the friend lists of his friends
+     * @param nickname User's nickname
+     * @param size Maximal number of suggestions
+     * @return List of FriendSuggestionDTO, not found if the user doesn't exist,
+     * or a bad request if the size is invalid
+     */
+    @GetMapping("{nickname}/suggestions")
+    public ResponseEntity<List<FriendSuggestionDTO>> suggestFriends(@PathVariable String nickname,
+                                                                    @RequestParam(required = false) Integer size) {
+        ResponseEntity<List<FriendSuggestionDTO>> result;
+        try {
+            List<FriendSuggestionDTO> suggestions = this.userService.suggestFriends(nickname, size);
+            if (suggestions!=null)
+                result = ResponseEntity.ok(suggestions);
+            else
+                result = ResponseEntity.notFound().build();
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
+    /**
+     * Get the friends two users have in common
+     * @param nickname First user's nickname
+     * @param other Second user's nickname
+     * @return MutualFriendsDTO, or not found if a user doesn't exist
+     */
+    @GetMapping("{nickname}/mutual/{other}")
+    public ResponseEntity<MutualFriendsDTO> findMutualFriends(@PathVariable String nickname,
+                                                              @PathVariable String other) {
+        MutualFriendsDTO mutualFriends = this.userService.findMutualFriends(nickname, other);
+        ResponseEntity<MutualFriendsDTO> result;
+        if (mutualFriends!=null)
+            result = ResponseEntity.ok(mutualFriends);
+        else
+            result = ResponseEntity.notFound().build();
+        return result;
+    }
+
+    /**
+     * Save a user in the database. The request thread is released while the password is hashed.
      * @param userCreationDTO the user object to be saved
-     * @return ResponseEntity<UserDTO>
+     * @return Created user, a bad request if the data are invalid, or unavailable if too many sign-ups are waiting
      */
     @PostMapping()
-    public ResponseEntity<UserDTO> createUser(@Valid @RequestBody UserCreationDTO userCreationDTO){
-        ResponseEntity<UserDTO> result;
+    public CompletableFuture<ResponseEntity<UserDTO>> createUser(@Valid @RequestBody UserCreationDTO userCreationDTO){
+        CompletableFuture<ResponseEntity<UserDTO>> result;
         try {
-            UserDTO event = this.userService.createUser(userCreationDTO);
-            if (event!=null)
-                result = ResponseEntity.status(HttpStatus.CREATED).body(event);
-            else
-                result = ResponseEntity.badRequest().build();
+            result = this.userService.createUser(userCreationDTO).handle((user, e) -> {
+                ResponseEntity<UserDTO> response;
+                if (e==null && user!=null)
+                    response = ResponseEntity.status(HttpStatus.CREATED).body(user);
+                else if (this.isRejected(e))
+                    response = this.unavailable();
+                else
+                    response = ResponseEntity.badRequest().build();
+                return response;
+            });
+        }
+        catch (RejectedExecutionException e) {
+            result = CompletableFuture.completedFuture(this.unavailable());
         }
         catch(Exception e) {
-            result = ResponseEntity.badRequest().build();
+            result = CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
         return result;
     }
-  
+
+    /**
+     * Check if a sign-up failed because too many sign-ups were waiting to be saved
+     * @param e Failure of the sign-up, null if none
+     * @return True if the write has been refused
+     */
+    private boolean isRejected(Throwable e) {
+        return e instanceof RejectedExecutionException
+                || (e!=null && e.getCause() instanceof RejectedExecutionException);
+    }
+
+    /**
+     * Answer when too many sign-ups are waiting, to be hashed or to be saved
+     * @return Unavailable, to retry in one second
+     */
+    private <T> ResponseEntity<T> unavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    /**
+     * Import many users at once, as the members of a club. The request thread is released during the import.
+     * @param users Users to create
+     * @return Report of the import, a bad request if the list is empty or too long,
+     * or unavailable if too many sign-ups are waiting
+     */
+    @PostMapping("/import")
+    public CompletableFuture<ResponseEntity<UserImportReportDTO>> importUsers(
+            @RequestBody List<UserCreationDTO> users) {
+        CompletableFuture<ResponseEntity<UserImportReportDTO>> result;
+        try {
+            result = this.userService.importUsers(users).handle((report, e) -> {
+                ResponseEntity<UserImportReportDTO> response;
+                if (e==null)
+                    response = ResponseEntity.ok(report);
+                else if (this.isRejected(e))
+                    response = this.unavailable();
+                else
+                    response = ResponseEntity.badRequest().build();
+                return response;
+            });
+        }
+        catch (RejectedExecutionException e) {
+            result = CompletableFuture.completedFuture(this.unavailable());
+        }
+        catch (IllegalArgumentException e) {
+            result = CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return result;
+    }
+
     /**
      * Add a user to another user's friend list, asking for both users' nickname
      * @param nickname1 Nickname of the main user
@@ -71,6 +205,30 @@ public class UserController {
         return ResponseEntity.ok(this.userService.addUserToFriendList(nickname1, nickname2));
     }
 
+    /**
+     * Add several users to another user's friend list at once, for example from the contacts of a phone
+     * @param nickname Nickname of the main user
+     * @param nicknames Nicknames of the friends to add
+     * @return What happened to each nickname, not found if the main user doesn't exist,
+     * or a bad request if the list is empty or too long
+     */
+    @PostMapping("{nickname}/friends")
+    public ResponseEntity<List<FriendAddResultDTO>> addUsersToFriendList(@PathVariable String nickname,
+                                                                         @RequestBody List<String> nicknames) {
+        ResponseEntity<List<FriendAddResultDTO>> result;
+        try {
+            List<FriendAddResultDTO> results = this.userService.addUsersToFriendList(nickname, nicknames);
+            if (results!=null)
+                result = ResponseEntity.ok(results);
+            else
+                result = ResponseEntity.notFound().build();
+        }
+        catch (IllegalArgumentException e) {
+            result = ResponseEntity.badRequest().build();
+        }
+        return result;
+    }
+
     /**
      * Remove a user from another user's friend list
      * @param nickname1 Nickname of the main user
@@ -83,6 +241,30 @@ public class UserController {
         return ResponseEntity.ok(this.userService.removeUserFromFriendList(nickname1, nickname2));
     }
 
+    /**
+     * Add a user to another user's denied list
+     * @param nickname1 Nickname of the main user
+     * @param nickname2 Nickname of the user to deny
+     * @return ResponseEntity<Boolean>
+     */
+    @PutMapping("/deny/{id1}/{id2}")
+    public ResponseEntity<Boolean> denyUser(@PathVariable(name = "id1") String nickname1,
+                                            @PathVariable(name = "id2") String nickname2) {
+        return ResponseEntity.ok(this.userService.denyUser(nickname1, nickname2));
+    }
+
+    /**
+     * Remove a user from another user's denied list
+     * @param nickname1 Nickname of the main user
+     * @param nickname2 Nickname of the user to allow again
+     * @return ResponseEntity<Boolean>
+     */
+    @PutMapping("/allow/{id1}/{id2}")
+    public ResponseEntity<Boolean> allowUser(@PathVariable(name = "id1") String nickname1,
+                                             @PathVariable(name = "id2") String nickname2) {
+        return ResponseEntity.ok(this.userService.allowUser(nickname1, nickname2));
+    }
+
     /**
      * Empties a user's friend list
      * @param nickname User's nickname
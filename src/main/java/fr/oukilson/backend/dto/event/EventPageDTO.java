@@ -0,0 +1,12 @@
+package fr.oukilson.backend.dto.event;
+
+import lombok.*;
+import java.util.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventPageDTO {
+    private List<EventDTO> events = new LinkedList<>();
+    private String nextCursor;      // Token to get the next page; null if this is the last one
+}
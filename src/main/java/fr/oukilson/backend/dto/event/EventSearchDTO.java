@@ -6,6 +6,13 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 public class EventSearchDTO {
-    private String date;
-    private String town;
-}
\ No newline at end of file
+    private String date;            // Events starting after this date
+    private String endDate;         // Events starting before this date
+    private String town;            // Start of the town's name, case, accents and punctuation ignored
+    private String zipCode;         // Town's zip code
+    private String game;            // Game's uuid
+    private Boolean freeSeats;      // True to get only the events with a free seat
+    private Boolean isPrivate;      // Private or public events only; both if null
+    private String cursor;          // Token of the previous page; first page if null
+    private Integer size;           // Number of events per page
+}
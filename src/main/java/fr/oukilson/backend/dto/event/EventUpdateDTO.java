@@ -31,6 +31,7 @@ public class EventUpdateDTO {
      * - Event's description must be not null
      * - Event's game uuid must be not null
      * - at least, the attribute 'town' of the attribute 'location' is not null
+     * - the location's latitude and longitude are both null, or both valid
      * - limitDate must be after the provided parameter date
      * - startingDate must equal or after limitDate
      * - endingDate can be null but, if not, must be after startingDate
@@ -42,7 +43,8 @@ public class EventUpdateDTO {
         boolean result;
         result = this.uuid != null && this.minPlayer >= 2 && this.minPlayer <= this.maxPlayer && this.title != null
                 && this.description != null && this.game != null && this.game.getUuid() != null && this.location != null
-                && this.location.getTown() != null && this.limitDate != null && !this.limitDate.isBefore(date)
+                && this.location.getTown() != null && this.location.hasValidCoordinates()
+                && this.limitDate != null && !this.limitDate.isBefore(date)
                 && this.startingDate != null && !this.startingDate.isBefore(this.limitDate)
                 && (this.endingDate == null || !this.endingDate.isBefore(this.startingDate));
         return result;
@@ -0,0 +1,11 @@
+package fr.oukilson.backend.dto.event;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendsEventDTO {
+    private EventDTO event;
+    private int friends;            // Number of the user's friends registered in the event
+}
@@ -0,0 +1,11 @@
+package fr.oukilson.backend.dto.event;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearbyEventDTO {
+    private EventDTO event;
+    private double distance;        // Distance from the searched point, in kilometers
+}
@@ -9,4 +9,29 @@ public class EventUpdateLocationDTO {
     private String town;
     private String zipCode;
     private String address;
+    private Double latitude;        // Degrees, between -90 and 90
+    private Double longitude;       // Degrees, between -180 and 180
+
+    /**
+     * Location not placed on the map
+     * @param town Town
+     * @param zipCode Zip code
+     * @param address Address
+     */
+    public EventUpdateLocationDTO(String town, String zipCode, String address) {
+        this(town, zipCode, address, null, null);
+    }
+
+    /**
+     * The coordinates are optional, but when given, both must be given and be on the map
+     * @return True if valid
+     */
+    public boolean hasValidCoordinates() {
+        boolean result;
+        if (this.latitude == null)
+            result = this.longitude == null;
+        else
+            result = this.longitude != null && Math.abs(this.latitude) <= 90 && Math.abs(this.longitude) <= 180;
+        return result;
+    }
 }
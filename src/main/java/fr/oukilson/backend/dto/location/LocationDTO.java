@@ -9,4 +9,6 @@ public class LocationDTO {
     private String town;
     private String zipCode;
     private String address;
+    private Double latitude;        // Degrees, between -90 and 90
+    private Double longitude;       // Degrees, between -180 and 180
 }
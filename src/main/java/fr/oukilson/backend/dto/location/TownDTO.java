@@ -0,0 +1,11 @@
+package fr.oukilson.backend.dto.location;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TownDTO {
+    private String name;
+    private String zipCode;
+}
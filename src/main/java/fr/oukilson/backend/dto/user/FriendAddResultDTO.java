@@ -0,0 +1,21 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendAddResultDTO {
+    /**
+     * What happened to a nickname of a bulk add
+     */
+    public enum Status {
+        ADDED,              // Added in the friend list
+        ALREADY_FRIEND,     // Already in the friend list
+        DENIED,             // The main user is in this user's denied list
+        NOT_FOUND           // No user with this nickname
+    }
+
+    private String nickname;
+    private Status status;
+}
@@ -0,0 +1,12 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+import java.util.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendPageDTO {
+    private List<UserNameDTO> friends = new LinkedList<>();
+    private String nextCursor;      // Token to get the next page; null if this is the last one
+}
@@ -0,0 +1,11 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendSuggestionDTO {
+    private String nickname;
+    private int mutualFriends;      // Number of friends in common with the user
+}
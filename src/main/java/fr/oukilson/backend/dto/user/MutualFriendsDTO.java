@@ -0,0 +1,13 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+import java.util.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MutualFriendsDTO {
+    private int count;                                      // Number of friends in common
+    private List<UserNameDTO> friends = new LinkedList<>(); // First friends in common
+    private Integer distance;       // Number of friend links from the user to the other one; null if too far
+}
@@ -1,5 +1,6 @@
 package fr.oukilson.backend.dto.user;
 
+import fr.oukilson.backend.validator.TextValidator;
 import lombok.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -32,4 +33,15 @@ public class UserCreationDTO {
         return nickname!=null && password!=null && email!=null && !password.isBlank()
                 && nicknamePattern.matcher(nickname).find() && emailPattern.matcher(email).find();
     }
+
+    /**
+     * Check if this DTO has valid values, as isValid with patterns, but with validators
+     * @param nicknameValidator Validator for the nickname
+     * @param emailValidator Validator for the email
+     * @return True if the DTO is valid
+     */
+    public boolean isValid(TextValidator nicknameValidator, TextValidator emailValidator) {
+        return nickname!=null && password!=null && email!=null && !password.isBlank()
+                && nicknameValidator.isValid(nickname) && emailValidator.isValid(email);
+    }
 }
@@ -1,6 +1,7 @@
 package fr.oukilson.backend.dto.user;
 
 import lombok.*;
+import java.util.LinkedList;
 import java.util.List;
 
 @Data
@@ -8,5 +9,7 @@ import java.util.List;
 @AllArgsConstructor
 public class UserDTO {
     private String nickname;
-    private List<UserNameDTO> friendList;
-}
\ No newline at end of file
+    private int friendCount;                                    // Number of users in the friend list
+    private List<UserNameDTO> friendList = new LinkedList<>();  // First page of the friend list
+    private String nextFriendCursor;    // Token to get the next page from /users/{nickname}/friends; null if none
+}
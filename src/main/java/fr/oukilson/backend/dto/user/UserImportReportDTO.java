@@ -0,0 +1,15 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportReportDTO {
+    private List<UserImportResultDTO> results = new ArrayList<>();     // One per imported user, in the same order
+    private int created;                // Number of created users
+    private long durationMillis;        // Time taken by the whole import
+    private double rowsPerSecond;       // Inserted users per second
+}
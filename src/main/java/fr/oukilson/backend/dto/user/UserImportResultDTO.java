@@ -0,0 +1,21 @@
+package fr.oukilson.backend.dto.user;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportResultDTO {
+    /**
+     * What happened to a user of an import
+     */
+    public enum Status {
+        CREATED,            // Saved in the database
+        INVALID,            // Invalid nickname, email or password
+        DUPLICATE,          // Nickname already given before in the same import
+        ALREADY_EXISTS      // Nickname already taken by a user in the database
+    }
+
+    private String nickname;
+    private Status status;
+}
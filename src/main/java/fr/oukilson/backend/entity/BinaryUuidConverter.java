@@ -0,0 +1,61 @@
+package fr.oukilson.backend.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Store a uuid, known as text by the client, in 16 bytes instead of 36 characters.
+ * A text that is not a uuid can't be the uuid of a stored row : it's converted to null,
+ * so a lookup with it finds nothing.
+ */
+@Converter
+public class BinaryUuidConverter implements AttributeConverter<String, byte[]> {
+    private static final int LENGTH = 36;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        byte[] result = null;
+        UUID uuid = parse(text);
+        if (uuid!=null)
+            result = ByteBuffer.allocate(16)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits())
+                    .array();
+        return result;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        String result = null;
+        if (bytes!=null && bytes.length==16) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            result = new UUID(buffer.getLong(), buffer.getLong()).toString();
+        }
+        return result;
+    }
+
+    /**
+     * Read a uuid written in its canonical form : 32 hexadecimal digits in groups of 8-4-4-4-12.
+     * Unlike UUID.fromString, shorter groups are refused, so each uuid has only one text.
+     * @param text Text of the uuid, in lower or upper case
+     * @return UUID, null if the text is not a uuid
+     */
+    public static UUID parse(String text) {
+        UUID result = null;
+        if (text!=null && text.length()==LENGTH) {
+            boolean valid = true;
+            for (int i=0; i<LENGTH && valid; i++) {
+                char c = text.charAt(i);
+                if (i==8 || i==13 || i==18 || i==23)
+                    valid = c=='-';
+                else
+                    valid = Character.digit(c, 16)>=0 && c<128;
+            }
+            if (valid)
+                result = UUID.fromString(text);
+        }
+        return result;
+    }
+}
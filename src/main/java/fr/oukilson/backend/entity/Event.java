@@ -1,12 +1,17 @@
 package fr.oukilson.backend.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Where;
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.*;
 
 @Entity
-@Table(name="event")
+@Table(name="event",
+        uniqueConstraints = @UniqueConstraint(name = "uk_event_uuid", columnNames = "uuid"),
+        indexes = {@Index(name = "idx_event_start_date_id", columnList = "start_date, id"),
+                @Index(name = "idx_event_deleted_date", columnList = "deleted_date")})
+@Where(clause = "deleted_date is null")
 @Getter
 @Setter
 @AllArgsConstructor
@@ -15,7 +20,11 @@ public class Event {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;                                // DB id
+    @Convert(converter = BinaryUuidConverter.class)
+    @Column(columnDefinition = "varbinary(16)")
     private String uuid;                            // String uuid to access from the client
+    @Version
+    private long version;                           // Incremented on each update and on each reservation
     private String title;                           // Event's title
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -41,46 +50,32 @@ public class Event {
     private String description;	                    // Description of the event
     @Column(name = "private")
     private boolean isPrivate;	                    // True if the event is a private event
+    @Column(name = "deleted_date", columnDefinition = "TIMESTAMP")
+    private LocalDateTime deletionDate;             // Deletion date, null while the event exists
 
     @OneToOne
     @JoinColumn(name = "location_id")
     private Location location;	                    // Where the event will be
 
-    // Users registered in the event
+    // Users registered in the event.
+    // Sets are hashed on the user's id (see User.hashCode) : membership, add and remove are O(1).
     @ManyToMany
     @JoinTable(name = "event_user",
             joinColumns = @JoinColumn(name = "event_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
-    private List<User> registeredUsers = new LinkedList<>();
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_event_user_user_event", columnList = "user_id, event_id"))
+    private Set<User> registeredUsers = new LinkedHashSet<>();
 
-    // Users in the waiting queue
+    // Users in the waiting queue, loaded in order of arrival (seq column of the join table, numbered by the database)
     @ManyToMany
+    @org.hibernate.annotations.OrderBy(clause = "seq")
     @JoinTable(name = "event_user_in_queue",
             joinColumns = @JoinColumn(name = "event_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
-    private List<User> waitingUsers = new LinkedList<>();
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_event_user_in_queue_user_event", columnList = "user_id, event_id"))
+    private Set<User> waitingUsers = new LinkedHashSet<>();
 
 
-    /**
-     * Check if a user is in a LinkedList.
-     * Check only the id due to its uniqueness.
-     * @param list The LinkedList where to check
-     * @param user The user to check
-     * @return True if user in list
-     */
-    private boolean isUserInList(List<User> list, User user) {
-        boolean result = false;
-        Iterator it = list.iterator();
-        while (it.hasNext()) {
-            User u = (User) it.next();
-            if (user.getId()==u.getId()) {
-                result = true;
-                break;
-            }
-        }
-        return result;
-    }
-
     /**
      * Add a user in the event's queue
      * @param user User
@@ -100,18 +95,18 @@ public class Event {
     }
 
     /**
-     * Add a user in a LinkedList only if :
-     * - the user is not in the list 'toAdd'
-     * - the user is not in the list 'exclusion'
-     * - the list 'toAdd' is not full
-     * @param toAdd List where to add the user
-     * @param exclusion Exclusion list
+     * Add a user in a set only if :
+     * - the user is not in the set 'toAdd'
+     * - the user is not in the set 'exclusion'
+     * - the set 'toAdd' is not full
+     * @param toAdd Set where to add the user
+     * @param exclusion Exclusion set
      * @param user User
      * @return True if added
      */
-    private boolean addUserInList(List<User> toAdd, List<User> exclusion, User user) {
+    private boolean addUserInList(Set<User> toAdd, Set<User> exclusion, User user) {
         boolean result;
-        if (toAdd.size()==this.maxPlayer || this.isUserInList(toAdd, user) || this.isUserInList(exclusion, user))
+        if (toAdd.size()>=this.maxPlayer || exclusion.contains(user))
             result = false;
         else
             result = toAdd.add(user);
@@ -124,7 +119,7 @@ public class Event {
      * @return True if removed
      */
     public boolean removeUser(User user) {
-        return this.registeredUsers.removeIf(u -> u.getId()==user.getId());
+        return this.registeredUsers.remove(user);
     }
 
     /**
@@ -133,6 +128,6 @@ public class Event {
      * @return True if removed
      */
     public boolean removeUserInWaitingQueue(User user) {
-        return this.waitingUsers.removeIf(u -> u.getId()==user.getId());
+        return this.waitingUsers.remove(user);
     }
 }
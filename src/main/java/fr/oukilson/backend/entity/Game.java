@@ -1,12 +1,15 @@
 package fr.oukilson.backend.entity;
 
+import fr.oukilson.backend.service.GameCacheListener;
+import fr.oukilson.backend.service.GameNameIndexListener;
 import lombok.*;
 import javax.persistence.*;
 import java.util.LinkedList;
 import java.util.List;
 
 @Entity
-@Table(name="game")
+@Table(name="game", uniqueConstraints = @UniqueConstraint(name = "uk_game_uuid", columnNames = "uuid"))
+@EntityListeners({GameNameIndexListener.class, GameCacheListener.class})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -15,6 +18,8 @@ public class Game {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;                    // DB id
+    @Convert(converter = BinaryUuidConverter.class)
+    @Column(columnDefinition = "varbinary(16)")
     private String uuid;                // String uuid to access from the client
     private String name;                // Game's name
     @Column(name = "min_player")
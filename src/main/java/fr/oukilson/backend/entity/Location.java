@@ -4,7 +4,7 @@ import lombok.*;
 import javax.persistence.*;
 
 @Entity
-@Table(name="location")
+@Table(name="location", indexes = @Index(name = "idx_location_coordinates", columnList = "latitude, longitude"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,4 +19,21 @@ public class Location {
     private String address;
     @OneToOne(cascade = CascadeType.ALL, mappedBy = "location")
     private Event event;
+    private Double latitude;                // Degrees, null if the location is not placed on the map
+    private Double longitude;               // Degrees, null if the location is not placed on the map
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "town_id")
+    private Town referenceTown;             // Entry of the town dictionary, used to search the locations by town
+
+    /**
+     * Location not placed on the map
+     * @param id DB id
+     * @param town Town
+     * @param zipCode Zip code
+     * @param address Address
+     * @param event Event taking place there
+     */
+    public Location(Long id, String town, String zipCode, String address, Event event) {
+        this(id, town, zipCode, address, event, null, null, null);
+    }
 }
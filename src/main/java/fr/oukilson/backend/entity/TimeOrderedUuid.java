@@ -0,0 +1,37 @@
+package fr.oukilson.backend.entity;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Uuids starting with their creation time in milliseconds, as the version 7 of RFC 9562.
+ * New rows get uuids greater than the previous ones, so they are added at the end of the uuid index
+ * instead of splitting its pages at random places. The 74 other bits are random.
+ */
+public final class TimeOrderedUuid {
+    private static final Random RANDOM = new SecureRandom();
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * Generate a uuid for now
+     * @return String, the uuid in its canonical form
+     */
+    public static String generate() {
+        return generate(System.currentTimeMillis(), RANDOM).toString();
+    }
+
+    /**
+     * Generate a uuid for a given time
+     * @param millis Time in milliseconds since the epoch
+     * @param random Source of the random bits
+     * @return UUID
+     */
+    static UUID generate(long millis, Random random) {
+        long most = (millis << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+        long least = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(most, least);
+    }
+}
@@ -0,0 +1,30 @@
+package fr.oukilson.backend.entity;
+
+import fr.oukilson.backend.service.TownIndexListener;
+import lombok.*;
+import javax.persistence.*;
+
+/**
+ * Entry of the town dictionary, shared by all the locations in the same town.
+ * A town is known by its name, compared in lower case and without accents nor punctuation, and its zip code.
+ */
+@Entity
+@Table(name="town",
+        uniqueConstraints = @UniqueConstraint(name = "uk_town_name_zip_code",
+                columnNames = {"normalized_name", "zip_code"}),
+        indexes = @Index(name = "idx_town_zip_code", columnList = "zip_code"))
+@EntityListeners(TownIndexListener.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Town {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;                        // DB id
+    private String name;                    // Name as first written
+    @Column(name = "zip_code", nullable = false)
+    private String zipCode;                 // Empty if unknown : the unique key would let several nulls in
+    @Column(name = "normalized_name")
+    private String normalizedName;          // Name in lower case, without accents nor punctuation
+}
@@ -6,7 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name="user")
+@Table(name="user", uniqueConstraints = @UniqueConstraint(name = "uk_user_nickname", columnNames = "nickname"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,7 +16,7 @@ public class User {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;                    // DB id
     private String nickname;            // Unique username; also used to access from the client
-    private String password;            // Encrypted version of the password
+    private String password;            // Bcrypt hash of the password, with its salt and cost
     private String email;               // Email of the user
     @Column(name = "first_name")
     private String firstName;           // First name of the user
@@ -0,0 +1,17 @@
+package fr.oukilson.backend.mapper;
+
+/**
+ * Map an entity to its DTO.
+ * Implemented by hand for the mappings on the hot paths, or by ModelMapper through ModelMapperAdapter :
+ * the implementation used for each mapping is chosen in MapperConfiguration.
+ * @param <E> Entity
+ * @param <D> DTO
+ */
+public interface EntityMapper<E, D> {
+    /**
+     * Map an entity to a new DTO
+     * @param entity Entity, may be null
+     * @return DTO, null if the entity is null
+     */
+    D map(E entity);
+}
@@ -0,0 +1,59 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.game.GameNameUuidDTO;
+import fr.oukilson.backend.dto.location.LocationDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+
+/**
+ * Hand-written mapping of an Event to an EventDTO, without reflection.
+ * The participants are mapped to their nicknames, in the order of the event's sets.
+ */
+public class EventDTOMapper implements EntityMapper<Event, EventDTO> {
+    @Override
+    public EventDTO map(Event entity) {
+        EventDTO result = null;
+        if (entity!=null) {
+            result = new EventDTO();
+            result.setUuid(entity.getUuid());
+            result.setTitle(entity.getTitle());
+            result.setCreator(UserDTOMapper.toName(entity.getCreator()));
+            result.setGame(this.toGame(entity.getGame()));
+            result.setMinPlayer(entity.getMinPlayer());
+            result.setMaxPlayer(entity.getMaxPlayer());
+            result.setCreationDate(entity.getCreationDate());
+            result.setStartingDate(entity.getStartingDate());
+            result.setEndingDate(entity.getEndingDate());
+            result.setLimitDate(entity.getLimitDate());
+            result.setDescription(entity.getDescription());
+            result.setPrivate(entity.isPrivate());
+            result.setLocation(this.toLocation(entity.getLocation()));
+            if (entity.getRegisteredUsers()!=null)
+                result.setRegisteredUsers(UserDTOMapper.toNames(entity.getRegisteredUsers()));
+            if (entity.getWaitingUsers()!=null)
+                result.setWaitingUsers(UserDTOMapper.toNames(entity.getWaitingUsers()));
+        }
+        return result;
+    }
+
+    /**
+     * Map the game of the event
+     * @param game Game, may be null
+     * @return GameNameUuidDTO, null if the game is null
+     */
+    private GameNameUuidDTO toGame(Game game) {
+        return game==null ? null : new GameNameUuidDTO(game.getUuid(), game.getName());
+    }
+
+    /**
+     * Map the location of the event
+     * @param location Location, may be null
+     * @return LocationDTO, null if the location is null
+     */
+    private LocationDTO toLocation(Location location) {
+        return location==null ? null : new LocationDTO(location.getTown(), location.getZipCode(), location.getAddress(),
+                location.getLatitude(), location.getLongitude());
+    }
+}
@@ -0,0 +1,38 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.game.GameNameUuidDTO;
+import fr.oukilson.backend.dto.location.LocationDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.model.EventHeader;
+
+/**
+ * Map the columns read for an event to an EventDTO, without its participants
+ */
+public class EventHeaderMapper implements EntityMapper<EventHeader, EventDTO> {
+    @Override
+    public EventDTO map(EventHeader header) {
+        EventDTO result = null;
+        if (header!=null) {
+            result = new EventDTO();
+            result.setUuid(header.getUuid());
+            result.setTitle(header.getTitle());
+            if (header.getCreatorNickname()!=null)
+                result.setCreator(new UserNameDTO(header.getCreatorNickname()));
+            if (header.getGameUuid()!=null)
+                result.setGame(new GameNameUuidDTO(header.getGameUuid(), header.getGameName()));
+            result.setMinPlayer(header.getMinPlayer());
+            result.setMaxPlayer(header.getMaxPlayer());
+            result.setCreationDate(header.getCreationDate());
+            result.setStartingDate(header.getStartingDate());
+            result.setEndingDate(header.getEndingDate());
+            result.setLimitDate(header.getLimitDate());
+            result.setDescription(header.getDescription());
+            result.setPrivate(header.isPrivate());
+            if (header.getLocationId()!=null)
+                result.setLocation(new LocationDTO(header.getTown(), header.getZipCode(), header.getAddress(),
+                        header.getLatitude(), header.getLongitude()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.entity.Game;
+
+/**
+ * Hand-written mapping of a Game to a GameDTO, without reflection.
+ * Unknown numbers are mapped to 0, as ModelMapper does.
+ */
+public class GameDTOMapper implements EntityMapper<Game, GameDTO> {
+    @Override
+    public GameDTO map(Game entity) {
+        GameDTO result = null;
+        if (entity!=null) {
+            result = new GameDTO(entity.getUuid(), entity.getName(),
+                    orZero(entity.getMinPlayer()), orZero(entity.getMaxPlayer()),
+                    orZero(entity.getMinPlayingTime()), orZero(entity.getMaxPlayingTime()),
+                    orZero(entity.getMinAge()), entity.getCreatorName());
+        }
+        return result;
+    }
+
+    /**
+     * Unbox a number
+     * @param value Number, may be null
+     * @return The number, or 0 if null
+     */
+    private static int orZero(Integer value) {
+        return value==null ? 0 : value;
+    }
+}
@@ -0,0 +1,23 @@
+package fr.oukilson.backend.mapper;
+
+import org.modelmapper.ModelMapper;
+
+/**
+ * EntityMapper using ModelMapper, which finds the properties to copy by reflection
+ * @param <E> Entity
+ * @param <D> DTO
+ */
+public class ModelMapperAdapter<E, D> implements EntityMapper<E, D> {
+    private final ModelMapper mapper;
+    private final Class<D> type;
+
+    public ModelMapperAdapter(ModelMapper mapper, Class<D> type) {
+        this.mapper = mapper;
+        this.type = type;
+    }
+
+    @Override
+    public D map(E entity) {
+        return entity==null ? null : this.mapper.map(entity, this.type);
+    }
+}
@@ -0,0 +1,48 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.User;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Hand-written mapping of a User to a UserDTO, without reflection.
+ * The friend list is not read : its count and first page are added by UserService.
+ */
+public class UserDTOMapper implements EntityMapper<User, UserDTO> {
+    @Override
+    public UserDTO map(User entity) {
+        UserDTO result = null;
+        if (entity!=null) {
+            result = new UserDTO();
+            result.setNickname(entity.getNickname());
+        }
+        return result;
+    }
+
+    /**
+     * Map a user to its nickname
+     * @param user User, may be null
+     * @return UserNameDTO, null if the user is null
+     */
+    public static UserNameDTO toName(User user) {
+        return user==null ? null : new UserNameDTO(user.getNickname());
+    }
+
+    /**
+     * Map users to their nicknames, in the same order
+     * @param users Users, may be null
+     * @return List of UserNameDTO, null if the users are null
+     */
+    public static List<UserNameDTO> toNames(Collection<User> users) {
+        List<UserNameDTO> result = null;
+        if (users!=null) {
+            result = new LinkedList<>();
+            for (User user : users)
+                result.add(toName(user));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,14 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+
+/**
+ * Row of the denied list : the user has denied the other one
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Denial {
+    private Long userId;
+    private Long deniedId;
+}
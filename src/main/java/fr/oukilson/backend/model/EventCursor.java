@@ -0,0 +1,47 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last event of a search page, on the key (startingDate, id).
+ * Sent to the client as an opaque token to get the next page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventCursor {
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime startingDate;
+    private Long id;
+
+    /**
+     * Encode the cursor in a URL-safe token
+     * @return String
+     */
+    public String encode() {
+        String raw = this.startingDate.toString() + SEPARATOR + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token created by the method encode
+     * @param token The token
+     * @return EventCursor
+     * @throws IllegalArgumentException If the token is malformed
+     */
+    public static EventCursor decode(String token) throws IllegalArgumentException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new EventCursor(LocalDateTime.parse(raw.substring(0, index)),
+                    Long.parseLong(raw.substring(index+1)));
+        }
+        catch (Exception e) {
+            throw new IllegalArgumentException("Event search : Invalid cursor.");
+        }
+    }
+}
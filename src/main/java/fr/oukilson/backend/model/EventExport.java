@@ -0,0 +1,18 @@
+package fr.oukilson.backend.model;
+
+import fr.oukilson.backend.dto.event.EventDTO;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Events matching a search, ready to be read.
+ * The filters are checked when the export is created; the events are only read when it is run.
+ */
+@FunctionalInterface
+public interface EventExport {
+    /**
+     * Read all the events, ordered by starting date, and give them to the consumer chunk by chunk
+     * @param consumer Called with each chunk of events, as soon as it is read
+     */
+    void forEachChunk(Consumer<List<EventDTO>> consumer);
+}
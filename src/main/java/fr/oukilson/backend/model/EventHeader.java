@@ -0,0 +1,34 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Columns of an event needed by EventDTO, read in a single query with its creator, game and location.
+ * The participants are read apart, see EventParticipant.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventHeader {
+    private Long id;
+    private String uuid;
+    private String title;
+    private String creatorNickname;
+    private String gameUuid;
+    private String gameName;
+    private int minPlayer;
+    private int maxPlayer;
+    private LocalDateTime creationDate;
+    private LocalDateTime startingDate;
+    private LocalDateTime endingDate;
+    private LocalDateTime limitDate;
+    private String description;
+    private boolean isPrivate;
+    private Long locationId;
+    private String town;
+    private String zipCode;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+}
@@ -0,0 +1,14 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+
+/**
+ * Nickname of a registered or waiting user of an event
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventParticipant {
+    private Long eventId;
+    private String nickname;
+}
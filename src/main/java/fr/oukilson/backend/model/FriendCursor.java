@@ -0,0 +1,41 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last friend of a page of a friend list, on the friend's id.
+ * Sent to the client as an opaque token to get the next page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendCursor {
+    private Long id;
+
+    /**
+     * Encode the cursor in a URL-safe token
+     * @return String
+     */
+    public String encode() {
+        String raw = String.valueOf(this.id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token created by the method encode
+     * @param token The token
+     * @return FriendCursor
+     * @throws IllegalArgumentException If the token is malformed
+     */
+    public static FriendCursor decode(String token) throws IllegalArgumentException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            return new FriendCursor(Long.parseLong(raw));
+        }
+        catch (Exception e) {
+            throw new IllegalArgumentException("Friend list : Invalid cursor.");
+        }
+    }
+}
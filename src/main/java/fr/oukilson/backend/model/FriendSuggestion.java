@@ -0,0 +1,14 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+
+/**
+ * User suggested as a new friend, with the number of friends he has in common with the user
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendSuggestion {
+    private Long userId;
+    private int mutualFriends;
+}
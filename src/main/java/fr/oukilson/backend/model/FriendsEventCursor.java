@@ -0,0 +1,49 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last event of a page of events ranked by friends, on the key (friends, startingDate, id).
+ * Sent to the client as an opaque token to get the next page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendsEventCursor {
+    private static final String SEPARATOR = "|";
+
+    private int friends;
+    private LocalDateTime startingDate;
+    private Long id;
+
+    /**
+     * Encode the cursor in a URL-safe token
+     * @return String
+     */
+    public String encode() {
+        String raw = this.friends + SEPARATOR + this.startingDate.toString() + SEPARATOR + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token created by the method encode
+     * @param token The token
+     * @return FriendsEventCursor
+     * @throws IllegalArgumentException If the token is malformed
+     */
+    public static FriendsEventCursor decode(String token) throws IllegalArgumentException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            return new FriendsEventCursor(Integer.parseInt(raw.substring(0, first)),
+                    LocalDateTime.parse(raw.substring(first+1, last)), Long.parseLong(raw.substring(last+1)));
+        }
+        catch (Exception e) {
+            throw new IllegalArgumentException("Friends' events : Invalid cursor.");
+        }
+    }
+}
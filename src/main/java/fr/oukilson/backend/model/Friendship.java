@@ -0,0 +1,14 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+
+/**
+ * Row of the friend list : the friend is in the user's friend list
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Friendship {
+    private Long userId;
+    private Long friendId;
+}
@@ -0,0 +1,48 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last event of a page of events ordered by distance, on the key (distance, id).
+ * Sent to the client as an opaque token to get the next page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearbyEventCursor {
+    private static final String SEPARATOR = "|";
+
+    private double distance;
+    private Long id;
+
+    /**
+     * Encode the cursor in a URL-safe token
+     * @return String
+     */
+    public String encode() {
+        String raw = Double.toString(this.distance) + SEPARATOR + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token created by the method encode
+     * @param token The token
+     * @return NearbyEventCursor
+     * @throws IllegalArgumentException If the token is malformed
+     */
+    public static NearbyEventCursor decode(String token) throws IllegalArgumentException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            double distance = Double.parseDouble(raw.substring(0, separator));
+            if (!Double.isFinite(distance))
+                throw new NumberFormatException();
+            return new NearbyEventCursor(distance, Long.parseLong(raw.substring(separator+1)));
+        }
+        catch (Exception e) {
+            throw new IllegalArgumentException("Nearby events : Invalid cursor.");
+        }
+    }
+}
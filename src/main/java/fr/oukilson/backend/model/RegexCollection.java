@@ -1,5 +1,6 @@
 package fr.oukilson.backend.model;
 
+import fr.oukilson.backend.validator.TextValidator;
 import lombok.*;
 import java.util.regex.Pattern;
 
@@ -10,4 +11,8 @@ public class RegexCollection {
     private Pattern emailPattern;
     private Pattern nicknamePattern;
     private Pattern namePattern;
-}
\ No newline at end of file
+    // Same checks as the patterns, hand-written when possible : use them on the hot paths
+    private TextValidator emailValidator;
+    private TextValidator nicknameValidator;
+    private TextValidator nameValidator;
+}
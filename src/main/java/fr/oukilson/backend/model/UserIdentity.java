@@ -0,0 +1,14 @@
+package fr.oukilson.backend.model;
+
+import lombok.*;
+
+/**
+ * Id and nickname of a user, read without loading the user
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserIdentity {
+    private Long id;
+    private String nickname;
+}
@@ -1,17 +1,247 @@
 package fr.oukilson.backend.repository;
 
 import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.model.EventHeader;
+import fr.oukilson.backend.model.EventParticipant;
 import org.springframework.data.jpa.repository.JpaRepository;
-
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface EventRepository extends JpaRepository<Event, Long> {
+public interface EventRepository extends JpaRepository<Event, Long>, EventRepositoryCustom {
     Optional<Event> findByUuid(String uuid);
-    List<Event> findAllByStartingDateAfter(LocalDateTime date);
-    List<Event> findAllByLocationTown(String town);
-    List<Event> findAllByLocationTownContaining(String town);
-    void deleteByUuid(String uuid);
+
+    /**
+     * Mark an event as deleted : the queries don't find it anymore, and EventPurger deletes it later.
+     * Its version is incremented, so a reservation running at the same time is refused.
+     * @param uuid Event's uuid
+     * @param now Deletion date
+     * @return Number of updated rows, 0 if the event doesn't exist or is already deleted
+     */
+    @Modifying
+    @Query("update Event e set e.deletionDate = :now, e.version = e.version + 1 "
+            + "where e.uuid = :uuid and e.deletionDate is null")
+    int softDeleteByUuid(@Param("uuid") String uuid, @Param("now") LocalDateTime now);
+
+    /**
+     * Find the columns of an event needed by EventDTO, with its creator, game and location
+     * @param uuid Event's uuid
+     * @return Optional<EventHeader>
+     */
+    @Query("select new fr.oukilson.backend.model.EventHeader(e.id, e.uuid, e.title, c.nickname, g.uuid, g.name, "
+            + "e.minPlayer, e.maxPlayer, e.creationDate, e.startingDate, e.endingDate, e.limitDate, e.description, "
+            + "e.isPrivate, l.id, l.town, l.zipCode, l.address, l.latitude, l.longitude) "
+            + "from Event e left join e.creator c left join e.game g left join e.location l where e.uuid = :uuid")
+    Optional<EventHeader> findHeaderByUuid(@Param("uuid") String uuid);
+
+    /**
+     * Find the nicknames of the registered users of several events
+     * @param ids Events' id
+     * @return List<EventParticipant>
+     */
+    @Query("select new fr.oukilson.backend.model.EventParticipant(e.id, u.nickname) "
+            + "from Event e join e.registeredUsers u where e.id in :ids")
+    List<EventParticipant> findRegisteredUsers(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find the nicknames of the waiting users of several events, in order of arrival.
+     * Native, as the arrival number (seq column) of the waiting queue isn't mapped.
+     * @param ids Events' id
+     * @return List of (event's id, nickname) pairs
+     */
+    @Query(nativeQuery = true, value = "select w.event_id, u.nickname from event_user_in_queue w "
+            + "join user u on u.id = w.user_id where w.event_id in (:ids) order by w.seq")
+    List<Object[]> findWaitingUsers(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Rank the upcoming events by the number of users of a friend list registered in them :
+     * most friends first, then by starting date. The friend list is joined with the registered users
+     * on their indexed user columns, so the ranking is done by the database in one query.
+     * The ranking is paginated by keyset on (friends, startingDate, id) : only the events placed after
+     * the given position are returned.
+     * @param userId Id of the user owning the friend list
+     * @param now Only the events starting after this date are ranked
+     * @param afterFriends Number of friends of the last event of the previous page
+     * @param afterDate Starting date of the last event of the previous page
+     * @param afterId Id of the last event of the previous page
+     * @param size Maximal number of events
+     * @return List of (event's id, number of friends) pairs
+     */
+    @Query(nativeQuery = true, value = "select e.id, count(*) from friend_list f "
+            + "join event_user r on r.user_id = f.friend_id "
+            + "join event e on e.id = r.event_id "
+            + "where f.user_id = :userId and e.start_date > :now and e.deleted_date is null "
+            + "group by e.id, e.start_date "
+            + "having count(*) < :afterFriends or (count(*) = :afterFriends and (e.start_date > :afterDate "
+            + "or (e.start_date = :afterDate and e.id > :afterId))) "
+            + "order by count(*) desc, e.start_date, e.id limit :size")
+    List<Object[]> rankByFriends(@Param("userId") Long userId, @Param("now") LocalDateTime now,
+                                 @Param("afterFriends") int afterFriends, @Param("afterDate") LocalDateTime afterDate,
+                                 @Param("afterId") Long afterId, @Param("size") int size);
+
+    /**
+     * Find the upcoming events placed within a distance of a point, the nearest first.
+     * The index on the locations' coordinates narrows the search to the given bounding box, then the
+     * great-circle distance (haversine formula) is computed only for the locations inside it.
+     * The result is paginated by keyset on (distance, id) : only the events placed after the given position
+     * are returned.
+     * @param latitude Point's latitude, in degrees
+     * @param longitude Point's longitude, in degrees
+     * @param minLatitude South side of the bounding box
+     * @param maxLatitude North side of the bounding box
+     * @param minLongitude West side of the bounding box
+     * @param maxLongitude East side of the bounding box
+     * @param radius Maximal distance, in kilometers
+     * @param now Only the events starting after this date are found
+     * @param afterDistance Distance of the last event of the previous page
+     * @param afterId Id of the last event of the previous page
+     * @param size Maximal number of events
+     * @return List of (event's id, distance in kilometers) pairs
+     */
+    @Query(nativeQuery = true, value = "select d.id, d.distance from (select e.id as id, "
+            + "12742 * asin(least(1, sqrt(power(sin(radians(l.latitude - :latitude) / 2), 2) "
+            + "+ cos(radians(:latitude)) * cos(radians(l.latitude)) "
+            + "* power(sin(radians(l.longitude - :longitude) / 2), 2)))) as distance "
+            + "from location l join event e on e.location_id = l.id "
+            + "where l.latitude between :minLatitude and :maxLatitude "
+            + "and l.longitude between :minLongitude and :maxLongitude and e.start_date > :now "
+            + "and e.deleted_date is null) d "
+            + "where d.distance <= :radius and (d.distance > :afterDistance "
+            + "or (d.distance = :afterDistance and d.id > :afterId)) "
+            + "order by d.distance, d.id limit :size")
+    List<Object[]> findNearby(@Param("latitude") double latitude, @Param("longitude") double longitude,
+                              @Param("minLatitude") double minLatitude, @Param("maxLatitude") double maxLatitude,
+                              @Param("minLongitude") double minLongitude, @Param("maxLongitude") double maxLongitude,
+                              @Param("radius") double radius, @Param("now") LocalDateTime now,
+                              @Param("afterDistance") double afterDistance, @Param("afterId") Long afterId,
+                              @Param("size") int size);
+
+    @Query("select e.id from Event e where e.uuid = :uuid")
+    Optional<Long> findIdByUuid(@Param("uuid") String uuid);
+
+    @Query("select e.creator.id from Event e where e.id = :id")
+    Optional<Long> findCreatorIdById(@Param("id") Long id);
+
+    @Query("select e.version from Event e where e.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Increment the version of an event, only if it has not been modified since it has been read
+     * @param id Event's id
+     * @param version Version read
+     * @return Number of updated rows, 0 if the version has changed
+     */
+    @Modifying
+    @Query("update Event e set e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int incrementVersion(@Param("id") Long id, @Param("version") long version);
+
+    /**
+     * Register a user in an event, only if the registered list is not full
+     * and the user is neither registered nor waiting.
+     * @param eventId Event's id
+     * @param userId User's id
+     * @return Number of inserted rows, 0 or 1
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into event_user (event_id, user_id) "
+            + "select e.id, :userId from event e where e.id = :eventId and e.deleted_date is null "
+            + "and (select count(*) from event_user r where r.event_id = e.id) < e.max_player "
+            + "and not exists (select 1 from event_user r where r.event_id = e.id and r.user_id = :userId) "
+            + "and not exists (select 1 from event_user_in_queue w where w.event_id = e.id and w.user_id = :userId)")
+    int insertRegisteredUser(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    /**
+     * Put a user at the end of the waiting queue of an event, only if the queue is not full
+     * and the user is neither registered nor waiting. The row is numbered by the database (seq column).
+     * @param eventId Event's id
+     * @param userId User's id
+     * @return Number of inserted rows, 0 or 1
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into event_user_in_queue (event_id, user_id) "
+            + "select e.id, :userId from event e where e.id = :eventId and e.deleted_date is null "
+            + "and (select count(*) from event_user_in_queue w where w.event_id = e.id) < e.max_player "
+            + "and not exists (select 1 from event_user_in_queue w where w.event_id = e.id and w.user_id = :userId) "
+            + "and not exists (select 1 from event_user r where r.event_id = e.id and r.user_id = :userId)")
+    int insertWaitingUser(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from event_user where event_id = :eventId and user_id = :userId")
+    int deleteRegisteredUser(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(nativeQuery = true,
+            value = "delete from event_user_in_queue where event_id = :eventId and user_id = :userId")
+    int deleteWaitingUser(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    /**
+     * Count the free seats of an event : its maximal number of players minus its registered users
+     * @param eventId Event's id
+     * @return Number of free seats, negative if the maximal number of players has been lowered
+     */
+    @Query(nativeQuery = true, value = "select e.max_player - "
+            + "(select count(*) from event_user r where r.event_id = e.id) from event e where e.id = :eventId")
+    int countFreeSeats(@Param("eventId") Long eventId);
+
+    /**
+     * Get the users at the head of an event's waiting queue, in the order they have joined it.
+     * Each row of the queue is numbered by the database when it is inserted (auto-increment seq column),
+     * the queue is read in the order of these numbers.
+     * @param eventId Event's id
+     * @param count Maximal number of users
+     * @return List of the users' id
+     */
+    @Query(nativeQuery = true, value = "select user_id from event_user_in_queue where event_id = :eventId "
+            + "order by seq limit :count")
+    List<Long> findFirstWaitingUserIds(@Param("eventId") Long eventId, @Param("count") int count);
+
+    /**
+     * Register waiting users of an event. They must then be removed from the waiting queue.
+     * @param eventId Event's id
+     * @param userIds Users' id
+     * @return Number of inserted rows
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = "insert into event_user (event_id, user_id) "
+            + "select event_id, user_id from event_user_in_queue where event_id = :eventId and user_id in (:userIds)")
+    int insertWaitingUsersAsRegistered(@Param("eventId") Long eventId, @Param("userIds") List<Long> userIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true,
+            value = "delete from event_user_in_queue where event_id = :eventId and user_id in (:userIds)")
+    int deleteWaitingUsers(@Param("eventId") Long eventId, @Param("userIds") List<Long> userIds);
+
+    /**
+     * Find events marked as deleted, the oldest deletions first. Native, as the entity only reads existing events.
+     * @param before Only the events deleted before this date
+     * @param size Maximal number of events
+     * @return List of the events' id
+     */
+    @Query(nativeQuery = true, value = "select id from event where deleted_date < :before "
+            + "order by deleted_date limit :size")
+    List<Long> findDeletedIds(@Param("before") LocalDateTime before, @Param("size") int size);
+
+    @Query(nativeQuery = true, value = "select location_id from event where id in (:ids) and location_id is not null")
+    List<Long> findLocationIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from event_user where event_id in (:ids)")
+    int deleteAllRegisteredUsers(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from event_user_in_queue where event_id in (:ids)")
+    int deleteAllWaitingUsers(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Delete events for good. Their participants must have been deleted first.
+     * @param ids Events' id
+     * @return Number of deleted events
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(nativeQuery = true, value = "delete from event where id in (:ids)")
+    int purge(@Param("ids") Collection<Long> ids);
 }
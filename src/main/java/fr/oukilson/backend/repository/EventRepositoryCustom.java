@@ -0,0 +1,31 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.model.EventHeader;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface EventRepositoryCustom {
+    /**
+     * Find the first events matching a specification, without counting the total.
+     * Only the columns needed by EventDTO are read, with the creator, the game and the location in the same query.
+     * @param specification Conditions to match
+     * @param sort Order of the result
+     * @param limit Maximum number of events to return
+     * @return List<EventHeader>
+     */
+    List<EventHeader> findHeaders(Specification<Event> specification, Sort sort, int limit);
+
+    /**
+     * Read all the events matching a specification, while they are fetched from the database.
+     * The rows are fetched by groups of the given size instead of being loaded all at once.
+     * Must be called in a transaction, and the stream must be closed.
+     * @param specification Conditions to match
+     * @param sort Order of the result
+     * @param fetchSize Number of rows fetched at once
+     * @return Stream<EventHeader>
+     */
+    Stream<EventHeader> streamHeaders(Specification<Event> specification, Sort sort, int fetchSize);
+}
@@ -0,0 +1,61 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.EventHeader;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class EventRepositoryCustomImpl implements EventRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<EventHeader> findHeaders(Specification<Event> specification, Sort sort, int limit) {
+        return this.createHeadersQuery(specification, sort).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<EventHeader> streamHeaders(Specification<Event> specification, Sort sort, int fetchSize) {
+        return this.createHeadersQuery(specification, sort)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    /**
+     * Build the query reading the columns of EventDTO, with the creator, the game and the location joined
+     * @param specification Conditions to match
+     * @param sort Order of the result
+     * @return TypedQuery<EventHeader>
+     */
+    private TypedQuery<EventHeader> createHeadersQuery(Specification<Event> specification, Sort sort) {
+        CriteriaBuilder builder = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventHeader> query = builder.createQuery(EventHeader.class);
+        Root<Event> root = query.from(Event.class);
+        Join<Event, User> creator = root.join("creator", JoinType.LEFT);
+        Join<Event, Game> game = root.join("game", JoinType.LEFT);
+        Join<Event, Location> location = root.join("location", JoinType.LEFT);
+        query.select(builder.construct(EventHeader.class,
+                root.get("id"), root.get("uuid"), root.get("title"), creator.get("nickname"),
+                game.get("uuid"), game.get("name"), root.get("minPlayer"), root.get("maxPlayer"),
+                root.get("creationDate"), root.get("startingDate"), root.get("endingDate"), root.get("limitDate"),
+                root.get("description"), root.get("isPrivate"),
+                location.get("id"), location.get("town"), location.get("zipCode"), location.get("address"),
+                location.get("latitude"), location.get("longitude")));
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate!=null)
+            query.where(predicate);
+        query.orderBy(QueryUtils.toOrders(sort, root, builder));
+        return this.entityManager.createQuery(query);
+    }
+}
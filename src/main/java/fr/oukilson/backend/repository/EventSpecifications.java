@@ -0,0 +1,104 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.model.EventCursor;
+import org.springframework.data.jpa.domain.Specification;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Criteria used by the event search.
+ * Each method returns one condition, to be combined with Specification.and
+ */
+public final class EventSpecifications {
+    private EventSpecifications() {
+    }
+
+    /**
+     * Events starting after the given date
+     * @param date LocalDateTime
+     * @return Specification<Event>
+     */
+    public static Specification<Event> startingAfter(LocalDateTime date) {
+        return (root, query, builder) -> builder.greaterThan(root.get("startingDate"), date);
+    }
+
+    /**
+     * Events starting before the given date
+     * @param date LocalDateTime
+     * @return Specification<Event>
+     */
+    public static Specification<Event> startingBefore(LocalDateTime date) {
+        return (root, query, builder) -> builder.lessThan(root.get("startingDate"), date);
+    }
+
+    /**
+     * Events happening in a town of the dictionary whose normalized name starts with the given string.
+     * Without leading wildcard, the LIKE is a range scan of the index on the normalized names.
+     * @param normalized Start of the town's name, normalized by TownIndex.prefixOf : no LIKE wildcard left
+     * @return Specification<Event>
+     */
+    public static Specification<Event> townStartingWith(String normalized) {
+        return (root, query, builder) ->
+                builder.like(root.get("location").get("referenceTown").get("normalizedName"), normalized+"%");
+    }
+
+    /**
+     * Events happening in a town of the dictionary with the given zip code
+     * @param zipCode Zip code
+     * @return Specification<Event>
+     */
+    public static Specification<Event> zipCode(String zipCode) {
+        return (root, query, builder) ->
+                builder.equal(root.get("location").get("referenceTown").get("zipCode"), zipCode);
+    }
+
+    /**
+     * Events about the game with the given uuid
+     * @param uuid Game's uuid
+     * @return Specification<Event>
+     */
+    public static Specification<Event> gameUuid(String uuid) {
+        return (root, query, builder) -> builder.equal(root.get("game").get("uuid"), uuid);
+    }
+
+    /**
+     * Events with at least one free seat in their registered list
+     * @return Specification<Event>
+     */
+    public static Specification<Event> withFreeSeats() {
+        return (root, query, builder) ->
+                builder.lessThan(builder.size(root.get("registeredUsers")), root.<Integer>get("maxPlayer"));
+    }
+
+    /**
+     * Private or public events only
+     * @param isPrivate True for private events
+     * @return Specification<Event>
+     */
+    public static Specification<Event> isPrivate(boolean isPrivate) {
+        return (root, query, builder) -> builder.equal(root.get("isPrivate"), isPrivate);
+    }
+
+    /**
+     * Events with one of the given ids
+     * @param ids Events' id
+     * @return Specification<Event>
+     */
+    public static Specification<Event> idIn(Collection<Long> ids) {
+        return (root, query, builder) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Events placed after the cursor, on the key (startingDate, id)
+     * @param cursor Last event of the previous page
+     * @return Specification<Event>
+     */
+    public static Specification<Event> after(EventCursor cursor) {
+        return (root, query, builder) -> builder.or(
+                builder.greaterThan(root.get("startingDate"), cursor.getStartingDate()),
+                builder.and(
+                        builder.equal(root.get("startingDate"), cursor.getStartingDate()),
+                        builder.greaterThan(root.get("id"), cursor.getId())));
+    }
+}
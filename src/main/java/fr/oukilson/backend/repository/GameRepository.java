@@ -1,11 +1,28 @@
 package fr.oukilson.backend.repository;
 
 import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.service.GameService;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.jpa.repository.JpaRepository;
-import java.util.List;
 import java.util.Optional;
 
 public interface GameRepository extends JpaRepository<Game, Long> {
     Optional<Game> findByUuid(String uuid);
-    List<Game> findAllByNameContaining(String name);
+
+    /*
+     * Games saved or removed one by one are evicted from the game cache by GameCacheListener.
+     * Batch deletes skip the entity listeners, so they empty the whole cache.
+     */
+
+    @Override
+    @CacheEvict(cacheNames = GameService.CACHE, allEntries = true)
+    void deleteAllInBatch(Iterable<Game> games);
+
+    @Override
+    @CacheEvict(cacheNames = GameService.CACHE, allEntries = true)
+    void deleteAllByIdInBatch(Iterable<Long> ids);
+
+    @Override
+    @CacheEvict(cacheNames = GameService.CACHE, allEntries = true)
+    void deleteAllInBatch();
 }
@@ -1,7 +1,33 @@
 package fr.oukilson.backend.repository;
 
 import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.Town;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 
 public interface LocationRepository extends JpaRepository<Location, Long> {
+    /**
+     * Find the locations not linked to the town dictionary, by increasing id
+     * @param afterId Only the locations with a greater id are found
+     * @param pageable Number of locations
+     * @return List of (id, town, zip code) triples
+     */
+    @Query("select l.id, l.town, l.zipCode from Location l where l.referenceTown is null and l.id > :afterId "
+            + "order by l.id")
+    List<Object[]> findUnlinked(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Link several locations to a town of the dictionary
+     * @param town Town
+     * @param ids Locations' ids
+     * @return Number of updated rows
+     */
+    @Modifying
+    @Query("update Location l set l.referenceTown = :town where l.id in :ids")
+    int linkTown(@Param("town") Town town, @Param("ids") Collection<Long> ids);
 }
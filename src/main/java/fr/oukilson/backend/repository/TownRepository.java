@@ -0,0 +1,40 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Town;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface TownRepository extends JpaRepository<Town, Long> {
+    Optional<Town> findByNormalizedNameAndZipCode(String normalizedName, String zipCode);
+
+    /**
+     * Find a town with a locking read : it sees the last committed rows, even when the transaction
+     * has already read the table, so a town just added by another transaction is found.
+     * @param normalizedName Town's normalized name
+     * @param zipCode Town's zip code
+     * @return Optional<Town>
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select t from Town t where t.normalizedName = :normalizedName and t.zipCode = :zipCode")
+    Optional<Town> findLockedByNormalizedNameAndZipCode(@Param("normalizedName") String normalizedName,
+                                                        @Param("zipCode") String zipCode);
+
+    /**
+     * Add a town in the dictionary, unless it is already in. The row is ignored if it breaks the unique key
+     * (normalized_name, zip_code), so a town added at the same time by another transaction isn't an error.
+     * @param name Town's name, as first written
+     * @param normalizedName Town's normalized name
+     * @param zipCode Town's zip code
+     * @return Number of inserted rows : 1 if added, else 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert ignore into town (name, normalized_name, zip_code) "
+            + "values (:name, :normalizedName, :zipCode)")
+    int insertIgnore(@Param("name") String name, @Param("normalizedName") String normalizedName,
+                     @Param("zipCode") String zipCode);
+}
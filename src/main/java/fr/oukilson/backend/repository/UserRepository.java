@@ -1,9 +1,149 @@
 package fr.oukilson.backend.repository;
 
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.Denial;
+import fr.oukilson.backend.model.Friendship;
+import fr.oukilson.backend.model.UserIdentity;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    String ID_CACHE = "userIds";
+
     Optional<User> findByNickname(String nickname);
-}
\ No newline at end of file
+
+    /**
+     * Find a user's id by his nickname, without loading the user. Found ids are cached by nickname,
+     * unknown nicknames are not : a new user is found as soon as he is created.
+     * @param nickname User's nickname
+     * @return Optional<Long>
+     */
+    @Cacheable(cacheNames = ID_CACHE, unless = "#result == null")
+    @Query("select u.id from User u where u.nickname = :nickname")
+    Optional<Long> findIdByNickname(@Param("nickname") String nickname);
+
+    /**
+     * Find a user's id and stored nickname by his nickname, without loading the user
+     * @param nickname User's nickname
+     * @return Optional<UserIdentity>
+     */
+    @Query("select new fr.oukilson.backend.model.UserIdentity(u.id, u.nickname) "
+            + "from User u where u.nickname = :nickname")
+    Optional<UserIdentity> findIdentityByNickname(@Param("nickname") String nickname);
+
+    /**
+     * Save a user. Saving an existing user empties the id cache, as his nickname may have changed;
+     * a new user has nothing to evict.
+     * @param user User to save
+     * @return The saved user
+     */
+    @Override
+    @CacheEvict(cacheNames = ID_CACHE, allEntries = true, condition = "#p0.id != null")
+    <S extends User> S save(S user);
+
+    /**
+     * Delete a user. The id cache is emptied : the same user may be cached under several nicknames
+     * when the database compares them without case.
+     * @param user User to delete
+     */
+    @Override
+    @CacheEvict(cacheNames = ID_CACHE, allEntries = true)
+    void delete(User user);
+
+    @Override
+    @CacheEvict(cacheNames = ID_CACHE, allEntries = true)
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = ID_CACHE, allEntries = true)
+    void deleteAll();
+
+    @Query("select new fr.oukilson.backend.model.UserIdentity(u.id, u.nickname) from User u where u.id in :ids")
+    List<UserIdentity> findIdentities(@Param("ids") Collection<Long> ids);
+
+    @Query("select new fr.oukilson.backend.model.UserIdentity(u.id, u.nickname) "
+            + "from User u where u.nickname in :nicknames")
+    List<UserIdentity> findIdentitiesByNicknames(@Param("nicknames") Collection<String> nicknames);
+
+    /**
+     * Read the whole friend list table, without loading any user
+     * @return List<Friendship>
+     */
+    @Query("select new fr.oukilson.backend.model.Friendship(u.id, f.id) from User u join u.friendList f")
+    List<Friendship> findAllFriendships();
+
+    /**
+     * Read the whole denied list table, without loading any user
+     * @return List<Denial>
+     */
+    @Query("select new fr.oukilson.backend.model.Denial(u.id, d.id) from User u join u.deniedList d")
+    List<Denial> findAllDenials();
+
+    /**
+     * Among some users, the ones in a user's friend list, without loading any user
+     * @param userId User's id
+     * @param friendIds Ids of the users to look for
+     * @return Ids of the users in the friend list
+     */
+    @Query("select f.id from User u join u.friendList f where u.id = :userId and f.id in :friendIds")
+    List<Long> findFriendIds(@Param("userId") Long userId, @Param("friendIds") Collection<Long> friendIds);
+
+    /**
+     * Read a page of a user's friend list, ordered by the friends' id
+     * @param userId User's id
+     * @param afterId Only the friends with a greater id are read
+     * @param pageable Number of friends to read
+     * @return List<UserIdentity>
+     */
+    @Query("select new fr.oukilson.backend.model.UserIdentity(f.id, f.nickname) "
+            + "from User u join u.friendList f where u.id = :userId and f.id > :afterId order by f.id")
+    List<UserIdentity> findFriends(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Add a friend in a user's friend list, unless he is already in. The row is ignored if it breaks
+     * the primary key, so a friend added at the same time by another transaction isn't an error.
+     * @param userId User's id
+     * @param friendId Friend's id
+     * @return Number of inserted rows : 1 if added, else 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert ignore into friend_list (user_id, friend_id) "
+            + "select u.id, :friendId from user u where u.id = :userId")
+    int insertFriend(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from friend_list where user_id = :userId and friend_id = :friendId")
+    int deleteFriend(@Param("userId") Long userId, @Param("friendId") Long friendId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from friend_list where user_id = :userId")
+    int deleteFriends(@Param("userId") Long userId);
+
+    @Query(nativeQuery = true,
+            value = "select count(*) from denied_list where user_id = :userId and denied_id = :deniedId")
+    int countDenied(@Param("userId") Long userId, @Param("deniedId") Long deniedId);
+
+    /**
+     * Add a user in another user's denied list, unless he is already in. The row is ignored if it breaks
+     * the primary key, so a denial added at the same time by another transaction isn't an error.
+     * @param userId User's id
+     * @param deniedId Denied user's id
+     * @return Number of inserted rows : 1 if added, else 0
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert ignore into denied_list (user_id, denied_id) "
+            + "select u.id, :deniedId from user u where u.id = :userId")
+    int insertDenied(@Param("userId") Long userId, @Param("deniedId") Long deniedId);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "delete from denied_list where user_id = :userId and denied_id = :deniedId")
+    int deleteDenied(@Param("userId") Long userId, @Param("deniedId") Long deniedId);
+}
@@ -0,0 +1,26 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.User;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    /**
+     * Add several friends in a user's friend list, in one JDBC batch.
+     * A friend already in the friend list is not added again.
+     * Must be called in a transaction.
+     * @param userId User's id
+     * @param friendIds Friends' id
+     * @return Number of inserted rows for each friend, in the same order : 1 if added, 0 if not,
+     * or Statement.SUCCESS_NO_INFO if the driver doesn't tell
+     */
+    int[] insertFriends(Long userId, List<Long> friendIds);
+
+    /**
+     * Insert new users, by JDBC batches of the configured hibernate.jdbc.batch_size.
+     * Only the nickname, the password and the email are written : the users have no friend yet.
+     * @param users Users to insert, with their password already hashed
+     * @return Number of inserted rows for each user, in the same order : 1,
+     * or Statement.SUCCESS_NO_INFO if the driver doesn't tell
+     */
+    int[] insertUsers(List<User> users);
+}
@@ -0,0 +1,45 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    private static final String INSERT_FRIEND = "insert ignore into friend_list (user_id, friend_id) "
+            + "select u.id, ? from user u where u.id = ?";
+    private static final String INSERT_USER = "insert into user (nickname, password, email) values (?, ?, ?)";
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public UserRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int[] insertFriends(Long userId, List<Long> friendIds) {
+        List<Object[]> rows = new ArrayList<>(friendIds.size());
+        for (Long friendId : friendIds)
+            rows.add(new Object[] {friendId, userId});
+        return this.jdbcTemplate.batchUpdate(INSERT_FRIEND, rows);
+    }
+
+    @Override
+    public int[] insertUsers(List<User> users) {
+        int[][] batches = this.jdbcTemplate.batchUpdate(INSERT_USER, users, this.batchSize, (statement, user) -> {
+            statement.setString(1, user.getNickname());
+            statement.setString(2, user.getPassword());
+            statement.setString(3, user.getEmail());
+        });
+        int[] result = new int[users.size()];
+        int position = 0;
+        for (int[] batch : batches) {
+            System.arraycopy(batch, 0, result, position, batch.length);
+            position += batch.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package fr.oukilson.backend.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of long keys which can answer "maybe in" or "surely not in", in a fixed number of bits.
+ * A key sets a few bits chosen by hashing it, and is maybe in the set if all its bits are set :
+ * there is no false negative, but keys never added can be reported as maybe in.
+ * Keys can't be removed. Thread safe : bits are set and read atomically, without lock.
+ */
+public class BloomFilter {
+    private static final int HASHES = 4;
+    private final AtomicLongArray words;
+    private final long mask;
+
+    /**
+     * @param bits Number of bits, rounded up to a power of two of at least 64
+     */
+    public BloomFilter(int bits) {
+        int size = Math.max(64, Integer.highestOneBit(Math.max(1, bits-1))<<1);
+        this.words = new AtomicLongArray(size/64);
+        this.mask = size-1;
+    }
+
+    /**
+     * Add a key
+     * @param key Key
+     */
+    public void put(long key) {
+        long hash = mix(key);
+        for (int i=0; i<HASHES; i++) {
+            long bit = this.bitOf(hash, i);
+            int word = (int) (bit >>> 6);
+            long flag = 1L << bit;
+            long value = this.words.get(word);
+            while ((value & flag)==0 && !this.words.compareAndSet(word, value, value | flag))
+                value = this.words.get(word);
+        }
+    }
+
+    /**
+     * Check if a key may have been added
+     * @param key Key
+     * @return False if the key has surely not been added
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        for (int i=0; i<HASHES; i++) {
+            long bit = this.bitOf(hash, i);
+            if ((this.words.get((int) (bit >>> 6)) & (1L << bit))==0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Position of the i-th bit of a key, from two halves of its hash (double hashing)
+     * @param hash Key's hash
+     * @param i Number of the bit
+     * @return Bit's position
+     */
+    private long bitOf(long hash, int i) {
+        int first = (int) hash;
+        int second = (int) (hash >>> 32) | 1;
+        return (first + (long) i*second) & this.mask;
+    }
+
+    /**
+     * Spread the bits of a key over the whole hash (finalizer of MurmurHash3)
+     * @param key Key
+     * @return long
+     */
+    static long mix(long key) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
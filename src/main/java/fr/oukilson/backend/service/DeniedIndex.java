@@ -0,0 +1,169 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.Denial;
+import fr.oukilson.backend.repository.UserRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Denied lists of all the users, as bloom filters, to check a denial without reading the database.
+ * A first filter holds the (user, denied user) pairs, a second one the denied users alone :
+ * most checks end in memory with a "surely not denied". Only a probable denial is checked in the database,
+ * which holds the exact denied lists.
+ * A denial is put in the filters as soon as it is written : if its transaction is rolled back,
+ * it is only a false positive that the database will correct. For the same reason, a removed denial
+ * stays in the filters until they are loaded again.
+ * The filters are rebuilt from the table on a schedule, so the denials written elsewhere are seen.
+ * Thread safe.
+ */
+public class DeniedIndex {
+    private final UserRepository repository;
+    private final int bits;
+    private volatile Filters filters;
+    private volatile Queue<Denial> journal;             // Denials indexed while loading, else null
+    private final ReadWriteLock loading = new ReentrantReadWriteLock();
+
+    /**
+     * Filters of the (user, denied user) pairs and of the denied users
+     */
+    private static class Filters {
+        private final BloomFilter pairs;
+        private final BloomFilter denied;
+
+        private Filters(int bits) {
+            this.pairs = new BloomFilter(bits);
+            this.denied = new BloomFilter(bits);
+        }
+
+        /**
+         * Put a denial in both filters
+         * @param userId User's id
+         * @param deniedId Denied user's id
+         */
+        private void put(long userId, long deniedId) {
+            this.pairs.put(pairOf(userId, deniedId));
+            this.denied.put(deniedId);
+        }
+    }
+
+    /**
+     * @param repository UserRepository
+     * @param bits Number of bits of each filter : about 8 per denial keep 2 or 3% of false positives
+     */
+    public DeniedIndex(UserRepository repository, int bits) {
+        this.repository = repository;
+        this.bits = bits;
+        this.filters = new Filters(bits);
+    }
+
+    /**
+     * Load all the denied lists from the database in new filters, which replace the current ones :
+     * the removed denials leave them. Run at startup, then at the time set by environment.deniedIndexReload.cron.
+     * The denials indexed during the read are put in the new filters too, so a denial committed meanwhile
+     * is not lost.
+     */
+    @Scheduled(cron = "${environment.deniedIndexReload.cron:0 45 4 * * *}")
+    public void load() {
+        this.journal = new ConcurrentLinkedQueue<>();
+        try {
+            Filters loaded = new Filters(this.bits);
+            for (Denial denial : this.repository.findAllDenials())
+                loaded.put(denial.getUserId(), denial.getDeniedId());
+            this.loading.writeLock().lock();
+            try {
+                for (Denial denial : this.journal)
+                    loaded.put(denial.getUserId(), denial.getDeniedId());
+                this.filters = loaded;
+            }
+            finally {
+                this.loading.writeLock().unlock();
+            }
+        }
+        finally {
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Check if a user may be in someone's denied list
+     * @param deniedId User's id
+     * @return False if nobody has denied the user
+     */
+    public boolean mayBeDenied(long deniedId) {
+        return this.filters.denied.mightContain(deniedId);
+    }
+
+    /**
+     * Check if a user is in another user's denied list. The database is only read on a probable match.
+     * @param userId Id of the user who may have denied the other one
+     * @param deniedId Id of the user who may be denied
+     * @return True if denied
+     */
+    public boolean isDenied(long userId, long deniedId) {
+        return this.filters.pairs.mightContain(pairOf(userId, deniedId))
+                && this.repository.countDenied(userId, deniedId)>0;
+    }
+
+    /**
+     * Add a user in another user's denied list. Must be run in a transaction.
+     * The denial is indexed right away, then again once committed, in case the filters are loaded meanwhile.
+     * @param userId User's id
+     * @param deniedId Id of the user to deny
+     * @return True if added; false if the user doesn't exist or has already denied the other one
+     */
+    public boolean add(long userId, long deniedId) {
+        this.index(userId, deniedId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(userId, deniedId);
+                }
+            });
+        }
+        return this.repository.insertDenied(userId, deniedId)==1;
+    }
+
+    /**
+     * Remove a user from another user's denied list. Must be run in a transaction.
+     * @param userId User's id
+     * @param deniedId Id of the user to allow again
+     * @return True if removed; false if the user was not denied
+     */
+    public boolean remove(long userId, long deniedId) {
+        return this.repository.deleteDenied(userId, deniedId)>0;
+    }
+
+    /**
+     * Put a denial in the filters, and keep it in the journal during a load
+     * @param userId User's id
+     * @param deniedId Denied user's id
+     */
+    private void index(long userId, long deniedId) {
+        this.loading.readLock().lock();
+        try {
+            this.filters.put(userId, deniedId);
+            Queue<Denial> denials = this.journal;
+            if (denials!=null)
+                denials.add(new Denial(userId, deniedId));
+        }
+        finally {
+            this.loading.readLock().unlock();
+        }
+    }
+
+    /**
+     * Key of a (user, denied user) pair
+     * @param userId User's id
+     * @param deniedId Denied user's id
+     * @return long
+     */
+    private static long pairOf(long userId, long deniedId) {
+        return BloomFilter.mix(userId) * 31 + deniedId;
+    }
+}
@@ -0,0 +1,72 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.repository.EventRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Delete for good the events marked as deleted, with their participants and their location.
+ * Run off-peak, by batches each in its own transaction, so the rows of the participants tables
+ * are only locked for the time of one batch.
+ */
+public class EventPurger {
+    private final EventRepository repository;
+    private final LocationRepository locationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public EventPurger(EventRepository repository, LocationRepository locationRepository,
+                       TransactionTemplate transactionTemplate, int batchSize) {
+        if (batchSize<=0)
+            throw new IllegalArgumentException("Event purge : the batch size must be positive");
+        this.repository = repository;
+        this.locationRepository = locationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Purge the events deleted until now, at the time set by environment.eventPurge.cron
+     */
+    @Scheduled(cron = "${environment.eventPurge.cron:0 0 4 * * *}")
+    public void purgeDeletedEvents() {
+        this.purge(LocalDateTime.now());
+    }
+
+    /**
+     * Purge the events deleted before a date
+     * @param before Deletion date limit
+     * @return Number of purged events
+     */
+    public int purge(LocalDateTime before) {
+        int result = 0;
+        int count;
+        do {
+            Integer purged = this.transactionTemplate.execute(status -> this.purgeBatch(before));
+            count = purged==null ? 0 : purged;
+            result += count;
+        } while (count==this.batchSize);
+        return result;
+    }
+
+    /**
+     * Purge one batch of deleted events : their participants, the events, then their locations
+     * @param before Deletion date limit
+     * @return Number of purged events
+     */
+    private int purgeBatch(LocalDateTime before) {
+        List<Long> ids = this.repository.findDeletedIds(before, this.batchSize);
+        if (!ids.isEmpty()) {
+            List<Long> locationIds = this.repository.findLocationIds(ids);
+            this.repository.deleteAllRegisteredUsers(ids);
+            this.repository.deleteAllWaitingUsers(ids);
+            this.repository.purge(ids);
+            if (!locationIds.isEmpty())
+                this.locationRepository.deleteAllByIdInBatch(locationIds);
+        }
+        return ids.size();
+    }
+}
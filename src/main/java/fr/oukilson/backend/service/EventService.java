@@ -4,54 +4,124 @@ import fr.oukilson.backend.dto.event.*;
 import fr.oukilson.backend.entity.Event;
 import fr.oukilson.backend.entity.Game;
 import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.TimeOrderedUuid;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.mapper.EntityMapper;
+import fr.oukilson.backend.mapper.EventHeaderMapper;
+import fr.oukilson.backend.model.EventCursor;
+import fr.oukilson.backend.model.EventExport;
+import fr.oukilson.backend.model.EventHeader;
+import fr.oukilson.backend.model.EventParticipant;
+import fr.oukilson.backend.model.FriendsEventCursor;
+import fr.oukilson.backend.model.NearbyEventCursor;
 import fr.oukilson.backend.repository.EventRepository;
+import fr.oukilson.backend.repository.EventSpecifications;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.repository.LocationRepository;
 import fr.oukilson.backend.repository.UserRepository;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.OptimisticLockException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.Stream;
 
 public class EventService {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final double MAX_NEARBY_RADIUS = 200;        // Kilometers
+    private static final double EARTH_RADIUS = 6371;            // Kilometers, as in EventRepository.findNearby
+    private static final Sort SEARCH_ORDER = Sort.by("startingDate", "id");
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    private static final int MAX_RESERVATION_ATTEMPTS = 10;
+    private static final long RESERVATION_BACKOFF_MILLIS = 5;
     private EventRepository repository;
     private UserRepository userRepository;
     private GameRepository gameRepository;
     private LocationRepository locationRepository;
     private ModelMapper mapper;
+    private EntityMapper<Event, EventDTO> eventMapper;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private DeniedIndex deniedIndex;
+    private TownService townService;
+    private final EntityMapper<EventHeader, EventDTO> headerMapper = new EventHeaderMapper();
 
     public EventService(EventRepository repository, UserRepository userRepository, GameRepository gameRepository,
-                        LocationRepository locationRepository, ModelMapper mapper) {
+                        LocationRepository locationRepository, ModelMapper mapper,
+                        EntityMapper<Event, EventDTO> eventMapper, TransactionTemplate transactionTemplate,
+                        DeniedIndex deniedIndex, TownService townService) {
         this.repository = repository;
         this.userRepository = userRepository;
         this.gameRepository = gameRepository;
         this.locationRepository = locationRepository;
         this.mapper = mapper;
+        this.eventMapper = eventMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.deniedIndex = deniedIndex;
+        this.townService = townService;
     }
 
     /**
-     * Find an event by its uuid and return all its info as a EventDTO
+     * Find an event by its uuid and return all its info as a EventDTO.
+     * The event is not loaded as an entity : only the columns of EventDTO are read.
      * @param uuid Event's uuid
      * @return EventDTO
      */
+    @Transactional(readOnly = true)
     public EventDTO findByUuid(String uuid) {
-        Event event =  this.repository.findByUuid(uuid).orElse(null);
+        EventHeader header = this.repository.findHeaderByUuid(uuid).orElse(null);
         EventDTO result;
-        if (event==null)
+        if (header==null)
             result = null;
         else
-            result = this.mapper.map(event, EventDTO.class);
+            result = this.toDTOs(List.of(header)).get(0);
         return result;
     }
 
     /**
-     * Delete an event by its uuid
+     * Assemble the EventDTO of several events from their columns, then add their participants.
+     * The participants of all the events are read in two queries, whatever the number of events.
+     * @param headers Columns of the events
+     * @return List of EventDTO, in the same order
+     */
+    private List<EventDTO> toDTOs(List<EventHeader> headers) {
+        List<EventDTO> result = new ArrayList<>(headers.size());
+        if (!headers.isEmpty()) {
+            Map<Long, EventDTO> events = new HashMap<>();
+            for (EventHeader header : headers) {
+                EventDTO event = this.headerMapper.map(header);
+                events.put(header.getId(), event);
+                result.add(event);
+            }
+            for (EventParticipant participant : this.repository.findRegisteredUsers(events.keySet()))
+                events.get(participant.getEventId()).getRegisteredUsers()
+                        .add(new UserNameDTO(participant.getNickname()));
+            for (Object[] row : this.repository.findWaitingUsers(events.keySet()))
+                events.get(((Number) row[0]).longValue()).getWaitingUsers().add(new UserNameDTO((String) row[1]));
+        }
+        return result;
+    }
+
+    /**
+     * Delete an event by its uuid. The event is only marked as deleted and is not found anymore;
+     * its participants and its location are deleted later by EventPurger.
      * @param uuid Event's uuid
+     * @return True if deleted; false if the event doesn't exist or is already deleted
      */
     @Transactional
-    public void deleteByUuid(String uuid) {
-        this.repository.deleteByUuid(uuid);
+    public boolean deleteByUuid(String uuid) {
+        return this.repository.softDeleteByUuid(uuid, LocalDateTime.now())==1;
     }
 
     /**
@@ -69,7 +139,7 @@ public class EventService {
         // Get the user creator and the game
         Event event = this.mapper.map(toCreate, Event.class);
         event.setCreationDate(rightNow);
-        event.setUuid(UUID.randomUUID().toString());
+        event.setUuid(TimeOrderedUuid.generate());
         try {
             Optional<User> user = this.userRepository.findByNickname(toCreate.getCreator().getNickname());
             event.setCreator(user.get());
@@ -82,16 +152,20 @@ public class EventService {
 
         // Save and return
         event.getLocation().setEvent(event);
+        event.getLocation().setReferenceTown(
+                this.townService.resolve(toCreate.getLocation().getTown(), toCreate.getLocation().getZipCode()));
         Location location = this.locationRepository.save(event.getLocation());
         event.setLocation(location);
-        return this.mapper.map(event, EventDTO.class);
+        return this.eventMapper.map(event);
     }
 
     /**
      * Update an existing event.
+     * If the maximal number of players is raised, the head of the waiting queue fills the new seats.
      * @param toUpdate The event to update
      * @return The updated event
      */
+    @Transactional
     public EventDTO update(EventUpdateDTO toUpdate)
             throws NoSuchElementException, IllegalArgumentException, NullPointerException {
         // Find the event to update
@@ -105,7 +179,10 @@ public class EventService {
 
         // Update attribute
         String oldGameUuid = event.getGame().getUuid();
+        int oldMaxPlayer = event.getMaxPlayer();
         this.mapper.map(toUpdate, event);
+        event.getLocation().setReferenceTown(
+                this.townService.resolve(toUpdate.getLocation().getTown(), toUpdate.getLocation().getZipCode()));
 
         // If the event's game has been modified, updated it
         if (!oldGameUuid.equals(toUpdate.getGame().getUuid())) {
@@ -121,76 +198,289 @@ public class EventService {
         else
             this.repository.save(event);
 
-        return this.mapper.map(event, EventDTO.class);
+        // Promote waiting users into the new seats, then reload the event to get its new lists
+        if (event.getMaxPlayer()>oldMaxPlayer) {
+            this.repository.flush();
+            if (this.promoteWaitingUsers(event.getId())>0)
+                event = this.repository.findById(event.getId()).orElseThrow();
+        }
+        return this.eventMapper.map(event);
     }
 
     /**
-     * Search for events by one of this two options :
-     * - date after the provided date
-     * - happening in a town
-     * If both filters are used, the date will be default choice.
-     * @param date Date in a string format
-     * @param town Town's name
-     * @return List<EventDTO>
+     * Search for events matching all the given filters, ordered by starting date.
+     * Null or blank filters are ignored.
+     * The result is paginated by keyset : use the returned cursor to get the next page.
+     * Only the columns of EventDTO are read, in three queries whatever the page size.
+     * @param filters EventSearchDTO
+     * @return EventPageDTO
+     * @throws IllegalArgumentException If a date, the cursor or the page size is invalid
      */
-    public List<EventDTO> findByFilter(String date, String town) {
-        // Get events
-        List<Event> events;
-        if (date!=null && !date.isBlank()) {
-            LocalDateTime pointInTime;
-            try {
-                pointInTime = LocalDateTime.parse(date);
-                events = this.repository.findAllByStartingDateAfter(pointInTime);
+    @Transactional(readOnly = true)
+    public EventPageDTO search(EventSearchDTO filters) throws IllegalArgumentException {
+        // Check page size
+        int size = filters.getSize()==null ? DEFAULT_PAGE_SIZE : filters.getSize();
+        if (size<1 || size>MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("Event search : Invalid page size.");
+
+        Specification<Event> specification = this.toSpecification(filters);
+
+        // Get one more event than asked to know if there is a next page
+        List<EventHeader> events = this.repository.findHeaders(specification, SEARCH_ORDER, size+1);
+        EventPageDTO result = new EventPageDTO();
+        if (events.size()>size) {
+            events = events.subList(0, size);
+            EventHeader last = events.get(size-1);
+            result.setNextCursor(new EventCursor(last.getStartingDate(), last.getId()).encode());
+        }
+        result.getEvents().addAll(this.toDTOs(events));
+        return result;
+    }
+
+    /**
+     * Find the upcoming events in which a user's friends are registered, the ones with most friends first,
+     * then ordered by starting date.
+     * The events are ranked by the database in one query joining the friend list with the registered users,
+     * then only the columns of EventDTO of the page are read : four queries whatever the page size.
+     * The result is paginated by keyset : use the returned cursor to get the next page.
+     * @param nickname User's nickname
+     * @param cursor Token of the previous page; null or blank for the first page
+     * @param size Page size; the default one if null
+     * @return FriendsEventPageDTO or null if the user doesn't exist
+     * @throws IllegalArgumentException If the cursor or the page size is invalid
+     */
+    @Transactional(readOnly = true)
+    public FriendsEventPageDTO findFriendsEvents(String nickname, String cursor, Integer size)
+            throws IllegalArgumentException {
+        // Check parameters
+        int pageSize = size==null ? DEFAULT_PAGE_SIZE : size;
+        if (pageSize<1 || pageSize>MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("Friends' events : Invalid page size.");
+        LocalDateTime rightNow = LocalDateTime.now();
+        FriendsEventCursor after = this.isFilled(cursor)
+                ? FriendsEventCursor.decode(cursor)
+                : new FriendsEventCursor(Integer.MAX_VALUE, rightNow, 0L);
+
+        // Rank one more event than asked to know if there is a next page
+        FriendsEventPageDTO result = null;
+        Optional<Long> userId = this.userRepository.findIdByNickname(nickname);
+        if (userId.isPresent()) {
+            List<Object[]> ranks = this.repository.rankByFriends(userId.get(), rightNow, after.getFriends(),
+                    after.getStartingDate(), after.getId(), pageSize+1);
+            result = this.toFriendsEventPage(ranks, pageSize);
+        }
+        return result;
+    }
+
+    /**
+     * Assemble a page of events ranked by friends from the rows of the ranking
+     * @param ranks Rows of (event's id, number of friends), in the ranking's order
+     * @param size Page size : if there are more rows, the page has a cursor to the next one
+     * @return FriendsEventPageDTO
+     */
+    private FriendsEventPageDTO toFriendsEventPage(List<Object[]> ranks, int size) {
+        FriendsEventPageDTO result = new FriendsEventPageDTO();
+        boolean hasNext = ranks.size()>size;
+        Map<Long, Integer> friends = new LinkedHashMap<>();
+        for (Object[] rank : hasNext ? ranks.subList(0, size) : ranks)
+            friends.put(((Number) rank[0]).longValue(), ((Number) rank[1]).intValue());
+
+
+        // Read the columns of the ranked events, in the ranking's order
+        List<EventHeader> ordered = this.findHeaders(friends.keySet());
+        List<EventDTO> events = this.toDTOs(ordered);
+        for (int i=0; i<events.size(); i++)
+            result.getEvents().add(new FriendsEventDTO(events.get(i), friends.get(ordered.get(i).getId())));
+        if (hasNext && !ordered.isEmpty()) {
+            EventHeader last = ordered.get(ordered.size()-1);
+            result.setNextCursor(
+                    new FriendsEventCursor(friends.get(last.getId()), last.getStartingDate(), last.getId()).encode());
+        }
+        return result;
+    }
+
+    /**
+     * Find the upcoming events placed within a distance of a point, the nearest first.
+     * The database only computes the distance of the locations inside the bounding box of the searched circle,
+     * found with the index on the coordinates, then only the columns of EventDTO of the page are read :
+     * four queries whatever the page size.
+     * The result is paginated by keyset : use the returned cursor to get the next page.
+     * @param latitude Point's latitude, in degrees
+     * @param longitude Point's longitude, in degrees
+     * @param radius Maximal distance from the point, in kilometers
+     * @param cursor Token of the previous page; null or blank for the first page
+     * @param size Page size; the default one if null
+     * @return NearbyEventPageDTO
+     * @throws IllegalArgumentException If the point, the radius, the cursor or the page size is invalid
+     */
+    @Transactional(readOnly = true)
+    public NearbyEventPageDTO findNearbyEvents(Double latitude, Double longitude, Double radius, String cursor,
+                                               Integer size) throws IllegalArgumentException {
+        // Check parameters
+        int pageSize = size==null ? DEFAULT_PAGE_SIZE : size;
+        if (pageSize<1 || pageSize>MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("Nearby events : Invalid page size.");
+        if (latitude==null || longitude==null || !(Math.abs(latitude)<=90) || !(Math.abs(longitude)<=180))
+            throw new IllegalArgumentException("Nearby events : Invalid point.");
+        if (radius==null || !(radius>0) || radius>MAX_NEARBY_RADIUS)
+            throw new IllegalArgumentException("Nearby events : Invalid radius.");
+        NearbyEventCursor after = this.isFilled(cursor)
+                ? NearbyEventCursor.decode(cursor)
+                : new NearbyEventCursor(-1, 0L);
+
+        // Bounding box of the circle : the whole longitude range if it contains a pole or crosses the 180th meridian
+        double angle = radius/EARTH_RADIUS;
+        double minLatitude = latitude-Math.toDegrees(angle);
+        double maxLatitude = latitude+Math.toDegrees(angle);
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        if (minLatitude>-90 && maxLatitude<90) {
+            double delta = Math.toDegrees(Math.asin(Math.sin(angle)/Math.cos(Math.toRadians(latitude))));
+            if (longitude-delta>=-180 && longitude+delta<=180) {
+                minLongitude = longitude-delta;
+                maxLongitude = longitude+delta;
             }
-            catch (Exception e) {
-                if (town!=null && !town.isBlank())
-                    events = this.repository.findAllByLocationTownContaining(town);
-                else
-                    events = new ArrayList<>();
+        }
+
+        // Find one more event than asked to know if there is a next page
+        List<Object[]> rows = this.repository.findNearby(latitude, longitude, minLatitude, maxLatitude,
+                minLongitude, maxLongitude, radius, LocalDateTime.now(), after.getDistance(), after.getId(),
+                pageSize+1);
+        NearbyEventPageDTO result = new NearbyEventPageDTO();
+        boolean hasNext = rows.size()>pageSize;
+        Map<Long, Double> distances = new LinkedHashMap<>();
+        for (Object[] row : hasNext ? rows.subList(0, pageSize) : rows)
+            distances.put(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue());
+        List<EventHeader> ordered = this.findHeaders(distances.keySet());
+        List<EventDTO> events = this.toDTOs(ordered);
+        for (int i=0; i<events.size(); i++)
+            result.getEvents().add(new NearbyEventDTO(events.get(i), distances.get(ordered.get(i).getId())));
+        if (hasNext && !ordered.isEmpty()) {
+            Long last = ordered.get(ordered.size()-1).getId();
+            result.setNextCursor(new NearbyEventCursor(distances.get(last), last).encode());
+        }
+        return result;
+    }
+
+    /**
+     * Read the columns of several events, in the order of their ids
+     * @param ids Events' ids, in the wanted order
+     * @return List of EventHeader; the events not found anymore are left out
+     */
+    private List<EventHeader> findHeaders(Collection<Long> ids) {
+        List<EventHeader> result = new ArrayList<>(ids.size());
+        if (!ids.isEmpty()) {
+            Map<Long, EventHeader> headers = new HashMap<>();
+            for (EventHeader header : this.repository.findHeaders(EventSpecifications.idIn(ids), SEARCH_ORDER,
+                    ids.size()))
+                headers.put(header.getId(), header);
+            for (Long id : ids) {
+                if (headers.containsKey(id))
+                    result.add(headers.get(id));
             }
-        } else if (town!=null && !town.isBlank()) {
-            events = this.repository.findAllByLocationTownContaining(town);
-        } else
-            events = new ArrayList<>();
-
-        // Construct result
-        List<EventDTO> result = new ArrayList<>();
-        events.forEach(e -> result.add(this.mapper.map(e, EventDTO.class)));
+        }
         return result;
     }
 
+    /**
+     * Export all the events matching the given filters, ordered by starting date.
+     * Null or blank filters are ignored, as well as the page size : a cursor makes the export start after it.
+     * The filters are checked at once, but the events are only read when the export is run :
+     * they are fetched by chunks and given to the consumer one chunk after the other,
+     * so that the first events can be sent before the last ones are read.
+     * The export holds a database connection until it is over.
+     * @param filters EventSearchDTO
+     * @return EventExport
+     * @throws IllegalArgumentException If a date or the cursor is invalid
+     */
+    public EventExport export(EventSearchDTO filters) throws IllegalArgumentException {
+        Specification<Event> specification = this.toSpecification(filters);
+        return consumer -> this.readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<EventHeader> events =
+                         this.repository.streamHeaders(specification, SEARCH_ORDER, EXPORT_CHUNK_SIZE)) {
+                List<EventHeader> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+                Iterator<EventHeader> iterator = events.iterator();
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size()==EXPORT_CHUNK_SIZE) {
+                        consumer.accept(this.toDTOs(chunk));
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty())
+                    consumer.accept(this.toDTOs(chunk));
+            }
+        });
+    }
+
+    /**
+     * Build the conditions of a search from its filters. Null or blank filters are ignored.
+     * @param filters EventSearchDTO
+     * @return Specification<Event>
+     * @throws IllegalArgumentException If a date or the cursor is invalid
+     */
+    private Specification<Event> toSpecification(EventSearchDTO filters) throws IllegalArgumentException {
+        Specification<Event> specification = Specification.where(null);
+        if (this.isFilled(filters.getDate()))
+            specification = specification.and(EventSpecifications.startingAfter(this.parseDate(filters.getDate())));
+        if (this.isFilled(filters.getEndDate()))
+            specification = specification.and(EventSpecifications.startingBefore(this.parseDate(filters.getEndDate())));
+        if (this.isFilled(filters.getTown())) {
+            String town = TownIndex.prefixOf(filters.getTown());
+            specification = specification.and(EventSpecifications.townStartingWith(town));
+        }
+        if (this.isFilled(filters.getZipCode()))
+            specification = specification.and(EventSpecifications.zipCode(filters.getZipCode().trim()));
+        if (this.isFilled(filters.getGame()))
+            specification = specification.and(EventSpecifications.gameUuid(filters.getGame()));
+        if (Boolean.TRUE.equals(filters.getFreeSeats()))
+            specification = specification.and(EventSpecifications.withFreeSeats());
+        if (filters.getIsPrivate()!=null)
+            specification = specification.and(EventSpecifications.isPrivate(filters.getIsPrivate()));
+        if (this.isFilled(filters.getCursor()))
+            specification = specification.and(EventSpecifications.after(EventCursor.decode(filters.getCursor())));
+        return specification;
+    }
+
+    /**
+     * Check if a search filter has been given
+     * @param filter Filter's value
+     * @return True if not null and not blank
+     */
+    private boolean isFilled(String filter) {
+        return filter!=null && !filter.isBlank();
+    }
+
+    /**
+     * Parse a date given as a search filter
+     * @param date Date in a string format
+     * @return LocalDateTime
+     * @throws IllegalArgumentException If the date is not in the ISO format
+     */
+    private LocalDateTime parseDate(String date) throws IllegalArgumentException {
+        try {
+            return LocalDateTime.parse(date);
+        }
+        catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Event search : Invalid date.");
+        }
+    }
+
     /**
      * Add a user in the event's queue.
      * Will return false if :
      * - user doesn't exist
      * - event doesn't exist
-     * - user is already in the queue
+     * - user is already in the queue or in the waiting queue
+     * - user is in the denied list of the event's creator
      * - the event's queue is full
+     * - the event is modified concurrently too many times in a row
      * @param tuple EventAddUserDTO
      * @return True if added
      */
     public boolean addUserInEvent(EventAddUserDTO tuple) {
-        boolean result;
-
-        // Check data
-        if (tuple==null || tuple.getUuid()==null || tuple.getNickname()==null)
-            result = false;
-        else {
-            // Find user and event
-            Event event = this.repository.findByUuid(tuple.getUuid()).orElse(null);
-            if (event==null)
-                result = false;
-            else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
-                if (user==null)
-                    result = false;
-                else {
-                    result = event.addUser(user);
-                    this.repository.save(event);
-                }
-            }
-        }
-        return result;
+        return tuple!=null && this.updateUnderVersion(tuple.getUuid(), tuple.getNickname(),
+                this.unlessDenied(this.repository::insertRegisteredUser));
     }
 
     /**
@@ -198,66 +488,54 @@ public class EventService {
      * Will return false if :
      * - user doesn't exist
      * - event doesn't exist
-     * - user is already in the waiting queue
+     * - user is already in the queue or in the waiting queue
+     * - user is in the denied list of the event's creator
      * - the event's waiting queue is full
+     * - the event is modified concurrently too many times in a row
      * @param tuple EventAddUserDTO
      * @return True if added
      */
     public boolean addUserInEventInWaitingQueue(EventAddUserDTO tuple) {
-        boolean result;
+        return tuple!=null && this.updateUnderVersion(tuple.getUuid(), tuple.getNickname(),
+                this.unlessDenied(this.repository::insertWaitingUser));
+    }
 
-        // Check data
-        if (tuple==null || tuple.getUuid()==null || tuple.getNickname()==null)
-            result = false;
-        else {
-            // Find user and event
-            Event event = this.repository.findByUuid(tuple.getUuid()).orElse(null);
-            if (event==null)
-                result = false;
-            else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
-                if (user==null)
-                    result = false;
-                else {
-                    result = event.addUserInWaitingQueue(user);
-                    this.repository.save(event);
-                }
+    /**
+     * Refuse a statement adding a user in an event when the event's creator has denied him.
+     * The creator is only read if the user may be in someone's denied list.
+     * @param statement Insert statement on one of the participants tables
+     * @return Statement affecting no row if the user is denied
+     */
+    private ToIntBiFunction<Long, Long> unlessDenied(ToIntBiFunction<Long, Long> statement) {
+        return (eventId, userId) -> {
+            boolean denied = false;
+            if (this.deniedIndex.mayBeDenied(userId)) {
+                Long creatorId = this.repository.findCreatorIdById(eventId).orElse(null);
+                denied = creatorId!=null && this.deniedIndex.isDenied(creatorId, userId);
             }
-        }
-        return result;
+            return denied ? 0 : statement.applyAsInt(eventId, userId);
+        };
     }
 
     /**
-     * Remove a user in an event's queue
+     * Remove a user in an event's queue.
+     * The freed seat is given to the head of the waiting queue, in the same transaction.
      * Will return false if :
      * - user doesn't exist
      * - event doesn't exist
      * - user is not in the queue
+     * - the event is modified concurrently too many times in a row
      * @param tuple EventRemoveUserDTO
      * @return True if removed
      */
     public boolean removeUserInEvent(EventRemoveUserDTO tuple) {
-        boolean result;
-
-        // Check data
-        if (tuple==null || tuple.getUuid()==null || tuple.getNickname()==null)
-            result = false;
-        else {
-            // Find user and event
-            Event event = this.repository.findByUuid(tuple.getUuid()).orElse(null);
-            if (event==null)
-                result = false;
-            else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
-                if (user==null)
-                    result = false;
-                else {
-                    result = event.removeUser(user);
-                    this.repository.save(event);
-                }
-            }
-        }
-        return result;
+        return tuple!=null
+                && this.updateUnderVersion(tuple.getUuid(), tuple.getNickname(), (eventId, userId) -> {
+                    int rows = this.repository.deleteRegisteredUser(eventId, userId);
+                    if (rows==1)
+                        this.promoteWaitingUsers(eventId);
+                    return rows;
+                });
     }
 
     /**
@@ -266,29 +544,109 @@ public class EventService {
      * - user doesn't exist
      * - event doesn't exist
      * - user is not in the waiting queue
+     * - the event is modified concurrently too many times in a row
      * @param tuple EventRemoveUserDTO
      * @return True if removed
      */
     public boolean removeUserInWaitingQueue(EventRemoveUserDTO tuple) {
-        boolean result;
+        return tuple!=null
+                && this.updateUnderVersion(tuple.getUuid(), tuple.getNickname(), this.repository::deleteWaitingUser);
+    }
 
-        // Check data
-        if (tuple==null || tuple.getUuid()==null || tuple.getNickname()==null)
+    /**
+     * Run a statement on the participants of an event under optimistic locking.
+     * The event's version is read and incremented before the statement : if another change has been
+     * committed in between, the transaction is rolled back and tried again after a random delay.
+     * The increment also locks the event's row until the commit, so the capacity checks of the statement
+     * and the promotions of waiting users always see the previous changes : the event can't be overbooked.
+     * Nothing is kept if the statement affects no row.
+     * @param uuid Event's uuid
+     * @param nickname User's nickname
+     * @param statement Statement on the participants tables, returning the number of rows of the user
+     * @return True if done; false if refused or if all the attempts have failed
+     */
+    private boolean updateUnderVersion(String uuid, String nickname, ToIntBiFunction<Long, Long> statement) {
+        boolean result = false;
+        boolean done = false;
+        for (int attempt=1; !done; attempt++) {
+            try {
+                result = Boolean.TRUE.equals(this.transactionTemplate.execute(status -> {
+                    boolean changed = this.updateParticipation(uuid, nickname, (eventId, userId) -> {
+                        Long version = this.repository.findVersionById(eventId).orElse(null);
+                        if (version==null)
+                            return 0;
+                        if (this.repository.incrementVersion(eventId, version)==0)
+                            throw new OptimisticLockException("Event participants : concurrent update");
+                        return statement.applyAsInt(eventId, userId);
+                    });
+                    if (!changed)
+                        status.setRollbackOnly();
+                    return changed;
+                }));
+                done = true;
+            }
+            catch (OptimisticLockException | ConcurrencyFailureException e) {
+                done = attempt>=MAX_RESERVATION_ATTEMPTS;
+                if (!done)
+                    this.backOff(attempt);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Move users from the head of an event's waiting queue to its registered list, as many as there are
+     * free seats. Must be run in the transaction which has freed the seats.
+     * @param eventId Event's id
+     * @return Number of promoted users
+     */
+    private int promoteWaitingUsers(Long eventId) {
+        int result = 0;
+        int freeSeats = this.repository.countFreeSeats(eventId);
+        if (freeSeats>0) {
+            List<Long> userIds = this.repository.findFirstWaitingUserIds(eventId, freeSeats);
+            if (!userIds.isEmpty()) {
+                result = this.repository.insertWaitingUsersAsRegistered(eventId, userIds);
+                this.repository.deleteWaitingUsers(eventId, userIds);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wait before trying a reservation again : a random delay (full jitter) under a bound
+     * which doubles with each attempt, so that concurrent reservations don't collide again.
+     * @param attempt Number of failed attempts
+     */
+    private void backOff(int attempt) {
+        long bound = RESERVATION_BACKOFF_MILLIS << Math.min(attempt, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound+1));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run a single statement on the participants of an event, without loading the event.
+     * The statement gets the event's id and the user's id, and returns the number of affected rows.
+     * @param uuid Event's uuid
+     * @param nickname User's nickname
+     * @param statement Insert or delete statement on one of the participants tables
+     * @return True if one row has been affected; false if the event or the user doesn't exist
+     */
+    private boolean updateParticipation(String uuid, String nickname, ToIntBiFunction<Long, Long> statement) {
+        boolean result;
+        if (uuid==null || nickname==null)
             result = false;
         else {
-            // Find user and event
-            Event event = this.repository.findByUuid(tuple.getUuid()).orElse(null);
-            if (event==null)
+            Long eventId = this.repository.findIdByUuid(uuid).orElse(null);
+            Long userId = this.userRepository.findIdByNickname(nickname).orElse(null);
+            if (eventId==null || userId==null)
                 result = false;
-            else {
-                User user = this.userRepository.findByNickname(tuple.getNickname()).orElse(null);
-                if (user==null)
-                    result = false;
-                else {
-                    result = event.removeUserInWaitingQueue(user);
-                    this.repository.save(event);
-                }
-            }
+            else
+                result = statement.applyAsInt(eventId, userId)==1;
         }
         return result;
     }
@@ -0,0 +1,370 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.FriendSuggestion;
+import fr.oukilson.backend.model.Friendship;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact graph of the friend lists, to walk through the friends of friends without reading the database.
+ * Users are numbered in the order they appear, and each one has a sorted array with the numbers of his friends :
+ * there is no object per friendship. Only the array of the changed user is rebuilt when a friend list changes.
+ * Walks use marks kept by thread and reused from one walk to the other, so they don't allocate per user.
+ * Thread safe : walks share a read lock, changes take the write lock.
+ */
+public class FriendGraph {
+    private static final int[] NONE = new int[0];
+    private final Map<Long, Integer> nodes = new HashMap<>();
+    private long[] ids = new long[16];
+    private int[][] friends = new int[16][];
+    private int[] degrees = new int[16];
+    private int size;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Marks> marks = ThreadLocal.withInitial(Marks::new);
+
+    /**
+     * Marks of the users met during a walk, with a value for each one.
+     * A user is marked if his stamp is the one of the current walk, so nothing has to be cleared between walks.
+     */
+    private static class Marks {
+        private int[] stamps = NONE;
+        private int[] values = NONE;
+        private int[] queue = NONE;
+        private int stamp;
+
+        /**
+         * Start a new walk, on a graph of the given size
+         * @param size Number of users
+         */
+        private void reset(int size) {
+            if (this.stamps.length<size) {
+                int capacity = Math.max(size, this.stamps.length*2);
+                this.stamps = new int[capacity];
+                this.values = new int[capacity];
+                this.queue = new int[capacity];
+                this.stamp = 0;
+            }
+            if (++this.stamp==0) {
+                Arrays.fill(this.stamps, 0);
+                this.stamp = 1;
+            }
+        }
+
+        /**
+         * Check if a user has been met during the current walk
+         * @param node User's number
+         * @return True if marked
+         */
+        private boolean isMarked(int node) {
+            return this.stamps[node]==this.stamp;
+        }
+
+        /**
+         * Mark a user as met during the current walk
+         * @param node User's number
+         * @param value Value kept for the user
+         */
+        private void mark(int node, int value) {
+            this.stamps[node] = this.stamp;
+            this.values[node] = value;
+        }
+    }
+
+    /**
+     * Add a user in another user's friend list
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    public void add(long userId, long friendId) {
+        this.lock.writeLock().lock();
+        try {
+            int user = this.nodeOf(userId);
+            int friend = this.nodeOf(friendId);
+            int position = Arrays.binarySearch(this.friends[user], 0, this.degrees[user], friend);
+            if (position<0)
+                this.insert(user, -position-1, friend);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add many friendships at once : the friend lists are sorted once at the end
+     * @param friendships Friendships to add
+     */
+    public void addAll(Collection<Friendship> friendships) {
+        this.lock.writeLock().lock();
+        try {
+            this.insertAll(friendships);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the whole graph by the given friendships, for example when they are read again from the database
+     * @param friendships All the friendships
+     */
+    public void replaceAll(Collection<Friendship> friendships) {
+        this.lock.writeLock().lock();
+        try {
+            this.nodes.clear();
+            this.ids = new long[16];
+            this.friends = new int[16][];
+            this.degrees = new int[16];
+            this.size = 0;
+            this.insertAll(friendships);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a user from another user's friend list
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    public void remove(long userId, long friendId) {
+        this.lock.writeLock().lock();
+        try {
+            Integer user = this.nodes.get(userId);
+            Integer friend = this.nodes.get(friendId);
+            if (user!=null && friend!=null) {
+                int[] array = this.friends[user];
+                int position = Arrays.binarySearch(array, 0, this.degrees[user], friend);
+                if (position>=0) {
+                    System.arraycopy(array, position+1, array, position, this.degrees[user]-position-1);
+                    this.degrees[user]--;
+                }
+            }
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Users in both friend lists
+     * @param userId First user's id
+     * @param otherId Second user's id
+     * @return Ids of the common friends
+     */
+    public long[] mutualFriends(long userId, long otherId) {
+        this.lock.readLock().lock();
+        try {
+            Integer user = this.nodes.get(userId);
+            Integer other = this.nodes.get(otherId);
+            if (user==null || other==null)
+                return new long[0];
+
+            // Both arrays are sorted : walk through them together
+            int[] first = this.friends[user];
+            int[] second = this.friends[other];
+            long[] result = new long[Math.min(this.degrees[user], this.degrees[other])];
+            int count = 0;
+            for (int i=0, j=0; i<this.degrees[user] && j<this.degrees[other];) {
+                if (first[i]<second[j])
+                    i++;
+                else if (first[i]>second[j])
+                    j++;
+                else {
+                    result[count++] = this.ids[first[i]];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of friend links to follow to go from a user to another one, walking through the friend lists
+     * breadth first and never further than the given depth
+     * @param userId Starting user's id
+     * @param otherId Searched user's id
+     * @param maxDepth Maximal number of links
+     * @return Number of links, 0 for the same user, or -1 if the user is not reached within the depth
+     */
+    public int distance(long userId, long otherId, int maxDepth) {
+        if (userId==otherId)
+            return 0;
+        this.lock.readLock().lock();
+        try {
+            Integer user = this.nodes.get(userId);
+            Integer other = this.nodes.get(otherId);
+            if (user==null || other==null)
+                return -1;
+            Marks walk = this.marks.get();
+            walk.reset(this.size);
+            walk.mark(user, 0);
+            walk.queue[0] = user;
+            for (int head=0, tail=1; head<tail; head++) {
+                int node = walk.queue[head];
+                int depth = walk.values[node];
+                if (depth<maxDepth) {
+                    int[] array = this.friends[node];
+                    for (int i=0; i<this.degrees[node]; i++) {
+                        int friend = array[i];
+                        if (friend==other)
+                            return depth+1;
+                        if (!walk.isMarked(friend)) {
+                            walk.mark(friend, depth+1);
+                            walk.queue[tail++] = friend;
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Suggest new friends to a user : the friends of his friends who are not already in his friend list,
+     * the ones in most of his friends' lists first
+     * @param userId User's id
+     * @param limit Maximal number of suggestions
+     * @return List of FriendSuggestion, best first
+     */
+    public List<FriendSuggestion> suggest(long userId, int limit) {
+        List<FriendSuggestion> result = new ArrayList<>();
+        this.lock.readLock().lock();
+        try {
+            Integer user = this.nodes.get(userId);
+            if (user==null || limit<1)
+                return result;
+
+            // Exclude the user and his friends, then count how many friends have each other user
+            Marks walk = this.marks.get();
+            walk.reset(this.size);
+            walk.mark(user, -1);
+            int[] direct = this.friends[user];
+            for (int i=0; i<this.degrees[user]; i++)
+                walk.mark(direct[i], -1);
+            int candidates = 0;
+            for (int i=0; i<this.degrees[user]; i++) {
+                int[] array = this.friends[direct[i]];
+                for (int j=0; j<this.degrees[direct[i]]; j++) {
+                    int node = array[j];
+                    if (!walk.isMarked(node)) {
+                        walk.mark(node, 1);
+                        walk.queue[candidates++] = node;
+                    }
+                    else if (walk.values[node]>0)
+                        walk.values[node]++;
+                }
+            }
+
+            // Keep the best ones : most mutual friends, then first known
+            PriorityQueue<Long> best = new PriorityQueue<>(Math.min(limit, candidates)+1);
+            for (int i=0; i<candidates; i++) {
+                int node = walk.queue[i];
+                long key = ((long) walk.values[node] << 32) | (0xFFFFFFFFL - node);
+                if (best.size()<limit)
+                    best.add(key);
+                else if (key>best.peek()) {
+                    best.poll();
+                    best.add(key);
+                }
+            }
+            List<Long> keys = new ArrayList<>(best);
+            keys.sort(Comparator.reverseOrder());
+            for (long key : keys)
+                result.add(new FriendSuggestion(this.ids[(int) (0xFFFFFFFFL - (key & 0xFFFFFFFFL))],
+                        (int) (key >>> 32)));
+            return result;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of friendships in the graph
+     * @return long
+     */
+    public long countFriendships() {
+        this.lock.readLock().lock();
+        try {
+            long result = 0;
+            for (int i=0; i<this.size; i++)
+                result += this.degrees[i];
+            return result;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add many friendships, sorting the changed friend lists once at the end. Must hold the write lock.
+     * @param friendships Friendships to add
+     */
+    private void insertAll(Collection<Friendship> friendships) {
+        Set<Integer> changed = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            int user = this.nodeOf(friendship.getUserId());
+            this.insert(user, this.degrees[user], this.nodeOf(friendship.getFriendId()));
+            changed.add(user);
+        }
+        for (int user : changed) {
+            int[] array = this.friends[user];
+            Arrays.sort(array, 0, this.degrees[user]);
+            int degree = 0;
+            for (int i=0; i<this.degrees[user]; i++) {
+                if (degree==0 || array[degree-1]!=array[i])
+                    array[degree++] = array[i];
+            }
+            this.degrees[user] = degree;
+        }
+    }
+
+    /**
+     * Number of a user in the graph, numbering him if he is not in yet. Must hold the write lock.
+     * @param id User's id
+     * @return Node's number
+     */
+    private int nodeOf(long id) {
+        Integer node = this.nodes.get(id);
+        if (node==null) {
+            if (this.size==this.ids.length) {
+                int capacity = this.size*2;
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.friends = Arrays.copyOf(this.friends, capacity);
+                this.degrees = Arrays.copyOf(this.degrees, capacity);
+            }
+            node = this.size++;
+            this.ids[node] = id;
+            this.friends[node] = NONE;
+            this.nodes.put(id, node);
+        }
+        return node;
+    }
+
+    /**
+     * Insert a friend in a user's array, growing it if it is full. Must hold the write lock.
+     * @param user User's number
+     * @param position Position of the friend in the array
+     * @param friend Friend's number
+     */
+    private void insert(int user, int position, int friend) {
+        int[] array = this.friends[user];
+        int degree = this.degrees[user];
+        if (degree==array.length) {
+            array = Arrays.copyOf(array, Math.max(4, degree*2));
+            this.friends[user] = array;
+        }
+        System.arraycopy(array, position, array, position+1, degree-position);
+        array[position] = friend;
+        this.degrees[user] = degree+1;
+    }
+}
@@ -0,0 +1,307 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.Friendship;
+import fr.oukilson.backend.model.UserIdentity;
+import fr.oukilson.backend.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Friend lists of all the users, kept in memory by user's id to check a friendship without reading the database.
+ * Each friendship is indexed both ways : the friends of a user, and the users having him as a friend.
+ * Changes are always written as single rows of the friend list table, then applied in memory once their
+ * transaction is committed, so a rollback leaves the store untouched. Only the rows the database reports as
+ * written are applied : the memory follows the table, it never decides for it.
+ * The friendships are also kept in a FriendGraph, to walk through the friends of friends.
+ * Memory and graph are rebuilt from the table on a schedule, so the changes written elsewhere are seen.
+ * Thread safe : each user's sets are changed atomically, and can be read without lock.
+ */
+public class FriendshipStore {
+    private final UserRepository repository;
+    private final FriendGraph graph;
+    private volatile Map<Long, Set<Long>> friends = new ConcurrentHashMap<>();
+    private volatile Map<Long, Set<Long>> followers = new ConcurrentHashMap<>();
+    private volatile Queue<Change> journal;                 // Changes applied while reloading, else null
+    private final ReadWriteLock reloading = new ReentrantReadWriteLock();
+
+    @AllArgsConstructor
+    private static class Change {
+        private final long userId;
+        private final long friendId;
+        private final boolean added;                        // True if the friendship is added, false if removed
+    }
+
+    public FriendshipStore(UserRepository repository, FriendGraph graph) {
+        this.repository = repository;
+        this.graph = graph;
+    }
+
+    /**
+     * Load all the friend lists from the database, replacing the ones in memory and in the graph.
+     * Run at startup, then at the time set by environment.friendshipReload.cron.
+     * The changes applied in memory during the read are replayed on the new friend lists,
+     * so a friendship committed meanwhile is not lost.
+     */
+    @Scheduled(cron = "${environment.friendshipReload.cron:0 30 4 * * *}")
+    public void load() {
+        this.journal = new ConcurrentLinkedQueue<>();
+        try {
+            Set<Friendship> friendships = new LinkedHashSet<>(this.repository.findAllFriendships());
+            this.reloading.writeLock().lock();
+            try {
+                for (Change change : this.journal) {
+                    Friendship friendship = new Friendship(change.userId, change.friendId);
+                    if (change.added)
+                        friendships.add(friendship);
+                    else
+                        friendships.remove(friendship);
+                }
+                Map<Long, Set<Long>> newFriends = new ConcurrentHashMap<>();
+                Map<Long, Set<Long>> newFollowers = new ConcurrentHashMap<>();
+                for (Friendship friendship : friendships)
+                    this.index(newFriends, newFollowers, friendship.getUserId(), friendship.getFriendId());
+                this.friends = newFriends;
+                this.followers = newFollowers;
+                this.graph.replaceAll(friendships);
+            }
+            finally {
+                this.reloading.writeLock().unlock();
+            }
+        }
+        finally {
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Check if a user is in another user's friend list
+     * @param userId User's id
+     * @param friendId Friend's id
+     * @return True if the friend is in the user's friend list
+     */
+    public boolean areFriends(long userId, long friendId) {
+        Set<Long> ids = this.friends.get(userId);
+        return ids!=null && ids.contains(friendId);
+    }
+
+    /**
+     * Number of users in a user's friend list
+     * @param userId User's id
+     * @return int
+     */
+    public int countFriends(long userId) {
+        Set<Long> ids = this.friends.get(userId);
+        return ids==null ? 0 : ids.size();
+    }
+
+    /**
+     * Ids of the users in a user's friend list
+     * @param userId User's id
+     * @return Unmodifiable set, empty if the user has no friend
+     */
+    public Set<Long> friendsOf(long userId) {
+        return this.view(this.friends, userId);
+    }
+
+    /**
+     * Ids of the users having a user in their friend list
+     * @param userId User's id
+     * @return Unmodifiable set, empty if nobody has the user as a friend
+     */
+    public Set<Long> followersOf(long userId) {
+        return this.view(this.followers, userId);
+    }
+
+    /**
+     * Add a user in another user's friend list. Must be run in a transaction.
+     * The row is always inserted, ignored by the database if the friendship is already there.
+     * @param userId User's id
+     * @param friendId Friend's id
+     * @return True if added; false if the user doesn't exist or the friend is already in his friend list
+     */
+    public boolean add(long userId, long friendId) {
+        boolean result = this.repository.insertFriend(userId, friendId)==1;
+        if (result)
+            this.afterCommit(() -> this.link(userId, friendId));
+        return result;
+    }
+
+    /**
+     * Add several users in another user's friend list, in one batch. Must be run in a transaction.
+     * The rows are always inserted, ignored by the database for the friendships already there.
+     * When the driver doesn't tell whether a row was inserted, the friendship is read again : it is applied
+     * in memory if it is in the table, but not reported as added.
+     * @param userId User's id
+     * @param friendIds Friends' id
+     * @return Ids of the added friends; the other ones were already in the friend list
+     */
+    public Set<Long> addAll(long userId, Collection<Long> friendIds) {
+        List<Long> candidates = new ArrayList<>(new LinkedHashSet<>(friendIds));
+        Set<Long> result = new LinkedHashSet<>();
+        if (!candidates.isEmpty()) {
+            int[] rows = this.repository.insertFriends(userId, candidates);
+            List<Long> unknown = new ArrayList<>();
+            for (int i=0; i<rows.length; i++) {
+                if (rows[i]==1)
+                    result.add(candidates.get(i));
+                else if (rows[i]==Statement.SUCCESS_NO_INFO)
+                    unknown.add(candidates.get(i));
+            }
+            Set<Long> linked = new HashSet<>(result);
+            if (!unknown.isEmpty())
+                linked.addAll(this.repository.findFriendIds(userId, unknown));
+            this.afterCommit(() -> linked.forEach(friendId -> this.link(userId, friendId)));
+        }
+        return result;
+    }
+
+    /**
+     * Remove a user from another user's friend list. Must be run in a transaction.
+     * @param userId User's id
+     * @param friendId Friend's id
+     * @return True if removed; false if the friend was not in the user's friend list
+     */
+    public boolean remove(long userId, long friendId) {
+        boolean result = this.repository.deleteFriend(userId, friendId)>0;
+        this.afterCommit(() -> this.unlink(userId, friendId));
+        return result;
+    }
+
+    /**
+     * Empty a user's friend list. Must be run in a transaction.
+     * @param userId User's id
+     * @return Number of removed friends
+     */
+    public int removeAll(long userId) {
+        int result = this.repository.deleteFriends(userId);
+        Set<Long> removed = new HashSet<>(this.friendsOf(userId));
+        this.afterCommit(() -> removed.forEach(friendId -> this.unlink(userId, friendId)));
+        return result;
+    }
+
+    /**
+     * Read a page of a user's friend list, ordered by the friends' id
+     * @param userId User's id
+     * @param afterId Only the friends with a greater id are read; from the first one if null
+     * @param size Number of friends to read
+     * @return List<UserIdentity>
+     */
+    public List<UserIdentity> findFriends(long userId, Long afterId, int size) {
+        return this.repository.findFriends(userId, afterId==null ? Long.MIN_VALUE : afterId, PageRequest.of(0, size));
+    }
+
+    /**
+     * Add a friendship in memory
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    private void link(long userId, long friendId) {
+        this.apply(new Change(userId, friendId, true));
+    }
+
+    /**
+     * Remove a friendship from memory
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    private void unlink(long userId, long friendId) {
+        this.apply(new Change(userId, friendId, false));
+    }
+
+    /**
+     * Apply a change to the friend lists and to the graph, and keep it in the journal during a reload
+     * @param change Change to apply
+     */
+    private void apply(Change change) {
+        this.reloading.readLock().lock();
+        try {
+            if (change.added) {
+                this.index(this.friends, this.followers, change.userId, change.friendId);
+                this.graph.add(change.userId, change.friendId);
+            }
+            else {
+                this.friends.computeIfPresent(change.userId, (id, ids) -> this.without(ids, change.friendId));
+                this.followers.computeIfPresent(change.friendId, (id, ids) -> this.without(ids, change.userId));
+                this.graph.remove(change.userId, change.friendId);
+            }
+            Queue<Change> changes = this.journal;
+            if (changes!=null)
+                changes.add(change);
+        }
+        finally {
+            this.reloading.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a friendship in the sets of both users
+     * @param friends Friends by user
+     * @param followers Followers by user
+     * @param userId User's id
+     * @param friendId Friend's id
+     */
+    private void index(Map<Long, Set<Long>> friends, Map<Long, Set<Long>> followers, long userId, long friendId) {
+        friends.compute(userId, (id, ids) -> this.with(ids, friendId));
+        followers.compute(friendId, (id, ids) -> this.with(ids, userId));
+    }
+
+    /**
+     * Add an id in a set, creating the set if needed
+     * @param ids Set, may be null
+     * @param id Id to add
+     * @return The set
+     */
+    private Set<Long> with(Set<Long> ids, long id) {
+        Set<Long> result = ids==null ? ConcurrentHashMap.newKeySet() : ids;
+        result.add(id);
+        return result;
+    }
+
+    /**
+     * Remove an id from a set, and drop the set if it becomes empty
+     * @param ids Set
+     * @param id Id to remove
+     * @return The set, or null if it is empty
+     */
+    private Set<Long> without(Set<Long> ids, long id) {
+        ids.remove(id);
+        return ids.isEmpty() ? null : ids;
+    }
+
+    /**
+     * Read-only view of the set of a user
+     * @param map Friends or followers
+     * @param userId User's id
+     * @return Unmodifiable set
+     */
+    private Set<Long> view(Map<Long, Set<Long>> map, long userId) {
+        Set<Long> ids = map.get(userId);
+        return ids==null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Apply a change in memory after the commit of the current transaction, or right now without transaction
+     * @param change Change to apply
+     */
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        }
+        else
+            change.run();
+    }
+}
@@ -0,0 +1,46 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.entity.Game;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Evict the saved and removed games from the game cache of GameService.
+ * Every write of an entity goes through here : save, saveAll, delete, deleteById, deleteAll and dirty checking.
+ * Games are evicted once their transaction is committed, so a concurrent search can't cache them back
+ * in their old state before the commit.
+ */
+public class GameCacheListener {
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public GameCacheListener(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Game game) {
+        CacheManager manager = this.cacheManager.getIfAvailable();
+        Cache cache = manager==null ? null : manager.getCache(GameService.CACHE);
+        String uuid = game.getUuid();
+        if (cache==null || uuid==null)
+            return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(uuid);
+                }
+            });
+        }
+        else
+            cache.evict(uuid);
+    }
+}
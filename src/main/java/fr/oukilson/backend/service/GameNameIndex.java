@@ -0,0 +1,246 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.entity.Game;
+import lombok.AllArgsConstructor;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of the games' names, to search them without scanning the game table.
+ * Names are compared in lower case and without accents.
+ * A sorted map gives the names starting with the searched string, a trigram index gives the names containing it :
+ * the candidates are the games having all the trigrams of the searched string, then they are checked one by one.
+ * Thread safe : searches share a read lock, changes take the write lock.
+ */
+public class GameNameIndex {
+    private static final int GRAM = 3;
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> names = new TreeMap<>();
+    private final Map<String, Set<Long>> trigrams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final long id;
+        private final String uuid;
+        private final String name;
+        private final String normalized;
+    }
+
+    @AllArgsConstructor
+    private static class Match implements Comparable<Match> {
+        private final Entry entry;
+        private final int rank;             // 1 if the string starts a word of the name, 2 otherwise
+        private final int position;         // Position of the string in the name
+
+        /**
+         * Best matches first : by rank, position, length of the name, then name
+         * @param other Match
+         * @return Comparison
+         */
+        @Override
+        public int compareTo(Match other) {
+            int result = Integer.compare(this.rank, other.rank);
+            if (result==0)
+                result = Integer.compare(this.position, other.position);
+            if (result==0)
+                result = Integer.compare(this.entry.normalized.length(), other.entry.normalized.length());
+            if (result==0)
+                result = this.entry.normalized.compareTo(other.entry.normalized);
+            if (result==0)
+                result = Long.compare(this.entry.id, other.entry.id);
+            return result;
+        }
+    }
+
+    /**
+     * Put the name to compare with : lower case and without accents
+     * @param name Name
+     * @return Normalized name
+     */
+    public static String normalize(String name) {
+        return ACCENTS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Add or replace a game in the index
+     * @param game Game
+     */
+    public void put(Game game) {
+        this.put(game.getId(), game.getUuid(), game.getName());
+    }
+
+    /**
+     * Add or replace a game in the index. A game without id, uuid or name is not indexed.
+     * @param id Game's id
+     * @param uuid Game's uuid
+     * @param name Game's name
+     */
+    public void put(Long id, String uuid, String name) {
+        if (id==null || uuid==null || name==null)
+            return;
+        Entry entry = new Entry(id, uuid, name, normalize(name));
+        this.lock.writeLock().lock();
+        try {
+            this.unindex(this.entries.put(id, entry));
+            this.names.computeIfAbsent(entry.normalized, k -> new HashSet<>()).add(id);
+            for (String trigram : trigramsOf(entry.normalized))
+                this.trigrams.computeIfAbsent(trigram, k -> new HashSet<>()).add(id);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a game from the index
+     * @param id Game's id
+     */
+    public void remove(Long id) {
+        this.lock.writeLock().lock();
+        try {
+            this.unindex(this.entries.remove(id));
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed games
+     * @return int
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.entries.size();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search the games whose name contains the given string.
+     * Games whose name starts with the string come first, in alphabetical order.
+     * Then come the games having a word starting with the string, then the others,
+     * ordered by the position of the string and by the length of the name.
+     * The empty string gives all the games, in alphabetical order.
+     * @param name The string to search
+     * @param limit Maximal number of games, Integer.MAX_VALUE for all of them
+     * @return List of GameUuidDTO
+     */
+    public List<GameUuidDTO> search(String name, int limit) {
+        List<GameUuidDTO> result = new ArrayList<>();
+        String searched = normalize(name);
+        this.lock.readLock().lock();
+        try {
+            // Prefix matches, straight from the sorted names
+            for (Set<Long> ids : this.names.subMap(searched, true, searched+Character.MAX_VALUE, false).values()) {
+                for (Long id : ids) {
+                    if (result.size()>=limit)
+                        return result;
+                    Entry entry = this.entries.get(id);
+                    result.add(new GameUuidDTO(entry.uuid, entry.name));
+                }
+            }
+
+            // Other matches, keeping only the best ones
+            int remaining = limit-result.size();
+            PriorityQueue<Match> best = new PriorityQueue<>(Math.min(remaining, this.entries.size())+1,
+                    Comparator.reverseOrder());
+            for (Entry entry : remaining>0 ? this.candidates(searched) : Collections.<Entry>emptyList()) {
+                int position = entry.normalized.indexOf(searched);
+                if (position>0) {
+                    int rank = Character.isLetterOrDigit(entry.normalized.charAt(position-1)) ? 2 : 1;
+                    Match match = new Match(entry, rank, position);
+                    if (best.size()<remaining)
+                        best.add(match);
+                    else if (match.compareTo(best.peek())<0) {
+                        best.poll();
+                        best.add(match);
+                    }
+                }
+            }
+            List<Match> matches = new ArrayList<>(best);
+            Collections.sort(matches);
+            matches.forEach(m -> result.add(new GameUuidDTO(m.entry.uuid, m.entry.name)));
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Games which may contain the searched string : the ones having all its trigrams,
+     * or all the games if it is too short to have one
+     * @param searched Normalized string to search
+     * @return Collection of entries
+     */
+    private Collection<Entry> candidates(String searched) {
+        if (searched.length()<GRAM)
+            return this.entries.values();
+
+        // Intersect the games of each trigram, from the rarest one
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String trigram : trigramsOf(searched)) {
+            Set<Long> ids = this.trigrams.get(trigram);
+            if (ids==null)
+                return Collections.emptyList();
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        List<Entry> result = new ArrayList<>();
+        for (Long id : postings.get(0)) {
+            boolean everywhere = true;
+            for (int i=1; everywhere && i<postings.size(); i++)
+                everywhere = postings.get(i).contains(id);
+            if (everywhere)
+                result.add(this.entries.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Remove an entry from the sorted names and from the trigram index
+     * @param entry Entry to remove, may be null
+     */
+    private void unindex(Entry entry) {
+        if (entry==null)
+            return;
+        this.removePosting(this.names, entry.normalized, entry.id);
+        for (String trigram : trigramsOf(entry.normalized))
+            this.removePosting(this.trigrams, trigram, entry.id);
+    }
+
+    /**
+     * Remove a game from the set of a key, and the key if its set becomes empty
+     * @param map Sorted names or trigram index
+     * @param key Key
+     * @param id Game's id
+     */
+    private void removePosting(Map<String, Set<Long>> map, String key, long id) {
+        Set<Long> ids = map.get(key);
+        if (ids!=null && ids.remove(id) && ids.isEmpty())
+            map.remove(key);
+    }
+
+    /**
+     * All the distinct substrings of 3 characters of a string
+     * @param normalized Normalized string
+     * @return Set of trigrams
+     */
+    private static Set<String> trigramsOf(String normalized) {
+        Set<String> result = new HashSet<>();
+        for (int i=0; i+GRAM<=normalized.length(); i++)
+            result.add(normalized.substring(i, i+GRAM));
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.entity.Game;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.function.Consumer;
+
+/**
+ * Keep the GameNameIndex up to date with the game table.
+ * Changes are applied once their transaction is committed, so a rollback leaves the index untouched.
+ * Created by Hibernate through Spring : the index is looked up lazily, as it is built from the repositories.
+ */
+public class GameNameIndexListener {
+    private final ObjectProvider<GameNameIndex> index;
+
+    public GameNameIndexListener(ObjectProvider<GameNameIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Game game) {
+        Long id = game.getId();
+        String uuid = game.getUuid();
+        String name = game.getName();
+        this.afterCommit(index -> index.put(id, uuid, name));
+    }
+
+    @PostRemove
+    public void onRemove(Game game) {
+        Long id = game.getId();
+        this.afterCommit(index -> index.remove(id));
+    }
+
+    /**
+     * Apply a change to the index after the commit of the current transaction, or right now without transaction
+     * @param change Change to apply
+     */
+    private void afterCommit(Consumer<GameNameIndex> change) {
+        GameNameIndex gameNameIndex = this.index.getIfAvailable();
+        if (gameNameIndex==null)
+            return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.accept(gameNameIndex);
+                }
+            });
+        }
+        else
+            change.accept(gameNameIndex);
+    }
+}
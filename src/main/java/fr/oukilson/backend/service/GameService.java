@@ -3,43 +3,56 @@ package fr.oukilson.backend.service;
 import fr.oukilson.backend.dto.GameDTO;
 import fr.oukilson.backend.dto.GameUuidDTO;
 import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.EntityMapper;
 import fr.oukilson.backend.repository.GameRepository;
-import org.modelmapper.ModelMapper;
+import org.springframework.cache.annotation.Cacheable;
 import java.util.*;
 
 public class GameService {
+    public static final String CACHE = "games";
+    private static final int MAX_SEARCH_LIMIT = 100;
     private GameRepository repository;
-    private ModelMapper mapper;
+    private GameNameIndex index;
+    private EntityMapper<Game, GameDTO> mapper;
 
-    public GameService(GameRepository repository, ModelMapper mapper) {
+    public GameService(GameRepository repository, GameNameIndex index, EntityMapper<Game, GameDTO> mapper) {
         this.repository = repository;
+        this.index = index;
         this.mapper = mapper;
     }
 
     /**
      * Return all the game info by providing its uuid.
+     * Found games are cached by uuid, unknown uuids are not. GameCacheListener evicts them when they change.
      * @param uuid String uuid of the game
-     * @return Optional<GameUuidDTO>
+     * @return GameDTO, null if not found
      */
+    @Cacheable(cacheNames = CACHE, unless = "#result == null")
     public GameDTO findByUuid(String uuid) {
         GameDTO result = null;
         Optional<Game> game = this.repository.findByUuid(uuid);
-        if (game.isPresent()) result = this.mapper.map(game.get(), GameDTO.class);
+        if (game.isPresent()) result = this.mapper.map(game.get());
         return result;
     }
 
     /**
-     * Return a list of all games sharing the same name or part of it.
+     * Return the games whose name contains the given string, ignoring case and accents.
+     * Games whose name starts with the string come first.
+     * As the former LIKE search, the empty string gives all the games.
      * @param name The string to search
+     * @param limit Maximal number of games, all the games found if null
      * @return List of GameUuidDTO
+     * @throws IllegalArgumentException If the limit is not between 1 and 100
      */
-    public List<GameUuidDTO> findByName(String name) {
-        List<GameUuidDTO> result = new LinkedList<>();
-        if (name!=null) {
-            repository.findAllByNameContaining(name).forEach(
-                    g -> result.add(this.mapper.map(g, GameUuidDTO.class))
-            );
-        }
+    public List<GameUuidDTO> findByName(String name, Integer limit) throws IllegalArgumentException {
+        int size = limit==null ? Integer.MAX_VALUE : limit;
+        if (limit!=null && (size<1 || size>MAX_SEARCH_LIMIT))
+            throw new IllegalArgumentException("Game search : Invalid limit.");
+        List<GameUuidDTO> result;
+        if (name==null)
+            result = new LinkedList<>();
+        else
+            result = this.index.search(name, size);
         return result;
     }
 }
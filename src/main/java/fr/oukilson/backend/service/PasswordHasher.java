@@ -0,0 +1,145 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hash the passwords with bcrypt on its own threads, so the hashing doesn't hold the request threads.
+ * The waiting hashes are kept in a bounded queue : when it is full, new hashes are refused at once
+ * instead of making every sign-up wait longer.
+ * Metrics : password.hash (hash time), password.hash.wait (time in the queue), password.hash.queue (queue depth),
+ * password.hash.active (hashes running) and password.hash.rejected (refused hashes).
+ */
+public class PasswordHasher {
+    private static final int HASHES_PER_TASK = 100;
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    /**
+     * Create a hasher and its threads
+     * @param cost Bcrypt cost factor, from 4 to 31 : each step doubles the hash time
+     * @param threads Number of hashing threads
+     * @param queueSize Maximal number of hashes waiting for a thread
+     * @param registry Where to publish the metrics
+     * @throws IllegalArgumentException If a parameter is out of range
+     */
+    public PasswordHasher(int cost, int threads, int queueSize, MeterRegistry registry)
+            throws IllegalArgumentException {
+        this.encoder = new BCryptPasswordEncoder(cost);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-"+count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.hashTimer = registry.timer("password.hash");
+        this.waitTimer = registry.timer("password.hash.wait");
+        this.rejected = registry.counter("password.hash.rejected");
+        Gauge.builder("password.hash.queue", this.executor, executor -> executor.getQueue().size())
+                .register(registry);
+        Gauge.builder("password.hash.active", this.executor, ThreadPoolExecutor::getActiveCount)
+                .register(registry);
+    }
+
+    /**
+     * Hash a password on the hashing threads
+     * @param password Password, not null
+     * @return Future of the hash, with its salt and cost
+     * @throws RejectedExecutionException If too many hashes are already waiting
+     */
+    public CompletableFuture<String> hash(String password) throws RejectedExecutionException {
+        return this.submit(() -> this.encode(password));
+    }
+
+    /**
+     * Hash many passwords, as for an import. They are hashed by tasks of HASHES_PER_TASK passwords,
+     * so a long list only takes a few places in the queue, and can't hold all the threads for long.
+     * If the queue hasn't room for all the tasks, the tasks already queued are cancelled.
+     * @param passwords Passwords, not null
+     * @return Future of the hashes, in the same order
+     * @throws RejectedExecutionException If the queue hasn't room for all the tasks
+     */
+    public CompletableFuture<List<String>> hashAll(List<String> passwords) throws RejectedExecutionException {
+        List<CompletableFuture<List<String>>> parts = new ArrayList<>();
+        try {
+            for (int start=0; start<passwords.size(); start+=HASHES_PER_TASK) {
+                List<String> part = passwords.subList(start, Math.min(start+HASHES_PER_TASK, passwords.size()));
+                parts.add(this.submit(() -> {
+                    List<String> hashes = new ArrayList<>(part.size());
+                    for (String password : part)
+                        hashes.add(this.encode(password));
+                    return hashes;
+                }));
+            }
+        }
+        catch (RejectedExecutionException e) {
+            parts.forEach(part -> part.cancel(false));
+            throw e;
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<String> result = new ArrayList<>(passwords.size());
+            parts.forEach(part -> result.addAll(part.join()));
+            return result;
+        });
+    }
+
+    /**
+     * Hash a password on the current thread, measuring the hash time
+     * @param password Password
+     * @return Hash
+     */
+    private String encode(String password) {
+        return this.hashTimer.record(() -> this.encoder.encode(password));
+    }
+
+    /**
+     * Run a task on the hashing threads, measuring its time in the queue
+     * @param task Task
+     * @return Future of the task's result
+     * @throws RejectedExecutionException If too many tasks are already waiting
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> task) throws RejectedExecutionException {
+        CompletableFuture<T> result;
+        long queued = System.nanoTime();
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                this.waitTimer.record(System.nanoTime()-queued, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, this.executor);
+        }
+        catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Check a password against its hash, on the calling thread
+     * @param password Password
+     * @param hash Hash made by this hasher
+     * @return True if the password matches
+     */
+    public boolean matches(String password, String hash) {
+        return this.encoder.matches(password, hash);
+    }
+
+    /**
+     * Stop the hashing threads, once the waiting hashes are done
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+}
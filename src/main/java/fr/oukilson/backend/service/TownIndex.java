@@ -0,0 +1,168 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.location.TownDTO;
+import fr.oukilson.backend.entity.Town;
+import lombok.AllArgsConstructor;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of the town dictionary, to autocomplete towns without querying the town table.
+ * Names are compared in lower case, without accents nor punctuation : "Saint-Étienne" is "saint etienne".
+ * Two sorted maps give the towns whose name, or whose zip code, starts with the typed text.
+ * Thread safe : searches share a read lock, changes take the write lock.
+ */
+public class TownIndex {
+    private static final char SEPARATOR = '\u0000';
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, Entry> names = new TreeMap<>();
+    private final NavigableMap<String, Entry> zipCodes = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final long id;
+        private final String name;
+        private final String zipCode;
+        private final String normalized;
+
+        /**
+         * Key in the sorted names : by name, then zip code
+         * @return String
+         */
+        private String nameKey() {
+            return this.normalized + SEPARATOR + this.zipCode + SEPARATOR + this.id;
+        }
+
+        /**
+         * Key in the sorted zip codes : by zip code, then name
+         * @return String
+         */
+        private String zipCodeKey() {
+            return this.zipCode + SEPARATOR + this.normalized + SEPARATOR + this.id;
+        }
+    }
+
+    /**
+     * Put the name to compare with : lower case, without accents, the punctuation replaced by single spaces
+     * @param name Town's name
+     * @return Normalized name
+     */
+    public static String normalize(String name) {
+        return PUNCTUATION.matcher(GameNameIndex.normalize(name)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Put the typed start of a name to compare with : normalized, but a space or a punctuation mark at its end
+     * is kept as a space, as it ends the last word ("Saint-" doesn't give "Sainte-Foy")
+     * @param text Start of a town's name
+     * @return Normalized start of the name
+     */
+    public static String prefixOf(String text) {
+        String result = normalize(text);
+        if (!result.isEmpty() && !Character.isLetterOrDigit(text.charAt(text.length()-1)))
+            result += " ";
+        return result;
+    }
+
+    /**
+     * Add or replace a town in the index
+     * @param town Town
+     */
+    public void put(Town town) {
+        this.put(town.getId(), town.getName(), town.getZipCode());
+    }
+
+    /**
+     * Add or replace a town in the index. A town without id or name is not indexed.
+     * @param id Town's id
+     * @param name Town's name
+     * @param zipCode Town's zip code, may be null
+     */
+    public void put(Long id, String name, String zipCode) {
+        if (id==null || name==null)
+            return;
+        Entry entry = new Entry(id, name, zipCode==null ? "" : zipCode, normalize(name));
+        this.lock.writeLock().lock();
+        try {
+            this.unindex(this.entries.put(id, entry));
+            this.names.put(entry.nameKey(), entry);
+            this.zipCodes.put(entry.zipCodeKey(), entry);
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a town from the index
+     * @param id Town's id
+     */
+    public void remove(Long id) {
+        this.lock.writeLock().lock();
+        try {
+            this.unindex(this.entries.remove(id));
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed towns
+     * @return int
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.entries.size();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search the towns whose name starts with the given text, in alphabetical order then by zip code.
+     * A text starting with a digit is searched in the zip codes instead, in the zip codes' order.
+     * @param text The typed text
+     * @param limit Maximal number of towns
+     * @return List of TownDTO, empty if the text is blank
+     */
+    public List<TownDTO> search(String text, int limit) {
+        List<TownDTO> result = new ArrayList<>();
+        String trimmed = text.trim();
+        boolean byZipCode = !trimmed.isEmpty() && Character.isDigit(trimmed.charAt(0));
+        String searched = byZipCode ? trimmed : prefixOf(text);
+        if (searched.isBlank())
+            return result;
+        this.lock.readLock().lock();
+        try {
+            NavigableMap<String, Entry> sorted = byZipCode ? this.zipCodes : this.names;
+            Iterator<Entry> matches = sorted.subMap(searched, true, searched+Character.MAX_VALUE, false)
+                    .values().iterator();
+            while (result.size()<limit && matches.hasNext()) {
+                Entry entry = matches.next();
+                result.add(new TownDTO(entry.name, entry.zipCode.isEmpty() ? null : entry.zipCode));
+            }
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Remove an entry from the sorted maps
+     * @param entry Entry to remove, may be null
+     */
+    private void unindex(Entry entry) {
+        if (entry==null)
+            return;
+        this.names.remove(entry.nameKey());
+        this.zipCodes.remove(entry.zipCodeKey());
+    }
+}
@@ -0,0 +1,58 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.entity.Town;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.function.Consumer;
+
+/**
+ * Keep the TownIndex up to date with the town table.
+ * Changes are applied once their transaction is committed, so a rollback leaves the index untouched.
+ * Created by Hibernate through Spring : the index is looked up lazily, as it is built from the repositories.
+ */
+public class TownIndexListener {
+    private final ObjectProvider<TownIndex> index;
+
+    public TownIndexListener(ObjectProvider<TownIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Town town) {
+        Long id = town.getId();
+        String name = town.getName();
+        String zipCode = town.getZipCode();
+        this.afterCommit(index -> index.put(id, name, zipCode));
+    }
+
+    @PostRemove
+    public void onRemove(Town town) {
+        Long id = town.getId();
+        this.afterCommit(index -> index.remove(id));
+    }
+
+    /**
+     * Apply a change to the index after the commit of the current transaction, or right now without transaction
+     * @param change Change to apply
+     */
+    private void afterCommit(Consumer<TownIndex> change) {
+        TownIndex townIndex = this.index.getIfAvailable();
+        if (townIndex==null)
+            return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.accept(townIndex);
+                }
+            });
+        }
+        else
+            change.accept(townIndex);
+    }
+}
@@ -0,0 +1,125 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.location.TownDTO;
+import fr.oukilson.backend.entity.Town;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.TownRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+
+public class TownService {
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int LINK_BATCH_SIZE = 500;
+    private TownRepository repository;
+    private LocationRepository locationRepository;
+    private TownIndex index;
+    private TransactionTemplate transactionTemplate;
+
+    public TownService(TownRepository repository, LocationRepository locationRepository, TownIndex index,
+                       TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.locationRepository = locationRepository;
+        this.index = index;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Autocomplete a town : the towns whose name, or zip code, starts with the typed text.
+     * Case, accents and punctuation are ignored in the names.
+     * @param name The typed text
+     * @param limit Maximal number of towns, 20 if null
+     * @return List of TownDTO
+     * @throws IllegalArgumentException If the limit is not between 1 and 100
+     */
+    public List<TownDTO> findByName(String name, Integer limit) throws IllegalArgumentException {
+        int size = limit==null ? DEFAULT_SEARCH_LIMIT : limit;
+        if (size<1 || size>MAX_SEARCH_LIMIT)
+            throw new IllegalArgumentException("Town search : Invalid limit.");
+        List<TownDTO> result;
+        if (name==null)
+            result = new LinkedList<>();
+        else
+            result = this.index.search(name, size);
+        return result;
+    }
+
+    /**
+     * Find the town of the dictionary with the given name and zip code, and add it if it is not there yet.
+     * The town is added in the caller's transaction, so it is rolled back with it. It is added by an
+     * insert ignoring the unique key (normalized_name, zip_code), then read again with a locking read :
+     * a concurrent creation of the same town only leads to read the town created by the other one.
+     * A town without zip code gets an empty one, as the unique key doesn't apply to nulls.
+     * @param name Town's name, as written by the user
+     * @param zipCode Town's zip code, may be null
+     * @return Town, null if the name has no letter nor digit
+     */
+    public Town resolve(String name, String zipCode) {
+        String normalized = name==null ? "" : TownIndex.normalize(name);
+        String zip = zipCode==null ? "" : zipCode.trim();
+        Town result = null;
+        if (!normalized.isEmpty()) {
+            result = this.transactionTemplate.execute(status -> this.repository
+                    .findByNormalizedNameAndZipCode(normalized, zip)
+                    .orElseGet(() -> {
+                        boolean inserted = this.repository.insertIgnore(name.trim(), normalized, zip)==1;
+                        Town town = this.repository.findLockedByNormalizedNameAndZipCode(normalized, zip)
+                                .orElseThrow();
+                        if (inserted)
+                            this.indexAfterCommit(town);
+                        return town;
+                    }));
+        }
+        return result;
+    }
+
+    /**
+     * Add a town inserted without its entity in the index, once its transaction is committed
+     * @param town Inserted town
+     */
+    private void indexAfterCommit(Town town) {
+        Long id = town.getId();
+        String name = town.getName();
+        String zipCode = town.getZipCode();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index.put(id, name, zipCode);
+                }
+            });
+        }
+        else
+            this.index.put(id, name, zipCode);
+    }
+
+    /**
+     * Link the locations written before the town dictionary to their town.
+     * The locations are read by batches, only their id and town, and linked by one update per town.
+     * @return Number of linked locations
+     */
+    public int linkLocations() {
+        int result = 0;
+        long afterId = 0;
+        List<Object[]> batch;
+        do {
+            batch = this.locationRepository.findUnlinked(afterId, PageRequest.of(0, LINK_BATCH_SIZE));
+            Map<Town, List<Long>> towns = new HashMap<>();
+            Map<List<String>, Town> resolved = new HashMap<>();
+            for (Object[] row : batch) {
+                List<String> key = Arrays.asList((String) row[1], (String) row[2]);
+                Town town = resolved.computeIfAbsent(key, k -> this.resolve(k.get(0), k.get(1)));
+                if (town!=null)
+                    towns.computeIfAbsent(town, k -> new ArrayList<>()).add((Long) row[0]);
+                afterId = (Long) row[0];
+            }
+            for (Map.Entry<Town, List<Long>> town : towns.entrySet())
+                result += this.transactionTemplate.execute(
+                        status -> this.locationRepository.linkTown(town.getKey(), town.getValue()));
+        } while (batch.size()==LINK_BATCH_SIZE);
+        return result;
+    }
+}
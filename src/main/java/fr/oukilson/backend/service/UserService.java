@@ -1,80 +1,257 @@
 package fr.oukilson.backend.service;
 
+import fr.oukilson.backend.dto.user.FriendAddResultDTO;
+import fr.oukilson.backend.dto.user.FriendPageDTO;
+import fr.oukilson.backend.dto.user.FriendSuggestionDTO;
+import fr.oukilson.backend.dto.user.MutualFriendsDTO;
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.dto.user.UserImportResultDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.model.FriendCursor;
+import fr.oukilson.backend.model.FriendSuggestion;
 import fr.oukilson.backend.model.RegexCollection;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EntityMapper;
+import fr.oukilson.backend.model.UserIdentity;
 import fr.oukilson.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.util.*;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class UserService {
+    private static final int DEFAULT_FRIEND_PAGE_SIZE = 20;
+    private static final int MAX_FRIEND_PAGE_SIZE = 100;
+    private static final int MAX_BULK_FRIENDS = 1000;
+    private static final int MAX_IMPORTED_USERS = 5000;
+    private static final int MAX_IMPORT_ATTEMPTS = 3;
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 50;
+    private static final int MUTUAL_FRIENDS_SHOWN = 20;
+    private static final int MAX_FRIEND_DISTANCE = 3;
     private UserRepository userRepository;
     private ModelMapper modelMapper;
+    private EntityMapper<User, UserDTO> userMapper;
     private RegexCollection regexCollection;
+    private FriendshipStore friendshipStore;
+    private FriendGraph friendGraph;
+    private DeniedIndex deniedIndex;
+    private PasswordHasher passwordHasher;
+    private Executor writeExecutor;
+    private TransactionTemplate transactionTemplate;
 
-    public UserService(UserRepository userRepository, ModelMapper modelMapper, RegexCollection regexCollection) {
+    public UserService(UserRepository userRepository, ModelMapper modelMapper, EntityMapper<User, UserDTO> userMapper,
+                       RegexCollection regexCollection, FriendshipStore friendshipStore, FriendGraph friendGraph,
+                       DeniedIndex deniedIndex, PasswordHasher passwordHasher, Executor writeExecutor,
+                       TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
         this.modelMapper = modelMapper;
+        this.userMapper = userMapper;
         this.regexCollection = regexCollection;
+        this.friendshipStore = friendshipStore;
+        this.friendGraph = friendGraph;
+        this.deniedIndex = deniedIndex;
+        this.passwordHasher = passwordHasher;
+        this.writeExecutor = writeExecutor;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
-     * Search a user by nickname
+     * Search a user by nickname.
+     * Neither the user nor his friend list are loaded : only his id and stored nickname are read,
+     * then the size of the friend list and its first page; the next pages are read with findFriends.
      * @param nickname User's nickname
      * @return UserDTO
      */
     public UserDTO findUserByNickname(String nickname) {
         UserDTO result;
-        if (this.regexCollection.getNicknamePattern().matcher(nickname).find()) {
-            Optional<User> optionalUser = userRepository.findByNickname(nickname);
-            result = optionalUser.map(user -> this.modelMapper.map(user, UserDTO.class)).orElse(null);
+        if (this.regexCollection.getNicknameValidator().isValid(nickname)) {
+            Optional<UserIdentity> identity = userRepository.findIdentityByNickname(nickname);
+            if (identity.isPresent()) {
+                Long userId = identity.get().getId();
+                FriendPageDTO page = this.readFriendPage(userId, null, DEFAULT_FRIEND_PAGE_SIZE);
+                result = new UserDTO();
+                result.setNickname(identity.get().getNickname());
+                result.setFriendCount(this.friendshipStore.countFriends(userId));
+                result.setFriendList(page.getFriends());
+                result.setNextFriendCursor(page.getNextCursor());
+            }
+            else
+                result = null;
         }
         else
             result = null;
         return result;
     }
 
-    /* Method to save a user entity to the database
+    /**
+     * Save a new user. His password is hashed on the threads of the PasswordHasher, then the user is saved
+     * on the write executor, so the hashing threads only hash : the calling thread doesn't wait for either.
      * @param userCreationDTO User's data
-     * @return UserDTO
+     * @return Future of the created user, or of null if the data are invalid;
+     * it fails with a RejectedExecutionException if too many users are already waiting to be saved
+     * @throws RejectedExecutionException If too many passwords are already waiting to be hashed
      */
-    public UserDTO createUser(UserCreationDTO userCreationDTO) {
-        UserDTO result = null;
-        if (userCreationDTO!=null
-                && userCreationDTO.isValid(regexCollection.getNicknamePattern(), regexCollection.getEmailPattern())) {
-            User user = this.userRepository.save(this.modelMapper.map(userCreationDTO, User.class));
-            result = this.modelMapper.map(user, UserDTO.class);
+    public CompletableFuture<UserDTO> createUser(UserCreationDTO userCreationDTO) throws RejectedExecutionException {
+        CompletableFuture<UserDTO> result;
+        if (userCreationDTO!=null && userCreationDTO.isValid(this.regexCollection.getNicknameValidator(),
+                this.regexCollection.getEmailValidator())) {
+            User user = this.modelMapper.map(userCreationDTO, User.class);
+            result = this.passwordHasher.hash(userCreationDTO.getPassword()).thenApplyAsync(hash -> {
+                user.setPassword(hash);
+                return this.userMapper.map(this.userRepository.save(user));
+            }, this.writeExecutor);
         }
+        else
+            result = CompletableFuture.completedFuture(null);
         return result;
     }
 
     /**
-     * Add a user to the main user's friend list
+     * Import many new users at once, as the members of a club.
+     * The users are checked in parallel, the nicknames already taken are read in one query,
+     * the passwords are hashed by the PasswordHasher, then the new users are inserted by JDBC batches,
+     * all in one transaction, on the write executor.
+     * @param users Users to import
+     * @return Future of the report : what happened to each user, in the given order;
+     * it fails with a RejectedExecutionException if too many users are already waiting to be saved
+     * @throws IllegalArgumentException If there is no user or too many of them
+     * @throws RejectedExecutionException If too many passwords are already waiting to be hashed
+     */
+    public CompletableFuture<UserImportReportDTO> importUsers(List<UserCreationDTO> users)
+            throws IllegalArgumentException, RejectedExecutionException {
+        if (users==null || users.isEmpty() || users.size()>MAX_IMPORTED_USERS)
+            throw new IllegalArgumentException("User import : Invalid list of users.");
+        long start = System.nanoTime();
+
+        // Check the users, then find the nicknames already taken; nicknames are compared as the database does
+        List<Boolean> valid = users.parallelStream()
+                .map(user -> user!=null && user.isValid(this.regexCollection.getNicknameValidator(),
+                        this.regexCollection.getEmailValidator()))
+                .collect(Collectors.toList());
+        Set<String> nicknames = new HashSet<>();
+        for (int i=0; i<users.size(); i++) {
+            if (valid.get(i))
+                nicknames.add(users.get(i).getNickname());
+        }
+        Set<String> taken = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (!nicknames.isEmpty())
+            this.userRepository.findIdentitiesByNicknames(nicknames).forEach(user -> taken.add(user.getNickname()));
+
+        List<UserImportResultDTO> results = new ArrayList<>(users.size());
+        List<User> accepted = new ArrayList<>();
+        List<UserImportResultDTO> acceptedResults = new ArrayList<>();
+        Set<String> seen = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i=0; i<users.size(); i++) {
+            UserCreationDTO user = users.get(i);
+            UserImportResultDTO.Status status;
+            if (!valid.get(i))
+                status = UserImportResultDTO.Status.INVALID;
+            else if (taken.contains(user.getNickname()))
+                status = UserImportResultDTO.Status.ALREADY_EXISTS;
+            else if (!seen.add(user.getNickname()))
+                status = UserImportResultDTO.Status.DUPLICATE;
+            else {
+                status = UserImportResultDTO.Status.CREATED;
+                User entity = new User();
+                entity.setNickname(user.getNickname());
+                entity.setPassword(user.getPassword());
+                entity.setEmail(user.getEmail());
+                accepted.add(entity);
+            }
+            UserImportResultDTO result = new UserImportResultDTO(user==null ? null : user.getNickname(), status);
+            if (status==UserImportResultDTO.Status.CREATED)
+                acceptedResults.add(result);
+            results.add(result);
+        }
+
+        // Hash the passwords, then insert the accepted users
+        List<String> passwords = new ArrayList<>(accepted.size());
+        accepted.forEach(user -> passwords.add(user.getPassword()));
+        CompletableFuture<List<String>> hashes = accepted.isEmpty()
+                ? CompletableFuture.completedFuture(passwords)
+                : this.passwordHasher.hashAll(passwords);
+        return hashes.thenApplyAsync(hashed -> {
+            for (int i=0; i<accepted.size(); i++)
+                accepted.get(i).setPassword(hashed.get(i));
+            int created = this.insertImportedUsers(accepted, acceptedResults);
+            long duration = System.nanoTime()-start;
+            UserImportReportDTO result = new UserImportReportDTO();
+            result.setResults(results);
+            result.setCreated(created);
+            result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(duration));
+            result.setRowsPerSecond(created*1e9/Math.max(duration, 1));
+            return result;
+        }, this.writeExecutor);
+    }
+
+    /**
+     * Insert the users of an import in one transaction : all of them or none.
+     * If a nickname has been taken since it was checked, by a sign-up running at the same time,
+     * the transaction is rolled back, the users whose nickname is now taken are reported as ALREADY_EXISTS,
+     * and the other ones are inserted again.
+     * @param users Users to insert
+     * @param results Results of these users, in the same order; changed for the users not inserted
+     * @return Number of inserted users
+     * @throws DuplicateKeyException If the users still can't be inserted after MAX_IMPORT_ATTEMPTS attempts
+     */
+    private int insertImportedUsers(List<User> users, List<UserImportResultDTO> results)
+            throws DuplicateKeyException {
+        List<User> remaining = new ArrayList<>(users);
+        List<UserImportResultDTO> remainingResults = new ArrayList<>(results);
+        boolean done = false;
+        for (int attempt=1; !done; attempt++) {
+            try {
+                if (!remaining.isEmpty())
+                    this.transactionTemplate.executeWithoutResult(
+                            status -> this.userRepository.insertUsers(remaining));
+                done = true;
+            }
+            catch (DuplicateKeyException e) {
+                Set<String> taken = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                this.userRepository.findIdentitiesByNicknames(
+                        remaining.stream().map(User::getNickname).collect(Collectors.toList()))
+                        .forEach(user -> taken.add(user.getNickname()));
+                if (taken.isEmpty() || attempt>=MAX_IMPORT_ATTEMPTS)
+                    throw e;
+                for (int i=remaining.size()-1; i>=0; i--) {
+                    if (taken.contains(remaining.get(i).getNickname())) {
+                        remaining.remove(i);
+                        remainingResults.remove(i).setStatus(UserImportResultDTO.Status.ALREADY_EXISTS);
+                    }
+                }
+            }
+        }
+        return remaining.size();
+    }
+
+    /**
+     * Add a user to the main user's friend list, unless the main user is in the denied list of the other one.
+     * The friendship is checked in memory, then written as a single row : the friend list is not loaded.
      * @param mainUser User (nickname) to alter the friend list
      * @param secondUser User (nickname) to add
      * @return True if the adding has been done
      */
+    @Transactional
     public boolean addUserToFriendList(String mainUser, String secondUser) {
         boolean result;
-        Optional<User> myOptionalUser = this.userRepository.findByNickname(mainUser);
-        if (myOptionalUser.isPresent()) {
-            Optional<User> myOptionalFriend = this.userRepository.findByNickname(secondUser);
-            if (myOptionalFriend.isPresent()) {
-                User myUser = myOptionalUser.get();
-                List<User> friends = myUser.getFriendList();
-                User myFriend = myOptionalFriend.get();
-                if (!friends.contains(myFriend)) {
-                    friends.add(myFriend);
-                    this.userRepository.save(myUser);
-                    result = true;
-                }
-                else
-                    result = false;
-            }
+        Optional<Long> myUserId = this.userRepository.findIdByNickname(mainUser);
+        if (myUserId.isPresent()) {
+            Optional<Long> myFriendId = this.userRepository.findIdByNickname(secondUser);
+            if (myFriendId.isPresent())
+                result = !this.deniedIndex.isDenied(myFriendId.get(), myUserId.get())
+                        && this.friendshipStore.add(myUserId.get(), myFriendId.get());
             else
                 result = false;
         }
@@ -83,22 +260,70 @@ public class UserService {
         return result;
     }
 
+    /**
+     * Add several users to the main user's friend list, for example from the contacts of a phone.
+     * The nicknames are resolved in one query, and the new friendships are written in one batch.
+     * The users having the main user in their denied list are not added.
+     * @param nickname User (nickname) to alter the friend list
+     * @param nicknames Users (nicknames) to add; duplicates are only added once
+     * @return What happened to each nickname, in the given order; null if the main user doesn't exist
+     * @throws IllegalArgumentException If there is no nickname or too many of them
+     */
+    @Transactional
+    public List<FriendAddResultDTO> addUsersToFriendList(String nickname, List<String> nicknames)
+            throws IllegalArgumentException {
+        if (nicknames==null || nicknames.isEmpty() || nicknames.size()>MAX_BULK_FRIENDS
+                || nicknames.stream().anyMatch(Objects::isNull))
+            throw new IllegalArgumentException("Friend list : Invalid list of nicknames.");
+
+        List<FriendAddResultDTO> result = null;
+        Optional<Long> myUserId = this.userRepository.findIdByNickname(nickname);
+        if (myUserId.isPresent()) {
+            // Nicknames are compared as the database does : without case
+            Map<String, Long> ids = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Set<Long> denied = new HashSet<>();
+            for (UserIdentity identity : this.userRepository.findIdentitiesByNicknames(new HashSet<>(nicknames))) {
+                ids.put(identity.getNickname(), identity.getId());
+                if (this.deniedIndex.isDenied(identity.getId(), myUserId.get()))
+                    denied.add(identity.getId());
+            }
+            List<Long> allowed = new ArrayList<>(ids.values());
+            allowed.removeAll(denied);
+            Set<Long> added = this.friendshipStore.addAll(myUserId.get(), allowed);
+
+            result = new ArrayList<>(nicknames.size());
+            Set<Long> reported = new HashSet<>();
+            for (String friend : nicknames) {
+                Long friendId = ids.get(friend);
+                FriendAddResultDTO.Status status;
+                if (friendId==null)
+                    status = FriendAddResultDTO.Status.NOT_FOUND;
+                else if (denied.contains(friendId))
+                    status = FriendAddResultDTO.Status.DENIED;
+                else if (added.contains(friendId) && reported.add(friendId))
+                    status = FriendAddResultDTO.Status.ADDED;
+                else
+                    status = FriendAddResultDTO.Status.ALREADY_FRIEND;
+                result.add(new FriendAddResultDTO(friend, status));
+            }
+        }
+        return result;
+    }
+
     /**
      * Remove a user from a friend list
      * @param mainUser The user (nickname) to alter his friend list
      * @param secondUser The user's nickname to remove
      * @return True if the removing has been done
      */
+    @Transactional
     public boolean removeUserFromFriendList(String mainUser, String secondUser) {
         boolean result;
-        Optional<User> myOptionalUser = this.userRepository.findByNickname(mainUser);
-        if (myOptionalUser.isPresent()) {
-            Optional<User> myOptionalFriend = this.userRepository.findByNickname(secondUser);
-            if (myOptionalFriend.isPresent()) {
-                User myUser = myOptionalUser.get();
-                User myFriend = myOptionalFriend.get();
-                myUser.getFriendList().remove(myFriend);
-                this.userRepository.save(myUser);
+        Optional<Long> myUserId = this.userRepository.findIdByNickname(mainUser);
+        if (myUserId.isPresent()) {
+            Optional<Long> myFriendId = this.userRepository.findIdByNickname(secondUser);
+            if (myFriendId.isPresent()) {
+                this.friendshipStore.remove(myUserId.get(), myFriendId.get());
                 result = true;
             }
             else
@@ -114,17 +339,173 @@ public class UserService {
      * @param nickname The user (nickname) to empty his friend list
      * @return True if successfully emptied
      */
+    @Transactional
     public boolean emptyFriendList(String nickname) {
         boolean result;
-        Optional<User> myOptionalUser = this.userRepository.findByNickname(nickname);
-        if (myOptionalUser.isPresent()) {
-            User myUser = myOptionalUser.get();
-            myUser.getFriendList().clear();
-            this.userRepository.save(myUser);
+        Optional<Long> myUserId = this.userRepository.findIdByNickname(nickname);
+        if (myUserId.isPresent()) {
+            this.friendshipStore.removeAll(myUserId.get());
             result = true;
         }
         else
             result = false;
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Add a user to the main user's denied list : he can't add the main user to his friend list anymore,
+     * nor join the main user's events. The main user is removed from his friend list.
+     * @param mainUser User (nickname) to alter the denied list
+     * @param secondUser User (nickname) to deny
+     * @return True if the denial has been done; false if a user doesn't exist or is already denied
+     */
+    @Transactional
+    public boolean denyUser(String mainUser, String secondUser) {
+        boolean result;
+        Optional<Long> myUserId = this.userRepository.findIdByNickname(mainUser);
+        Optional<Long> deniedId = this.userRepository.findIdByNickname(secondUser);
+        if (myUserId.isPresent() && deniedId.isPresent()) {
+            result = this.deniedIndex.add(myUserId.get(), deniedId.get());
+            if (result)
+                this.friendshipStore.remove(deniedId.get(), myUserId.get());
+        }
+        else
+            result = false;
+        return result;
+    }
+
+    /**
+     * Remove a user from the main user's denied list
+     * @param mainUser User (nickname) to alter the denied list
+     * @param secondUser User (nickname) to allow again
+     * @return True if the user was denied and is not anymore
+     */
+    @Transactional
+    public boolean allowUser(String mainUser, String secondUser) {
+        boolean result;
+        Optional<Long> myUserId = this.userRepository.findIdByNickname(mainUser);
+        Optional<Long> deniedId = this.userRepository.findIdByNickname(secondUser);
+        if (myUserId.isPresent() && deniedId.isPresent())
+            result = this.deniedIndex.remove(myUserId.get(), deniedId.get());
+        else
+            result = false;
+        return result;
+    }
+
+    /**
+     * Get a page of a user's friend list, in the order of the friends' creation.
+     * Use the returned cursor to get the next page.
+     * @param nickname User's nickname
+     * @param cursor Token of the previous page; first page if null or blank
+     * @param size Number of friends per page; default size if null
+     * @return FriendPageDTO, null if the user doesn't exist
+     * @throws IllegalArgumentException If the cursor or the page size is invalid
+     */
+    public FriendPageDTO findFriends(String nickname, String cursor, Integer size) throws IllegalArgumentException {
+        // Check parameters
+        int pageSize = size==null ? DEFAULT_FRIEND_PAGE_SIZE : size;
+        if (pageSize<1 || pageSize>MAX_FRIEND_PAGE_SIZE)
+            throw new IllegalArgumentException("Friend list : Invalid page size.");
+        Long afterId = cursor==null || cursor.isBlank() ? null : FriendCursor.decode(cursor).getId();
+
+        FriendPageDTO result = null;
+        Optional<Long> userId = this.userRepository.findIdByNickname(nickname);
+        if (userId.isPresent())
+            result = this.readFriendPage(userId.get(), afterId, pageSize);
+        return result;
+    }
+
+    /**
+     * Read a page of a user's friend list, in the order of the friends' creation
+     * @param userId User's id
+     * @param afterId Id of the last friend of the previous page; first page if null
+     * @param size Number of friends per page
+     * @return FriendPageDTO
+     */
+    private FriendPageDTO readFriendPage(Long userId, Long afterId, int size) {
+        // Get one more friend than asked to know if there is a next page
+        FriendPageDTO result = new FriendPageDTO();
+        List<UserIdentity> friends = this.friendshipStore.findFriends(userId, afterId, size+1);
+        if (friends.size()>size) {
+            friends = friends.subList(0, size);
+            result.setNextCursor(new FriendCursor(friends.get(size-1).getId()).encode());
+        }
+        for (UserIdentity friend : friends)
+            result.getFriends().add(new UserNameDTO(friend.getNickname()));
+        return result;
+    }
+
+    /**
+     * Suggest new friends to a user : the users in the friend lists of his friends, but not in his own,
+     * the ones in most of his friends' lists first
+     * @param nickname User's nickname
+     * @param size Maximal number of suggestions; default number if null
+     * @return List of FriendSuggestionDTO, null if the user doesn't exist
+     * @throws IllegalArgumentException If the number of suggestions is invalid
+     */
+    public List<FriendSuggestionDTO> suggestFriends(String nickname, Integer size) throws IllegalArgumentException {
+        int limit = size==null ? DEFAULT_SUGGESTIONS : size;
+        if (limit<1 || limit>MAX_SUGGESTIONS)
+            throw new IllegalArgumentException("Friend suggestions : Invalid size.");
+
+        List<FriendSuggestionDTO> result = null;
+        Optional<Long> userId = this.userRepository.findIdByNickname(nickname);
+        if (userId.isPresent()) {
+            List<FriendSuggestion> suggestions = this.friendGraph.suggest(userId.get(), limit);
+            List<Long> ids = new ArrayList<>(suggestions.size());
+            suggestions.forEach(suggestion -> ids.add(suggestion.getUserId()));
+            Map<Long, String> nicknames = this.findNicknames(ids);
+            result = new LinkedList<>();
+            for (FriendSuggestion suggestion : suggestions) {
+                String suggested = nicknames.get(suggestion.getUserId());
+                if (suggested!=null)
+                    result.add(new FriendSuggestionDTO(suggested, suggestion.getMutualFriends()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the friends two users have in common, and how far they are from each other in the friend lists
+     * @param nickname First user's nickname
+     * @param other Second user's nickname
+     * @return MutualFriendsDTO, null if a user doesn't exist
+     */
+    public MutualFriendsDTO findMutualFriends(String nickname, String other) {
+        MutualFriendsDTO result = null;
+        Optional<Long> userId = this.userRepository.findIdByNickname(nickname);
+        if (userId.isPresent()) {
+            Optional<Long> otherId = this.userRepository.findIdByNickname(other);
+            if (otherId.isPresent()) {
+                long[] mutualFriends = this.friendGraph.mutualFriends(userId.get(), otherId.get());
+                List<Long> ids = new ArrayList<>();
+                for (int i=0; i<mutualFriends.length && i<MUTUAL_FRIENDS_SHOWN; i++)
+                    ids.add(mutualFriends[i]);
+                int distance = this.friendGraph.distance(userId.get(), otherId.get(), MAX_FRIEND_DISTANCE);
+                result = new MutualFriendsDTO();
+                result.setCount(mutualFriends.length);
+                result.setDistance(distance<0 ? null : distance);
+                Map<Long, String> nicknames = this.findNicknames(ids);
+                for (Long id : ids) {
+                    if (nicknames.containsKey(id))
+                        result.getFriends().add(new UserNameDTO(nicknames.get(id)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the nicknames of several users in one query
+     * @param ids Users' id
+     * @return Map of the nicknames by user's id
+     */
+    private Map<Long, String> findNicknames(Collection<Long> ids) {
+        Map<Long, String> result = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (UserIdentity identity : this.userRepository.findIdentities(ids))
+                result.put(identity.getId(), identity.getNickname());
+        }
+        return result;
+    }
+}
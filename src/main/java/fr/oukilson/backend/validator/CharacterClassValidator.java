@@ -0,0 +1,74 @@
+package fr.oukilson.backend.validator;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TextValidator for the regexes made of a single class of ASCII characters repeated a bounded number of times,
+ * as "^[a-zA-Z0-9_-]{4,16}$" : the length is checked, then each character in a table. No allocation, no backtracking.
+ * Unlike the regex, a line terminator at the end of the text is not accepted.
+ */
+public class CharacterClassValidator implements TextValidator {
+    private static final Pattern SUPPORTED = Pattern.compile("^\\^\\[([^\\]\\\\^\\[&][^\\]\\\\\\[&]*)]\\{(\\d+),(\\d+)}\\$$");
+    private final boolean[] allowed = new boolean[128];
+    private final int min;
+    private final int max;
+
+    /**
+     * Create a validator
+     * @param characters Allowed characters, ASCII only; "a-z" is a range
+     * @param min Minimal length
+     * @param max Maximal length
+     * @throws IllegalArgumentException If a character is not ASCII, a range is reversed, or the lengths are invalid
+     */
+    public CharacterClassValidator(String characters, int min, int max) throws IllegalArgumentException {
+        if (min<0 || max<min)
+            throw new IllegalArgumentException("Validator : Invalid length.");
+        this.min = min;
+        this.max = max;
+        for (int i=0; i<characters.length(); i++) {
+            char first = characters.charAt(i);
+            char last = first;
+            // A dash is a range only between two characters
+            if (i+2<characters.length() && characters.charAt(i+1)=='-') {
+                last = characters.charAt(i+2);
+                i += 2;
+            }
+            if (last>=this.allowed.length || first>last)
+                throw new IllegalArgumentException("Validator : Invalid character class.");
+            for (char c=first; c<=last; c++)
+                this.allowed[c] = true;
+        }
+    }
+
+    /**
+     * Create a validator doing the same check as a regex
+     * @param regex Regex of the form ^[class]{min,max}$
+     * @return CharacterClassValidator, null if the regex is not of this form
+     */
+    public static CharacterClassValidator of(String regex) {
+        CharacterClassValidator result = null;
+        Matcher matcher = SUPPORTED.matcher(regex);
+        if (matcher.matches()) {
+            try {
+                result = new CharacterClassValidator(matcher.group(1),
+                        Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+            }
+            catch (IllegalArgumentException e) {
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isValid(String text) throws NullPointerException {
+        int length = text.length();
+        boolean result = length>=this.min && length<=this.max;
+        for (int i=0; result && i<length; i++) {
+            char c = text.charAt(i);
+            result = c<this.allowed.length && this.allowed[c];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+package fr.oukilson.backend.validator;
+
+/**
+ * TextValidator doing in one pass the same check as the email regex of the configuration :
+ * the text is valid if it contains, around an '@', a local part and a domain as described by REGEX.
+ * Each character is read a bounded number of times, whatever the text : no backtracking.
+ */
+public class EmailValidator implements TextValidator {
+    /** Regex checked by this validator, found anywhere in the text */
+    public static final String REGEX = "(([^<>()\\[\\]\\\\.,;:\\s@\"]+(\\.[^<>()\\[\\]\\\\.,;:\\s@\"]+)*)|(\".+\"))"
+            + "@((\\[[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}])|(([a-zA-Z\\-0-9]+\\.)+[a-zA-Z]{2,}))";
+    private static final String SPECIALS = "<>()[]\\.,;:@\" \t\n\u000B\f\r";
+
+    @Override
+    public boolean isValid(String text) throws NullPointerException {
+        boolean result = false;
+        // First quote of the text not followed by a line terminator, as ".+" can't cross a line
+        int quote = -1;
+        for (int i=0; !result && i<text.length(); i++) {
+            char c = text.charAt(i);
+            if (c=='@')
+                result = this.endsLocalPart(text, i, quote) && (this.startsAddress(text, i+1)
+                        || this.startsDomain(text, i+1));
+            else if (this.isLineTerminator(c))
+                quote = -1;
+            else if (c=='"' && quote<0)
+                quote = i;
+        }
+        return result;
+    }
+
+    /**
+     * Check if a local part ends right before the '@' : a character of a word, or a quoted text
+     * @param text Text
+     * @param at Position of the '@'
+     * @param quote Position of the first quote before the '@' on the same line, -1 if none
+     * @return boolean
+     */
+    private boolean endsLocalPart(String text, int at, int quote) {
+        boolean result;
+        if (at==0)
+            result = false;
+        else if (text.charAt(at-1)=='"')
+            result = quote>=0 && quote<=at-3;
+        else
+            result = SPECIALS.indexOf(text.charAt(at-1))<0;
+        return result;
+    }
+
+    /**
+     * Check if an IPv4 address in brackets starts at a position, as [127.0.0.1]
+     * @param text Text
+     * @param start Position
+     * @return boolean
+     */
+    private boolean startsAddress(String text, int start) {
+        boolean result = start<text.length() && text.charAt(start)=='[';
+        int position = start+1;
+        for (int part=0; result && part<4; part++) {
+            int digits = 0;
+            while (digits<3 && position<text.length() && this.isDigit(text.charAt(position))) {
+                digits++;
+                position++;
+            }
+            result = digits>0 && position<text.length() && text.charAt(position)==(part<3 ? '.' : ']');
+            position++;
+        }
+        return result;
+    }
+
+    /**
+     * Check if a domain starts at a position : labels each followed by a dot, then at least two letters.
+     * Stops at the first character which can't be part of a domain.
+     * @param text Text
+     * @param start Position
+     * @return boolean
+     */
+    private boolean startsDomain(String text, int start) {
+        boolean result = false;
+        boolean possible = true;
+        int label = 0;
+        for (int i=start; !result && possible && i<text.length(); i++) {
+            char c = text.charAt(i);
+            if (c=='.') {
+                possible = label>0;
+                result = possible && i+2<text.length()
+                        && this.isLetter(text.charAt(i+1)) && this.isLetter(text.charAt(i+2));
+                label = 0;
+            }
+            else if (this.isLetter(c) || this.isDigit(c) || c=='-')
+                label++;
+            else
+                possible = false;
+        }
+        return result;
+    }
+
+    /**
+     * ASCII letter
+     * @param c Character
+     * @return boolean
+     */
+    private boolean isLetter(char c) {
+        return (c>='a' && c<='z') || (c>='A' && c<='Z');
+    }
+
+    /**
+     * ASCII digit
+     * @param c Character
+     * @return boolean
+     */
+    private boolean isDigit(char c) {
+        return c>='0' && c<='9';
+    }
+
+    /**
+     * Line terminator, as not matched by '.' in a regex
+     * @param c Character
+     * @return boolean
+     */
+    private boolean isLineTerminator(char c) {
+        return c=='\n' || c=='\r' || c=='\u0085' || c=='\u2028' || c=='\u2029';
+    }
+}
@@ -0,0 +1,19 @@
+package fr.oukilson.backend.validator;
+
+import java.util.regex.Pattern;
+
+/**
+ * TextValidator using a compiled regex : the text is valid if the regex is found in it
+ */
+public class PatternValidator implements TextValidator {
+    private final Pattern pattern;
+
+    public PatternValidator(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public boolean isValid(String text) throws NullPointerException {
+        return this.pattern.matcher(text).find();
+    }
+}
@@ -0,0 +1,16 @@
+package fr.oukilson.backend.validator;
+
+/**
+ * Check a text entered by a user, as a nickname or an email.
+ * Implemented by hand for the configured regexes, or by a compiled regex through PatternValidator :
+ * the implementation used for each text is chosen in RegexConfiguration.
+ */
+public interface TextValidator {
+    /**
+     * Check a text
+     * @param text Text to check, not null
+     * @return True if the text is valid
+     * @throws NullPointerException If the text is null
+     */
+    boolean isValid(String text) throws NullPointerException;
+}
@@ -0,0 +1,22 @@
+-- A user is at most once in another user's friend list or denied list : the lists get primary keys,
+-- which replace their indexes on the same columns. The duplicated rows are kept once first.
+
+create table friend_list_duplicate (user_id bigint not null, friend_id bigint not null);
+insert into friend_list_duplicate (user_id, friend_id)
+    select user_id, friend_id from friend_list group by user_id, friend_id having count(*) > 1;
+delete from friend_list where exists (select 1 from friend_list_duplicate d
+    where d.user_id = friend_list.user_id and d.friend_id = friend_list.friend_id);
+insert into friend_list (user_id, friend_id) select user_id, friend_id from friend_list_duplicate;
+drop table friend_list_duplicate;
+alter table friend_list add primary key (user_id, friend_id);
+drop index idx_friend_list_user_friend on friend_list;
+
+create table denied_list_duplicate (user_id bigint not null, denied_id bigint not null);
+insert into denied_list_duplicate (user_id, denied_id)
+    select user_id, denied_id from denied_list group by user_id, denied_id having count(*) > 1;
+delete from denied_list where exists (select 1 from denied_list_duplicate d
+    where d.user_id = denied_list.user_id and d.denied_id = denied_list.denied_id);
+insert into denied_list (user_id, denied_id) select user_id, denied_id from denied_list_duplicate;
+drop table denied_list_duplicate;
+alter table denied_list add primary key (user_id, denied_id);
+drop index idx_denied_list_user_denied on denied_list;
@@ -0,0 +1,18 @@
+-- A town without zip code is stored with an empty zip code : the unique key (normalized_name, zip_code)
+-- lets several nulls in, so the same town without zip code could be added twice.
+-- The towns added twice are merged first, their locations moved to the oldest one.
+
+create table town_duplicate (id bigint not null, kept_id bigint not null);
+insert into town_duplicate (id, kept_id)
+    select t.id, k.kept_id from town t
+    join (select normalized_name, coalesce(zip_code, '') as zip_code, min(id) as kept_id from town
+        group by normalized_name, coalesce(zip_code, '')) k
+    on k.normalized_name = t.normalized_name and k.zip_code = coalesce(t.zip_code, '')
+    where t.id <> k.kept_id;
+update location set town_id = (select d.kept_id from town_duplicate d where d.id = location.town_id)
+    where town_id in (select id from town_duplicate);
+delete from town where id in (select id from town_duplicate);
+drop table town_duplicate;
+
+update town set zip_code = '' where zip_code is null;
+alter table town modify zip_code varchar(255) not null default '';
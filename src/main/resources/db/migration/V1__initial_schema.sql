@@ -0,0 +1,83 @@
+-- Schema of the first version of the application, as it was generated from the entities.
+-- Databases created before the migrations are baselined at this version (spring.flyway.baseline-on-migrate).
+
+create table user (
+    id bigint not null auto_increment,
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    nickname varchar(255),
+    password varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table friend_list (
+    user_id bigint not null,
+    friend_id bigint not null
+) engine=InnoDB;
+
+create table denied_list (
+    user_id bigint not null,
+    denied_id bigint not null
+) engine=InnoDB;
+
+create table game (
+    id bigint not null auto_increment,
+    creator_name varchar(255),
+    max_player integer,
+    max_time integer,
+    min_age integer,
+    min_player integer,
+    min_time integer,
+    name varchar(255),
+    uuid varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table location (
+    id bigint not null auto_increment,
+    address varchar(255),
+    town varchar(255),
+    zip_code varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table event (
+    id bigint not null auto_increment,
+    creation_date TIMESTAMP,
+    description varchar(255),
+    end_date TIMESTAMP,
+    private bit,
+    limit_date TIMESTAMP,
+    max_player integer,
+    min_player integer,
+    start_date TIMESTAMP,
+    title varchar(255),
+    uuid varchar(255),
+    user_id bigint,
+    game_id bigint,
+    location_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table event_user (
+    event_id bigint not null,
+    user_id bigint not null
+) engine=InnoDB;
+
+create table event_user_in_queue (
+    event_id bigint not null,
+    user_id bigint not null
+) engine=InnoDB;
+
+alter table friend_list add constraint fk_friend_list_user foreign key (user_id) references user (id);
+alter table friend_list add constraint fk_friend_list_friend foreign key (friend_id) references user (id);
+alter table denied_list add constraint fk_denied_list_user foreign key (user_id) references user (id);
+alter table denied_list add constraint fk_denied_list_denied foreign key (denied_id) references user (id);
+alter table event add constraint fk_event_user foreign key (user_id) references user (id);
+alter table event add constraint fk_event_game foreign key (game_id) references game (id);
+alter table event add constraint fk_event_location foreign key (location_id) references location (id);
+alter table event_user add constraint fk_event_user_event foreign key (event_id) references event (id);
+alter table event_user add constraint fk_event_user_user foreign key (user_id) references user (id);
+alter table event_user_in_queue add constraint fk_event_user_in_queue_event foreign key (event_id) references event (id);
+alter table event_user_in_queue add constraint fk_event_user_in_queue_user foreign key (user_id) references user (id);
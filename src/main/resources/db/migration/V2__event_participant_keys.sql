@@ -0,0 +1,20 @@
+-- Participants held in sets : a user is at most once in each list of an event.
+-- The duplicated participants of a database built without keys are kept once, so that the keys can be added.
+
+create table event_user_duplicate (event_id bigint not null, user_id bigint not null);
+insert into event_user_duplicate (event_id, user_id)
+    select event_id, user_id from event_user group by event_id, user_id having count(*) > 1;
+delete from event_user where exists (select 1 from event_user_duplicate d
+    where d.event_id = event_user.event_id and d.user_id = event_user.user_id);
+insert into event_user (event_id, user_id) select event_id, user_id from event_user_duplicate;
+drop table event_user_duplicate;
+alter table event_user add primary key (event_id, user_id);
+
+create table event_user_in_queue_duplicate (event_id bigint not null, user_id bigint not null);
+insert into event_user_in_queue_duplicate (event_id, user_id)
+    select event_id, user_id from event_user_in_queue group by event_id, user_id having count(*) > 1;
+delete from event_user_in_queue where exists (select 1 from event_user_in_queue_duplicate d
+    where d.event_id = event_user_in_queue.event_id and d.user_id = event_user_in_queue.user_id);
+insert into event_user_in_queue (event_id, user_id) select event_id, user_id from event_user_in_queue_duplicate;
+drop table event_user_in_queue_duplicate;
+alter table event_user_in_queue add primary key (event_id, user_id);
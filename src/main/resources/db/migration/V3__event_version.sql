@@ -0,0 +1,3 @@
+-- Optimistic locking of the events : the version is incremented on each update and on each reservation.
+
+alter table event add column version bigint not null default 0;
@@ -0,0 +1,5 @@
+-- Coordinates of the locations, for the search by distance.
+
+alter table location add column latitude double precision;
+alter table location add column longitude double precision;
+create index idx_location_coordinates on location (latitude, longitude);
@@ -0,0 +1,15 @@
+-- Town dictionary, for the search by town : each location references the entry of its town.
+
+create table town (
+    id bigint not null auto_increment,
+    name varchar(255),
+    normalized_name varchar(255),
+    zip_code varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+alter table town add constraint uk_town_name_zip_code unique (normalized_name, zip_code);
+create index idx_town_zip_code on town (zip_code);
+
+alter table location add column town_id bigint;
+alter table location add constraint fk_location_town foreign key (town_id) references town (id);
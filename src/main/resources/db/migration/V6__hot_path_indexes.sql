@@ -0,0 +1,13 @@
+-- Indexes of the hot query paths : lookups by uuid and nickname, scans of the events by starting date,
+-- and the join tables read from the user's side. See QueryPlanTest.
+
+alter table event add constraint uk_event_uuid unique (uuid);
+alter table game add constraint uk_game_uuid unique (uuid);
+alter table user add constraint uk_user_nickname unique (nickname);
+
+create index idx_event_start_date_id on event (start_date, id);
+
+create index idx_event_user_user_event on event_user (user_id, event_id);
+create index idx_event_user_in_queue_user_event on event_user_in_queue (user_id, event_id);
+create index idx_friend_list_user_friend on friend_list (user_id, friend_id);
+create index idx_denied_list_user_denied on denied_list (user_id, denied_id);
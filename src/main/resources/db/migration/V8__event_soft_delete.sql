@@ -0,0 +1,4 @@
+-- Deleted events are only marked, then deleted for good off-peak by EventPurger.
+
+alter table event add column deleted_date TIMESTAMP;
+create index idx_event_deleted_date on event (deleted_date);
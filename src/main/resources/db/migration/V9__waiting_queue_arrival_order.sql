@@ -0,0 +1,5 @@
+-- The waiting queue is served in order of arrival : each row gets an increasing number when it is inserted.
+-- The rows already waiting are numbered in the order of their primary key.
+
+alter table event_user_in_queue add column seq bigint not null auto_increment unique;
+create index idx_event_user_in_queue_event_seq on event_user_in_queue (event_id, seq);
@@ -0,0 +1,45 @@
+package db.migration;
+
+import fr.oukilson.backend.entity.BinaryUuidConverter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import java.util.List;
+
+/**
+ * The text uuids of a database built before V7 are kept once stored in 16 bytes
+ */
+public class BinaryUuidsMigrationTest {
+    /**
+     * Rows written with text uuids keep the same uuids, and a text that is not a uuid gets a new one
+     */
+    @DisplayName("Test V7 : text uuids are kept in binary")
+    @Test
+    public void testMigrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).target("6").load().migrate();
+        for (int i=0; i<2500; i++)
+            jdbcTemplate.update("insert into game (uuid, name) values (?, ?)",
+                    String.format("8083229a-44a4-4179-a4da-%012x", i), "game"+i);
+        jdbcTemplate.update("insert into game (uuid, name) values ('not a uuid', 'invalid')");
+        jdbcTemplate.update("insert into event (uuid, title) values ('8083229a-44a4-4179-a4da-06db3022be7f', 'e')");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        BinaryUuidConverter converter = new BinaryUuidConverter();
+        List<byte[]> games = jdbcTemplate.queryForList("select uuid from game order by id", byte[].class);
+        Assertions.assertEquals(2501, games.size());
+        for (int i=0; i<2500; i++)
+            Assertions.assertEquals(String.format("8083229a-44a4-4179-a4da-%012x", i),
+                    converter.convertToEntityAttribute(games.get(i)));
+        Assertions.assertEquals(7, BinaryUuidConverter.parse(converter.convertToEntityAttribute(games.get(2500)))
+                .version());
+        Assertions.assertEquals("8083229a-44a4-4179-a4da-06db3022be7f", converter.convertToEntityAttribute(
+                jdbcTemplate.queryForObject("select uuid from event", byte[].class)));
+        Assertions.assertThrows(Exception.class, () -> jdbcTemplate.update(
+                "insert into game (uuid, name) values (?, 'copy')", (Object) games.get(0)));
+        jdbcTemplate.execute("drop all objects");
+    }
+}
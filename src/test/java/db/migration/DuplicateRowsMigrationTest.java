@@ -0,0 +1,105 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * The rows duplicated in a database built without keys are kept once when the keys are added
+ */
+public class DuplicateRowsMigrationTest {
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void init() {
+        this.dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:duplicates;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+        Flyway.configure().dataSource(this.dataSource).target("1").load().migrate();
+        for (int i=1; i<=3; i++)
+            this.jdbcTemplate.update("insert into user (id, nickname) values (?, ?)", i, "user"+i);
+        this.jdbcTemplate.update("insert into event (id, title, user_id) values (1, 'e', 1)");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.jdbcTemplate.execute("drop all objects");
+    }
+
+    /**
+     * Count the rows of a table
+     * @param table Table
+     * @return Number of rows
+     */
+    private int count(String table) {
+        Integer result = this.jdbcTemplate.queryForObject("select count(*) from "+table, Integer.class);
+        Assertions.assertNotNull(result);
+        return result;
+    }
+
+    /**
+     * A user registered or waiting several times in an event is kept once, the other participants are kept
+     */
+    @DisplayName("Test V2 : duplicated participants kept once")
+    @Test
+    public void testParticipantKeys() {
+        for (int i=0; i<3; i++) {
+            this.jdbcTemplate.update("insert into event_user (event_id, user_id) values (1, 1)");
+            this.jdbcTemplate.update("insert into event_user_in_queue (event_id, user_id) values (1, 2)");
+        }
+        this.jdbcTemplate.update("insert into event_user (event_id, user_id) values (1, 3)");
+        this.jdbcTemplate.update("insert into event_user_in_queue (event_id, user_id) values (1, 3)");
+
+        Flyway.configure().dataSource(this.dataSource).load().migrate();
+        Assertions.assertEquals(2, this.count("event_user"));
+        Assertions.assertEquals(2, this.count("event_user_in_queue"));
+        Assertions.assertThrows(Exception.class, () -> this.jdbcTemplate.update(
+                "insert into event_user (event_id, user_id) values (1, 1)"));
+    }
+
+    /**
+     * A user in another user's friend list or denied list several times is kept once
+     */
+    @DisplayName("Test V10 : duplicated friends and denied users kept once")
+    @Test
+    public void testFriendKeys() {
+        for (int i=0; i<3; i++) {
+            this.jdbcTemplate.update("insert into friend_list (user_id, friend_id) values (1, 2)");
+            this.jdbcTemplate.update("insert into denied_list (user_id, denied_id) values (1, 3)");
+        }
+        this.jdbcTemplate.update("insert into friend_list (user_id, friend_id) values (2, 1)");
+        this.jdbcTemplate.update("insert into denied_list (user_id, denied_id) values (2, 3)");
+
+        Flyway.configure().dataSource(this.dataSource).load().migrate();
+        Assertions.assertEquals(2, this.count("friend_list"));
+        Assertions.assertEquals(2, this.count("denied_list"));
+        Assertions.assertThrows(Exception.class, () -> this.jdbcTemplate.update(
+                "insert into friend_list (user_id, friend_id) values (1, 2)"));
+        Assertions.assertEquals(0, this.jdbcTemplate.update(
+                "insert ignore into denied_list (user_id, denied_id) values (1, 3)"));
+    }
+
+    /**
+     * The same town added twice without zip code is merged into the oldest one, with its locations,
+     * and a town without zip code can't be added twice anymore
+     */
+    @DisplayName("Test V11 : towns without zip code merged")
+    @Test
+    public void testTownZipCodes() {
+        Flyway.configure().dataSource(this.dataSource).target("10").load().migrate();
+        this.jdbcTemplate.update("insert into town (id, name, normalized_name, zip_code) values "
+                + "(1, 'Lens', 'lens', null), (2, 'LENS', 'lens', null), (3, 'Lens', 'lens', '62300')");
+        this.jdbcTemplate.update("insert into location (id, town_id) values (1, 1), (2, 2), (3, 3)");
+
+        Flyway.configure().dataSource(this.dataSource).load().migrate();
+        Assertions.assertEquals(2, this.count("town"));
+        Assertions.assertEquals("", this.jdbcTemplate.queryForObject(
+                "select zip_code from town where id = 1", String.class));
+        Assertions.assertEquals(1, this.jdbcTemplate.queryForObject(
+                "select town_id from location where id = 2", Integer.class));
+        Assertions.assertThrows(Exception.class, () -> this.jdbcTemplate.update(
+                "insert into town (name, normalized_name) values ('Lens', 'lens')"));
+    }
+}
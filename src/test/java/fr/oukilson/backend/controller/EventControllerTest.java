@@ -156,148 +156,252 @@ public class EventControllerTest {
     // Test FindAllByFilters route
 
     /**
-     * Test when all attributes of EventSearchDTO are null
+     * Create a list of EventDTO in the same town
+     * @param size Number of events
+     * @param town Town's name
+     * @return List<EventDTO>
+     */
+    private List<EventDTO> createEventDTOs(int size, String town) {
+        Game game = this.createValidFullGame(1L, "The game");
+        User user = this.createValidFullUser(1L, "tata");
+        List<EventDTO> events = new LinkedList<>();
+        ModelMapper mapper = new ModelMapper();
+        for (int i=0; i<size; i++) {
+            Location location = new Location((long)i, town, "75008", "Avenue des Champs Elysée", null);
+            Event event = this.createValidEvent((long)i, game, user, location);
+            location.setEvent(event);
+            events.add(mapper.map(event, EventDTO.class));
+        }
+        return events;
+    }
+
+    /**
+     * Test when no filter is given : the service gets an empty EventSearchDTO
      */
     @DisplayName("Test : find all events by filters but all filters are null")
     @Test
     public void testFindAllByFiltersWhenNoParamGiven() throws Exception {
-        Gson gson = this.getInitializedGSON();
+        Mockito.when(this.service.search(new EventSearchDTO())).thenReturn(new EventPageDTO());
         this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty());
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events").isArray())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events").isEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").isEmpty());
     }
 
     /**
-     * Test when the attribute startingDate of EventSearchDTO is null.
-     * EventSearchDTO.town will be used for the search.
+     * Test when only the town is given
      */
-    @DisplayName("Test : find all events by filters but the date filter is null")
+    @DisplayName("Test : find all events by filters but the date filter is empty")
     @Test
-    public void testFindAllByFiltersWhenStartingDateIsNull() throws Exception {
+    public void testFindAllByFiltersWhenStartingDateIsEmpty() throws Exception {
         // Mocking
         String town = "Paris";
-        int size = 2;
-        Game game = this.createValidFullGame(1L, "The game");
-        User user = this.createValidFullUser(1L, "tata");
-        List<EventDTO> events = new LinkedList<>();
-        ModelMapper mapper = new ModelMapper();
-        for (int i=0; i<size; i++) {
-            Location location =
-                new Location(45L, "Paris", "75008", "Avenue des Champs Elysée", null);
-            Event event = this.createValidEvent((long)i, game, user, location);
-            event.setLocation(location);
-            location.setEvent(event);
-            events.add(mapper.map(event, EventDTO.class));
-        }
-        Mockito.when(this.service.findByFilter("", town)).thenReturn(events);
+        List<EventDTO> events = this.createEventDTOs(2, town);
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setDate("");
+        filters.setTown(town);
+        Mockito.when(this.service.search(filters)).thenReturn(new EventPageDTO(events, null));
 
         // Send Request
         Gson gson = this.getInitializedGSON();
         MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search?date=&town="+town))
                 .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events").isArray())
                 .andReturn();
 
         // Assert
-        EventDTO[] array = gson.fromJson(result.getResponse().getContentAsString(StandardCharsets.UTF_8),
-                EventDTO[].class);
-        Assertions.assertEquals(size, array.length);
-        for (int i=0; i<size; i++) {
-            Assertions.assertEquals(events.get(i), array[i]);
-        }
+        EventPageDTO page = gson.fromJson(result.getResponse().getContentAsString(StandardCharsets.UTF_8),
+                EventPageDTO.class);
+        Assertions.assertEquals(events, page.getEvents());
+        Assertions.assertNull(page.getNextCursor());
     }
 
     /**
-     * Test when the attribute town of EventSearchDTO is null.
-     * EventSearchDTO.startingDate will be used for the search.
+     * Test when every filter is given : all of them must reach the service,
+     * and the cursor of the next page must be sent back
      */
-    @DisplayName("Test : find all events by filters but the town filter is null")
+    @DisplayName("Test : find all events by filters with all filters initialized")
     @Test
-    public void testFindAllByFiltersWhenTownIsNull() throws Exception {
+    public void testFindAllByFilters() throws Exception {
         // Setting up
-        LocalDateTime mytime = LocalDateTime.now().minusMonths(2);
-        List<EventDTO> events = new LinkedList<>();
-        ModelMapper mapper = new ModelMapper();
-        int size = 5;
-        for (int i=0; i<size; i++) {
-            Location location =
-                    new Location((long)i, "Paris "+i, "75008", "Avenue des Champs Elysée", null);
-            Game game = this.createValidFullGame((long)i, "Un jeu random "+i);
-            User user = this.createValidFullUser((long)i, "un user "+i);
-            Event event = this.createValidEvent((long)i, game, user, location);
-            location.setEvent(event);
-            event.setStartingDate(mytime.plusMonths(8));
-            events.add(mapper.map(event, EventDTO.class));
-        }
-        Mockito.when(this.service.findByFilter(mytime.toString(), "")).thenReturn(events);
+        List<EventDTO> events = this.createEventDTOs(3, "Pau");
+        String date = events.get(0).getStartingDate().minusDays(10).toString();
+        String endDate = events.get(0).getStartingDate().plusDays(10).toString();
+        EventSearchDTO filters =
+                new EventSearchDTO(date, endDate, "Pau", "64000", "game-uuid", true, false, "cursor", 3);
+        Mockito.when(this.service.search(filters)).thenReturn(new EventPageDTO(events, "next"));
 
         // Request
         Gson gson = this.getInitializedGSON();
         MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
-                        .get(route + "/search?date="+ mytime +"&town="))
+                        .get(route + "/search?date="+date+"&endDate="+endDate+"&town=Pau&zipCode=64000&game=game-uuid"
+                                + "&freeSeats=true&isPrivate=false&cursor=cursor&size=3"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events").isArray())
                 .andReturn();
 
         // Assertions
-        EventDTO[] array = gson.fromJson(result.getResponse().getContentAsString(StandardCharsets.UTF_8),
-                EventDTO[].class);
-        Assertions.assertEquals(size, array.length);
-        for (int i=0; i<size; i++) {
-            Assertions.assertEquals(events.get(i), array[i]);
-        }
+        EventPageDTO page = gson.fromJson(result.getResponse().getContentAsString(StandardCharsets.UTF_8),
+                EventPageDTO.class);
+        Assertions.assertEquals(events, page.getEvents());
+        Assertions.assertEquals("next", page.getNextCursor());
     }
 
     /**
-     * Test when all attributes of EventSearchDTO are initialized.
-     * EventSearchDTO.startingDate will be used for the search.
+     * Test when the service rejects a filter
      */
-    @DisplayName("Test : find all events by filters with all filters initialized")
+    @DisplayName("Test : find all events by filters with an invalid filter")
     @Test
-    public void testFindAllByFilters() throws Exception {
-        // Setting up
-        ModelMapper mapper = new ModelMapper();
-        List<EventDTO> townEvents = new LinkedList<>();
-        int townEventsSize = 3;
-        List<EventDTO> dateEvents = new LinkedList<>();
-        int dateEventsSize = townEventsSize+1;
-        Game game = this.createValidFullGame(1L, "The game");
-        User user = this.createValidFullUser(1L, "tata");
-        String town = "Pau";
-        for (int i=0; i<townEventsSize; i++) {
-            Location location =
-                new Location((long)i, town, "64000", "Boulevard des Pyrénées", null);
-            Event event = this.createValidEvent((long)i, game, user, location);
-            location.setEvent(event);
-            townEvents.add(mapper.map(event, EventDTO.class));
-        }
-        for (int i=0; i<dateEventsSize; i++) {
-            Location location = new Location(10L *i, "Ville "+i, null, null, null);
-            Event event = this.createValidEvent(10L*i, game, user, location);
-            location.setEvent(event);
-            dateEvents.add(mapper.map(event, EventDTO.class));
-        }
-        String date = dateEvents.get(0).getStartingDate().minusDays(10).toString();
-        Mockito.when(this.service.findByFilter(date, town)).thenReturn(dateEvents);
-        Mockito.when(this.service.findByFilter(date, "")).thenReturn(dateEvents);
-        Mockito.when(this.service.findByFilter("", town)).thenReturn(townEvents);
+    public void testFindAllByFiltersWhenFilterIsInvalid() throws Exception {
+        Mockito.when(this.service.search(ArgumentMatchers.any(EventSearchDTO.class)))
+                .thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search?date=yesterday"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
 
-        // Request
-        Gson gson = this.getInitializedGSON();
+    // Test findFriendsEvents route
+
+    /**
+     * Test the events of friends : the page and its cursor must be sent back
+     */
+    @DisplayName("Test : find the events of a user's friends")
+    @Test
+    public void testFindFriendsEvents() throws Exception {
+        // Mocking
+        List<EventDTO> events = this.createEventDTOs(2, "Arras");
+        List<FriendsEventDTO> ranked = new LinkedList<>();
+        ranked.add(new FriendsEventDTO(events.get(0), 3));
+        ranked.add(new FriendsEventDTO(events.get(1), 1));
+        Mockito.when(this.service.findFriendsEvents("Ami", "cursor", 2))
+                .thenReturn(new FriendsEventPageDTO(ranked, "next"));
+
+        // Send request
         MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
-                        .get(route + "/search?date="+date+"&town="+town))
+                        .get(route + "/search/friends?nickname=Ami&cursor=cursor&size=2"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].friends").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[1].friends").value(1))
                 .andReturn();
 
-        // Assertions
-        EventDTO[] array = gson.fromJson(result.getResponse().getContentAsString(StandardCharsets.UTF_8),
-                EventDTO[].class);
-        Assertions.assertEquals(dateEventsSize, array.length);
-        for (int i=0; i<dateEventsSize; i++) {
-            Assertions.assertEquals(dateEvents.get(i), array[i]);
-        }
+        // Assert
+        FriendsEventPageDTO page = this.getInitializedGSON().fromJson(
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8), FriendsEventPageDTO.class);
+        Assertions.assertEquals(ranked, page.getEvents());
+        Assertions.assertEquals("next", page.getNextCursor());
+    }
+
+    /**
+     * Test the events of friends of an unknown user
+     */
+    @DisplayName("Test : find the events of friends of an unknown user")
+    @Test
+    public void testFindFriendsEventsWhenUserDoesntExist() throws Exception {
+        Mockito.when(this.service.findFriendsEvents("Inconnu", null, null)).thenReturn(null);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search/friends?nickname=Inconnu"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test the events of friends when the service rejects a parameter
+     */
+    @DisplayName("Test : find the events of friends with an invalid parameter")
+    @Test
+    public void testFindFriendsEventsWhenParameterIsInvalid() throws Exception {
+        Mockito.when(this.service.findFriendsEvents("Ami", null, 0)).thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search/friends?nickname=Ami&size=0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Test findNearbyEvents route
+
+    /**
+     * Test the events near a point : the page and its cursor must be sent back
+     */
+    @DisplayName("Test : find the events near a point")
+    @Test
+    public void testFindNearbyEvents() throws Exception {
+        // Mocking
+        List<EventDTO> events = this.createEventDTOs(2, "Lens");
+        List<NearbyEventDTO> nearest = new LinkedList<>();
+        nearest.add(new NearbyEventDTO(events.get(0), 0.5));
+        nearest.add(new NearbyEventDTO(events.get(1), 2.25));
+        Mockito.when(this.service.findNearbyEvents(50.43, 2.83, 5.0, "cursor", 2))
+                .thenReturn(new NearbyEventPageDTO(nearest, "next"));
+
+        // Send request
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get(route + "/search/nearby?lat=50.43&lon=2.83&radiusKm=5&cursor=cursor&size=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].distance").value(0.5))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[1].distance").value(2.25))
+                .andReturn();
+
+        // Assert
+        NearbyEventPageDTO page = this.getInitializedGSON().fromJson(
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8), NearbyEventPageDTO.class);
+        Assertions.assertEquals(nearest, page.getEvents());
+        Assertions.assertEquals("next", page.getNextCursor());
+    }
+
+    /**
+     * Test the events near a point when a parameter is missing or rejected by the service
+     */
+    @DisplayName("Test : find the events near a point with an invalid parameter")
+    @Test
+    public void testFindNearbyEventsWhenParameterIsInvalid() throws Exception {
+        Mockito.when(this.service.findNearbyEvents(95.0, 2.83, 5.0, null, null))
+                .thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search/nearby?lat=95&lon=2.83&radiusKm=5"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search/nearby?lat=50.43&lon=2.83"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Test exportAllByFilters route
+
+    /**
+     * Test the export : each event must be written on its own line, whatever the chunks
+     */
+    @DisplayName("Test : export all events by filters as newline-delimited JSON")
+    @Test
+    public void testExportAllByFilters() throws Exception {
+        // Mocking
+        List<EventDTO> events = this.createEventDTOs(3, "Lille");
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setTown("Lille");
+        Mockito.when(this.service.export(filters)).thenReturn(consumer -> {
+            consumer.accept(events.subList(0, 2));
+            consumer.accept(events.subList(2, 3));
+        });
+
+        // Send request
+        MvcResult started = this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search/export?town=Lille"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        // Assert
+        Gson gson = this.getInitializedGSON();
+        String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(events.size(), lines.length);
+        for (int i=0; i<events.size(); i++)
+            Assertions.assertEquals(events.get(i), gson.fromJson(lines[i], EventDTO.class));
+    }
+
+    /**
+     * Test the export when the service rejects a filter
+     */
+    @DisplayName("Test : export all events by filters with an invalid filter")
+    @Test
+    public void testExportAllByFiltersWhenFilterIsInvalid() throws Exception {
+        Mockito.when(this.service.export(ArgumentMatchers.any(EventSearchDTO.class)))
+                .thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route + "/search/export?date=yesterday"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
     // Test delete route
@@ -309,6 +413,7 @@ public class EventControllerTest {
     @Test
     public void testDeleteByUuid() throws Exception {
         EventDeleteDTO eventDTO = new EventDeleteDTO(UUID.randomUUID().toString());
+        Mockito.when(this.service.deleteByUuid(eventDTO.getUuid())).thenReturn(true);
         this.mockMvc.perform(MockMvcRequestBuilders.delete(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new Gson().toJson(eventDTO)))
@@ -327,9 +432,7 @@ public class EventControllerTest {
         this.mockMvc.perform(MockMvcRequestBuilders.delete(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new Gson().toJson(eventDTO)))
-                .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
     /**
@@ -342,9 +445,7 @@ public class EventControllerTest {
         this.mockMvc.perform(MockMvcRequestBuilders.delete(route)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new Gson().toJson(eventDTO)))
-                .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
     // Test save route
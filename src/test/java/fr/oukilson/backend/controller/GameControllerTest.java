@@ -113,7 +113,7 @@ public class GameControllerTest {
         for (int i=0; i<size; i++) {
             games.add(mapper.map(this.createValidFullGame((long) i, "Jeux n°"+i), GameUuidDTO.class));
         }
-        BDDMockito.when(this.service.findByName(name)).thenReturn(games);
+        BDDMockito.when(this.service.findByName(name, null)).thenReturn(games);
 
         // Send request
         Gson gson = new Gson();
@@ -144,7 +144,7 @@ public class GameControllerTest {
         List<GameUuidDTO> games = new LinkedList<>();
         ModelMapper mapper = new ModelMapper();
         games.add(mapper.map(this.createValidFullGame(1L, name), GameUuidDTO.class));
-        BDDMockito.when(this.service.findByName(name)).thenReturn(games);
+        BDDMockito.when(this.service.findByName(name, null)).thenReturn(games);
 
         // Request
         Gson gson = new Gson();
@@ -169,7 +169,7 @@ public class GameControllerTest {
     @Test
     public void testFindByNameNoResultFound() throws Exception {
         String name = "o";
-        BDDMockito.when(this.service.findByName(name)).thenReturn(new LinkedList<>());
+        BDDMockito.when(this.service.findByName(name, null)).thenReturn(new LinkedList<>());
         this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
@@ -177,15 +177,45 @@ public class GameControllerTest {
     }
 
     /**
-     * Test findByName with an empty search string
+     * Test findByName with an empty search string : no limit is given to the service, which finds all the games
      */
     @DisplayName("Test findByName : empty search string")
     @Test
     public void testFindByNameWithEmptySearchString() throws Exception {
         String name = "";
+        List<GameUuidDTO> games = new LinkedList<>();
+        for (long i=1; i<=30; i++)
+            games.add(new ModelMapper().map(this.createValidFullGame(i, "Jeux n°"+i), GameUuidDTO.class));
+        BDDMockito.when(this.service.findByName(name, null)).thenReturn(games);
         this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name))
                 .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
-                .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty());
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(30));
+    }
+
+    /**
+     * Test findByName with a limit : it is given to the service
+     */
+    @DisplayName("Test findByName : limit given in the url")
+    @Test
+    public void testFindByNameWithLimit() throws Exception {
+        String name = "Jeux";
+        List<GameUuidDTO> games = new LinkedList<>();
+        games.add(new ModelMapper().map(this.createValidFullGame(1L, "Jeux n°1"), GameUuidDTO.class));
+        BDDMockito.when(this.service.findByName(name, 1)).thenReturn(games);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name+"&limit=1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+    }
+
+    /**
+     * Test findByName with an invalid limit
+     */
+    @DisplayName("Test findByName : bad request if the limit is invalid")
+    @Test
+    public void testFindByNameWithInvalidLimit() throws Exception {
+        String name = "Jeux";
+        BDDMockito.when(this.service.findByName(name, 0)).thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name="+name+"&limit=0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 }
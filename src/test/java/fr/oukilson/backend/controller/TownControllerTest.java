@@ -0,0 +1,62 @@
+package fr.oukilson.backend.controller;
+
+import com.google.gson.Gson;
+import fr.oukilson.backend.dto.location.TownDTO;
+import fr.oukilson.backend.service.TownService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@WebMvcTest(controllers = TownController.class)
+public class TownControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private TownService service;
+    private final String route = "/towns";
+
+    // Route findByName GET
+
+    /**
+     * Test findByName : the towns found are sent back
+     */
+    @DisplayName("Test findByName : result found")
+    @Test
+    public void testFindByName() throws Exception {
+        // Mocking
+        List<TownDTO> towns = List.of(new TownDTO("Saint-Étienne", "42000"), new TownDTO("Saint-Étienne", "42100"));
+        BDDMockito.when(this.service.findByName("Saint-É", 5)).thenReturn(towns);
+
+        // Send request
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name=Saint-É&limit=5"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray())
+                .andReturn();
+
+        // Assert
+        TownDTO[] resultDTO = new Gson().fromJson(
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8), TownDTO[].class);
+        Assertions.assertEquals(towns, List.of(resultDTO));
+    }
+
+    /**
+     * Test findByName when the service rejects the limit
+     */
+    @DisplayName("Test findByName : invalid limit")
+    @Test
+    public void testFindByNameWhenLimitIsInvalid() throws Exception {
+        BDDMockito.when(this.service.findByName("Lens", 0)).thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/search?name=Lens&limit=0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
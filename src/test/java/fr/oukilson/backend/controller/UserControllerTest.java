@@ -1,8 +1,15 @@
 package fr.oukilson.backend.controller;
 
 import com.google.gson.Gson;
+import fr.oukilson.backend.dto.user.FriendAddResultDTO;
+import fr.oukilson.backend.dto.user.FriendPageDTO;
+import fr.oukilson.backend.dto.user.FriendSuggestionDTO;
+import fr.oukilson.backend.dto.user.MutualFriendsDTO;
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.dto.user.UserImportResultDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
 import fr.oukilson.backend.service.UserService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +18,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -18,6 +26,9 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @WebMvcTest(controllers = UserController.class)
 public class UserControllerTest {
@@ -36,10 +47,15 @@ public class UserControllerTest {
     @Test
     public void testFindByNicknameFound() throws Exception {
         String nickname = "Tutululu";
-        UserDTO dto = new UserDTO(nickname, new LinkedList<>());
+        List<UserNameDTO> friends = new LinkedList<>();
+        friends.add(new UserNameDTO("Ami"));
+        UserDTO dto = new UserDTO(nickname, 30, friends, "next");
         Mockito.when(this.service.findUserByNickname(nickname)).thenReturn(dto);
         MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/"+nickname))
                 .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.friendList[0].nickname").value("Ami"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.friendCount").value(30))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextFriendCursor").value("next"))
                 .andReturn();
         Gson gson = new Gson();
         UserDTO resultDTO = gson.fromJson(
@@ -97,6 +113,21 @@ public class UserControllerTest {
   
     // Method createUser
 
+    /**
+     * Send a user to create, and wait for the hashing of his password to start
+     * @param body User to create
+     * @return Started request, to dispatch
+     */
+    private MvcResult postUser(UserCreationDTO body) throws Exception {
+        return this.mockMvc.perform(MockMvcRequestBuilders
+                        .post(route)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .content(new Gson().toJson(body)))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+    }
+
     /**
      * Test createUser with a null body
      */
@@ -162,13 +193,8 @@ public class UserControllerTest {
     @Test
     public void testCreateUserUserCreationFailed() throws Exception {
         UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
-        Mockito.when(this.service.createUser(body)).thenReturn(null);
-        Gson gson = new Gson();
-        this.mockMvc.perform(MockMvcRequestBuilders
-                        .post(route)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding(StandardCharsets.UTF_8)
-                        .content(gson.toJson(body)))
+        Mockito.when(this.service.createUser(body)).thenReturn(CompletableFuture.completedFuture(null));
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postUser(body)))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
@@ -179,14 +205,10 @@ public class UserControllerTest {
     @Test
     public void testCreateUserUserCreationSuccess() throws Exception {
         UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
-        UserDTO userDTO = new UserDTO("Toupie", new LinkedList<>());
-        Mockito.when(this.service.createUser(body)).thenReturn(userDTO);
+        UserDTO userDTO = new UserDTO("Toupie", 0, new LinkedList<>(), null);
+        Mockito.when(this.service.createUser(body)).thenReturn(CompletableFuture.completedFuture(userDTO));
         Gson gson = new Gson();
-        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
-                        .post(route)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding(StandardCharsets.UTF_8)
-                        .content(gson.toJson(body)))
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postUser(body)))
                 .andExpect(MockMvcResultMatchers.status().isCreated())
                 .andReturn();
 
@@ -205,13 +227,104 @@ public class UserControllerTest {
     public void testCreateUserUserCreationThrowException() throws Exception {
         UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
         Mockito.when(this.service.createUser(body)).thenThrow(NullPointerException.class);
-        Gson gson = new Gson();
-        this.mockMvc.perform(MockMvcRequestBuilders
-                        .post(route)
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postUser(body)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    /**
+     * Test createUser when the saving of the user fails after the hashing
+     */
+    @DisplayName("Test createUser : saving the user fails")
+    @Test
+    public void testCreateUserSavingFailed() throws Exception {
+        UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
+        Mockito.when(this.service.createUser(body))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Duplicate entry")));
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postUser(body)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    /**
+     * Test createUser when too many passwords are waiting to be hashed
+     */
+    @DisplayName("Test createUser : too many sign-ups")
+    @Test
+    public void testCreateUserRejected() throws Exception {
+        UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
+        Mockito.when(this.service.createUser(body)).thenThrow(RejectedExecutionException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postUser(body)))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    /**
+     * Test createUser when too many users are waiting to be saved once hashed
+     */
+    @DisplayName("Test createUser : too many users waiting to be saved")
+    @Test
+    public void testCreateUserSavingRejected() throws Exception {
+        UserCreationDTO body = new UserCreationDTO("Toupie", "sdfghjklmmdj", "hibiscus@george.fr");
+        Mockito.when(this.service.createUser(body)).thenReturn(CompletableFuture.<UserDTO>completedFuture(null)
+                .thenApply(user -> { throw new RejectedExecutionException("Queue full."); }));
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postUser(body)))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    // Method importUsers
+
+    /**
+     * Send users to import, and wait for the import to start
+     * @param body Users to import
+     * @return Started request, to dispatch
+     */
+    private MvcResult postImport(String body) throws Exception {
+        return this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/import")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .characterEncoding(StandardCharsets.UTF_8)
-                        .content(gson.toJson(body)))
+                        .content(body))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+    }
+
+    /**
+     * Test importUsers : the report must be sent back
+     */
+    @DisplayName("Test importUsers : report sent back")
+    @Test
+    public void testImportUsers() throws Exception {
+        List<UserCreationDTO> users = List.of(new UserCreationDTO("Elvis", "password", "elvis@graceland.com"),
+                new UserCreationDTO("Elvis", "password", "presley@graceland.com"));
+        UserImportReportDTO report = new UserImportReportDTO(List.of(
+                new UserImportResultDTO("Elvis", UserImportResultDTO.Status.CREATED),
+                new UserImportResultDTO("Elvis", UserImportResultDTO.Status.DUPLICATE)), 1, 100L, 20.0);
+        Mockito.when(this.service.importUsers(users)).thenReturn(CompletableFuture.completedFuture(report));
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postImport(new Gson().toJson(users))))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].status").value("CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[1].status").value("DUPLICATE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rowsPerSecond").value(20.0));
+    }
+
+    /**
+     * Test importUsers when the service rejects the list, or is too busy
+     */
+    @DisplayName("Test importUsers : invalid list and too many sign-ups")
+    @Test
+    public void testImportUsersRefused() throws Exception {
+        Mockito.when(this.service.importUsers(List.of())).thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postImport("[]")))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        List<UserCreationDTO> users = List.of(new UserCreationDTO("Elvis", "password", "elvis@graceland.com"));
+        Mockito.when(this.service.importUsers(users)).thenThrow(RejectedExecutionException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postImport(new Gson().toJson(users))))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+
+        Mockito.doReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Queue full.")))
+                .when(this.service).importUsers(users);
+        this.mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(this.postImport(new Gson().toJson(users))))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
     }
 
     // Method addUserToFriendList
@@ -267,6 +380,73 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
     }
 
+    // Method addUsersToFriendList
+
+    /**
+     * Test addUsersToFriendList : the result of each nickname must be sent back
+     */
+    @DisplayName("Test addUsersToFriendList : results sent back")
+    @Test
+    public void testAddUsersToFriendList() throws Exception {
+        List<String> nicknames = List.of("Elvis", "Presley");
+        List<FriendAddResultDTO> results = List.of(
+                new FriendAddResultDTO("Elvis", FriendAddResultDTO.Status.ADDED),
+                new FriendAddResultDTO("Presley", FriendAddResultDTO.Status.NOT_FOUND));
+        Mockito.when(this.service.addUsersToFriendList("Graceland", nicknames)).thenReturn(results);
+        this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/Graceland/friends")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new Gson().toJson(nicknames)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].nickname").value("Elvis"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("ADDED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    /**
+     * Test addUsersToFriendList when the main user doesn't exist
+     */
+    @DisplayName("Test addUsersToFriendList : unknown user")
+    @Test
+    public void testAddUsersToFriendListUnknownUser() throws Exception {
+        Mockito.when(this.service.addUsersToFriendList("Nobody", List.of("Elvis"))).thenReturn(null);
+        this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/Nobody/friends")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"Elvis\"]"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test addUsersToFriendList when the service rejects the list
+     */
+    @DisplayName("Test addUsersToFriendList : invalid list")
+    @Test
+    public void testAddUsersToFriendListInvalidList() throws Exception {
+        Mockito.when(this.service.addUsersToFriendList("Graceland", List.of()))
+                .thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.post(route+"/Graceland/friends")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Methods denyUser and allowUser
+
+    /**
+     * Test denyUser and allowUser : the service's answer must be sent back
+     */
+    @DisplayName("Test denyUser and allowUser : answer sent back")
+    @Test
+    public void testDenyAndAllowUser() throws Exception {
+        Mockito.when(this.service.denyUser("Elvis", "Presley")).thenReturn(true);
+        Mockito.when(this.service.allowUser("Elvis", "Presley")).thenReturn(false);
+        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/deny/Elvis/Presley"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
+        this.mockMvc.perform(MockMvcRequestBuilders.put(route+"/allow/Elvis/Presley"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").value("false"));
+    }
+
     // Method removeUserFromFriendList
 
     /**
@@ -359,4 +539,106 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$").isBoolean())
                 .andExpect(MockMvcResultMatchers.jsonPath("$").value("true"));
     }
-}
\ No newline at end of file
+
+    // Method findFriends
+
+    /**
+     * Test findFriends when the user exists : the page and its cursor are sent back
+     */
+    @DisplayName("Test findFriends : page found")
+    @Test
+    public void testFindFriends() throws Exception {
+        String nickname = "Gandalf";
+        FriendPageDTO page = new FriendPageDTO(List.of(new UserNameDTO("Frodon"), new UserNameDTO("Sam")), "next");
+        Mockito.when(this.service.findFriends(nickname, "cursor", 2)).thenReturn(page);
+        MvcResult result = this.mockMvc.perform(
+                        MockMvcRequestBuilders.get(route+"/"+nickname+"/friends?cursor=cursor&size=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        FriendPageDTO resultDTO = new Gson().fromJson(
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8),
+                FriendPageDTO.class);
+        Assertions.assertEquals(page, resultDTO);
+    }
+
+    /**
+     * Test findFriends when the user doesn't exist
+     */
+    @DisplayName("Test findFriends : user not found")
+    @Test
+    public void testFindFriendsNotFound() throws Exception {
+        Mockito.when(this.service.findFriends("Saroumane", null, null)).thenReturn(null);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Saroumane/friends"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Test findFriends when the service rejects a parameter
+     */
+    @DisplayName("Test findFriends : invalid parameter")
+    @Test
+    public void testFindFriendsInvalid() throws Exception {
+        Mockito.when(this.service.findFriends("Gandalf", null, 0)).thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Gandalf/friends?size=0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Method suggestFriends
+
+    /**
+     * Test suggestFriends when the user exists
+     */
+    @DisplayName("Test suggestFriends : suggestions found")
+    @Test
+    public void testSuggestFriends() throws Exception {
+        Mockito.when(this.service.suggestFriends("Gandalf", 2))
+                .thenReturn(List.of(new FriendSuggestionDTO("Aragorn", 3), new FriendSuggestionDTO("Gimli", 1)));
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Gandalf/suggestions?size=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].nickname").value("Aragorn"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].mutualFriends").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].nickname").value("Gimli"));
+    }
+
+    /**
+     * Test suggestFriends when the user doesn't exist, or the size is invalid
+     */
+    @DisplayName("Test suggestFriends : user not found or invalid size")
+    @Test
+    public void testSuggestFriendsInvalid() throws Exception {
+        Mockito.when(this.service.suggestFriends("Saroumane", null)).thenReturn(null);
+        Mockito.when(this.service.suggestFriends("Gandalf", 0)).thenThrow(IllegalArgumentException.class);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Saroumane/suggestions"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Gandalf/suggestions?size=0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    // Method findMutualFriends
+
+    /**
+     * Test findMutualFriends when both users exist
+     */
+    @DisplayName("Test findMutualFriends : users found")
+    @Test
+    public void testFindMutualFriends() throws Exception {
+        MutualFriendsDTO dto = new MutualFriendsDTO(1, List.of(new UserNameDTO("Frodon")), 2);
+        Mockito.when(this.service.findMutualFriends("Gandalf", "Bilbon")).thenReturn(dto);
+        MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Gandalf/mutual/Bilbon"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        Assertions.assertEquals(dto, new Gson().fromJson(
+                result.getResponse().getContentAsString(StandardCharsets.UTF_8), MutualFriendsDTO.class));
+    }
+
+    /**
+     * Test findMutualFriends when a user doesn't exist
+     */
+    @DisplayName("Test findMutualFriends : user not found")
+    @Test
+    public void testFindMutualFriendsNotFound() throws Exception {
+        Mockito.when(this.service.findMutualFriends("Gandalf", "Saroumane")).thenReturn(null);
+        this.mockMvc.perform(MockMvcRequestBuilders.get(route+"/Gandalf/mutual/Saroumane"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+}
@@ -158,6 +158,26 @@ public class EventCreateDTOTest {
         Assertions.assertFalse(event.isValid(LocalDateTime.now()));
     }
 
+    /**
+     * Test the location's coordinates : optional, but both given and on the map
+     */
+    @DisplayName("Test isValid : location's coordinates")
+    @Test
+    public void testIsValidWithLocationCoordinates() {
+        EventCreateDTO event = createValidEventCreateDTO();
+        event.getLocation().setLatitude(50.43);
+        Assertions.assertFalse(event.isValid(LocalDateTime.now()));
+        event.getLocation().setLongitude(2.83);
+        Assertions.assertTrue(event.isValid(LocalDateTime.now()));
+        event.getLocation().setLatitude(-90.5);
+        Assertions.assertFalse(event.isValid(LocalDateTime.now()));
+        event.getLocation().setLatitude(null);
+        Assertions.assertFalse(event.isValid(LocalDateTime.now()));
+        event.getLocation().setLatitude(-90.0);
+        event.getLocation().setLongitude(180.5);
+        Assertions.assertFalse(event.isValid(LocalDateTime.now()));
+    }
+
     /**
      * Test when the attribute nickname of UserNameDTO is null
      */
@@ -0,0 +1,40 @@
+package fr.oukilson.backend.entity;
+
+import org.junit.jupiter.api.*;
+import java.util.UUID;
+
+public class BinaryUuidConverterTest {
+    private final BinaryUuidConverter converter = new BinaryUuidConverter();
+
+    /**
+     * A uuid is stored in 16 bytes, in the order of its text, and read back in lower case
+     */
+    @DisplayName("Test converter : a uuid is stored in 16 bytes")
+    @Test
+    public void testRoundTrip() {
+        byte[] bytes = this.converter.convertToDatabaseColumn("8083229A-44a4-4179-a4da-06db3022be7f");
+        Assertions.assertEquals(16, bytes.length);
+        Assertions.assertEquals((byte) 0x80, bytes[0]);
+        Assertions.assertEquals((byte) 0x7f, bytes[15]);
+        Assertions.assertEquals("8083229a-44a4-4179-a4da-06db3022be7f", this.converter.convertToEntityAttribute(bytes));
+        for (int i=0; i<100; i++) {
+            String uuid = UUID.randomUUID().toString();
+            Assertions.assertEquals(uuid,
+                    this.converter.convertToEntityAttribute(this.converter.convertToDatabaseColumn(uuid)));
+        }
+    }
+
+    /**
+     * A text that is not a uuid is stored as null
+     */
+    @DisplayName("Test converter : a text that is not a uuid is null")
+    @Test
+    public void testInvalidText() {
+        for (String text : new String[] {null, "", "00000000000000", "1-1-1-1-1", "8083229a-44a4-4179-a4da-06db3022be7",
+                "8083229a-44a4-4179-a4da-06db3022be7g", "8083229a_44a4-4179-a4da-06db3022be7f",
+                "8083229a-44a4-4179-a4da-06db3022be7f0", "8083229a-44a4-4179-a4da-06db3022be٧f"})
+            Assertions.assertNull(this.converter.convertToDatabaseColumn(text), text);
+        Assertions.assertNull(this.converter.convertToEntityAttribute(null));
+        Assertions.assertNull(this.converter.convertToEntityAttribute(new byte[15]));
+    }
+}
@@ -0,0 +1,74 @@
+package fr.oukilson.backend.entity;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of Event.addUser depending on the number of participants.
+ * Run with : mvn -P benchmark test -Dbenchmark=EventAddUserBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventAddUserBenchmark {
+    @Param({"10", "1000", "50000"})
+    private int participants;
+    private Event event;
+    private User newcomer;
+    private User lastRegistered;
+    private User lastWaiting;
+
+    /**
+     * Create a user with only an id and a nickname
+     * @param id User's id
+     * @return User
+     */
+    private User createUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setNickname("user"+id);
+        return user;
+    }
+
+    @Setup
+    public void setUp() {
+        // Half of the participants are registered, the other half are waiting
+        this.event = new Event();
+        this.event.setMaxPlayer(this.participants);
+        long id = 0;
+        for (int i=0; i<this.participants/2; i++)
+            this.event.addUser(this.lastRegistered = this.createUser(++id));
+        for (int i=0; i<this.participants/2; i++)
+            this.event.addUserInWaitingQueue(this.lastWaiting = this.createUser(++id));
+        this.newcomer = this.createUser(++id);
+    }
+
+    /**
+     * A new user joins the event, then leaves it to get back to the initial state
+     */
+    @Benchmark
+    public void addNewUser(Blackhole blackhole) {
+        blackhole.consume(this.event.addUser(this.newcomer));
+        blackhole.consume(this.event.removeUser(this.newcomer));
+    }
+
+    /**
+     * The last registered user tries to join the event again
+     */
+    @Benchmark
+    public boolean addRegisteredUser() {
+        return this.event.addUser(this.lastRegistered);
+    }
+
+    /**
+     * The last user of the waiting queue tries to join the event
+     */
+    @Benchmark
+    public boolean addWaitingUser() {
+        return this.event.addUser(this.lastWaiting);
+    }
+}
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.util.ArrayList;
+import java.util.List;
 
 
 @ExtendWith(SpringExtension.class)
@@ -44,7 +46,7 @@ public class EventTest {
         Assertions.assertEquals(0, event.getRegisteredUsers().size());
         Assertions.assertTrue(event.addUser(user));
         Assertions.assertEquals(1, event.getRegisteredUsers().size());
-        Assertions.assertEquals(user, event.getRegisteredUsers().get(0));
+        Assertions.assertEquals(user, new ArrayList<>(event.getRegisteredUsers()).get(0));
     }
 
     /**
@@ -62,10 +64,10 @@ public class EventTest {
         Assertions.assertEquals(0, event.getRegisteredUsers().size());
         Assertions.assertTrue(event.addUser(user1));
         Assertions.assertEquals(1, event.getRegisteredUsers().size());
-        Assertions.assertEquals(user1, event.getRegisteredUsers().get(0));
+        Assertions.assertEquals(user1, new ArrayList<>(event.getRegisteredUsers()).get(0));
         Assertions.assertTrue(event.addUser(user2));
         Assertions.assertEquals(2, event.getRegisteredUsers().size());
-        Assertions.assertEquals(user2, event.getRegisteredUsers().get(1));
+        Assertions.assertEquals(user2, new ArrayList<>(event.getRegisteredUsers()).get(1));
     }
 
     /**
@@ -124,7 +126,7 @@ public class EventTest {
         Assertions.assertEquals(0, event.getWaitingUsers().size());
         Assertions.assertTrue(event.addUserInWaitingQueue(user));
         Assertions.assertEquals(1, event.getWaitingUsers().size());
-        Assertions.assertEquals(user, event.getWaitingUsers().get(0));
+        Assertions.assertEquals(user, new ArrayList<>(event.getWaitingUsers()).get(0));
     }
 
     /**
@@ -142,10 +144,10 @@ public class EventTest {
         Assertions.assertEquals(0, event.getWaitingUsers().size());
         Assertions.assertTrue(event.addUserInWaitingQueue(user1));
         Assertions.assertEquals(1, event.getWaitingUsers().size());
-        Assertions.assertEquals(user1, event.getWaitingUsers().get(0));
+        Assertions.assertEquals(user1, new ArrayList<>(event.getWaitingUsers()).get(0));
         Assertions.assertTrue(event.addUserInWaitingQueue(user2));
         Assertions.assertEquals(2, event.getWaitingUsers().size());
-        Assertions.assertEquals(user2, event.getWaitingUsers().get(1));
+        Assertions.assertEquals(user2, new ArrayList<>(event.getWaitingUsers()).get(1));
     }
 
     /**
@@ -269,4 +271,39 @@ public class EventTest {
         event.addUserInWaitingQueue(this.createValidFullUser(1L, "toto"));
         Assertions.assertFalse(event.removeUserInWaitingQueue(this.createValidFullUser(2L, "tata")));
     }
+
+    /**
+     * Test that users are found by their id, whatever the instance
+     */
+    @DisplayName("Test addUser : a user is identified by its id")
+    @Test
+    public void testAddUserWithAnotherInstanceOfTheSameUser() {
+        Event event = new Event();
+        event.setMaxPlayer(5);
+
+        Assertions.assertTrue(event.addUser(this.createValidFullUser(1L, "toto")));
+        Assertions.assertFalse(event.addUser(this.createValidFullUser(1L, "toto")));
+        Assertions.assertFalse(event.addUserInWaitingQueue(this.createValidFullUser(1L, "toto")));
+        Assertions.assertTrue(event.removeUser(this.createValidFullUser(1L, "toto")));
+        Assertions.assertEquals(0, event.getRegisteredUsers().size());
+    }
+
+    /**
+     * Test that the waiting queue keeps its order after removing a user in the middle
+     */
+    @DisplayName("Test removeUserInWaitingQueue : the queue keeps its order")
+    @Test
+    public void testRemoveUserInWaitingQueueKeepsOrder() {
+        Event event = new Event();
+        event.setMaxPlayer(5);
+        User user1 = this.createValidFullUser(1L, "toto");
+        User user2 = this.createValidFullUser(2L, "tata");
+        User user3 = this.createValidFullUser(3L, "titi");
+        event.addUserInWaitingQueue(user1);
+        event.addUserInWaitingQueue(user2);
+        event.addUserInWaitingQueue(user3);
+
+        Assertions.assertTrue(event.removeUserInWaitingQueue(user2));
+        Assertions.assertEquals(List.of(user1, user3), new ArrayList<>(event.getWaitingUsers()));
+    }
 }
@@ -0,0 +1,46 @@
+package fr.oukilson.backend.entity;
+
+import org.junit.jupiter.api.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+public class TimeOrderedUuidTest {
+    /**
+     * A generated uuid is a version 7 uuid starting with its time
+     */
+    @DisplayName("Test generate : version 7 uuid starting with its time")
+    @Test
+    public void testGenerate() {
+        long millis = 1_700_000_000_123L;
+        UUID uuid = TimeOrderedUuid.generate(millis, new Random(42));
+        Assertions.assertEquals(7, uuid.version());
+        Assertions.assertEquals(2, uuid.variant());
+        Assertions.assertEquals(millis, uuid.getMostSignificantBits() >>> 16);
+        Assertions.assertTrue(uuid.toString().startsWith("018bcfe5-687b-7"));
+        Assertions.assertNotNull(BinaryUuidConverter.parse(TimeOrderedUuid.generate()));
+    }
+
+    /**
+     * Uuids generated later are stored after the previous ones, and the random bits make them unique
+     */
+    @DisplayName("Test generate : stored in the order of their time")
+    @Test
+    public void testGenerateIsOrdered() {
+        BinaryUuidConverter converter = new BinaryUuidConverter();
+        Random random = new Random(42);
+        Set<UUID> generated = new HashSet<>();
+        byte[] previous = null;
+        for (long millis=1_700_000_000_000L; millis<1_700_000_001_000L; millis++) {
+            UUID uuid = TimeOrderedUuid.generate(millis, random);
+            Assertions.assertTrue(generated.add(uuid));
+            Assertions.assertTrue(generated.add(TimeOrderedUuid.generate(millis, random)));
+            byte[] bytes = converter.convertToDatabaseColumn(uuid.toString());
+            if (previous!=null)
+                Assertions.assertTrue(Arrays.compareUnsigned(previous, bytes)<0);
+            previous = bytes;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package fr.oukilson.backend.entity;
+
+import org.openjdk.jmh.annotations.*;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of inserting 1M events, 100k per iteration, with a unique index on their uuid stored as random text
+ * (before), as random bytes, or as time-ordered bytes (after). The size used by the table and its indexes
+ * is printed at the end of each layout.
+ * Runs on an H2 file in target, or on the database given by the environment variables
+ * BENCHMARK_URL, BENCHMARK_USER and BENCHMARK_PASSWORD (on MySQL, only the size of the uuid index is printed).
+ * Run with : mvn -P benchmark test -Dbenchmark=UuidStorageBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 10)
+@Fork(1)
+public class UuidStorageBenchmark {
+    private static final String DEFAULT_URL = "jdbc:h2:./target/uuid-benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    private static final int EVENTS = 100_000;
+    private static final int BATCH_SIZE = 1000;
+    @Param({"text-random", "binary-random", "binary-ordered"})
+    private String layout;
+    private final BinaryUuidConverter converter = new BinaryUuidConverter();
+    private Connection connection;
+    private boolean mySql;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getenv().getOrDefault("BENCHMARK_URL", DEFAULT_URL);
+        this.connection = DriverManager.getConnection(url,
+                System.getenv().getOrDefault("BENCHMARK_USER", "sa"),
+                System.getenv().getOrDefault("BENCHMARK_PASSWORD", ""));
+        this.mySql = url.startsWith("jdbc:mysql:");
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("drop table if exists uuid_benchmark");
+            statement.execute("create table uuid_benchmark (id bigint not null auto_increment, "
+                    + "uuid "+(this.layout.startsWith("text") ? "varchar(255)" : "varbinary(16)")+", "
+                    + "title varchar(255), start_date TIMESTAMP, primary key (id))");
+            statement.execute("alter table uuid_benchmark add constraint uk_uuid_benchmark_uuid unique (uuid)");
+        }
+        this.connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        this.connection.setAutoCommit(true);
+        try (Statement statement = this.connection.createStatement()) {
+            String sql;
+            if (this.mySql) {
+                statement.execute("analyze table uuid_benchmark");
+                sql = "select stat_value * @@innodb_page_size from mysql.innodb_index_stats "
+                        + "where database_name = database() and table_name = 'uuid_benchmark' "
+                        + "and index_name = 'uk_uuid_benchmark_uuid' and stat_name = 'size'";
+            }
+            else {
+                statement.execute("checkpoint sync");
+                sql = "select disk_space_used('uuid_benchmark')";
+            }
+            try (ResultSet size = statement.executeQuery(sql)) {
+                size.next();
+                System.out.printf("%n%s : %d MB used by %s%n", this.layout, size.getLong(1)/(1024*1024),
+                        this.mySql ? "the uuid index" : "the table and its indexes");
+            }
+            statement.execute("drop table uuid_benchmark");
+        }
+        this.connection.close();
+    }
+
+    /**
+     * Uuid of a new event in the benchmarked layout
+     * @return String or bytes
+     */
+    private Object nextUuid() {
+        Object result;
+        switch (this.layout) {
+            case "text-random":
+                result = UUID.randomUUID().toString();
+                break;
+            case "binary-random":
+                result = this.converter.convertToDatabaseColumn(UUID.randomUUID().toString());
+                break;
+            default:
+                result = this.converter.convertToDatabaseColumn(TimeOrderedUuid.generate());
+        }
+        return result;
+    }
+
+    /**
+     * Insert 100k events by batches, each batch committed
+     * @return Number of inserted events
+     * @throws SQLException If an insert fails
+     */
+    @Benchmark
+    public int insert() throws SQLException {
+        int result = 0;
+        Timestamp startDate = Timestamp.valueOf(LocalDateTime.now().plusDays(7));
+        try (PreparedStatement insert = this.connection.prepareStatement(
+                "insert into uuid_benchmark (uuid, title, start_date) values (?, ?, ?)")) {
+            while (result<EVENTS) {
+                for (int i=0; i<BATCH_SIZE; i++) {
+                    insert.setObject(1, this.nextUuid());
+                    insert.setString(2, "Event "+result);
+                    insert.setTimestamp(3, startDate);
+                    insert.addBatch();
+                    result++;
+                }
+                insert.executeBatch();
+                this.connection.commit();
+            }
+        }
+        return result;
+    }
+}
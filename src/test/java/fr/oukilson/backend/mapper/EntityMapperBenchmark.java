@@ -0,0 +1,80 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.User;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the hand-written mappers against ModelMapper, as configured by MapperConfiguration.
+ * Run with : mvn -P benchmark test -Dbenchmark=EntityMapperBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityMapperBenchmark {
+    @Param({"0", "20", "200"})
+    private int participants;
+    private Event event;
+    private Game game;
+    private User user;
+    private EntityMapper<Event, EventDTO> manualEvent;
+    private EntityMapper<Event, EventDTO> reflectiveEvent;
+    private EntityMapper<Game, GameDTO> manualGame;
+    private EntityMapper<Game, GameDTO> reflectiveGame;
+    private EntityMapper<User, UserDTO> manualUser;
+    private EntityMapper<User, UserDTO> reflectiveUser;
+
+    @Setup
+    public void setUp() {
+        // Registered users and a waiting queue half as long, a user with as many friends
+        this.event = EntityMapperTest.createEvent(this.participants, this.participants/2);
+        this.game = EntityMapperTest.createGame(1L);
+        this.user = EntityMapperTest.createUser(1L, this.participants);
+        ModelMapper modelMapper = new ModelMapper();
+        this.manualEvent = new EventDTOMapper();
+        this.reflectiveEvent = new ModelMapperAdapter<>(modelMapper, EventDTO.class);
+        this.manualGame = new GameDTOMapper();
+        this.reflectiveGame = new ModelMapperAdapter<>(modelMapper, GameDTO.class);
+        this.manualUser = new UserDTOMapper();
+        this.reflectiveUser = new ModelMapperAdapter<>(modelMapper, UserDTO.class);
+    }
+
+    @Benchmark
+    public EventDTO eventManual() {
+        return this.manualEvent.map(this.event);
+    }
+
+    @Benchmark
+    public EventDTO eventModelMapper() {
+        return this.reflectiveEvent.map(this.event);
+    }
+
+    @Benchmark
+    public GameDTO gameManual() {
+        return this.manualGame.map(this.game);
+    }
+
+    @Benchmark
+    public GameDTO gameModelMapper() {
+        return this.reflectiveGame.map(this.game);
+    }
+
+    @Benchmark
+    public UserDTO userManual() {
+        return this.manualUser.map(this.user);
+    }
+
+    @Benchmark
+    public UserDTO userModelMapper() {
+        return this.reflectiveUser.map(this.user);
+    }
+}
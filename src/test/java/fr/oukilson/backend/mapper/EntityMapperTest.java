@@ -0,0 +1,162 @@
+package fr.oukilson.backend.mapper;
+
+import fr.oukilson.backend.configuration.MapperConfiguration;
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The hand-written mappers must give the same DTO as ModelMapper
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class EntityMapperTest {
+    @Autowired
+    private ModelMapper modelMapper;
+
+    /**
+     * Create a user with some friends
+     * @param id User's id
+     * @param friends Number of friends
+     * @return User
+     */
+    public static User createUser(long id, int friends) {
+        User user = new User();
+        user.setId(id);
+        user.setNickname("user"+id);
+        user.setEmail("user"+id+"@oukilson.fr");
+        user.setPassword("password");
+        user.setFirstName("First");
+        user.setLastName("Last");
+        for (int i=1; i<=friends; i++)
+            user.getFriendList().add(createUser(id*1000+i, 0));
+        return user;
+    }
+
+    /**
+     * Create a game with all its data
+     * @param id Game's id
+     * @return Game
+     */
+    public static Game createGame(long id) {
+        return new Game(id, UUID.randomUUID().toString(), "Les Aventuriers du Rail", 2, 5, 30, 60, 8,
+                "Alan R. Moon", null);
+    }
+
+    /**
+     * Create an event with its creator, game, location and participants
+     * @param registered Number of registered users
+     * @param waiting Number of waiting users
+     * @return Event
+     */
+    public static Event createEvent(int registered, int waiting) {
+        Event event = new Event();
+        event.setId(1L);
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Soirée jeux");
+        event.setDescription("Venez nombreux");
+        event.setCreator(createUser(1L, 0));
+        event.setGame(createGame(1L));
+        event.setMinPlayer(2);
+        event.setMaxPlayer(Math.max(registered, waiting));
+        event.setCreationDate(LocalDateTime.now());
+        event.setStartingDate(LocalDateTime.now().plusDays(2));
+        event.setEndingDate(LocalDateTime.now().plusDays(3));
+        event.setLimitDate(LocalDateTime.now().plusDays(1));
+        event.setPrivate(true);
+        Location location = new Location(1L, "Lille", "59000", "1 rue de la Paix", event);
+        event.setLocation(location);
+        for (int i=0; i<registered; i++)
+            event.getRegisteredUsers().add(createUser(100L+i, 0));
+        for (int i=0; i<waiting; i++)
+            event.getWaitingUsers().add(createUser(10000L+i, 0));
+        return event;
+    }
+
+    @DisplayName("Test EventDTOMapper : same DTO as ModelMapper")
+    @Test
+    public void testEventDTOMapper() {
+        Event event = createEvent(20, 5);
+        Assertions.assertEquals(this.modelMapper.map(event, EventDTO.class), new EventDTOMapper().map(event));
+    }
+
+    @DisplayName("Test EventDTOMapper : same DTO as ModelMapper when the relations are missing")
+    @Test
+    public void testEventDTOMapperWithoutRelations() {
+        Event event = createEvent(0, 0);
+        event.setCreator(null);
+        event.setGame(null);
+        event.setLocation(null);
+        event.setEndingDate(null);
+        Assertions.assertEquals(this.modelMapper.map(event, EventDTO.class), new EventDTOMapper().map(event));
+    }
+
+    @DisplayName("Test GameDTOMapper : same DTO as ModelMapper")
+    @Test
+    public void testGameDTOMapper() {
+        Game game = createGame(1L);
+        Assertions.assertEquals(this.modelMapper.map(game, GameDTO.class), new GameDTOMapper().map(game));
+        game.setMinAge(null);
+        game.setCreatorName(null);
+        Assertions.assertEquals(this.modelMapper.map(game, GameDTO.class), new GameDTOMapper().map(game));
+    }
+
+    @DisplayName("Test UserDTOMapper : same DTO as ModelMapper")
+    @Test
+    public void testUserDTOMapper() {
+        User user = createUser(1L, 10);
+        Assertions.assertEquals(this.modelMapper.map(user, UserDTO.class), new UserDTOMapper().map(user));
+        user.getFriendList().clear();
+        Assertions.assertEquals(this.modelMapper.map(user, UserDTO.class), new UserDTOMapper().map(user));
+    }
+
+    @DisplayName("Test UserDTOMapper and ModelMapper : friend list not read")
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUserDTOMapperDoesntReadFriendList() {
+        User user = createUser(1L, 0);
+        List<User> friendList = Mockito.mock(List.class);
+        user.setFriendList(friendList);
+        UserDTO dto = new UserDTOMapper().map(user);
+        Assertions.assertEquals(user.getNickname(), dto.getNickname());
+        Assertions.assertTrue(dto.getFriendList().isEmpty());
+        Assertions.assertEquals(dto, this.modelMapper.map(user, UserDTO.class));
+        Mockito.verifyNoInteractions(friendList);
+    }
+
+    @DisplayName("Test mappers : null entity gives null DTO")
+    @Test
+    public void testNullEntity() {
+        Assertions.assertNull(new EventDTOMapper().map(null));
+        Assertions.assertNull(new GameDTOMapper().map(null));
+        Assertions.assertNull(new UserDTOMapper().map(null));
+        Assertions.assertNull(new ModelMapperAdapter<Event, EventDTO>(this.modelMapper, EventDTO.class).map(null));
+    }
+
+    @DisplayName("Test MapperConfiguration : implementation chosen by name")
+    @Test
+    public void testMapperSelection() {
+        MapperConfiguration configuration = new MapperConfiguration();
+        Assertions.assertTrue(configuration.eventDTOMapper(this.modelMapper, "manual") instanceof EventDTOMapper);
+        Assertions.assertTrue(configuration.eventDTOMapper(this.modelMapper, "modelmapper")
+                instanceof ModelMapperAdapter);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> configuration.eventDTOMapper(this.modelMapper, "other"));
+    }
+}
@@ -0,0 +1,334 @@
+package fr.oukilson.backend.repository;
+
+import fr.oukilson.backend.entity.Town;
+import fr.oukilson.backend.model.EventCursor;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.AopInvocationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The queries of the hot paths are run with EXPLAIN on the database built by the migrations,
+ * and none of them may read a whole table. The repositories' methods are called and the statements they send
+ * are recorded by the data source, with their parameters : the SQL explained is the one generated by Hibernate,
+ * with the conditions it adds (as the @Where of the events).
+ * The calls only target rows which don't exist, in transactions rolled back.
+ * The loads of all the friendships and denials, done once at startup, are full scans on purpose and not checked.
+ * Works on H2 (plan with a "tableScan") and on MySQL (row of type "ALL").
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+public class QueryPlanTest {
+    private static final StatementRecorder RECORDER = new StatementRecorder();
+    private static final String UUID = "0190a1b2-c3d4-7e5f-8a9b-0c1d2e3f4a5b";
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 20, 0);
+    private static final Long ID = -1L;                                     // Id of no row
+    private static final List<Long> IDS = List.of(-1L, -2L, -3L);
+    private static final Sort SEARCH_ORDER = Sort.by("startingDate", "id");
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    @Autowired
+    private TownRepository townRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Wrap the data source, so that the statements sent through it can be recorded
+     */
+    @TestConfiguration
+    static class RecordingConfiguration {
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? RECORDER.wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Statement sent to the database, with its parameters by position
+     */
+    private static class RecordedStatement {
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+
+        private RecordedStatement(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Record the prepared statements run by the current thread, while it is recording
+     */
+    private static class StatementRecorder {
+        private final ThreadLocal<List<RecordedStatement>> recording = new ThreadLocal<>();
+
+        /**
+         * Call of a method on a wrapped object
+         */
+        private interface Call {
+            Object invoke(Method method, Object[] args) throws Exception;
+        }
+
+        /**
+         * Wrap an object in a proxy with all its interfaces
+         * @param target Wrapped object
+         * @param call What to do on each call of the proxy
+         * @return Proxy
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(T target, Call call) {
+            return (T) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                    ClassUtils.getAllInterfaces(target), (proxy, method, args) -> {
+                        try {
+                            return call.invoke(method, args);
+                        }
+                        catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        private DataSource wrap(DataSource dataSource) {
+            return proxy(dataSource, (method, args) -> {
+                Object result = method.invoke(dataSource, args);
+                return result instanceof Connection ? this.wrap((Connection) result) : result;
+            });
+        }
+
+        private Connection wrap(Connection connection) {
+            return proxy(connection, (method, args) -> {
+                Object result = method.invoke(connection, args);
+                if (result instanceof PreparedStatement && method.getName().startsWith("prepare"))
+                    result = this.wrap((PreparedStatement) result, (String) args[0]);
+                return result;
+            });
+        }
+
+        private PreparedStatement wrap(PreparedStatement statement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return proxy(statement, (method, args) -> {
+                String name = method.getName();
+                boolean run = (args==null || args.length==0)
+                        && (name.equals("addBatch") || name.startsWith("execute") && !name.endsWith("Batch"));
+                if (name.startsWith("set") && args!=null && args.length>=2 && args[0] instanceof Integer)
+                    parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                else if (name.equals("clearParameters"))
+                    parameters.clear();
+                else if (run && this.recording.get()!=null)
+                    this.recording.get().add(new RecordedStatement(sql, new TreeMap<>(parameters)));
+                return method.invoke(statement, args);
+            });
+        }
+    }
+
+    /**
+     * Call repositories' methods in a transaction rolled back at the end, and get the statements they have sent
+     * @param call Calls
+     * @return List<RecordedStatement>
+     */
+    private List<RecordedStatement> record(Runnable call) {
+        List<RecordedStatement> result = new ArrayList<>();
+        RECORDER.recording.set(result);
+        try {
+            new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+                call.run();
+                status.setRollbackOnly();
+            });
+        }
+        finally {
+            RECORDER.recording.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Calls of the hot paths, by repository's method
+     * @return Map<String, Runnable>
+     */
+    private Map<String, Runnable> calls() {
+        Map<String, Runnable> result = new LinkedHashMap<>();
+
+        // Events
+        result.put("EventRepository.findByUuid", () -> this.eventRepository.findByUuid(UUID));
+        result.put("EventRepository.findHeaderByUuid", () -> this.eventRepository.findHeaderByUuid(UUID));
+        result.put("EventRepository.findIdByUuid", () -> this.eventRepository.findIdByUuid(UUID));
+        result.put("EventRepository.softDeleteByUuid", () -> this.eventRepository.softDeleteByUuid(UUID, NOW));
+        result.put("EventRepository.findCreatorIdById", () -> this.eventRepository.findCreatorIdById(ID));
+        result.put("EventRepository.findVersionById", () -> this.eventRepository.findVersionById(ID));
+        result.put("EventRepository.incrementVersion", () -> this.eventRepository.incrementVersion(ID, 0));
+        result.put("EventRepository.findHeaders (upcoming events)", () -> this.eventRepository.findHeaders(
+                EventSpecifications.startingAfter(NOW).and(EventSpecifications.after(new EventCursor(NOW, ID))),
+                SEARCH_ORDER, 20));
+        result.put("EventRepository.findHeaders (by town)", () -> this.eventRepository.findHeaders(
+                EventSpecifications.townStartingWith("lille").and(EventSpecifications.zipCode("59000"))
+                        .and(EventSpecifications.startingAfter(NOW)), SEARCH_ORDER, 20));
+        result.put("EventRepository.findHeaders (by ids)", () -> this.eventRepository.findHeaders(
+                EventSpecifications.idIn(IDS), SEARCH_ORDER, IDS.size()));
+        result.put("EventRepository.findRegisteredUsers", () -> this.eventRepository.findRegisteredUsers(IDS));
+        result.put("EventRepository.findWaitingUsers", () -> this.eventRepository.findWaitingUsers(IDS));
+        result.put("EventRepository.rankByFriends", () -> this.eventRepository.rankByFriends(ID, NOW, 10, NOW,
+                0L, 20));
+        result.put("EventRepository.findNearby", () -> this.eventRepository.findNearby(50.63, 3.06, 50.5, 50.8,
+                2.9, 3.2, 10, NOW, -1, 0L, 20));
+        result.put("EventRepository.insertRegisteredUser", () -> this.eventRepository.insertRegisteredUser(ID, ID));
+        result.put("EventRepository.insertWaitingUser", () -> this.eventRepository.insertWaitingUser(ID, ID));
+        result.put("EventRepository.deleteRegisteredUser", () -> this.eventRepository.deleteRegisteredUser(ID, ID));
+        result.put("EventRepository.deleteWaitingUser", () -> this.eventRepository.deleteWaitingUser(ID, ID));
+        result.put("EventRepository.countFreeSeats", () -> {
+            try {
+                this.eventRepository.countFreeSeats(ID);
+            }
+            catch (AopInvocationException e) {
+                // No event : no count
+            }
+        });
+        result.put("EventRepository.findFirstWaitingUserIds",
+                () -> this.eventRepository.findFirstWaitingUserIds(ID, 2));
+        result.put("EventRepository.insertWaitingUsersAsRegistered",
+                () -> this.eventRepository.insertWaitingUsersAsRegistered(ID, IDS));
+        result.put("EventRepository.deleteWaitingUsers", () -> this.eventRepository.deleteWaitingUsers(ID, IDS));
+
+        result.put("EventRepository.findDeletedIds", () -> this.eventRepository.findDeletedIds(NOW, 500));
+        result.put("EventRepository.findLocationIds", () -> this.eventRepository.findLocationIds(IDS));
+        result.put("EventRepository.deleteAllRegisteredUsers",
+                () -> this.eventRepository.deleteAllRegisteredUsers(IDS));
+        result.put("EventRepository.deleteAllWaitingUsers", () -> this.eventRepository.deleteAllWaitingUsers(IDS));
+        result.put("EventRepository.purge", () -> this.eventRepository.purge(IDS));
+        result.put("LocationRepository.deleteAllByIdInBatch", () -> this.locationRepository.deleteAllByIdInBatch(IDS));
+
+        // Games, locations and towns
+        result.put("GameRepository.findByUuid", () -> this.gameRepository.findByUuid(UUID));
+        result.put("LocationRepository.findUnlinked",
+                () -> this.locationRepository.findUnlinked(0L, PageRequest.of(0, 500)));
+        result.put("LocationRepository.linkTown",
+                () -> this.locationRepository.linkTown(new Town(ID, "Lille", "59000", "lille"), IDS));
+        result.put("TownRepository.findByNormalizedNameAndZipCode",
+                () -> this.townRepository.findByNormalizedNameAndZipCode("lille", "59000"));
+        result.put("TownRepository.findLockedByNormalizedNameAndZipCode",
+                () -> this.townRepository.findLockedByNormalizedNameAndZipCode("lille", "59000"));
+        result.put("TownRepository.insertIgnore", () -> this.townRepository.insertIgnore("Lille", "lille", "59000"));
+
+        // Users
+        result.put("UserRepository.findByNickname", () -> this.userRepository.findByNickname("nickname"));
+        result.put("UserRepository.findIdByNickname", () -> this.userRepository.findIdByNickname("nickname"));
+        result.put("UserRepository.findIdentityByNickname",
+                () -> this.userRepository.findIdentityByNickname("nickname"));
+        result.put("UserRepository.findIdentities", () -> this.userRepository.findIdentities(IDS));
+        result.put("UserRepository.findIdentitiesByNicknames",
+                () -> this.userRepository.findIdentitiesByNicknames(List.of("first", "second")));
+        result.put("UserRepository.findFriends",
+                () -> this.userRepository.findFriends(ID, 0L, PageRequest.of(0, 50)));
+        result.put("UserRepository.findFriendIds", () -> this.userRepository.findFriendIds(ID, IDS));
+        result.put("UserRepository.insertFriend", () -> this.userRepository.insertFriend(ID, ID));
+        result.put("UserRepository.insertFriends", () -> this.userRepository.insertFriends(ID, IDS));
+        result.put("UserRepository.deleteFriend", () -> this.userRepository.deleteFriend(ID, ID));
+        result.put("UserRepository.deleteFriends", () -> this.userRepository.deleteFriends(ID));
+        result.put("UserRepository.countDenied", () -> this.userRepository.countDenied(ID, ID));
+        result.put("UserRepository.insertDenied", () -> this.userRepository.insertDenied(ID, ID));
+        result.put("UserRepository.deleteDenied", () -> this.userRepository.deleteDenied(ID, ID));
+        return result;
+    }
+
+    /**
+     * Explain a statement and tell if its plan reads a whole table
+     * @param statement Statement and its parameters
+     * @return The plan if it reads a whole table, else null
+     */
+    private String findFullScan(RecordedStatement statement) {
+        String result = null;
+        List<Map<String, Object>> plan = this.jdbcTemplate.query("explain "+statement.sql, explain -> {
+            for (Map.Entry<Integer, Object> parameter : statement.parameters.entrySet())
+                explain.setObject(parameter.getKey(), parameter.getValue());
+        }, new ColumnMapRowMapper());
+        if (this.isMySql()) {
+            if (plan.stream().anyMatch(row -> "ALL".equals(row.get("type"))))
+                result = plan.toString();
+        }
+        else {
+            String text = plan.toString();
+            if (text.contains("tableScan"))
+                result = text;
+        }
+        return result;
+    }
+
+    /**
+     * True if the tests run on MySQL, else on H2
+     * @return boolean
+     */
+    private boolean isMySql() {
+        String product = this.jdbcTemplate.execute(
+                (java.sql.Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        return "MySQL".equals(product);
+    }
+
+    /**
+     * No statement of the hot paths reads a whole table
+     */
+    @DisplayName("Test query plans : no full scan on the hot paths")
+    @Test
+    public void testNoFullScan() {
+        List<String> failures = new ArrayList<>();
+        this.calls().forEach((name, call) -> {
+            List<RecordedStatement> statements = this.record(call);
+            if (statements.isEmpty())
+                failures.add(name+" : no statement recorded");
+            for (RecordedStatement statement : statements) {
+                String plan = this.findFullScan(statement);
+                if (plan!=null)
+                    failures.add(name+" : "+statement.sql+" : "+plan);
+            }
+        });
+        Assertions.assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    /**
+     * The statements are recorded as generated by Hibernate, and a query on a column without index
+     * is found as a full scan
+     */
+    @DisplayName("Test query plans : generated SQL recorded and a full scan found")
+    @Test
+    public void testFullScanFound() {
+        List<RecordedStatement> statements = this.record(() -> this.eventRepository.findIdByUuid(UUID));
+        Assertions.assertEquals(1, statements.size());
+        Assertions.assertTrue(statements.get(0).sql.contains("deleted_date is null"), statements.get(0).sql);
+        Assertions.assertNull(this.findFullScan(statements.get(0)));
+        Assertions.assertNotNull(this.findFullScan(
+                new RecordedStatement("select * from event e where e.title = ?", Map.of(1, "title"))));
+        Assertions.assertNull(this.findFullScan(new RecordedStatement("select * from event e where e.id = ?",
+                Map.of(1, ID))));
+    }
+}
@@ -0,0 +1,46 @@
+package fr.oukilson.backend.service;
+
+import org.junit.jupiter.api.*;
+import java.util.Random;
+
+public class BloomFilterTest {
+    /**
+     * Every added key must be found, and few of the other ones
+     */
+    @DisplayName("Test mightContain : no false negative, few false positives")
+    @Test
+    public void testMightContain() {
+        int keys = 10_000;
+        BloomFilter filter = new BloomFilter(keys*8);
+        Random random = new Random(42);
+        long[] added = new long[keys];
+        for (int i=0; i<keys; i++) {
+            added[i] = random.nextLong();
+            filter.put(added[i]);
+        }
+        for (long key : added)
+            Assertions.assertTrue(filter.mightContain(key));
+
+        int falsePositives = 0;
+        for (long key=0; key<keys; key++) {
+            if (filter.mightContain(key))
+                falsePositives++;
+        }
+        Assertions.assertTrue(falsePositives<keys*5/100, "False positives : "+falsePositives);
+    }
+
+    /**
+     * An empty filter contains nothing, whatever its size
+     */
+    @DisplayName("Test mightContain : empty filters")
+    @Test
+    public void testEmpty() {
+        for (int bits : new int[] {0, 1, 65, 1 << 20}) {
+            BloomFilter filter = new BloomFilter(bits);
+            Assertions.assertFalse(filter.mightContain(0L));
+            Assertions.assertFalse(filter.mightContain(-1L));
+            filter.put(12L);
+            Assertions.assertTrue(filter.mightContain(12L));
+        }
+    }
+}
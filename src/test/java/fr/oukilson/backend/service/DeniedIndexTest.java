@@ -0,0 +1,148 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.event.EventAddUserDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Denied lists enforced on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class DeniedIndexTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private FriendshipStore store;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Save a user with a random nickname
+     * @return User
+     */
+    private User createUser() {
+        User user = new User();
+        user.setNickname("denied-"+UUID.randomUUID());
+        return this.userRepository.save(user);
+    }
+
+    /**
+     * Save a new event created by the given user
+     * @param creator Event's creator
+     * @return The saved event
+     */
+    private Event createEvent(User creator) {
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Denied");
+        Location location = new Location(null, "Douai", "59500", null, null);
+        Event event = new Event();
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Denied");
+        event.setCreator(creator);
+        event.setGame(this.gameRepository.save(game));
+        event.setMinPlayer(2);
+        event.setMaxPlayer(5);
+        event.setStartingDate(LocalDateTime.now().plusDays(1));
+        event.setLocation(location);
+        location.setEvent(event);
+        return this.locationRepository.save(location).getEvent();
+    }
+
+    /**
+     * A denied user can't befriend the user who denied him, nor join his events, until he is allowed again
+     */
+    @DisplayName("Test deny and allow : friendships and events")
+    @Test
+    public void testDenyAndAllow() {
+        User user = this.createUser();
+        User intruder = this.createUser();
+        Event event = this.createEvent(user);
+        Assertions.assertTrue(this.userService.addUserToFriendList(intruder.getNickname(), user.getNickname()));
+
+        Assertions.assertTrue(this.userService.denyUser(user.getNickname(), intruder.getNickname()));
+        Assertions.assertFalse(this.userService.denyUser(user.getNickname(), intruder.getNickname()));
+        Assertions.assertFalse(this.store.areFriends(intruder.getId(), user.getId()));
+        Assertions.assertFalse(this.userService.addUserToFriendList(intruder.getNickname(), user.getNickname()));
+        Assertions.assertFalse(
+                this.eventService.addUserInEvent(new EventAddUserDTO(event.getUuid(), intruder.getNickname())));
+        Assertions.assertFalse(this.eventService.addUserInEventInWaitingQueue(
+                new EventAddUserDTO(event.getUuid(), intruder.getNickname())));
+        // The denial only goes one way
+        Assertions.assertTrue(this.userService.addUserToFriendList(user.getNickname(), intruder.getNickname()));
+
+        Assertions.assertTrue(this.userService.allowUser(user.getNickname(), intruder.getNickname()));
+        Assertions.assertTrue(this.userService.addUserToFriendList(intruder.getNickname(), user.getNickname()));
+        Assertions.assertTrue(
+                this.eventService.addUserInEvent(new EventAddUserDTO(event.getUuid(), intruder.getNickname())));
+    }
+
+    /**
+     * A new index gets the denials already in the database
+     */
+    @DisplayName("Test load : denials read from the database")
+    @Test
+    public void testLoad() {
+        User user = this.createUser();
+        User intruder = this.createUser();
+        User other = this.createUser();
+        this.userService.denyUser(user.getNickname(), intruder.getNickname());
+
+        DeniedIndex loaded = new DeniedIndex(this.userRepository, 1 << 16);
+        loaded.load();
+        Assertions.assertTrue(loaded.mayBeDenied(intruder.getId()));
+        Assertions.assertTrue(loaded.isDenied(user.getId(), intruder.getId()));
+        Assertions.assertFalse(loaded.isDenied(intruder.getId(), user.getId()));
+        Assertions.assertFalse(loaded.isDenied(user.getId(), other.getId()));
+    }
+
+    /**
+     * Loading again replaces the filters : the denials written without the index are seen,
+     * and the removed ones leave the filters
+     */
+    @DisplayName("Test load : denials read again from the database")
+    @Test
+    public void testReload() {
+        User user = this.createUser();
+        User intruder = this.createUser();
+        DeniedIndex loaded = new DeniedIndex(this.userRepository, 1 << 16);
+        loaded.load();
+
+        this.transactionTemplate.executeWithoutResult(status ->
+                this.userRepository.insertDenied(user.getId(), intruder.getId()));
+        Assertions.assertFalse(loaded.isDenied(user.getId(), intruder.getId()));
+        loaded.load();
+        Assertions.assertTrue(loaded.isDenied(user.getId(), intruder.getId()));
+
+        this.transactionTemplate.executeWithoutResult(status ->
+                this.userRepository.deleteDenied(user.getId(), intruder.getId()));
+        Assertions.assertTrue(loaded.mayBeDenied(intruder.getId()));
+        loaded.load();
+        Assertions.assertFalse(loaded.mayBeDenied(intruder.getId()));
+        Assertions.assertFalse(loaded.isDenied(user.getId(), intruder.getId()));
+    }
+}
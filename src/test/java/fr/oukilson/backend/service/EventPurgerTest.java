@@ -0,0 +1,167 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.event.EventAddUserDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.EventRepository;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deleted events are hidden at once, then purged by batches, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class EventPurgerTest {
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private Game game;
+    private User creator;
+    private User participant;
+
+    @BeforeAll
+    public void init() {
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Purge");
+        this.game = this.gameRepository.save(game);
+        this.creator = this.createUser();
+        this.participant = this.createUser();
+    }
+
+    /**
+     * Save a user with a random nickname
+     * @return User
+     */
+    private User createUser() {
+        User user = new User();
+        user.setNickname("pu-"+UUID.randomUUID());
+        return this.userRepository.save(user);
+    }
+
+    /**
+     * Save a new upcoming event with a location, the creator registered and another user waiting
+     * @return The saved event
+     */
+    private Event createEvent() {
+        Location location = new Location(null, "Lens", "62300", null, null);
+        Event event = new Event();
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Purge");
+        event.setCreator(this.creator);
+        event.setGame(this.game);
+        event.setMinPlayer(2);
+        event.setMaxPlayer(10);
+        event.setStartingDate(LocalDateTime.now().plusDays(1));
+        event.getRegisteredUsers().add(this.creator);
+        event.getWaitingUsers().add(this.participant);
+        event.setLocation(location);
+        location.setEvent(event);
+        return this.locationRepository.save(location).getEvent();
+    }
+
+    /**
+     * Count the rows of an event in the event table, the participants tables and the location table
+     * @param event Event
+     * @return Number of rows
+     */
+    private int countRows(Event event) {
+        int result = 0;
+        for (String sql : new String[] {"select count(*) from event where id = ?",
+                "select count(*) from event_user where event_id = ?",
+                "select count(*) from event_user_in_queue where event_id = ?"})
+            result += this.jdbcTemplate.queryForObject(sql, Integer.class, event.getId());
+        result += this.jdbcTemplate.queryForObject("select count(*) from location where id = ?", Integer.class,
+                event.getLocation().getId());
+        return result;
+    }
+
+    /**
+     * A deleted event is not found anymore, but stays in the database until it's purged;
+     * deleting it again does nothing
+     */
+    @DisplayName("Test deleteByUuid : the event is hidden, not deleted")
+    @Test
+    public void testDeleteHidesTheEvent() {
+        Event event = this.createEvent();
+        Assertions.assertNotNull(this.eventService.findByUuid(event.getUuid()));
+        Assertions.assertTrue(this.eventService.deleteByUuid(event.getUuid()));
+        Assertions.assertFalse(this.eventService.deleteByUuid(event.getUuid()));
+        Assertions.assertNull(this.eventService.findByUuid(event.getUuid()));
+        Assertions.assertTrue(this.eventRepository.findIdByUuid(event.getUuid()).isEmpty());
+        Assertions.assertFalse(this.eventService.addUserInEvent(
+                new EventAddUserDTO(event.getUuid(), this.participant.getNickname())));
+        Assertions.assertEquals(4, this.countRows(event));
+        Assertions.assertEquals(1, this.jdbcTemplate.queryForObject(
+                "select version from event where id = ?", Long.class, event.getId()));
+    }
+
+    /**
+     * The events deleted before the given date are purged with their participants and locations,
+     * by batches; the other events are kept
+     */
+    @DisplayName("Test purge : deleted events purged by batches")
+    @Test
+    public void testPurge() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Event> deleted = new ArrayList<>();
+        for (int i=0; i<5; i++) {
+            Event event = this.createEvent();
+            this.eventService.deleteByUuid(event.getUuid());
+            deleted.add(event);
+        }
+        Event kept = this.createEvent();
+        Event deletedLater = this.createEvent();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        transactionTemplate.executeWithoutResult(status ->
+                this.eventRepository.softDeleteByUuid(deletedLater.getUuid(), now.plusHours(2)));
+
+        EventPurger purger = new EventPurger(this.eventRepository, this.locationRepository, transactionTemplate, 2);
+        Assertions.assertTrue(purger.purge(now.plusMinutes(1))>=5);
+        for (Event event : deleted)
+            Assertions.assertEquals(0, this.countRows(event));
+        Assertions.assertEquals(4, this.countRows(kept));
+        Assertions.assertEquals(4, this.countRows(deletedLater));
+        Assertions.assertNotNull(this.eventService.findByUuid(kept.getUuid()));
+        Assertions.assertEquals(0, purger.purge(now.plusMinutes(1)));
+    }
+
+    /**
+     * The batch size must be positive
+     */
+    @DisplayName("Test constructor : invalid batch size")
+    @Test
+    public void testInvalidBatchSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EventPurger(this.eventRepository,
+                this.locationRepository, new TransactionTemplate(this.transactionManager), 0));
+    }
+}
@@ -0,0 +1,221 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.event.EventAddUserDTO;
+import fr.oukilson.backend.dto.event.EventRemoveUserDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.EventRepository;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Many users join the same events at the same time, on the test database.
+ * No event must end up with more registered users than its maximal number of players.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class EventReservationStressTest {
+    private static final int EVENTS = 10;
+    private static final int SEATS = 20;
+    private static final int USERS = 300;
+    private static final int THREADS = 32;
+    @Autowired
+    private EventService service;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private final List<Event> events = new ArrayList<>();
+    private final List<String> nicknames = new ArrayList<>();
+    private Game game;
+
+    @BeforeAll
+    public void init() {
+        for (int i=0; i<USERS; i++) {
+            User user = new User();
+            user.setNickname("stress"+i);
+            this.nicknames.add(this.userRepository.save(user).getNickname());
+        }
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Stress");
+        this.game = this.gameRepository.save(game);
+        for (int i=0; i<EVENTS; i++)
+            this.events.add(this.createEvent("Stress "+i));
+    }
+
+    /**
+     * Save a new event with SEATS seats
+     * @param title Event's title
+     * @return The saved event
+     */
+    private Event createEvent(String title) {
+        Location location = new Location(null, "Lille", "59000", null, null);
+        Event event = new Event();
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle(title);
+        event.setCreator(this.userRepository.findByNickname(this.nicknames.get(0)).orElseThrow());
+        event.setGame(this.game);
+        event.setMinPlayer(2);
+        event.setMaxPlayer(SEATS);
+        event.setStartingDate(LocalDateTime.now().plusDays(1));
+        event.setLocation(location);
+        location.setEvent(event);
+        return this.locationRepository.save(location).getEvent();
+    }
+
+    /**
+     * Count the rows of a participants table for an event
+     * @param table Participants table
+     * @param event Event
+     * @return Number of users
+     */
+    private int count(String table, Event event) {
+        Integer result = this.jdbcTemplate.queryForObject(
+                "select count(*) from "+table+" where event_id = ?", Integer.class, event.getId());
+        Assertions.assertNotNull(result);
+        return result;
+    }
+
+    /**
+     * Every user tries to join every event, in a random order, from many threads
+     */
+    @DisplayName("Stress test : concurrent reservations never overbook an event")
+    @Test
+    public void testConcurrentReservations() throws Exception {
+        // Prepare all the joins
+        List<Callable<Boolean>> joins = new ArrayList<>();
+        Map<String, AtomicInteger> accepted = new ConcurrentHashMap<>();
+        for (Event event : this.events) {
+            accepted.put(event.getUuid(), new AtomicInteger());
+            for (String nickname : this.nicknames) {
+                joins.add(() -> {
+                    boolean added = this.service.addUserInEvent(new EventAddUserDTO(event.getUuid(), nickname));
+                    if (added)
+                        accepted.get(event.getUuid()).incrementAndGet();
+                    return added;
+                });
+            }
+        }
+        Collections.shuffle(joins, new Random(42));
+
+        // Run them
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (Future<Boolean> future : executor.invokeAll(joins))
+            future.get();
+        long elapsed = System.nanoTime()-start;
+        executor.shutdown();
+        System.out.printf("%d joins on %d events with %d threads : %.0f joins/s%n",
+                joins.size(), EVENTS, THREADS, joins.size()/(elapsed/1e9));
+
+        // Check the registered users of each event
+        for (Event event : this.events) {
+            int registered = this.count("event_user", event);
+            Assertions.assertTrue(registered<=SEATS, "Event overbooked : "+registered+" users");
+            Assertions.assertEquals(accepted.get(event.getUuid()).get(), registered);
+            Assertions.assertEquals(SEATS, registered);
+        }
+    }
+
+    /**
+     * Registered users cancel while other users try to join : every freed seat goes to the head
+     * of the waiting queue, and the joining users never get one
+     */
+    @DisplayName("Stress test : concurrent cancellations promote the waiting users in order")
+    @Test
+    public void testConcurrentCancellationsPromoteWaitingUsers() throws Exception {
+        // Fill the event and its waiting queue
+        Event event = this.createEvent("Promotion");
+        List<String> registered = this.nicknames.subList(0, SEATS);
+        List<String> waiting = this.nicknames.subList(SEATS, 2*SEATS);
+        List<String> late = this.nicknames.subList(2*SEATS, 4*SEATS);
+        registered.forEach(n -> this.service.addUserInEvent(new EventAddUserDTO(event.getUuid(), n)));
+        waiting.forEach(n -> this.service.addUserInEventInWaitingQueue(new EventAddUserDTO(event.getUuid(), n)));
+
+        // Half of the registered users cancel, while late users try to join
+        int cancellations = SEATS/2;
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (String nickname : registered.subList(0, cancellations))
+            tasks.add(() -> this.service.removeUserInEvent(new EventRemoveUserDTO(event.getUuid(), nickname)));
+        for (String nickname : late)
+            tasks.add(() -> this.service.addUserInEvent(new EventAddUserDTO(event.getUuid(), nickname)));
+        Collections.shuffle(tasks, new Random(42));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (Future<Boolean> future : executor.invokeAll(tasks))
+            future.get();
+        executor.shutdown();
+
+        // The first waiting users have taken the freed seats
+        Assertions.assertEquals(SEATS, this.count("event_user", event));
+        Assertions.assertEquals(SEATS-cancellations, this.count("event_user_in_queue", event));
+        List<String> promoted = this.jdbcTemplate.queryForList(
+                "select u.nickname from event_user r join user u on u.id = r.user_id where r.event_id = ?",
+                String.class, event.getId());
+        Assertions.assertTrue(promoted.containsAll(waiting.subList(0, cancellations)));
+        Assertions.assertTrue(Collections.disjoint(promoted, late));
+    }
+
+    /**
+     * Users join the waiting queue in the reverse order of their ids : the freed seats are still given
+     * in order of arrival
+     */
+    @DisplayName("Test removeUserInEvent : the waiting queue is served in order of arrival")
+    @Test
+    public void testWaitingQueueServedInOrderOfArrival() {
+        // Fill the event, then the waiting queue by decreasing user ids
+        Event event = this.createEvent("Arrival order");
+        List<String> registered = this.nicknames.subList(0, SEATS);
+        List<String> waiting = new ArrayList<>(this.nicknames.subList(SEATS, 2*SEATS));
+        Collections.reverse(waiting);
+        registered.forEach(n -> this.service.addUserInEvent(new EventAddUserDTO(event.getUuid(), n)));
+        for (String nickname : waiting)
+            Assertions.assertTrue(this.service.addUserInEventInWaitingQueue(
+                    new EventAddUserDTO(event.getUuid(), nickname)));
+
+        // Each cancellation promotes the user who has been waiting the longest
+        for (int i=0; i<3; i++) {
+            Assertions.assertTrue(this.service.removeUserInEvent(
+                    new EventRemoveUserDTO(event.getUuid(), registered.get(i))));
+            Assertions.assertEquals(1, this.jdbcTemplate.queryForObject("select count(*) from event_user r "
+                    + "join user u on u.id = r.user_id where r.event_id = ? and u.nickname = ?",
+                    Integer.class, event.getId(), waiting.get(i)));
+        }
+        Assertions.assertEquals(SEATS-3, this.count("event_user_in_queue", event));
+
+        // The remaining users are listed in order of arrival, by the DTO and by the entity
+        List<String> remaining = waiting.subList(3, SEATS);
+        Assertions.assertEquals(remaining, this.service.findByUuid(event.getUuid()).getWaitingUsers().stream()
+                .map(UserNameDTO::getNickname).collect(Collectors.toList()));
+        Assertions.assertEquals(remaining, new TransactionTemplate(this.transactionManager).execute(status ->
+                this.eventRepository.findByUuid(event.getUuid()).orElseThrow().getWaitingUsers().stream()
+                        .map(User::getNickname).collect(Collectors.toList())));
+    }
+}
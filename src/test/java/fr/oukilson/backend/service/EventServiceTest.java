@@ -4,10 +4,18 @@ import fr.oukilson.backend.dto.event.*;
 import fr.oukilson.backend.entity.Event;
 import fr.oukilson.backend.entity.Game;
 import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.Town;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EventDTOMapper;
+import fr.oukilson.backend.model.EventCursor;
+import fr.oukilson.backend.model.EventHeader;
+import fr.oukilson.backend.model.EventParticipant;
+import fr.oukilson.backend.model.FriendsEventCursor;
+import fr.oukilson.backend.model.NearbyEventCursor;
 import fr.oukilson.backend.repository.EventRepository;
 import fr.oukilson.backend.repository.GameRepository;
 import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.TownRepository;
 import fr.oukilson.backend.repository.UserRepository;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
@@ -18,9 +26,15 @@ import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -34,13 +48,32 @@ public class EventServiceTest {
     private GameRepository gameRepository;
     @MockBean
     private LocationRepository locationRepository;
+    @MockBean
+    private TownRepository townRepository;
     @Autowired
     private ModelMapper mapper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
     private EventService service;
+    private DeniedIndex deniedIndex;
 
     @BeforeAll
     public void init() {
-        service = new EventService(repository, userRepository, gameRepository, locationRepository, mapper);
+        deniedIndex = new DeniedIndex(userRepository, 1 << 16);
+        service = new EventService(repository, userRepository, gameRepository, locationRepository, mapper,
+                new EventDTOMapper(), transactionTemplate, deniedIndex,
+                new TownService(townRepository, locationRepository, new TownIndex(), transactionTemplate));
+    }
+
+    /**
+     * The town dictionary gives back the towns it is asked to add
+     */
+    @BeforeEach
+    public void mockTowns() {
+        BDDMockito.when(this.townRepository.findLockedByNormalizedNameAndZipCode(
+                        ArgumentMatchers.anyString(), ArgumentMatchers.anyString()))
+                .thenAnswer(invocation -> Optional.of(new Town(null, invocation.getArgument(0),
+                        invocation.getArgument(1), invocation.getArgument(0))));
     }
 
     // Convenient methods for testing
@@ -109,6 +142,73 @@ public class EventServiceTest {
         return event;
     }
 
+    /**
+     * Read the columns of an event needed by EventDTO, as the repository does
+     * @param event Event
+     * @return EventHeader
+     */
+    private EventHeader toHeader(Event event) {
+        Location location = event.getLocation();
+        return new EventHeader(event.getId(), event.getUuid(), event.getTitle(),
+                event.getCreator()==null ? null : event.getCreator().getNickname(),
+                event.getGame()==null ? null : event.getGame().getUuid(),
+                event.getGame()==null ? null : event.getGame().getName(),
+                event.getMinPlayer(), event.getMaxPlayer(), event.getCreationDate(), event.getStartingDate(),
+                event.getEndingDate(), event.getLimitDate(), event.getDescription(), event.isPrivate(),
+                location==null ? null : location.getId(), location==null ? null : location.getTown(),
+                location==null ? null : location.getZipCode(), location==null ? null : location.getAddress(),
+                location==null ? null : location.getLatitude(), location==null ? null : location.getLongitude());
+    }
+
+    /**
+     * Mock the repository's queries on the participants of the given events
+     * @param events Events
+     */
+    private void mockParticipants(List<Event> events) {
+        List<EventParticipant> registered = new LinkedList<>();
+        List<EventParticipant> waiting = new LinkedList<>();
+        for (Event event : events) {
+            event.getRegisteredUsers().forEach(
+                    u -> registered.add(new EventParticipant(event.getId(), u.getNickname())));
+            event.getWaitingUsers().forEach(
+                    u -> waiting.add(new EventParticipant(event.getId(), u.getNickname())));
+        }
+        BDDMockito.when(this.repository.findRegisteredUsers(ArgumentMatchers.anyCollection())).thenAnswer(
+                invocation -> this.filterParticipants(registered, invocation.getArgument(0)));
+        BDDMockito.when(this.repository.findWaitingUsers(ArgumentMatchers.anyCollection())).thenAnswer(
+                invocation -> this.filterParticipants(waiting, invocation.getArgument(0)).stream()
+                        .map(p -> new Object[] {p.getEventId(), p.getNickname()})
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Keep the participants of the asked events, as the repository does
+     * @param participants Participants of all the events
+     * @param ids Asked events' id
+     * @return List<EventParticipant>
+     */
+    private List<EventParticipant> filterParticipants(List<EventParticipant> participants, Collection<Long> ids) {
+        List<EventParticipant> result = new LinkedList<>();
+        participants.stream().filter(p -> ids.contains(p.getEventId())).forEach(result::add);
+        return result;
+    }
+
+    // Method deleteByUuid
+
+    /**
+     * Deleting an event only marks it as deleted
+     */
+    @DisplayName("Test : delete an event by its uuid")
+    @Test
+    public void testDeleteByUuid() {
+        String uuid = UUID.randomUUID().toString();
+        BDDMockito.when(this.repository.softDeleteByUuid(ArgumentMatchers.eq(uuid), ArgumentMatchers.any()))
+                .thenReturn(1);
+        Assertions.assertTrue(this.service.deleteByUuid(uuid));
+        BDDMockito.verify(this.repository).softDeleteByUuid(ArgumentMatchers.eq(uuid), ArgumentMatchers.any());
+        BDDMockito.verify(this.repository, BDDMockito.never()).delete(ArgumentMatchers.any());
+    }
+
     // Method findByUuid
 
     /**
@@ -132,7 +232,12 @@ public class EventServiceTest {
         Location location = new Location(1L, "Euralille", "59777", "1 Place François Mitterrand", null);
         Event event = this.createValidEvent(1L, game, user, location);
         location.setEvent(event);
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
+        event.getRegisteredUsers().add(this.createValidFullUser(2L, "titi"));
+        event.getRegisteredUsers().add(this.createValidFullUser(3L, "tata"));
+        event.getWaitingUsers().add(this.createValidFullUser(4L, "tutu"));
+        BDDMockito.when(this.repository.findHeaderByUuid(event.getUuid()))
+                .thenReturn(Optional.of(this.toHeader(event)));
+        this.mockParticipants(List.of(event));
 
         // Get the event
         EventDTO eventDTO = this.service.findByUuid(event.getUuid());
@@ -143,149 +248,457 @@ public class EventServiceTest {
         Assertions.assertEquals(eventInDB, eventDTO);
     }
 
-    // Method findByFilter
+    // Method search
 
     /**
-     * Testing for search event method by giving a town filter.
-     * Should return all events in the given town.
+     * Create a list of valid events, starting one day after the other
+     * @param size Number of events
+     * @return List<Event>
      */
-    @DisplayName("Test : find all events, town only, no date")
-    @Test
-    public void testFindAllEventsByTownOnly() {
-        // Setting up
+    private List<Event> createValidEvents(int size) {
         List<Event> events = new LinkedList<>();
-        int size = 4;
-        String town = "Lyon";
         for (int i=0; i<size; i++) {
             User user = this.createValidFullUser((long)i, "Nom"+i);
             Game game = this.createValidFullGame((long)i, "Jeu "+i);
-            Location loc = new Location((long)i, town, null, null, null);
+            Location loc = new Location((long)i, "Ville "+i, null, null, null);
             Event event = this.createValidEvent((long)i, game, user, loc);
+            event.setStartingDate(event.getStartingDate().plusDays(i));
+            event.getRegisteredUsers().add(this.createValidFullUser(100L+i, "Joueur"+i));
+            event.getWaitingUsers().add(this.createValidFullUser(200L+i, "Attente"+i));
             loc.setEvent(event);
             events.add(event);
         }
-        BDDMockito.when(this.repository.findAllByLocationTownContaining(town)).thenReturn(events);
-        BDDMockito.when(this.repository.findAllByStartingDateAfter(ArgumentMatchers.any(LocalDateTime.class)))
-                .thenReturn(new LinkedList<>());
+        return events;
+    }
 
-        List<EventDTO> result = this.service.findByFilter("", town);
-        Assertions.assertNotNull(result);
-        Assertions.assertEquals(events.size(), result.size());
-        for (int i=0; i<size; i++) {
-            Assertions.assertEquals(this.mapper.map(events.get(i), EventDTO.class), result.get(i));
-        }
+    /**
+     * Mock the repository's search method to return the given events
+     * @param events Events found
+     */
+    private void mockSearch(List<Event> events) {
+        List<EventHeader> headers = new LinkedList<>();
+        events.forEach(e -> headers.add(this.toHeader(e)));
+        BDDMockito.when(this.repository.findHeaders(
+                ArgumentMatchers.<Specification<Event>>any(),
+                ArgumentMatchers.any(Sort.class),
+                ArgumentMatchers.anyInt())).thenReturn(headers);
+        this.mockParticipants(events);
     }
 
     /**
-     * Testing for search event method by giving a date filter.
-     * Must return all events after the given date.
+     * Testing the search without any filter.
+     * Should return all events found, without any cursor.
      */
-    @DisplayName("Test : find all events, date only, no town")
+    @DisplayName("Test search : no filter, only one page")
     @Test
-    public void testFindAllEventsByDateAfterOnly() {
-        // Setting up
-        List<Event> events = new LinkedList<>();
-        int size = 8;
-        for (int i=0; i<size; i++) {
-            User user = this.createValidFullUser((long)i, "Nom"+i);
-            Game game = this.createValidFullGame((long)i, "Jeu "+i);
-            Location loc = new Location((long)i, "Ville "+i, null, null, null);
-            Event event = this.createValidEvent((long)i, game, user, loc);
-            loc.setEvent(event);
-            events.add(event);
-        }
-        LocalDateTime date = events.get(0).getStartingDate().minusYears(1);
-        BDDMockito.when(this.repository.findAllByLocationTownContaining(ArgumentMatchers.anyString()))
-                .thenReturn(new LinkedList<>());
-        BDDMockito.when(this.repository.findAllByStartingDateAfter(date)).thenReturn(events);
+    public void testSearchWithoutFilter() {
+        List<Event> events = this.createValidEvents(4);
+        this.mockSearch(events);
 
-        List<EventDTO> result = this.service.findByFilter(date.toString(), "");
+        EventPageDTO result = this.service.search(new EventSearchDTO());
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(events.size(), result.size());
-        for (int i=0; i<size; i++) {
-            Assertions.assertEquals(this.mapper.map(events.get(i), EventDTO.class), result.get(i));
+        Assertions.assertNull(result.getNextCursor());
+        Assertions.assertEquals(events.size(), result.getEvents().size());
+        for (int i=0; i<events.size(); i++) {
+            Assertions.assertEquals(this.mapper.map(events.get(i), EventDTO.class), result.getEvents().get(i));
         }
     }
 
     /**
-     * Testing for search event method by giving empty filters.
-     * Must return an empty list.
+     * Testing the search when there are more events than the page size.
+     * Should return a full page and a cursor pointing to the last event of the page.
      */
-    @DisplayName("Test : find all events, empty date & town")
+    @DisplayName("Test search : more events than the page size")
     @Test
-    public void testFindAllEventsWithEmptyFilters() {
-        EventSearchDTO toSearch = new EventSearchDTO();
-        List<EventDTO> result = this.service.findByFilter("", "");
+    public void testSearchWhenThereIsANextPage() {
+        int size = 3;
+        List<Event> events = this.createValidEvents(size+1);
+        this.mockSearch(events);
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setSize(size);
+
+        EventPageDTO result = this.service.search(filters);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(size, result.getEvents().size());
+        Assertions.assertNotNull(result.getNextCursor());
+        EventCursor cursor = EventCursor.decode(result.getNextCursor());
+        Assertions.assertEquals(events.get(size-1).getStartingDate(), cursor.getStartingDate());
+        Assertions.assertEquals(events.get(size-1).getId(), cursor.getId());
+        BDDMockito.verify(this.repository).findHeaders(
+                ArgumentMatchers.<Specification<Event>>any(),
+                ArgumentMatchers.any(Sort.class),
+                ArgumentMatchers.eq(size+1));
+    }
+
+    /**
+     * Testing the search with every filter set
+     */
+    @DisplayName("Test search : all filters are set")
+    @Test
+    public void testSearchWithAllFilters() {
+        List<Event> events = this.createValidEvents(2);
+        this.mockSearch(events);
+        LocalDateTime date = LocalDateTime.now();
+        EventSearchDTO filters = new EventSearchDTO(
+                date.toString(),
+                date.plusMonths(1).toString(),
+                "Lyon",
+                "69001",
+                events.get(0).getGame().getUuid(),
+                true,
+                false,
+                new EventCursor(date, 12L).encode(),
+                10);
+
+        EventPageDTO result = this.service.search(filters);
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(0, result.size());
+        Assertions.assertNull(result.getNextCursor());
+        Assertions.assertEquals(events.size(), result.getEvents().size());
     }
 
     /**
-     * Testing for search event method by giving no filters.
-     * Should return an empty list
+     * Testing the search with blank filters; they must be ignored
      */
-    @DisplayName("Test : search when date is null")
+    @DisplayName("Test search : blank filters are ignored")
     @Test
-    public void testFindAllEventsWithNullDate() {
-        EventSearchDTO toSearch = new EventSearchDTO();
-        List<EventDTO> result = this.service.findByFilter(null, null);
+    public void testSearchWithBlankFilters() {
+        this.mockSearch(new LinkedList<>());
+        EventSearchDTO filters = new EventSearchDTO("", " ", "", "", "", null, null, "", null);
+
+        EventPageDTO result = this.service.search(filters);
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(0, result.size());
+        Assertions.assertEquals(0, result.getEvents().size());
+        Assertions.assertNull(result.getNextCursor());
     }
 
     /**
-     * Testing for search event method by giving null filters.
-     * Should return an empty list
+     * Testing the search with a malformed starting date
      */
-    @DisplayName("Test : search when all filters are null")
+    @DisplayName("Test search : invalid date throws IllegalArgumentException")
     @Test
-    public void testFindAllEventsWithNullDateAndNullTown() {
-        EventSearchDTO toSearch = new EventSearchDTO();
-        List<EventDTO> result = this.service.findByFilter(null, null);
-        Assertions.assertNotNull(result);
-        Assertions.assertEquals(0, result.size());
+    public void testSearchWithInvalidDate() {
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setDate("tomorrow");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.search(filters));
     }
 
     /**
-     * Testing for search event method by giving both town and date filters.
-     * If both are present, then the date filter takes priority.
+     * Testing the search with a malformed ending date
      */
-    @DisplayName("Test : find events when town & date filters are initialized")
+    @DisplayName("Test search : invalid end date throws IllegalArgumentException")
     @Test
-    public void testFindAllEventsWithBothDateAndTownGiven() {
-        String town = "Nancy";
-        List<Event> townEvents = new LinkedList<>();
-        List<Event> dateEvents = new LinkedList<>();
-        int size = 3;
-        for (int i=0; i<size; i++) {
-            User user = this.createValidFullUser((long)i, "Nom"+i);
-            Game game = this.createValidFullGame((long)i, "Jeu "+i);
-            Location loc = new Location((long)i, "Ville "+i, null, null, null);
-            Event event = this.createValidEvent((long)i, game, user, loc);
-            loc.setEvent(event);
-            dateEvents.add(event);
-        }
-        LocalDateTime date = dateEvents.get(0).getStartingDate().minusYears(1);
-        size += 2;
-        Location loc = new Location((long) size, town, null, null, null);
-        for (int i=0; i<size; i++) {
-            User user = this.createValidFullUser(2L *size+i, "NomBis"+i);
-            Game game = this.createValidFullGame(2L *size+i, "JeuBis"+i);
-            Event event = this.createValidEvent(2L *size+i, game, user, loc);
-            loc.setEvent(event);
-            townEvents.add(event);
-        }
+    public void testSearchWithInvalidEndDate() {
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setEndDate("2022-13-45");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.search(filters));
+    }
+
+    /**
+     * Testing the search with a cursor which has not been created by the service
+     */
+    @DisplayName("Test search : invalid cursor throws IllegalArgumentException")
+    @Test
+    public void testSearchWithInvalidCursor() {
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setCursor("not a cursor");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.search(filters));
+    }
+
+    /**
+     * Testing the search with page sizes out of bounds
+     */
+    @DisplayName("Test search : invalid page size throws IllegalArgumentException")
+    @Test
+    public void testSearchWithInvalidPageSize() {
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setSize(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.search(filters));
+        filters.setSize(101);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.search(filters));
+    }
+
+    // Method export
+
+    /**
+     * Mock the repository's stream of events
+     * @param events Events found
+     * @param closed Set to true when the stream is closed
+     */
+    private void mockExport(List<Event> events, AtomicBoolean closed) {
+        List<EventHeader> headers = new ArrayList<>();
+        events.forEach(e -> headers.add(this.toHeader(e)));
+        BDDMockito.when(this.repository.streamHeaders(
+                ArgumentMatchers.<Specification<Event>>any(),
+                ArgumentMatchers.any(Sort.class),
+                ArgumentMatchers.anyInt())).thenReturn(headers.stream().onClose(() -> closed.set(true)));
+        this.mockParticipants(events);
+    }
+
+    /**
+     * Testing the export of a few events : they must all come in one chunk, and the stream must be closed
+     */
+    @DisplayName("Test export : all events in one chunk")
+    @Test
+    public void testExport() {
+        List<Event> events = this.createValidEvents(3);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        this.mockExport(events, closed);
+
+        List<List<EventDTO>> chunks = new ArrayList<>();
+        this.service.export(new EventSearchDTO()).forEachChunk(chunks::add);
+        Assertions.assertEquals(1, chunks.size());
+        Assertions.assertEquals(events.size(), chunks.get(0).size());
+        for (int i=0; i<events.size(); i++)
+            Assertions.assertEquals(this.mapper.map(events.get(i), EventDTO.class), chunks.get(0).get(i));
+        Assertions.assertTrue(closed.get());
+    }
+
+    /**
+     * Testing the export of more events than a chunk can hold : the last chunk gets the remaining events
+     */
+    @DisplayName("Test export : events split in chunks")
+    @Test
+    public void testExportInChunks() {
+        List<Event> events = this.createValidEvents(501);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        this.mockExport(events, closed);
+
+        List<EventDTO> exported = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        this.service.export(new EventSearchDTO()).forEachChunk(chunk -> {
+            sizes.add(chunk.size());
+            exported.addAll(chunk);
+        });
+        Assertions.assertEquals(List.of(500, 1), sizes);
+        Assertions.assertEquals(events.get(500).getUuid(), exported.get(500).getUuid());
+        Assertions.assertEquals(events.get(500).getRegisteredUsers().iterator().next().getNickname(),
+                exported.get(500).getRegisteredUsers().get(0).getNickname());
+        Assertions.assertTrue(closed.get());
+    }
+
+    /**
+     * Testing the export with a malformed date : it must be refused before reading any event
+     */
+    @DisplayName("Test export : invalid date throws IllegalArgumentException")
+    @Test
+    public void testExportWithInvalidDate() {
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setDate("tomorrow");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.export(filters));
+        BDDMockito.verify(this.repository, BDDMockito.never()).streamHeaders(
+                ArgumentMatchers.<Specification<Event>>any(),
+                ArgumentMatchers.any(Sort.class),
+                ArgumentMatchers.anyInt());
+    }
 
-        BDDMockito.when(this.repository.findAllByLocationTownContaining(town)).thenReturn(townEvents);
-        BDDMockito.when(this.repository.findAllByStartingDateAfter(date)).thenReturn(dateEvents);
+    // Method findFriendsEvents
 
-        List<EventDTO> result = this.service.findByFilter(date.toString(), town);
+    /**
+     * Mock the ranking of events by friends, and the reading of the ranked events.
+     * The events' columns are returned in their starting order, not in the ranking's one, as the repository does.
+     * @param events Events, in the ranking's order
+     * @param friends Number of friends of each event
+     */
+    private void mockFriendsEvents(List<Event> events, int... friends) {
+        BDDMockito.when(this.userRepository.findIdByNickname("Ami")).thenReturn(Optional.of(10L));
+        List<Object[]> ranks = new ArrayList<>();
+        for (int i=0; i<events.size(); i++)
+            ranks.add(new Object[] {BigInteger.valueOf(events.get(i).getId()), BigInteger.valueOf(friends[i])});
+        BDDMockito.when(this.repository.rankByFriends(ArgumentMatchers.eq(10L), ArgumentMatchers.any(),
+                ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.anyInt()))
+                .thenReturn(ranks);
+        List<Event> byDate = new ArrayList<>(events);
+        byDate.sort(Comparator.comparing(Event::getStartingDate));
+        this.mockSearch(byDate);
+    }
+
+    /**
+     * Testing the events of friends : they must keep the ranking's order, with their number of friends
+     */
+    @DisplayName("Test findFriendsEvents : events in the ranking's order")
+    @Test
+    public void testFindFriendsEvents() {
+        List<Event> events = this.createValidEvents(3);
+        List<Event> ranked = List.of(events.get(2), events.get(0), events.get(1));
+        this.mockFriendsEvents(ranked, 5, 2, 2);
+
+        FriendsEventPageDTO result = this.service.findFriendsEvents("Ami", null, null);
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(dateEvents.size(), result.size());
-        Assertions.assertNotEquals(townEvents.size(), result.size());
-        for (int i=0; i<dateEvents.size(); i++) {
-            Assertions.assertEquals(this.mapper.map(dateEvents.get(i), EventDTO.class), result.get(i));
+        Assertions.assertNull(result.getNextCursor());
+        Assertions.assertEquals(ranked.size(), result.getEvents().size());
+        int[] friends = {5, 2, 2};
+        for (int i=0; i<ranked.size(); i++) {
+            FriendsEventDTO event = result.getEvents().get(i);
+            Assertions.assertEquals(this.mapper.map(ranked.get(i), EventDTO.class), event.getEvent());
+            Assertions.assertEquals(friends[i], event.getFriends());
         }
+        BDDMockito.verify(this.repository).rankByFriends(ArgumentMatchers.eq(10L), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(Integer.MAX_VALUE), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(21));
+    }
+
+    /**
+     * Testing the events of friends when there are more events than the page size.
+     * The cursor must point to the last event of the page, and be given back to the ranking.
+     */
+    @DisplayName("Test findFriendsEvents : more events than the page size")
+    @Test
+    public void testFindFriendsEventsWhenThereIsANextPage() {
+        List<Event> events = this.createValidEvents(3);
+        this.mockFriendsEvents(events, 3, 2, 1);
+
+        FriendsEventPageDTO result = this.service.findFriendsEvents("Ami", null, 2);
+        Assertions.assertEquals(2, result.getEvents().size());
+        Assertions.assertNotNull(result.getNextCursor());
+        FriendsEventCursor cursor = FriendsEventCursor.decode(result.getNextCursor());
+        Assertions.assertEquals(new FriendsEventCursor(2, events.get(1).getStartingDate(), events.get(1).getId()),
+                cursor);
+
+        this.service.findFriendsEvents("Ami", result.getNextCursor(), 2);
+        BDDMockito.verify(this.repository).rankByFriends(ArgumentMatchers.eq(10L), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(2), ArgumentMatchers.eq(cursor.getStartingDate()),
+                ArgumentMatchers.eq(cursor.getId()), ArgumentMatchers.eq(3));
+    }
+
+    /**
+     * Testing the events of friends of an unknown user : should return null without ranking any event
+     */
+    @DisplayName("Test findFriendsEvents : unknown user")
+    @Test
+    public void testFindFriendsEventsWithUnknownUser() {
+        BDDMockito.when(this.userRepository.findIdByNickname("Inconnu")).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.findFriendsEvents("Inconnu", null, null));
+        BDDMockito.verify(this.repository, BDDMockito.never()).rankByFriends(ArgumentMatchers.any(),
+                ArgumentMatchers.any(), ArgumentMatchers.anyInt(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.anyInt());
+    }
+
+    /**
+     * Testing the events of friends with an invalid page size or cursor
+     */
+    @DisplayName("Test findFriendsEvents : invalid parameters throw IllegalArgumentException")
+    @Test
+    public void testFindFriendsEventsWithInvalidParameters() {
+        BDDMockito.when(this.userRepository.findIdByNickname("Ami")).thenReturn(Optional.of(10L));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findFriendsEvents("Ami", null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findFriendsEvents("Ami", null, 101));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findFriendsEvents("Ami", "not a cursor", null));
+    }
+
+    // Method findNearbyEvents
+
+    /**
+     * Mock the events found near a point, and the reading of these events.
+     * The events' columns are returned in their starting order, not in the distance's one, as the repository does.
+     * @param events Events, nearest first
+     * @param distances Distance of each event
+     */
+    private void mockNearbyEvents(List<Event> events, double... distances) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i=0; i<events.size(); i++)
+            rows.add(new Object[] {BigInteger.valueOf(events.get(i).getId()), distances[i]});
+        BDDMockito.when(this.repository.findNearby(ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(), ArgumentMatchers.any(),
+                ArgumentMatchers.anyDouble(), ArgumentMatchers.any(), ArgumentMatchers.anyInt())).thenReturn(rows);
+        List<Event> byDate = new ArrayList<>(events);
+        byDate.sort(Comparator.comparing(Event::getStartingDate));
+        this.mockSearch(byDate);
+    }
+
+    /**
+     * Testing the events near a point : they must keep the distance's order, inside the circle's bounding box
+     */
+    @DisplayName("Test findNearbyEvents : events nearest first")
+    @Test
+    public void testFindNearbyEvents() {
+        List<Event> events = this.createValidEvents(3);
+        List<Event> nearest = List.of(events.get(2), events.get(0), events.get(1));
+        this.mockNearbyEvents(nearest, 0.5, 1.2, 4.8);
+
+        NearbyEventPageDTO result = this.service.findNearbyEvents(50.0, 3.0, 10.0, null, null);
+        Assertions.assertNull(result.getNextCursor());
+        Assertions.assertEquals(nearest.size(), result.getEvents().size());
+        double[] distances = {0.5, 1.2, 4.8};
+        for (int i=0; i<nearest.size(); i++) {
+            NearbyEventDTO event = result.getEvents().get(i);
+            Assertions.assertEquals(this.mapper.map(nearest.get(i), EventDTO.class), event.getEvent());
+            Assertions.assertEquals(distances[i], event.getDistance());
+        }
+        // 10 km are about 0.09° of latitude, and 0.14° of longitude at 50°N
+        BDDMockito.verify(this.repository).findNearby(ArgumentMatchers.eq(50.0), ArgumentMatchers.eq(3.0),
+                ArgumentMatchers.doubleThat(d -> Math.abs(d-49.91)<0.001),
+                ArgumentMatchers.doubleThat(d -> Math.abs(d-50.09)<0.001),
+                ArgumentMatchers.doubleThat(d -> Math.abs(d-2.86)<0.001),
+                ArgumentMatchers.doubleThat(d -> Math.abs(d-3.14)<0.001),
+                ArgumentMatchers.eq(10.0), ArgumentMatchers.any(), ArgumentMatchers.eq(-1.0),
+                ArgumentMatchers.eq(0L), ArgumentMatchers.eq(21));
+    }
+
+    /**
+     * Testing the events near a pole or the 180th meridian : the bounding box takes all the longitudes
+     */
+    @DisplayName("Test findNearbyEvents : bounding box around a pole or the 180th meridian")
+    @Test
+    public void testFindNearbyEventsOnTheEdgesOfTheMap() {
+        this.mockNearbyEvents(List.of());
+        this.service.findNearbyEvents(89.95, 0.0, 10.0, null, null);
+        this.service.findNearbyEvents(0.0, 179.95, 10.0, null, null);
+        BDDMockito.verify(this.repository, BDDMockito.times(2)).findNearby(ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.eq(-180.0), ArgumentMatchers.eq(180.0), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.any(), ArgumentMatchers.anyDouble(), ArgumentMatchers.any(),
+                ArgumentMatchers.anyInt());
+    }
+
+    /**
+     * Testing the events near a point when there are more events than the page size.
+     * The cursor must point to the last event of the page, and be given back to the repository.
+     */
+    @DisplayName("Test findNearbyEvents : more events than the page size")
+    @Test
+    public void testFindNearbyEventsWhenThereIsANextPage() {
+        List<Event> events = this.createValidEvents(3);
+        this.mockNearbyEvents(events, 0.5, 1.2, 4.8);
+
+        NearbyEventPageDTO result = this.service.findNearbyEvents(50.0, 3.0, 10.0, null, 2);
+        Assertions.assertEquals(2, result.getEvents().size());
+        NearbyEventCursor cursor = NearbyEventCursor.decode(result.getNextCursor());
+        Assertions.assertEquals(new NearbyEventCursor(1.2, events.get(1).getId()), cursor);
+
+        this.service.findNearbyEvents(50.0, 3.0, 10.0, result.getNextCursor(), 2);
+        BDDMockito.verify(this.repository).findNearby(ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.anyDouble(), ArgumentMatchers.anyDouble(), ArgumentMatchers.any(),
+                ArgumentMatchers.eq(1.2), ArgumentMatchers.eq(cursor.getId()), ArgumentMatchers.eq(3));
+    }
+
+    /**
+     * Testing the events near a point with an invalid point, radius, page size or cursor
+     */
+    @DisplayName("Test findNearbyEvents : invalid parameters throw IllegalArgumentException")
+    @Test
+    public void testFindNearbyEventsWithInvalidParameters() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(null, 3.0, 10.0, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(90.5, 3.0, 10.0, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(50.0, -180.5, 10.0, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(Double.NaN, 3.0, 10.0, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(50.0, 3.0, 0.0, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(50.0, 3.0, 200.5, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(50.0, 3.0, 10.0, null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findNearbyEvents(50.0, 3.0, 10.0, "not a cursor", null));
+        BDDMockito.verifyNoInteractions(this.repository);
     }
 
     // Method save
@@ -325,6 +738,35 @@ public class EventServiceTest {
         }
     }
 
+    /**
+     * Testing event creation : the location must be linked to its town in the dictionary, found by its
+     * normalized name and zip code
+     */
+    @DisplayName("Test : create an event linked to its town")
+    @Test
+    public void testSaveLinksTheLocationToItsTown() {
+        // Mock event
+        Game game = this.createValidFullGame(10L, "Innovation");
+        User user = this.createValidFullUser(10L, "SuperAlbert");
+        Location location = new Location(10L, "Saint-Étienne", "42000", "1 Place Jean Jaurès", null);
+        Event event = this.createValidEvent(10L, game, user, location);
+        location.setEvent(event);
+        Town town = new Town(5L, "Saint-Etienne", "42000", "saint etienne");
+        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
+        BDDMockito.when(this.townRepository.findByNormalizedNameAndZipCode("saint etienne", "42000"))
+                .thenReturn(Optional.of(town));
+        BDDMockito.when(this.locationRepository.save(ArgumentMatchers.any(Location.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Save and assert
+        this.service.save(this.mapper.map(event, EventCreateDTO.class));
+        BDDMockito.verify(this.locationRepository).save(ArgumentMatchers.argThat(saved ->
+                saved.getReferenceTown()==town && "Saint-Étienne".equals(saved.getTown())));
+        BDDMockito.verify(this.townRepository, BDDMockito.never()).insertIgnore(
+                ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
     /**
      * Testing correct event creation with no ending date
      */
@@ -760,6 +1202,42 @@ public class EventServiceTest {
         }
     }
 
+    /**
+     * Update event testing when the maximal number of players is raised :
+     * the waiting users fill the new seats and the reloaded event is returned
+     */
+    @DisplayName("Test : update event with more players promotes waiting users")
+    @Test
+    public void testUpdateWhenMaxPlayerIsRaised() {
+        // Mock event
+        Game game = this.createValidFullGame(10L, "Innovation");
+        User user = this.createValidFullUser(10L, "SuperAlbert");
+        Location location = new Location(10L, "Gan", "64290", "123 Rue d'Ossau", null);
+        Event event = this.createValidEvent(10L, game, user, location);
+        location.setEvent(event);
+        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
+        BDDMockito.when(this.gameRepository.findByUuid(game.getUuid())).thenReturn(Optional.of(game));
+
+        // The new event, with two promoted users
+        Event newEvent = new Event();
+        this.mapper.map(event, newEvent);
+        newEvent.setMaxPlayer(event.getMaxPlayer()+2);
+        EventUpdateDTO toUpdate = this.mapper.map(newEvent, EventUpdateDTO.class);
+        newEvent.getRegisteredUsers().add(this.createValidFullUser(11L, "Waiter1"));
+        newEvent.getRegisteredUsers().add(this.createValidFullUser(12L, "Waiter2"));
+        BDDMockito.when(this.repository.save(ArgumentMatchers.any(Event.class))).thenReturn(newEvent);
+        BDDMockito.when(this.repository.countFreeSeats(event.getId())).thenReturn(2);
+        BDDMockito.when(this.repository.findFirstWaitingUserIds(event.getId(), 2)).thenReturn(List.of(11L, 12L));
+        BDDMockito.when(this.repository.insertWaitingUsersAsRegistered(event.getId(), List.of(11L, 12L)))
+                .thenReturn(2);
+        BDDMockito.when(this.repository.findById(event.getId())).thenReturn(Optional.of(newEvent));
+
+        // Assert
+        EventDTO result = this.service.update(toUpdate);
+        Assertions.assertEquals(this.mapper.map(newEvent, EventDTO.class), result);
+        BDDMockito.verify(this.repository).deleteWaitingUsers(event.getId(), List.of(11L, 12L));
+    }
+
     /**
      * Update event testing when ending date is null
      */
@@ -1216,8 +1694,7 @@ public class EventServiceTest {
     @DisplayName("Test addUserInEvent : when event's uuid is null")
     @Test
     public void testAddUserInEventWithNullEventUuid() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        tuple.setNickname("toto");
+        EventAddUserDTO tuple = new EventAddUserDTO(null, "toto");
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
 
@@ -1227,101 +1704,135 @@ public class EventServiceTest {
     @DisplayName("Test addUserInEvent : when user's name is null")
     @Test
     public void testAddUserInEventWithNullUserName() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        tuple.setUuid("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81");
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", null);
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
 
     /**
-     * Test method addUserInEvent when the game doesn't exist in database
+     * Test method addUserInEvent when the event doesn't exist in database
      */
-    @DisplayName("Test addUserInEvent : when game is not in database")
+    @DisplayName("Test addUserInEvent : when event is not in database")
     @Test
-    public void testAddUserInEventWhenGameDoesntExist() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        tuple.setNickname("toto");
-        tuple.setUuid("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81");
+    public void testAddUserInEventWhenEventDoesntExist() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
 
     /**
      * Test method addUserInEvent when the user doesn't exist in database
      */
-    @DisplayName("Test addUserInEvent : when game is not in database")
+    @DisplayName("Test addUserInEvent : when user is not in database")
     @Test
     public void testAddUserInEventWhenUserDoesntExist() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setNickname("toto");
-        tuple.setUuid(event.getUuid());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
 
     /**
-     * Test method addUserInEvent when everything is fine
+     * Test method addUserInEvent when the user is added in the registered list
      */
     @DisplayName("Test addUserInEvent : when everything is fine")
     @Test
     public void testAddUserInEvent() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        User user = this.createValidFullUser(1L, "toto");
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setUuid(event.getUuid());
-        tuple.setNickname(user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.insertRegisteredUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
         Assertions.assertTrue(this.service.addUserInEvent(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).save(ArgumentMatchers.any(Event.class));
     }
 
     /**
-     * Test method addUserInEvent when user is already in the registered list
+     * Test method addUserInEvent when the registered list is full or the user is already in one of the lists : no row is affected
      */
-    @DisplayName("Test addUserInEvent : when user is already in the registered list")
+    @DisplayName("Test addUserInEvent : when the statement affects no row")
     @Test
-    public void testAddUserInEventWhenUserAlreadyInRegisteredList() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        User user = this.createValidFullUser(1L, "toto");
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setUuid(event.getUuid());
-        tuple.setNickname(user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
-        event.addUser(user);
+    public void testAddUserInEventWhenNothingChanges() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.insertRegisteredUser(1L, 2L)).thenReturn(0);
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
     }
 
     /**
-     * Test method addUserInEvent when user is already in the waiting list
+     * Test method addUserInEvent when the event's creator has denied the user : nothing must be inserted
      */
-    @DisplayName("Test addUserInEvent : when user is already in the waiting list")
+    @DisplayName("Test addUserInEvent : user denied by the creator")
     @Test
-    public void testAddUserInEventWhenUserAlreadyInWaitingList() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        User user = this.createValidFullUser(1L, "toto");
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setUuid(event.getUuid());
-        tuple.setNickname(user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
-        event.addUserInWaitingQueue(user);
+    public void testAddUserInEventWhenDenied() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(60L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.findCreatorIdById(1L)).thenReturn(Optional.of(50L));
+        BDDMockito.when(this.userRepository.countDenied(50L, 60L)).thenReturn(1);
+        this.deniedIndex.add(50L, 60L);
+
         Assertions.assertFalse(this.service.addUserInEvent(tuple));
+        Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).insertRegisteredUser(1L, 60L);
+        BDDMockito.verify(this.repository, BDDMockito.never()).insertWaitingUser(1L, 60L);
+    }
+
+    /**
+     * Test method addUserInEvent when nobody has denied the user : the creator is not even read
+     */
+    @DisplayName("Test addUserInEvent : denials checked in memory")
+    @Test
+    public void testAddUserInEventWhenNotDenied() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(70L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.insertRegisteredUser(1L, 70L)).thenReturn(1);
+
+        Assertions.assertTrue(this.service.addUserInEvent(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).findCreatorIdById(ArgumentMatchers.any());
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .countDenied(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    /**
+     * Test method addUserInEvent when another reservation is committed after the version read :
+     * the reservation must be tried again with the new version
+     */
+    @DisplayName("Test addUserInEvent : retried after a concurrent reservation")
+    @Test
+    public void testAddUserInEventWhenVersionChanges() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L), Optional.of(8L));
+        BDDMockito.when(this.repository.insertRegisteredUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(0);
+        BDDMockito.when(this.repository.incrementVersion(1L, 8L)).thenReturn(1);
+        Assertions.assertTrue(this.service.addUserInEvent(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.times(1)).insertRegisteredUser(1L, 2L);
+    }
+
+    /**
+     * Test method addUserInEvent when every attempt collides with another reservation
+     */
+    @DisplayName("Test addUserInEvent : false when all the attempts fail")
+    @Test
+    public void testAddUserInEventWhenVersionAlwaysChanges() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.insertRegisteredUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(0);
+        Assertions.assertFalse(this.service.addUserInEvent(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).insertRegisteredUser(1L, 2L);
     }
 
     // Method addUserInEventInWaitingQueue
@@ -1341,8 +1852,7 @@ public class EventServiceTest {
     @DisplayName("Test addUserInEventInWaitingQueue : when event's uuid is null")
     @Test
     public void testAddUserInEventInWaitingQueueWithNullEventUuid() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        tuple.setNickname("toto");
+        EventAddUserDTO tuple = new EventAddUserDTO(null, "toto");
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
 
@@ -1352,118 +1862,78 @@ public class EventServiceTest {
     @DisplayName("Test addUserInEventInWaitingQueue : when user's name is null")
     @Test
     public void testAddUserInEventInWaitingQueueWithNullUserName() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        tuple.setUuid("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81");
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", null);
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
 
     /**
-     * Test method addUserInEventInWaitingQueue when the game doesn't exist in database
+     * Test method addUserInEventInWaitingQueue when the event doesn't exist in database
      */
-    @DisplayName("Test addUserInEventInWaitingQueue : when game is not in database")
+    @DisplayName("Test addUserInEventInWaitingQueue : when event is not in database")
     @Test
-    public void testAddUserInEventInWaitingQueueWhenGameDoesntExist() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        tuple.setNickname("toto");
-        tuple.setUuid("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81");
+    public void testAddUserInEventInWaitingQueueWhenEventDoesntExist() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
 
     /**
      * Test method addUserInEventInWaitingQueue when the user doesn't exist in database
      */
-    @DisplayName("Test addUserInEventInWaitingQueue : when game is not in database")
+    @DisplayName("Test addUserInEventInWaitingQueue : when user is not in database")
     @Test
     public void testAddUserInEventInWaitingQueueWhenUserDoesntExist() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setNickname("toto");
-        tuple.setUuid(event.getUuid());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
 
     /**
-     * Test method addUserInEventInWaitingQueue when everything is fine
+     * Test method addUserInEventInWaitingQueue when the user is added in the waiting list
      */
     @DisplayName("Test addUserInEventInWaitingQueue : when everything is fine")
     @Test
     public void testAddUserInEventInWaitingQueue() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        User user = this.createValidFullUser(1L, "toto");
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setUuid(event.getUuid());
-        tuple.setNickname(user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.insertWaitingUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
         Assertions.assertTrue(this.service.addUserInEventInWaitingQueue(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).save(ArgumentMatchers.any(Event.class));
     }
 
     /**
-     * Test method addUserInEventInWaitingQueue when user is already in the registered list
+     * Test method addUserInEventInWaitingQueue when the waiting list is full or the user is already in one of the lists : no row is affected
      */
-    @DisplayName("Test addUserInEventInWaitingQueue : when user is already in the registered list")
+    @DisplayName("Test addUserInEventInWaitingQueue : when the statement affects no row")
     @Test
-    public void testAddUserInEventInWaitingQueueWhenUserAlreadyInRegisteredList() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        User user = this.createValidFullUser(1L, "toto");
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setUuid(event.getUuid());
-        tuple.setNickname(user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
-        event.addUser(user);
-        Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
-    }
-
-    /**
-     * Test method addUserInEventInWaitingQueue when user is already in the waiting list
-     */
-    @DisplayName("Test addUserInEventInWaitingQueue : when user is already in the waiting list")
-    @Test
-    public void testAddUserInEventInWaitingQueueWhenUserAlreadyInWaitingList() {
-        EventAddUserDTO tuple = new EventAddUserDTO();
-        User user = this.createValidFullUser(1L, "toto");
-        Event event = this.createValidEvent(
-                1L,
-                this.createValidFullGame(1L, "Le jeu"),
-                this.createValidFullUser(100L, "Bidulle"),
-                new Location(100L, "Paris", null, null, null));
-        tuple.setUuid(event.getUuid());
-        tuple.setNickname(user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(event.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
-        event.addUserInWaitingQueue(user);
+    public void testAddUserInEventInWaitingQueueWhenNothingChanges() {
+        EventAddUserDTO tuple = new EventAddUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.insertWaitingUser(1L, 2L)).thenReturn(0);
         Assertions.assertFalse(this.service.addUserInEventInWaitingQueue(tuple));
     }
 
     // Method removeUserInEvent
 
     /**
-     * Test removeUserInEvent when used with a null argument
+     * Test method removeUserInEvent when given argument is null
      */
-    @DisplayName("Test removeUserInEvent : given argument is null")
+    @DisplayName("Test removeUserInEvent : when given argument is null")
     @Test
     public void testRemoveUserInEventWithNullArgument() {
         Assertions.assertFalse(this.service.removeUserInEvent(null));
     }
 
     /**
-     * Test removeUserInEvent when used with a null event's uuid
+     * Test method removeUserInEvent when event's uuid is null
      */
-    @DisplayName("Test removeUserInEvent : event's uuid is null")
+    @DisplayName("Test removeUserInEvent : when event's uuid is null")
     @Test
     public void testRemoveUserInEventWithNullEventUuid() {
         EventRemoveUserDTO tuple = new EventRemoveUserDTO(null, "toto");
@@ -1471,91 +1941,126 @@ public class EventServiceTest {
     }
 
     /**
-     * Test removeUserInEvent when used with a null user's name
+     * Test method removeUserInEvent when user's name is null
      */
-    @DisplayName("Test removeUserInEvent : user's name is null")
+    @DisplayName("Test removeUserInEvent : when user's name is null")
     @Test
     public void testRemoveUserInEventWithNullUserName() {
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO("b1cdd964-dc35-4be9-9649-0db6a6afe2f1", null);
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", null);
         Assertions.assertFalse(this.service.removeUserInEvent(tuple));
     }
 
     /**
-     * Test removeUserInEvent when used with an unknown event
+     * Test method removeUserInEvent when the event doesn't exist in database
      */
-    @DisplayName("Test removeUserInEvent : event is not in database")
+    @DisplayName("Test removeUserInEvent : when event is not in database")
     @Test
-    public void testRemoveUserInEventWithUnknownEvent() {
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO("b1cdd964-dc35-4be9-9649-0db6a6afe2f1", "toto");
+    public void testRemoveUserInEventWhenEventDoesntExist() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.removeUserInEvent(tuple));
     }
 
     /**
-     * Test removeUserInEvent when used with an unknown user
+     * Test method removeUserInEvent when the user doesn't exist in database
      */
-    @DisplayName("Test removeUserInEvent : user is not in database")
+    @DisplayName("Test removeUserInEvent : when user is not in database")
     @Test
-    public void testRemoveUserInEventWithUnknownUser() {
-        Game game = this.createValidFullGame(5L, "Splendor");
-        User user = this.createValidFullUser(5L, "nuageux");
-        Location location = new Location(5L, "Paris", null, null, null);
-        Event event = this.createValidEvent(5L, game, user, location);
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), "toto");
-        BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
+    public void testRemoveUserInEventWhenUserDoesntExist() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.removeUserInEvent(tuple));
     }
 
     /**
-     * Test removeUserInEvent when given a user who is not in the registered list
+     * Test method removeUserInEvent when the user is removed from the registered list
      */
-    @DisplayName("Test removeUserInEvent : user is not in the registered list")
+    @DisplayName("Test removeUserInEvent : when everything is fine")
     @Test
     public void testRemoveUserInEvent() {
-        Game game = this.createValidFullGame(5L, "Splendor");
-        User user = this.createValidFullUser(5L, "nuageux");
-        Location location = new Location(5L, "Paris", null, null, null);
-        Event event = this.createValidEvent(5L, game, user, location);
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
-        Assertions.assertFalse(this.service.removeUserInEvent(tuple));
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.deleteRegisteredUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        Assertions.assertTrue(this.service.removeUserInEvent(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).save(ArgumentMatchers.any(Event.class));
+        BDDMockito.verify(this.repository, BDDMockito.never())
+                .insertWaitingUsersAsRegistered(ArgumentMatchers.anyLong(), ArgumentMatchers.anyList());
     }
 
     /**
-     * Test removeUserInEvent when given a user is in the registered list
+     * Test method removeUserInEvent when users are waiting : the head of the waiting queue takes the freed seat
      */
-    @DisplayName("Test removeUserInEvent : user is in the registered list")
+    @DisplayName("Test removeUserInEvent : the first waiting user is promoted")
     @Test
-    public void testRemoveUserInEventWhenUserInRegisteredList() {
-        Game game = this.createValidFullGame(5L, "Splendor");
-        User user = this.createValidFullUser(5L, "nuageux");
-        Location location = new Location(5L, "Paris", null, null, null);
-        Event event = this.createValidEvent(5L, game, user, location);
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
-        event.addUser(user);
-        BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
+    public void testRemoveUserInEventPromotesWaitingUser() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.deleteRegisteredUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.countFreeSeats(1L)).thenReturn(1);
+        BDDMockito.when(this.repository.findFirstWaitingUserIds(1L, 1)).thenReturn(List.of(3L));
+        BDDMockito.when(this.repository.insertWaitingUsersAsRegistered(1L, List.of(3L))).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        Assertions.assertTrue(this.service.removeUserInEvent(tuple));
+        BDDMockito.verify(this.repository).insertWaitingUsersAsRegistered(1L, List.of(3L));
+        BDDMockito.verify(this.repository).deleteWaitingUsers(1L, List.of(3L));
+    }
 
-        Assertions.assertTrue(event.getRegisteredUsers().contains(user));
+    /**
+     * Test method removeUserInEvent when the event is changed concurrently : the removal and the promotion
+     * are tried again with the new version
+     */
+    @DisplayName("Test removeUserInEvent : retried after a concurrent change")
+    @Test
+    public void testRemoveUserInEventWhenVersionChanges() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L), Optional.of(8L));
+        BDDMockito.when(this.repository.deleteRegisteredUser(1L, 2L)).thenReturn(1);
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(0);
+        BDDMockito.when(this.repository.incrementVersion(1L, 8L)).thenReturn(1);
         Assertions.assertTrue(this.service.removeUserInEvent(tuple));
-        Assertions.assertFalse(event.getRegisteredUsers().contains(user));
+        BDDMockito.verify(this.repository, BDDMockito.times(2))
+                .incrementVersion(ArgumentMatchers.eq(1L), ArgumentMatchers.anyLong());
+        BDDMockito.verify(this.repository, BDDMockito.times(1)).deleteRegisteredUser(1L, 2L);
+    }
+
+    /**
+     * Test method removeUserInEvent when the user is not in the registered list : no row is affected
+     */
+    @DisplayName("Test removeUserInEvent : when the statement affects no row")
+    @Test
+    public void testRemoveUserInEventWhenNothingChanges() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.deleteRegisteredUser(1L, 2L)).thenReturn(0);
+        Assertions.assertFalse(this.service.removeUserInEvent(tuple));
+        BDDMockito.verify(this.repository, BDDMockito.never()).countFreeSeats(ArgumentMatchers.anyLong());
     }
 
     // Method removeUserInWaitingQueue
 
     /**
-     * Test removeUserInWaitingQueue when used with a null argument
+     * Test method removeUserInWaitingQueue when given argument is null
      */
-    @DisplayName("Test removeUserInWaitingQueue : given argument is null")
+    @DisplayName("Test removeUserInWaitingQueue : when given argument is null")
     @Test
     public void testRemoveUserInWaitingQueueWithNullArgument() {
         Assertions.assertFalse(this.service.removeUserInWaitingQueue(null));
     }
 
     /**
-     * Test removeUserInWaitingQueue when used with a null event's uuid
+     * Test method removeUserInWaitingQueue when event's uuid is null
      */
-    @DisplayName("Test removeUserInWaitingQueue : event's uuid is null")
+    @DisplayName("Test removeUserInWaitingQueue : when event's uuid is null")
     @Test
     public void testRemoveUserInWaitingQueueWithNullEventUuid() {
         EventRemoveUserDTO tuple = new EventRemoveUserDTO(null, "toto");
@@ -1563,73 +2068,84 @@ public class EventServiceTest {
     }
 
     /**
-     * Test removeUserInWaitingQueue when used with a null user's name
+     * Test method removeUserInWaitingQueue when user's name is null
      */
-    @DisplayName("Test removeUserInWaitingQueue : user's name is null")
+    @DisplayName("Test removeUserInWaitingQueue : when user's name is null")
     @Test
     public void testRemoveUserInWaitingQueueWithNullUserName() {
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO("b1cdd964-dc35-4be9-9649-0db6a6afe2f1", null);
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", null);
         Assertions.assertFalse(this.service.removeUserInWaitingQueue(tuple));
     }
 
     /**
-     * Test removeUserInWaitingQueue when used with an unknown event
+     * Test method removeUserInWaitingQueue when the event doesn't exist in database
      */
-    @DisplayName("Test removeUserInWaitingQueue : event is not in database")
+    @DisplayName("Test removeUserInWaitingQueue : when event is not in database")
     @Test
-    public void testRemoveUserInWaitingQueueWithUnknownEvent() {
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO("b1cdd964-dc35-4be9-9649-0db6a6afe2f1", "toto");
+    public void testRemoveUserInWaitingQueueWhenEventDoesntExist() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.removeUserInWaitingQueue(tuple));
     }
 
     /**
-     * Test removeUserInWaitingQueue when used with an unknown user
+     * Test method removeUserInWaitingQueue when the user doesn't exist in database
      */
-    @DisplayName("Test removeUserInWaitingQueue : user is not in database")
+    @DisplayName("Test removeUserInWaitingQueue : when user is not in database")
     @Test
-    public void testRemoveUserInWaitingQueueWithUnknownUser() {
-        Game game = this.createValidFullGame(5L, "Splendor");
-        User user = this.createValidFullUser(5L, "nuageux");
-        Location location = new Location(5L, "Paris", null, null, null);
-        Event event = this.createValidEvent(5L, game, user, location);
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), "toto");
-        BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
+    public void testRemoveUserInWaitingQueueWhenUserDoesntExist() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
         Assertions.assertFalse(this.service.removeUserInWaitingQueue(tuple));
     }
 
     /**
-     * Test removeUserInWaitingQueue when the user is not in the waiting list
+     * Test method removeUserInWaitingQueue when the user is removed from the waiting list
      */
-    @DisplayName("Test removeUserInWaitingQueue : user is not in the waiting list")
+    @DisplayName("Test removeUserInWaitingQueue : when everything is fine")
     @Test
     public void testRemoveUserInWaitingQueue() {
-        Game game = this.createValidFullGame(5L, "Splendor");
-        User user = this.createValidFullUser(5L, "nuageux");
-        Location location = new Location(5L, "Paris", null, null, null);
-        Event event = this.createValidEvent(5L, game, user, location);
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
-        BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
-        Assertions.assertFalse(this.service.removeUserInWaitingQueue(tuple));
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.deleteWaitingUser(1L, 2L)).thenReturn(1);
+        Assertions.assertTrue(this.service.removeUserInWaitingQueue(tuple));
+        BDDMockito.verify(this.repository).incrementVersion(1L, 7L);
+        BDDMockito.verify(this.repository, BDDMockito.never()).save(ArgumentMatchers.any(Event.class));
     }
 
     /**
-     * Test removeUserInWaitingQueue when given a user is in the waiting list
+     * Test method removeUserInWaitingQueue when the user is not in the waiting list : no row is affected
      */
-    @DisplayName("Test removeUserInWaitingQueue : user is in the waiting list")
+    @DisplayName("Test removeUserInWaitingQueue : when the statement affects no row")
     @Test
-    public void testRemoveUserInWaitingQueueWhenUserInWaitingList() {
-        Game game = this.createValidFullGame(5L, "Splendor");
-        User user = this.createValidFullUser(5L, "nuageux");
-        Location location = new Location(5L, "Paris", null, null, null);
-        Event event = this.createValidEvent(5L, game, user, location);
-        EventRemoveUserDTO tuple = new EventRemoveUserDTO(event.getUuid(), user.getNickname());
-        event.addUserInWaitingQueue(user);
-        BDDMockito.when(this.repository.findByUuid(tuple.getUuid())).thenReturn(Optional.of(event));
-        BDDMockito.when(this.userRepository.findByNickname(tuple.getNickname())).thenReturn(Optional.of(user));
+    public void testRemoveUserInWaitingQueueWhenNothingChanges() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(1);
+        BDDMockito.when(this.repository.deleteWaitingUser(1L, 2L)).thenReturn(0);
+        Assertions.assertFalse(this.service.removeUserInWaitingQueue(tuple));
+    }
 
-        Assertions.assertTrue(event.getWaitingUsers().contains(user));
+    /**
+     * Test method removeUserInWaitingQueue when the event is changed by another transaction :
+     * the removal is tried again on the new version
+     */
+    @DisplayName("Test removeUserInWaitingQueue : retried on a concurrent change")
+    @Test
+    public void testRemoveUserInWaitingQueueRetried() {
+        EventRemoveUserDTO tuple = new EventRemoveUserDTO("0c1edfd1-a240-4d0a-bc9f-93b4b5bb2e81", "toto");
+        BDDMockito.when(this.repository.findIdByUuid(tuple.getUuid())).thenReturn(Optional.of(1L));
+        BDDMockito.when(this.userRepository.findIdByNickname(tuple.getNickname())).thenReturn(Optional.of(2L));
+        BDDMockito.when(this.repository.findVersionById(1L)).thenReturn(Optional.of(7L), Optional.of(8L));
+        BDDMockito.when(this.repository.incrementVersion(1L, 7L)).thenReturn(0);
+        BDDMockito.when(this.repository.incrementVersion(1L, 8L)).thenReturn(1);
+        BDDMockito.when(this.repository.deleteWaitingUser(1L, 2L)).thenReturn(1);
         Assertions.assertTrue(this.service.removeUserInWaitingQueue(tuple));
-        Assertions.assertFalse(event.getWaitingUsers().contains(user));
+        BDDMockito.verify(this.repository, BDDMockito.times(1)).deleteWaitingUser(1L, 2L);
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.FriendSuggestion;
+import fr.oukilson.backend.model.Friendship;
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of FriendGraph on a synthetic graph of 1M friendships between 100k users,
+ * compared with the same walks on sets of boxed ids, as kept by FriendshipStore.
+ * Some users are in many more friend lists than the others, as in a real network.
+ * Run with : mvn -P benchmark test -Dbenchmark=FriendGraphBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendGraphBenchmark {
+    private static final int USERS = 100_000;
+    private static final int FRIENDSHIPS = 1_000_000;
+    private static final int LIMIT = 10;
+    private FriendGraph graph;
+    private Map<Long, Set<Long>> sets;
+    private long[] users;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Friendship> friendships = new ArrayList<>(FRIENDSHIPS);
+        this.sets = new HashMap<>();
+        for (int i=0; i<FRIENDSHIPS; i++) {
+            long user = 1+random.nextInt(USERS);
+            // Squaring favours the first users : they are the popular ones
+            double popularity = random.nextDouble();
+            long friend = 1+(long) (popularity*popularity*USERS);
+            if (user!=friend) {
+                friendships.add(new Friendship(user, friend));
+                this.sets.computeIfAbsent(user, k -> new HashSet<>()).add(friend);
+            }
+        }
+        this.graph = new FriendGraph();
+        this.graph.addAll(friendships);
+        this.users = new long[1024];
+        for (int i=0; i<this.users.length; i++)
+            this.users[i] = 1+random.nextInt(USERS);
+    }
+
+    /**
+     * Next user to walk from, to avoid measuring the same walk again and again
+     * @return User's id
+     */
+    private long nextUser() {
+        this.next = (this.next+1) & (this.users.length-1);
+        return this.users[this.next];
+    }
+
+    @Benchmark
+    public List<FriendSuggestion> suggestGraph() {
+        return this.graph.suggest(this.nextUser(), LIMIT);
+    }
+
+    @Benchmark
+    public long[] mutualFriendsGraph() {
+        return this.graph.mutualFriends(this.nextUser(), this.nextUser());
+    }
+
+    @Benchmark
+    public int distanceGraph() {
+        return this.graph.distance(this.nextUser(), this.nextUser(), 3);
+    }
+
+    /**
+     * Same suggestions, counted in a map of boxed ids
+     */
+    @Benchmark
+    public List<Map.Entry<Long, Integer>> suggestSets() {
+        long user = this.nextUser();
+        Set<Long> direct = this.sets.getOrDefault(user, Collections.emptySet());
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Long friend : direct) {
+            for (Long candidate : this.sets.getOrDefault(friend, Collections.emptySet())) {
+                if (candidate!=user && !direct.contains(candidate))
+                    counts.merge(candidate, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<Long, Integer>> result = new ArrayList<>(counts.entrySet());
+        result.sort(Map.Entry.<Long, Integer>comparingByValue().reversed());
+        return result.subList(0, Math.min(LIMIT, result.size()));
+    }
+
+    /**
+     * Same mutual friends, as the intersection of two sets of boxed ids
+     */
+    @Benchmark
+    public Set<Long> mutualFriendsSets() {
+        Set<Long> result = new HashSet<>(this.sets.getOrDefault(this.nextUser(), Collections.emptySet()));
+        result.retainAll(this.sets.getOrDefault(this.nextUser(), Collections.emptySet()));
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.model.FriendSuggestion;
+import fr.oukilson.backend.model.Friendship;
+import org.junit.jupiter.api.*;
+import java.util.List;
+
+public class FriendGraphTest {
+    private FriendGraph graph;
+
+    @BeforeEach
+    public void init() {
+        this.graph = new FriendGraph();
+    }
+
+    /**
+     * Add a user to several friend lists at once
+     * @param friendId Friend's id
+     * @param userIds Ids of the users
+     */
+    private void addToAll(long friendId, long... userIds) {
+        for (long userId : userIds)
+            this.graph.add(userId, friendId);
+    }
+
+    /**
+     * Mutual friends are the users in both friend lists, and only them
+     */
+    @DisplayName("Test mutualFriends : common friends only")
+    @Test
+    public void testMutualFriends() {
+        this.addToAll(10L, 1L, 2L);
+        this.addToAll(11L, 1L, 2L);
+        this.addToAll(12L, 1L);
+        this.addToAll(13L, 2L);
+        this.graph.add(10L, 1L);
+
+        Assertions.assertArrayEquals(new long[] {10L, 11L}, this.graph.mutualFriends(1L, 2L));
+        Assertions.assertArrayEquals(new long[] {10L, 11L}, this.graph.mutualFriends(2L, 1L));
+        Assertions.assertEquals(0, this.graph.mutualFriends(1L, 10L).length);
+        Assertions.assertEquals(0, this.graph.mutualFriends(1L, 99L).length);
+
+        this.graph.remove(2L, 10L);
+        Assertions.assertArrayEquals(new long[] {11L}, this.graph.mutualFriends(1L, 2L));
+    }
+
+    /**
+     * The distance follows the friend lists in their direction, and stops at the given depth
+     */
+    @DisplayName("Test distance : bounded breadth first walk")
+    @Test
+    public void testDistance() {
+        this.graph.add(1L, 2L);
+        this.graph.add(2L, 3L);
+        this.graph.add(3L, 4L);
+        this.graph.add(1L, 3L);
+        this.graph.add(5L, 1L);
+
+        Assertions.assertEquals(0, this.graph.distance(1L, 1L, 3));
+        Assertions.assertEquals(1, this.graph.distance(1L, 2L, 3));
+        Assertions.assertEquals(1, this.graph.distance(1L, 3L, 3));
+        Assertions.assertEquals(2, this.graph.distance(1L, 4L, 3));
+        Assertions.assertEquals(-1, this.graph.distance(1L, 4L, 1));
+        Assertions.assertEquals(3, this.graph.distance(5L, 4L, 3));
+        Assertions.assertEquals(-1, this.graph.distance(4L, 1L, 3));
+        Assertions.assertEquals(-1, this.graph.distance(1L, 99L, 3));
+    }
+
+    /**
+     * Suggestions are the friends of friends, most shared first, without the user nor his friends
+     */
+    @DisplayName("Test suggest : ranking and exclusions")
+    @Test
+    public void testSuggest() {
+        // User 1 has friends 2, 3 and 4
+        this.addToAll(2L, 1L);
+        this.addToAll(3L, 1L);
+        this.addToAll(4L, 1L);
+        // 20 is known by 3 friends, 21 by 2, 22 by 1; 3 is known by 2 but already a friend; 1 is known by 4
+        this.addToAll(20L, 2L, 3L, 4L);
+        this.addToAll(21L, 2L, 4L);
+        this.addToAll(22L, 3L);
+        this.addToAll(3L, 2L);
+        this.addToAll(1L, 4L);
+        // Not a friend of a friend
+        this.graph.add(20L, 30L);
+
+        List<FriendSuggestion> suggestions = this.graph.suggest(1L, 10);
+        Assertions.assertEquals(List.of(new FriendSuggestion(20L, 3), new FriendSuggestion(21L, 2),
+                new FriendSuggestion(22L, 1)), suggestions);
+        Assertions.assertEquals(List.of(new FriendSuggestion(20L, 3), new FriendSuggestion(21L, 2)),
+                this.graph.suggest(1L, 2));
+        Assertions.assertTrue(this.graph.suggest(99L, 10).isEmpty());
+        Assertions.assertTrue(this.graph.suggest(30L, 10).isEmpty());
+    }
+
+    /**
+     * Walks don't see the marks of the previous ones
+     */
+    @DisplayName("Test suggest : consecutive walks are independent")
+    @Test
+    public void testConsecutiveWalks() {
+        this.addToAll(2L, 1L);
+        this.addToAll(3L, 2L);
+        for (int i=0; i<3; i++) {
+            Assertions.assertEquals(List.of(new FriendSuggestion(3L, 1)), this.graph.suggest(1L, 10));
+            Assertions.assertEquals(2, this.graph.distance(1L, 3L, 2));
+        }
+    }
+
+    /**
+     * A bulk load gives the same graph as friendships added one by one, without duplicates
+     */
+    @DisplayName("Test addAll : sorted and without duplicates")
+    @Test
+    public void testAddAll() {
+        this.graph.addAll(List.of(new Friendship(1L, 12L), new Friendship(2L, 11L), new Friendship(1L, 11L),
+                new Friendship(2L, 12L), new Friendship(1L, 11L)));
+        Assertions.assertEquals(4, this.graph.countFriendships());
+        Assertions.assertArrayEquals(new long[] {12L, 11L}, this.graph.mutualFriends(1L, 2L));
+
+        this.graph.add(1L, 13L);
+        this.graph.add(2L, 13L);
+        this.graph.add(2L, 13L);
+        Assertions.assertEquals(6, this.graph.countFriendships());
+        Assertions.assertEquals(3, this.graph.mutualFriends(1L, 2L).length);
+    }
+
+    /**
+     * Replacing the graph drops the friendships which are not given anymore
+     */
+    @DisplayName("Test replaceAll : the graph holds only the given friendships")
+    @Test
+    public void testReplaceAll() {
+        this.graph.add(1L, 2L);
+        this.graph.add(2L, 3L);
+        this.graph.replaceAll(List.of(new Friendship(1L, 3L), new Friendship(4L, 3L)));
+        Assertions.assertEquals(2, this.graph.countFriendships());
+        Assertions.assertEquals(-1, this.graph.distance(1L, 2L, 3));
+        Assertions.assertEquals(1, this.graph.distance(1L, 3L, 1));
+        Assertions.assertArrayEquals(new long[] {3L}, this.graph.mutualFriends(1L, 4L));
+    }
+}
@@ -0,0 +1,143 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.event.EventAddUserDTO;
+import fr.oukilson.backend.dto.event.FriendsEventDTO;
+import fr.oukilson.backend.dto.event.FriendsEventPageDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Events ranked by the number of friends registered, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class FriendsEventsTest {
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    private Game game;
+
+    @BeforeAll
+    public void init() {
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Friends");
+        this.game = this.gameRepository.save(game);
+    }
+
+    /**
+     * Save a user with a random nickname
+     * @return User
+     */
+    private User createUser() {
+        User user = new User();
+        user.setNickname("fe-"+UUID.randomUUID());
+        return this.userRepository.save(user);
+    }
+
+    /**
+     * Save a new event starting at the given date, and register the given users in it
+     * @param creator Event's creator
+     * @param startingDate Event's starting date
+     * @param users Users to register
+     * @return The saved event
+     */
+    private Event createEvent(User creator, LocalDateTime startingDate, User... users) {
+        Location location = new Location(null, "Lens", "62300", null, null);
+        Event event = new Event();
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Friends");
+        event.setCreator(creator);
+        event.setGame(this.game);
+        event.setMinPlayer(2);
+        event.setMaxPlayer(10);
+        event.setStartingDate(startingDate);
+        event.setLocation(location);
+        location.setEvent(event);
+        event = this.locationRepository.save(location).getEvent();
+        for (User user : users)
+            Assertions.assertTrue(
+                    this.eventService.addUserInEvent(new EventAddUserDTO(event.getUuid(), user.getNickname())));
+        return event;
+    }
+
+    /**
+     * Upcoming events with friends come first by number of friends, then by starting date,
+     * and the pages follow each other without gap nor duplicate
+     */
+    @DisplayName("Test findFriendsEvents : ranking and paging on the database")
+    @Test
+    public void testFindFriendsEvents() {
+        User user = this.createUser();
+        List<User> friends = new ArrayList<>();
+        for (int i=0; i<3; i++) {
+            friends.add(this.createUser());
+            this.userService.addUserToFriendList(user.getNickname(), friends.get(i).getNickname());
+        }
+        User stranger = this.createUser();
+        LocalDateTime now = LocalDateTime.now();
+        Event later = this.createEvent(stranger, now.plusDays(3), friends.get(0), stranger);
+        Event sooner = this.createEvent(stranger, now.plusDays(2), friends.get(1));
+        Event most = this.createEvent(stranger, now.plusDays(4), friends.get(0), friends.get(1), friends.get(2));
+        Event sameDate = this.createEvent(stranger, now.plusDays(3), friends.get(2));
+        this.createEvent(stranger, now.minusDays(1), friends.get(0), friends.get(1));
+        this.createEvent(stranger, now.plusDays(1), stranger, user);
+
+        List<String> uuids = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            FriendsEventPageDTO page = this.eventService.findFriendsEvents(user.getNickname(), cursor, 2);
+            sizes.add(page.getEvents().size());
+            for (FriendsEventDTO event : page.getEvents()) {
+                uuids.add(event.getEvent().getUuid());
+                counts.add(event.getFriends());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor!=null);
+
+        Assertions.assertEquals(List.of(2, 2), sizes);
+        Event first = later.getId()<sameDate.getId() ? later : sameDate;
+        Event second = first==later ? sameDate : later;
+        Assertions.assertEquals(List.of(most.getUuid(), sooner.getUuid(), first.getUuid(), second.getUuid()), uuids);
+        Assertions.assertEquals(List.of(3, 1, 1, 1), counts);
+        Assertions.assertEquals(3, this.eventService.findFriendsEvents(user.getNickname(), null, null)
+                .getEvents().get(0).getEvent().getRegisteredUsers().size());
+    }
+
+    /**
+     * A user without friends has no event, and an unknown user has no page
+     */
+    @DisplayName("Test findFriendsEvents : no friend and unknown user")
+    @Test
+    public void testFindFriendsEventsWithoutFriend() {
+        User user = this.createUser();
+        this.createEvent(user, LocalDateTime.now().plusDays(1), user);
+        FriendsEventPageDTO page = this.eventService.findFriendsEvents(user.getNickname(), null, null);
+        Assertions.assertTrue(page.getEvents().isEmpty());
+        Assertions.assertNull(page.getNextCursor());
+        Assertions.assertNull(this.eventService.findFriendsEvents("fe-unknown", null, null));
+    }
+}
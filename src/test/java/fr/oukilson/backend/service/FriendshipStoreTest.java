@@ -0,0 +1,220 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.user.FriendAddResultDTO;
+import fr.oukilson.backend.dto.user.FriendPageDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.model.UserIdentity;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class FriendshipStoreTest {
+    @Autowired
+    private FriendshipStore store;
+    @Autowired
+    private FriendGraph graph;
+    @Autowired
+    private UserService service;
+    @Autowired
+    private UserRepository repository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Save a user with a random nickname
+     * @return User
+     */
+    private User createUser() {
+        User user = new User();
+        user.setNickname("friend-"+UUID.randomUUID());
+        user.setPassword("password");
+        user.setEmail("email@test.com");
+        return this.repository.save(user);
+    }
+
+    /**
+     * Read a user's friend list from the database
+     * @param user User
+     * @return Ids of the friends
+     */
+    private List<Long> friendsInDatabase(User user) {
+        return this.store.findFriends(user.getId(), null, 100).stream()
+                .map(UserIdentity::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * A friend is added once, in memory and in the database, and only in one direction
+     */
+    @DisplayName("Test add : friendship written and indexed both ways")
+    @Test
+    public void testAdd() {
+        User user = this.createUser();
+        User friend = this.createUser();
+
+        Assertions.assertTrue(this.service.addUserToFriendList(user.getNickname(), friend.getNickname()));
+        Assertions.assertFalse(this.service.addUserToFriendList(user.getNickname(), friend.getNickname()));
+        Assertions.assertTrue(this.store.areFriends(user.getId(), friend.getId()));
+        Assertions.assertFalse(this.store.areFriends(friend.getId(), user.getId()));
+        Assertions.assertEquals(Set.of(friend.getId()), this.store.friendsOf(user.getId()));
+        Assertions.assertEquals(Set.of(user.getId()), this.store.followersOf(friend.getId()));
+        Assertions.assertEquals(1, this.store.countFriends(user.getId()));
+        Assertions.assertEquals(List.of(friend.getId()), this.friendsInDatabase(user));
+        Assertions.assertEquals(1, this.graph.distance(user.getId(), friend.getId(), 1));
+    }
+
+    /**
+     * Friends added in bulk are written in the database and indexed, the ones already in only once
+     */
+    @DisplayName("Test addAll : friendships written in one batch")
+    @Test
+    public void testAddAll() {
+        User user = this.createUser();
+        List<User> friends = new ArrayList<>();
+        for (int i=0; i<3; i++)
+            friends.add(this.createUser());
+        this.service.addUserToFriendList(user.getNickname(), friends.get(0).getNickname());
+
+        List<FriendAddResultDTO> results = this.service.addUsersToFriendList(user.getNickname(),
+                List.of(friends.get(0).getNickname(), friends.get(1).getNickname(), "friend-unknown",
+                        friends.get(2).getNickname(), friends.get(1).getNickname()));
+        Assertions.assertEquals(List.of(FriendAddResultDTO.Status.ALREADY_FRIEND, FriendAddResultDTO.Status.ADDED,
+                        FriendAddResultDTO.Status.NOT_FOUND, FriendAddResultDTO.Status.ADDED,
+                        FriendAddResultDTO.Status.ALREADY_FRIEND),
+                results.stream().map(FriendAddResultDTO::getStatus).collect(Collectors.toList()));
+        List<Long> expected = friends.stream().map(User::getId).collect(Collectors.toList());
+        Assertions.assertEquals(expected, this.friendsInDatabase(user));
+        Assertions.assertEquals(new HashSet<>(expected), this.store.friendsOf(user.getId()));
+        Assertions.assertEquals(1, this.graph.distance(user.getId(), friends.get(2).getId(), 1));
+    }
+
+    /**
+     * Removing a friend and emptying a friend list change both the memory and the database
+     */
+    @DisplayName("Test remove and removeAll")
+    @Test
+    public void testRemove() {
+        User user = this.createUser();
+        List<User> friends = new ArrayList<>();
+        for (int i=0; i<3; i++) {
+            User friend = this.createUser();
+            friends.add(friend);
+            this.service.addUserToFriendList(user.getNickname(), friend.getNickname());
+        }
+
+        Assertions.assertTrue(this.service.removeUserFromFriendList(user.getNickname(), friends.get(0).getNickname()));
+        Assertions.assertFalse(this.store.areFriends(user.getId(), friends.get(0).getId()));
+        Assertions.assertTrue(this.store.followersOf(friends.get(0).getId()).isEmpty());
+        Assertions.assertEquals(-1, this.graph.distance(user.getId(), friends.get(0).getId(), 1));
+        Assertions.assertEquals(List.of(friends.get(1).getId(), friends.get(2).getId()), this.friendsInDatabase(user));
+
+        Assertions.assertTrue(this.service.emptyFriendList(user.getNickname()));
+        Assertions.assertEquals(0, this.store.countFriends(user.getId()));
+        Assertions.assertTrue(this.store.followersOf(friends.get(2).getId()).isEmpty());
+        Assertions.assertTrue(this.friendsInDatabase(user).isEmpty());
+    }
+
+    /**
+     * A rolled back friendship is not applied in memory
+     */
+    @DisplayName("Test add : rolled back friendships are not indexed")
+    @Test
+    public void testAddRollback() {
+        User user = this.createUser();
+        User friend = this.createUser();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            Assertions.assertTrue(this.store.add(user.getId(), friend.getId()));
+            status.setRollbackOnly();
+        });
+        Assertions.assertFalse(this.store.areFriends(user.getId(), friend.getId()));
+        Assertions.assertEquals(-1, this.graph.distance(user.getId(), friend.getId(), 1));
+        Assertions.assertTrue(this.friendsInDatabase(user).isEmpty());
+    }
+
+    /**
+     * A new store gets the friendships already in the database
+     */
+    @DisplayName("Test load : friendships read from the database")
+    @Test
+    public void testLoad() {
+        User user = this.createUser();
+        User friend = this.createUser();
+        this.service.addUserToFriendList(user.getNickname(), friend.getNickname());
+
+        FriendGraph loadedGraph = new FriendGraph();
+        FriendshipStore loaded = new FriendshipStore(this.repository, loadedGraph);
+        loaded.load();
+        Assertions.assertTrue(loaded.areFriends(user.getId(), friend.getId()));
+        Assertions.assertEquals(1, loadedGraph.distance(user.getId(), friend.getId(), 1));
+        Assertions.assertEquals(Set.of(user.getId()), loaded.followersOf(friend.getId()));
+    }
+
+    /**
+     * Loading again replaces the friend lists by the ones of the database : the friendships written
+     * or removed without the store are seen, and the ones added by the store are kept
+     */
+    @DisplayName("Test load : friendships read again from the database")
+    @Test
+    public void testReload() {
+        User user = this.createUser();
+        User friend = this.createUser();
+        User other = this.createUser();
+        FriendGraph loadedGraph = new FriendGraph();
+        FriendshipStore loaded = new FriendshipStore(this.repository, loadedGraph);
+        loaded.load();
+
+        this.transactionTemplate.executeWithoutResult(status ->
+                this.repository.insertFriend(user.getId(), friend.getId()));
+        Assertions.assertFalse(loaded.areFriends(user.getId(), friend.getId()));
+        loaded.load();
+        Assertions.assertTrue(loaded.areFriends(user.getId(), friend.getId()));
+        Assertions.assertEquals(1, loadedGraph.distance(user.getId(), friend.getId(), 1));
+
+        this.transactionTemplate.executeWithoutResult(status -> {
+            loaded.add(user.getId(), other.getId());
+            this.repository.deleteFriend(user.getId(), friend.getId());
+        });
+        loaded.load();
+        Assertions.assertFalse(loaded.areFriends(user.getId(), friend.getId()));
+        Assertions.assertTrue(loaded.followersOf(friend.getId()).isEmpty());
+        Assertions.assertEquals(-1, loadedGraph.distance(user.getId(), friend.getId(), 1));
+        Assertions.assertEquals(Set.of(other.getId()), loaded.friendsOf(user.getId()));
+    }
+
+    /**
+     * Pages follow each other without gap nor duplicate, and the last one has no cursor
+     */
+    @DisplayName("Test findFriends : paging through a friend list")
+    @Test
+    public void testFindFriendsPages() {
+        User user = this.createUser();
+        List<UserNameDTO> expected = new ArrayList<>();
+        for (int i=0; i<5; i++) {
+            User friend = this.createUser();
+            expected.add(new UserNameDTO(friend.getNickname()));
+            this.service.addUserToFriendList(user.getNickname(), friend.getNickname());
+        }
+
+        List<UserNameDTO> found = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            FriendPageDTO page = this.service.findFriends(user.getNickname(), cursor, 2);
+            found.addAll(page.getFriends());
+            sizes.add(page.getFriends().size());
+            cursor = page.getNextCursor();
+        } while (cursor!=null);
+        Assertions.assertEquals(List.of(2, 2, 1), sizes);
+        Assertions.assertEquals(expected, found);
+    }
+}
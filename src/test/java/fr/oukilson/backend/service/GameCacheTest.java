@@ -0,0 +1,183 @@
+package fr.oukilson.backend.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fr.oukilson.backend.configuration.CacheConfiguration;
+import fr.oukilson.backend.dto.GameDTO;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.EntityMapper;
+import fr.oukilson.backend.repository.GameRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Games found by uuid are cached as GameDTO, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class GameCacheTest {
+    @Autowired
+    private GameService service;
+    @Autowired
+    private GameRepository repository;
+    @Autowired
+    private EntityMapper<Game, GameDTO> mapper;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private CaffeineCache cache;
+
+    @BeforeAll
+    public void init() {
+        this.cache = (CaffeineCache) this.cacheManager.getCache(GameService.CACHE);
+    }
+
+    @BeforeEach
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * Save a new game in database
+     * @param name Game's name
+     * @return The saved game
+     */
+    private Game createGame(String name) {
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName(name);
+        return this.repository.save(game);
+    }
+
+    /**
+     * The second search of a game is a hit, and returns the same data
+     */
+    @DisplayName("Test game cache : a found game is cached")
+    @Test
+    public void testFindByUuidIsCached() {
+        Game game = this.createGame("Cached");
+        CacheStats before = this.cache.getNativeCache().stats();
+        GameDTO first = this.service.findByUuid(game.getUuid());
+        GameDTO second = this.service.findByUuid(game.getUuid());
+        CacheStats stats = this.cache.getNativeCache().stats().minus(before);
+        Assertions.assertEquals(first, second);
+        Assertions.assertTrue(this.cache.get(game.getUuid()).get() instanceof GameDTO);
+        Assertions.assertEquals(1, stats.missCount());
+        Assertions.assertEquals(1, stats.hitCount());
+    }
+
+    /**
+     * An unknown uuid is not cached, so the game is found once created
+     */
+    @DisplayName("Test game cache : an unknown game is not cached")
+    @Test
+    public void testUnknownUuidIsNotCached() {
+        String uuid = UUID.randomUUID().toString();
+        Assertions.assertNull(this.service.findByUuid(uuid));
+        Assertions.assertNull(this.cache.get(uuid));
+    }
+
+    /**
+     * Saving a game removes its old version from the cache
+     */
+    @DisplayName("Test game cache : saving a game evicts it")
+    @Test
+    public void testSaveEvictsGame() {
+        Game game = this.createGame("Old name");
+        this.service.findByUuid(game.getUuid());
+        game.setName("New name");
+        this.repository.save(game);
+        Assertions.assertNull(this.cache.get(game.getUuid()));
+        Assertions.assertEquals("New name", this.service.findByUuid(game.getUuid()).getName());
+    }
+
+    /**
+     * Saving several games evicts all of them
+     */
+    @DisplayName("Test game cache : saveAll evicts the games")
+    @Test
+    public void testSaveAllEvictsGames() {
+        Game first = this.createGame("First");
+        Game second = this.createGame("Second");
+        this.service.findByUuid(first.getUuid());
+        this.service.findByUuid(second.getUuid());
+        first.setName("First renamed");
+        second.setName("Second renamed");
+        this.repository.saveAll(List.of(first, second));
+        Assertions.assertNull(this.cache.get(first.getUuid()));
+        Assertions.assertNull(this.cache.get(second.getUuid()));
+        Assertions.assertEquals("Second renamed", this.service.findByUuid(second.getUuid()).getName());
+    }
+
+    /**
+     * A managed game changed in a transaction is evicted once it is committed, not when it is rolled back
+     */
+    @DisplayName("Test game cache : changes of a managed game evict it after commit")
+    @Test
+    public void testDirtyCheckingEvictsGameAfterCommit() {
+        Game game = this.createGame("Managed");
+        this.service.findByUuid(game.getUuid());
+        TransactionTemplate template = new TransactionTemplate(this.transactionManager);
+        template.executeWithoutResult(status -> {
+            this.repository.findById(game.getId()).orElseThrow().setName("Rolled back");
+            this.repository.flush();
+            status.setRollbackOnly();
+        });
+        Assertions.assertEquals("Managed", this.service.findByUuid(game.getUuid()).getName());
+        template.executeWithoutResult(status -> {
+            this.repository.findById(game.getId()).orElseThrow().setName("Committed");
+            this.repository.flush();
+            Assertions.assertNotNull(this.cache.get(game.getUuid()));
+        });
+        Assertions.assertNull(this.cache.get(game.getUuid()));
+        Assertions.assertEquals("Committed", this.service.findByUuid(game.getUuid()).getName());
+    }
+
+    /**
+     * Deleting a game by id, or all the games in a batch, evicts them
+     */
+    @DisplayName("Test game cache : deletes evict the games")
+    @Test
+    public void testDeleteEvictsGames() {
+        Game deleted = this.createGame("Deleted");
+        Game other = this.createGame("Other");
+        this.service.findByUuid(deleted.getUuid());
+        this.service.findByUuid(other.getUuid());
+        this.repository.deleteById(deleted.getId());
+        Assertions.assertNull(this.cache.get(deleted.getUuid()));
+        Assertions.assertNull(this.service.findByUuid(deleted.getUuid()));
+        Assertions.assertNotNull(this.cache.get(other.getUuid()));
+        this.repository.deleteAllByIdInBatch(List.of(other.getId()));
+        Assertions.assertNull(this.cache.get(other.getUuid()));
+        Assertions.assertNull(this.service.findByUuid(other.getUuid()));
+    }
+
+    /**
+     * The warmer loads the games in the cache, so their first search is a hit
+     */
+    @DisplayName("Test game cache : the catalogue is loaded by the warmer")
+    @Test
+    public void testWarmer() throws Exception {
+        Game game = this.createGame("Warm");
+        ApplicationRunner warmer = new CacheConfiguration().gameCacheWarmer(
+                this.repository, this.mapper, this.cacheManager, true, 10000);
+        warmer.run(new DefaultApplicationArguments());
+        Assertions.assertNotNull(this.cache.get(game.getUuid()));
+        CacheStats before = this.cache.getNativeCache().stats();
+        Assertions.assertEquals("Warm", this.service.findByUuid(game.getUuid()).getName());
+        Assertions.assertEquals(1, this.cache.getNativeCache().stats().minus(before).hitCount());
+    }
+}
@@ -0,0 +1,64 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.GameUuidDTO;
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of GameNameIndex.search on 100k games, compared with a scan of all the names as LIKE '%name%' does.
+ * Run with : mvn -P benchmark test -Dbenchmark=GameNameIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameNameIndexBenchmark {
+    private static final int GAMES = 100_000;
+    private static final int LIMIT = 20;
+    private static final String[] WORDS = {"les", "aventuriers", "du", "rail", "colons", "catan", "wonders", "duel",
+            "root", "azul", "dominion", "terraforming", "mars", "pandemic", "legacy", "saison", "carcassonne",
+            "citadelles", "dixit", "mysterium", "splendor", "ticket", "unlock", "codenames", "kingdom", "builder",
+            "everdell", "wingspan", "gloomhaven", "scythe", "agricola", "patchwork", "hanabi", "skull", "echos"};
+    @Param({"r", "cat", "wonders d", "ingdom", "zzz"})
+    private String searched;
+    private GameNameIndex index;
+    private List<GameUuidDTO> games;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        this.index = new GameNameIndex();
+        this.games = new ArrayList<>(GAMES);
+        for (long id=1; id<=GAMES; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int i=1+random.nextInt(4); i>0; i--)
+                name.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            name.append(id);
+            String uuid = UUID.randomUUID().toString();
+            this.index.put(id, uuid, name.toString());
+            this.games.add(new GameUuidDTO(uuid, name.toString()));
+        }
+    }
+
+    @Benchmark
+    public List<GameUuidDTO> index() {
+        return this.index.search(this.searched, LIMIT);
+    }
+
+    /**
+     * What the database does for LIKE '%name%' : every name is checked
+     */
+    @Benchmark
+    public List<GameUuidDTO> scan() {
+        String normalized = GameNameIndex.normalize(this.searched);
+        List<GameUuidDTO> result = new ArrayList<>();
+        for (GameUuidDTO game : this.games) {
+            if (GameNameIndex.normalize(game.getName()).contains(normalized))
+                result.add(game);
+        }
+        return result;
+    }
+}
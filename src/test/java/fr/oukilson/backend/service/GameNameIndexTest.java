@@ -0,0 +1,196 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.GameUuidDTO;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.repository.GameRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class GameNameIndexTest {
+    @Autowired
+    private GameNameIndex gameNameIndex;
+    @Autowired
+    private GameRepository repository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    private GameNameIndex index;
+
+    @BeforeEach
+    public void init() {
+        this.index = new GameNameIndex();
+    }
+
+    /**
+     * Add a game with a random uuid in the index
+     * @param id Game's id
+     * @param name Game's name
+     */
+    private void put(long id, String name) {
+        this.index.put(id, UUID.randomUUID().toString(), name);
+    }
+
+    /**
+     * Search and keep only the names of the found games
+     * @param name The string to search
+     * @param limit Maximal number of games
+     * @return List of names
+     */
+    private List<String> search(String name, int limit) {
+        return this.index.search(name, limit).stream().map(GameUuidDTO::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * Names starting with the string come first, in alphabetical order,
+     * then names with a word starting with the string, then the other names
+     */
+    @DisplayName("Test search : ranking of the results")
+    @Test
+    public void testSearchRanking() {
+        this.put(1L, "Les Aventuriers du Rail");
+        this.put(2L, "Railroad Ink");
+        this.put(3L, "Trail");
+        this.put(4L, "Rail");
+        this.put(5L, "Root");
+        Assertions.assertEquals(List.of("Rail", "Railroad Ink", "Les Aventuriers du Rail", "Trail"),
+                this.search("rail", 10));
+    }
+
+    /**
+     * Case and accents are ignored, on both sides
+     */
+    @DisplayName("Test search : case and accents are ignored")
+    @Test
+    public void testSearchIgnoresCaseAndAccents() {
+        this.put(1L, "Les échos de Fäfnir");
+        Assertions.assertEquals(List.of("Les échos de Fäfnir"), this.search("FAFN", 10));
+        Assertions.assertEquals(List.of("Les échos de Fäfnir"), this.search("Échos", 10));
+    }
+
+    /**
+     * Strings shorter than a trigram are searched everywhere in the names
+     */
+    @DisplayName("Test search : short strings")
+    @Test
+    public void testSearchShortString() {
+        this.put(1L, "Root");
+        this.put(2L, "Azul");
+        this.put(3L, "Carcassonne");
+        Assertions.assertEquals(List.of("Root", "Carcassonne"), this.search("o", 10));
+    }
+
+    /**
+     * All the trigrams of the string must be in the name, in the right order
+     */
+    @DisplayName("Test search : trigrams in another order don't match")
+    @Test
+    public void testSearchTrigramsInOrder() {
+        this.put(1L, "abcd bcde");
+        Assertions.assertTrue(this.search("bcdab", 10).isEmpty());
+        Assertions.assertEquals(List.of("abcd bcde"), this.search("cd bc", 10));
+    }
+
+    /**
+     * The limit is applied on prefix matches and on the others
+     */
+    @DisplayName("Test search : limit")
+    @Test
+    public void testSearchLimit() {
+        this.put(1L, "Catan");
+        this.put(2L, "Catan Junior");
+        this.put(3L, "Les Colons de Catan");
+        this.put(4L, "Star Wars Catan");
+        Assertions.assertEquals(List.of("Catan"), this.search("catan", 1));
+        Assertions.assertEquals(List.of("Catan", "Catan Junior", "Star Wars Catan"), this.search("catan", 3));
+    }
+
+    /**
+     * The empty string gives all the games, a blank one the names containing it
+     */
+    @DisplayName("Test search : empty and blank strings")
+    @Test
+    public void testSearchBlankString() {
+        this.put(1L, "Root");
+        this.put(2L, "7 Wonders");
+        Assertions.assertEquals(List.of("7 Wonders", "Root"), this.search("", 10));
+        Assertions.assertEquals(List.of("7 Wonders"), this.search(" ", 10));
+    }
+
+    /**
+     * Without limit, all the games found are given
+     */
+    @DisplayName("Test search : no limit")
+    @Test
+    public void testSearchWithoutLimit() {
+        for (int i=0; i<150; i++)
+            this.put(i, "Jeux n°"+i);
+        this.put(150L, "Les jeux");
+        Assertions.assertEquals(151, this.search("jeux", Integer.MAX_VALUE).size());
+        Assertions.assertEquals(151, this.search("", Integer.MAX_VALUE).size());
+    }
+
+    /**
+     * A renamed game is found by its new name only, a removed game is not found anymore
+     */
+    @DisplayName("Test put and remove : the index follows the changes")
+    @Test
+    public void testPutAndRemove() {
+        this.put(1L, "Root");
+        this.put(1L, "Azul");
+        Assertions.assertEquals(1, this.index.size());
+        Assertions.assertTrue(this.search("root", 10).isEmpty());
+        Assertions.assertEquals(List.of("Azul"), this.search("azu", 10));
+        this.index.remove(1L);
+        Assertions.assertEquals(0, this.index.size());
+        Assertions.assertTrue(this.search("azu", 10).isEmpty());
+    }
+
+    /**
+     * The application's index follows the game table, once the changes are committed
+     */
+    @DisplayName("Test listener : saved, renamed and deleted games")
+    @Test
+    public void testListener() {
+        String name = "Indexed "+UUID.randomUUID();
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName(name);
+        Game saved = this.repository.save(game);
+        Assertions.assertEquals(List.of(name), this.gameNameIndex.search(name, 10).stream()
+                .map(GameUuidDTO::getName).collect(Collectors.toList()));
+
+        saved.setName("Renamed "+name);
+        this.repository.save(saved);
+        Assertions.assertEquals("Renamed "+name, this.gameNameIndex.search(name, 10).get(0).getName());
+
+        this.repository.delete(saved);
+        Assertions.assertTrue(this.gameNameIndex.search(name, 10).isEmpty());
+    }
+
+    /**
+     * A rolled back change is not applied to the application's index
+     */
+    @DisplayName("Test listener : rolled back games are not indexed")
+    @Test
+    public void testListenerRollback() {
+        String name = "Rolled back "+UUID.randomUUID();
+        this.transactionTemplate.executeWithoutResult(status -> {
+            Game game = new Game();
+            game.setUuid(UUID.randomUUID().toString());
+            game.setName(name);
+            this.repository.saveAndFlush(game);
+            status.setRollbackOnly();
+        });
+        Assertions.assertTrue(this.gameNameIndex.search(name, 10).isEmpty());
+    }
+}
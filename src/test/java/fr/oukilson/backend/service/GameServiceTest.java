@@ -3,6 +3,7 @@ package fr.oukilson.backend.service;
 import fr.oukilson.backend.dto.GameDTO;
 import fr.oukilson.backend.dto.GameUuidDTO;
 import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.mapper.GameDTOMapper;
 import fr.oukilson.backend.repository.GameRepository;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +13,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,11 +25,13 @@ public class GameServiceTest {
     private GameRepository repository;
     @Autowired
     private ModelMapper mapper;
+    private GameNameIndex index;
     private GameService service;
 
-    @BeforeAll
+    @BeforeEach
     public void init() {
-        this.service = new GameService(repository, mapper);
+        this.index = new GameNameIndex();
+        this.service = new GameService(repository, index, new GameDTOMapper());
     }
 
     // Convenient methods for testing
@@ -97,18 +99,7 @@ public class GameServiceTest {
     @Test
     @DisplayName("Test findByName : null parameter")
     public void testFindByNameNullParameter() {
-        List<GameUuidDTO> list = this.service.findByName(null);
-        Assertions.assertNotNull(list);
-        Assertions.assertEquals(0, list.size());
-    }
-
-    /**
-     * Test findByName with the look-up string is null
-     */
-    @Test
-    @DisplayName("Test findByName : null given name")
-    public void testFindByNameNullName() {
-        List<GameUuidDTO> list = this.service.findByName(null);
+        List<GameUuidDTO> list = this.service.findByName(null, null);
         Assertions.assertNotNull(list);
         Assertions.assertEquals(0, list.size());
     }
@@ -119,31 +110,63 @@ public class GameServiceTest {
     @Test
     @DisplayName("Test findByName : no result found")
     public void testFindByNameWithNoResultFound() {
-        String name = "7 Wonders";
-        BDDMockito.when(this.repository.findAllByNameContaining(name)).thenReturn(new LinkedList<>());
-        List<GameUuidDTO> list = this.service.findByName(name);
+        this.index.put(this.createValidFullGame(1L, "Root"));
+        List<GameUuidDTO> list = this.service.findByName("7 Wonders", null);
         Assertions.assertNotNull(list);
         Assertions.assertEquals(0, list.size());
     }
 
     /**
-     * Test findByName with some result found
+     * Test findByName with some result found : the games starting with the name come first
      */
     @Test
     @DisplayName("Test findByName : result found")
     public void testFindByNameWithResultFound() {
-        String name = "7 Wonders";
-        List<Game> games = new LinkedList<>();
-        int size = 4;
-        for (int i=0; i<size; i++) {
-            games.add(this.createValidFullGame((long) i, "Jeux n°"+i));
-        }
-        BDDMockito.when(this.repository.findAllByNameContaining(name)).thenReturn(games);
-        List<GameUuidDTO> list = this.service.findByName(name);
+        Game duel = this.createValidFullGame(1L, "7 Wonders Duel");
+        Game wonders = this.createValidFullGame(2L, "7 Wonders");
+        Game other = this.createValidFullGame(3L, "Le jeu 7 Wonders");
+        this.index.put(other);
+        this.index.put(duel);
+        this.index.put(wonders);
+        this.index.put(this.createValidFullGame(4L, "Root"));
+        List<GameUuidDTO> list = this.service.findByName("7 wonders", null);
         Assertions.assertNotNull(list);
-        Assertions.assertEquals(size, list.size());
-        for (int i=0; i<size; i++) {
-            Assertions.assertEquals(this.mapper.map(games.get(i), GameUuidDTO.class), list.get(i));
-        }
+        Assertions.assertEquals(3, list.size());
+        Assertions.assertEquals(this.mapper.map(wonders, GameUuidDTO.class), list.get(0));
+        Assertions.assertEquals(this.mapper.map(duel, GameUuidDTO.class), list.get(1));
+        Assertions.assertEquals(this.mapper.map(other, GameUuidDTO.class), list.get(2));
+    }
+
+    /**
+     * Test findByName with an empty string : all the games are found, as with the former LIKE search
+     */
+    @Test
+    @DisplayName("Test findByName : empty string")
+    public void testFindByNameWithEmptyString() {
+        this.index.put(this.createValidFullGame(1L, "Root"));
+        this.index.put(this.createValidFullGame(2L, "Azul"));
+        Assertions.assertEquals(2, this.service.findByName("", null).size());
+    }
+
+    /**
+     * Test findByName with a limit lower than the number of games found, all of them are found without limit
+     */
+    @Test
+    @DisplayName("Test findByName : limit the number of games")
+    public void testFindByNameWithLimit() {
+        for (int i=0; i<130; i++)
+            this.index.put(this.createValidFullGame((long) i, "Jeux n°"+i));
+        Assertions.assertEquals(130, this.service.findByName("jeux", null).size());
+        Assertions.assertEquals(5, this.service.findByName("jeux", 5).size());
+    }
+
+    /**
+     * Test findByName with an invalid limit
+     */
+    @Test
+    @DisplayName("Test findByName : IllegalArgumentException if the limit is invalid")
+    public void testFindByNameWithInvalidLimit() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.findByName("jeux", 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.findByName("jeux", 101));
     }
 }
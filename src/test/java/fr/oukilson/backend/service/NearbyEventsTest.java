@@ -0,0 +1,140 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.event.NearbyEventDTO;
+import fr.oukilson.backend.dto.event.NearbyEventPageDTO;
+import fr.oukilson.backend.entity.Event;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Events found by distance from a point, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class NearbyEventsTest {
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    private Game game;
+    private User creator;
+
+    @BeforeAll
+    public void init() {
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Nearby");
+        this.game = this.gameRepository.save(game);
+        User user = new User();
+        user.setNickname("ne-"+UUID.randomUUID());
+        this.creator = this.userRepository.save(user);
+    }
+
+    /**
+     * Save a new event placed at the given coordinates
+     * @param town Town
+     * @param latitude Latitude, may be null
+     * @param longitude Longitude, may be null
+     * @param startingDate Event's starting date
+     * @return The saved event
+     */
+    private Event createEvent(String town, Double latitude, Double longitude, LocalDateTime startingDate) {
+        Location location = new Location(null, town, null, null, null, latitude, longitude, null);
+        Event event = new Event();
+        event.setUuid(UUID.randomUUID().toString());
+        event.setTitle("Nearby");
+        event.setCreator(this.creator);
+        event.setGame(this.game);
+        event.setMinPlayer(2);
+        event.setMaxPlayer(10);
+        event.setStartingDate(startingDate);
+        event.setLocation(location);
+        location.setEvent(event);
+        return this.locationRepository.save(location).getEvent();
+    }
+
+    /**
+     * Great-circle distance between two points, computed apart from the database
+     * @param latitude1 First point's latitude
+     * @param longitude1 First point's longitude
+     * @param latitude2 Second point's latitude
+     * @param longitude2 Second point's longitude
+     * @return Distance in kilometers
+     */
+    private double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double a = Math.pow(Math.sin(Math.toRadians(latitude2-latitude1)/2), 2)
+                + Math.cos(Math.toRadians(latitude1))*Math.cos(Math.toRadians(latitude2))
+                * Math.pow(Math.sin(Math.toRadians(longitude2-longitude1)/2), 2);
+        return 2*6371*Math.asin(Math.sqrt(a));
+    }
+
+    /**
+     * Upcoming events within the radius come nearest first with their distance,
+     * and the pages follow each other without gap nor duplicate
+     */
+    @DisplayName("Test findNearbyEvents : distance order and paging on the database")
+    @Test
+    public void testFindNearbyEvents() {
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+        Event lens = this.createEvent("Lens", 50.4329, 2.8315, tomorrow);
+        Event lievin = this.createEvent("Liévin", 50.4226, 2.7792, tomorrow);
+        Event arras = this.createEvent("Arras", 50.2910, 2.7775, tomorrow);
+        this.createEvent("Lille", 50.6292, 3.0573, tomorrow);
+        this.createEvent("Lens", 50.4329, 2.8315, LocalDateTime.now().minusDays(1));
+        this.createEvent("Lens", null, null, tomorrow);
+
+        List<String> uuids = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            NearbyEventPageDTO page = this.eventService.findNearbyEvents(50.4329, 2.8315, 20.0, cursor, 2);
+            sizes.add(page.getEvents().size());
+            for (NearbyEventDTO event : page.getEvents()) {
+                uuids.add(event.getEvent().getUuid());
+                distances.add(event.getDistance());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor!=null);
+
+        Assertions.assertEquals(List.of(2, 1), sizes);
+        Assertions.assertEquals(List.of(lens.getUuid(), lievin.getUuid(), arras.getUuid()), uuids);
+        Assertions.assertEquals(0, distances.get(0), 1e-6);
+        Assertions.assertEquals(this.haversine(50.4329, 2.8315, 50.4226, 2.7792), distances.get(1), 1e-6);
+        Assertions.assertEquals(this.haversine(50.4329, 2.8315, 50.2910, 2.7775), distances.get(2), 1e-6);
+        Assertions.assertEquals(50.2910, this.eventService.findNearbyEvents(50.2910, 2.7775, 1.0, null, null)
+                .getEvents().get(0).getEvent().getLocation().getLatitude());
+    }
+
+    /**
+     * An event on the other side of the 180th meridian is found
+     */
+    @DisplayName("Test findNearbyEvents : across the 180th meridian")
+    @Test
+    public void testFindNearbyEventsAcrossTheMeridian() {
+        Event event = this.createEvent("Taveuni", -16.80, -179.99, LocalDateTime.now().plusDays(1));
+        NearbyEventPageDTO page = this.eventService.findNearbyEvents(-16.80, 179.99, 5.0, null, null);
+        Assertions.assertEquals(1, page.getEvents().size());
+        Assertions.assertEquals(event.getUuid(), page.getEvents().get(0).getEvent().getUuid());
+        Assertions.assertEquals(this.haversine(-16.80, 179.99, -16.80, -179.99),
+                page.getEvents().get(0).getDistance(), 1e-6);
+        Assertions.assertNull(page.getNextCursor());
+    }
+}
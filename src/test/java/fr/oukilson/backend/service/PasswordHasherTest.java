@@ -0,0 +1,116 @@
+package fr.oukilson.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+public class PasswordHasherTest {
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void init() {
+        this.registry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * A password is hashed with a salt on the hashing threads, and the hash time is measured
+     */
+    @DisplayName("Test hash : salted bcrypt hash")
+    @Test
+    public void testHash() {
+        PasswordHasher hasher = new PasswordHasher(4, 1, 10, this.registry);
+        try {
+            String first = hasher.hash("sdfghjklmmdj").join();
+            String second = hasher.hash("sdfghjklmmdj").join();
+            Assertions.assertTrue(first.startsWith("$2a$04$"));
+            Assertions.assertNotEquals(first, second);
+            Assertions.assertTrue(hasher.matches("sdfghjklmmdj", first));
+            Assertions.assertFalse(hasher.matches("sdfghjklmmdk", first));
+            Assertions.assertEquals(2, this.registry.get("password.hash").timer().count());
+            Assertions.assertEquals(2, this.registry.get("password.hash.wait").timer().count());
+        }
+        finally {
+            hasher.shutdown();
+        }
+    }
+
+    /**
+     * When the queue is full, new hashes are refused at once and counted
+     */
+    @DisplayName("Test hash : refused when the queue is full")
+    @Test
+    public void testHashRejected() {
+        // A high cost keeps the only thread busy while the queue fills up
+        PasswordHasher hasher = new PasswordHasher(14, 1, 1, this.registry);
+        try {
+            CompletableFuture<String> running = hasher.hash("first");
+            CompletableFuture<String> waiting = hasher.hash("second");
+            Assertions.assertThrows(RejectedExecutionException.class, () -> hasher.hash("third"));
+            Assertions.assertEquals(1, this.registry.get("password.hash.rejected").counter().count());
+            Assertions.assertEquals(1, this.registry.get("password.hash.queue").gauge().value());
+            Assertions.assertTrue(hasher.matches("second", waiting.join()));
+            Assertions.assertTrue(running.isDone());
+            Assertions.assertEquals(0, this.registry.get("password.hash.queue").gauge().value());
+        }
+        finally {
+            hasher.shutdown();
+        }
+    }
+
+    /**
+     * Many passwords are hashed by a few tasks, and the hashes keep the order of the passwords
+     */
+    @DisplayName("Test hashAll : hashes in order")
+    @Test
+    public void testHashAll() {
+        PasswordHasher hasher = new PasswordHasher(4, 2, 2, this.registry);
+        try {
+            List<String> passwords = new ArrayList<>();
+            for (int i=0; i<150; i++)
+                passwords.add("password"+i);
+            List<String> hashes = hasher.hashAll(passwords).join();
+            Assertions.assertEquals(150, hashes.size());
+            for (int i=0; i<150; i++)
+                Assertions.assertTrue(hasher.matches("password"+i, hashes.get(i)));
+            Assertions.assertEquals(150, this.registry.get("password.hash").timer().count());
+            Assertions.assertEquals(2, this.registry.get("password.hash.wait").timer().count());
+        }
+        finally {
+            hasher.shutdown();
+        }
+    }
+
+    /**
+     * When the queue has no room for all the tasks of a list, the list is refused at once and counted
+     */
+    @DisplayName("Test hashAll : refused when the queue is too short")
+    @Test
+    public void testHashAllRejected() {
+        // A high cost keeps the only thread busy : the first task of the list is queued, the second one is refused
+        PasswordHasher hasher = new PasswordHasher(14, 1, 1, this.registry);
+        try {
+            CompletableFuture<String> running = hasher.hash("first");
+            Assertions.assertThrows(RejectedExecutionException.class,
+                    () -> hasher.hashAll(Collections.nCopies(150, "password")));
+            Assertions.assertEquals(1, this.registry.get("password.hash.rejected").counter().count());
+            Assertions.assertTrue(hasher.matches("first", running.join()));
+        }
+        finally {
+            hasher.shutdown();
+        }
+    }
+
+    /**
+     * The cost factor must be a valid bcrypt one
+     */
+    @DisplayName("Test constructor : invalid cost")
+    @Test
+    public void testInvalidCost() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(3, 1, 1, this.registry));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(32, 1, 1, this.registry));
+    }
+}
@@ -0,0 +1,89 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.location.TownDTO;
+import org.junit.jupiter.api.*;
+import java.util.List;
+
+public class TownIndexTest {
+    private TownIndex index;
+
+    @BeforeEach
+    public void init() {
+        this.index = new TownIndex();
+    }
+
+    /**
+     * Case, accents and punctuation are ignored, on both sides
+     */
+    @DisplayName("Test normalize : case, accents and punctuation")
+    @Test
+    public void testNormalize() {
+        Assertions.assertEquals("saint etienne", TownIndex.normalize("Saint-Étienne"));
+        Assertions.assertEquals("saint etienne", TownIndex.normalize("  SAINT   etienne "));
+        Assertions.assertEquals("l hay les roses", TownIndex.normalize("L'Haÿ-les-Roses"));
+        Assertions.assertEquals("", TownIndex.normalize("%_-"));
+    }
+
+    /**
+     * A typed text ending with a space or a punctuation mark ends a word
+     */
+    @DisplayName("Test prefixOf : end of a word")
+    @Test
+    public void testPrefixOf() {
+        Assertions.assertEquals("saint", TownIndex.prefixOf("Saint"));
+        Assertions.assertEquals("saint ", TownIndex.prefixOf("Saint-"));
+        Assertions.assertEquals("saint ", TownIndex.prefixOf("SAINT "));
+        Assertions.assertEquals("", TownIndex.prefixOf(" - "));
+    }
+
+    /**
+     * Towns starting with the typed text come in alphabetical order, then by zip code
+     */
+    @DisplayName("Test search : towns starting with the name")
+    @Test
+    public void testSearchByName() {
+        this.index.put(1L, "Saint-Étienne", "42000");
+        this.index.put(2L, "Saint-Denis", "93200");
+        this.index.put(3L, "Saint-Denis", "97400");
+        this.index.put(4L, "Sainte-Foy", "69110");
+        this.index.put(5L, "Lens", "62300");
+        Assertions.assertEquals(List.of(new TownDTO("Saint-Denis", "93200"), new TownDTO("Saint-Denis", "97400"),
+                        new TownDTO("Saint-Étienne", "42000")), this.index.search("saint ", 10));
+        Assertions.assertEquals(List.of(new TownDTO("Saint-Étienne", "42000")), this.index.search("Saint Eti", 10));
+        Assertions.assertEquals(4, this.index.search("SAINT", 10).size());
+        Assertions.assertEquals(2, this.index.search("saint", 2).size());
+        Assertions.assertTrue(this.index.search(" - ", 10).isEmpty());
+    }
+
+    /**
+     * A text starting with a digit is searched in the zip codes
+     */
+    @DisplayName("Test search : towns starting with the zip code")
+    @Test
+    public void testSearchByZipCode() {
+        this.index.put(1L, "Lens", "62300");
+        this.index.put(2L, "Liévin", "62800");
+        this.index.put(3L, "Lille", "59000");
+        this.index.put(4L, "Nowhere", null);
+        Assertions.assertEquals(List.of(new TownDTO("Lens", "62300"), new TownDTO("Liévin", "62800")),
+                this.index.search("62", 10));
+        Assertions.assertEquals(List.of(new TownDTO("Nowhere", null)), this.index.search("now", 10));
+    }
+
+    /**
+     * A renamed town is found by its new name only, a removed town is not found anymore
+     */
+    @DisplayName("Test put and remove : the index follows the changes")
+    @Test
+    public void testPutAndRemove() {
+        this.index.put(1L, "Lens", "62300");
+        this.index.put(1L, "Arras", "62000");
+        Assertions.assertEquals(1, this.index.size());
+        Assertions.assertTrue(this.index.search("lens", 10).isEmpty());
+        Assertions.assertTrue(this.index.search("623", 10).isEmpty());
+        Assertions.assertEquals(List.of(new TownDTO("Arras", "62000")), this.index.search("arr", 10));
+        this.index.remove(1L);
+        Assertions.assertEquals(0, this.index.size());
+        Assertions.assertTrue(this.index.search("arr", 10).isEmpty());
+    }
+}
@@ -0,0 +1,230 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.event.EventCreateDTO;
+import fr.oukilson.backend.dto.event.EventDTO;
+import fr.oukilson.backend.dto.event.EventSearchDTO;
+import fr.oukilson.backend.dto.game.GameUuidDTO;
+import fr.oukilson.backend.dto.location.EventCreateLocationDTO;
+import fr.oukilson.backend.dto.location.TownDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
+import fr.oukilson.backend.entity.Game;
+import fr.oukilson.backend.entity.Location;
+import fr.oukilson.backend.entity.Town;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.GameRepository;
+import fr.oukilson.backend.repository.LocationRepository;
+import fr.oukilson.backend.repository.TownRepository;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Town dictionary and search of the events by town, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class TownServiceTest {
+    @Autowired
+    private TownService townService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private TownRepository townRepository;
+    @Autowired
+    private LocationRepository locationRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private GameRepository gameRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private Game game;
+    private User creator;
+
+    @BeforeAll
+    public void init() {
+        Game game = new Game();
+        game.setUuid(UUID.randomUUID().toString());
+        game.setName("Towns");
+        this.game = this.gameRepository.save(game);
+        User user = new User();
+        user.setNickname("to-"+UUID.randomUUID());
+        this.creator = this.userRepository.save(user);
+    }
+
+    /**
+     * Create an event through the service, in the given town
+     * @param town Town's name
+     * @param zipCode Town's zip code
+     * @return EventDTO
+     */
+    private EventDTO createEvent(String town, String zipCode) {
+        LocalDateTime now = LocalDateTime.now();
+        EventCreateDTO event = new EventCreateDTO("Towns", new UserNameDTO(this.creator.getNickname()),
+                new GameUuidDTO(this.game.getUuid()), 2, 4, now.plusDays(1), now.plusDays(2), null, "Towns",
+                false, new EventCreateLocationDTO(town, zipCode, null));
+        return this.eventService.save(event);
+    }
+
+    /**
+     * Search the uuids of the events by town
+     * @param town Start of the town's name
+     * @param zipCode Zip code, may be null
+     * @return Set of uuids
+     */
+    private Set<String> search(String town, String zipCode) {
+        EventSearchDTO filters = new EventSearchDTO();
+        filters.setTown(town);
+        filters.setZipCode(zipCode);
+        filters.setSize(100);
+        return this.eventService.search(filters).getEvents().stream().map(EventDTO::getUuid)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * The same town written differently is one entry of the dictionary, shown as first written
+     */
+    @DisplayName("Test resolve : one entry per normalized name and zip code")
+    @Test
+    public void testResolve() {
+        String name = "Villeneuve-d'Ascq "+UUID.randomUUID();
+        Town town = this.townService.resolve(name, "59650");
+        Assertions.assertEquals(TownIndex.normalize(name), town.getNormalizedName());
+        Assertions.assertEquals(town.getId(), this.townService.resolve(name.toUpperCase().replace('-', ' '),
+                " 59650 ").getId());
+        Assertions.assertNotEquals(town.getId(), this.townService.resolve(name, "59491").getId());
+        Assertions.assertNull(this.townService.resolve(" - ", "59650"));
+        Assertions.assertEquals(List.of(new TownDTO(name, "59650"), new TownDTO(name, "59491")),
+                this.townService.findByName(name.toLowerCase(), null).stream()
+                        .sorted(Comparator.comparing(TownDTO::getZipCode).reversed()).collect(Collectors.toList()));
+    }
+
+    /**
+     * A town is added in the caller's transaction : it is neither in the dictionary nor in the index
+     * when this transaction is rolled back
+     */
+    @DisplayName("Test resolve : the town is rolled back with the caller's transaction")
+    @Test
+    public void testResolveRolledBack() {
+        String name = "Rolled back "+UUID.randomUUID();
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            Assertions.assertNotNull(this.townService.resolve(name, "59000"));
+            status.setRollbackOnly();
+        });
+        Assertions.assertTrue(this.townRepository
+                .findByNormalizedNameAndZipCode(TownIndex.normalize(name), "59000").isEmpty());
+        Assertions.assertTrue(this.townService.findByName(name, null).isEmpty());
+        Town town = this.townService.resolve(name, "59000");
+        Assertions.assertEquals(List.of(new TownDTO(name, "59000")), this.townService.findByName(name, null));
+        Assertions.assertEquals(town.getId(), this.townService.resolve(name, "59000").getId());
+    }
+
+    /**
+     * A town created by several threads at once ends up once in the dictionary
+     */
+    @DisplayName("Test resolve : concurrent creations of the same town")
+    @Test
+    public void testResolveConcurrently() throws Exception {
+        String name = "Concurrent "+UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Town>> towns = new ArrayList<>();
+            for (int i=0; i<8; i++)
+                towns.add(executor.submit(() -> {
+                    start.await();
+                    return this.townService.resolve(name, "62300");
+                }));
+            start.countDown();
+            Set<Long> ids = new HashSet<>();
+            for (Future<Town> town : towns)
+                ids.add(town.get(10, TimeUnit.SECONDS).getId());
+            Assertions.assertEquals(1, ids.size());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A town without zip code, created by several threads at once or with a blank zip code,
+     * ends up once in the dictionary, with an empty zip code
+     */
+    @DisplayName("Test resolve : towns without zip code")
+    @Test
+    public void testResolveWithoutZipCode() throws Exception {
+        String name = "Nowhere "+UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Town>> towns = new ArrayList<>();
+            for (int i=0; i<8; i++)
+                towns.add(executor.submit(() -> {
+                    start.await();
+                    return this.townService.resolve(name, null);
+                }));
+            start.countDown();
+            Set<Long> ids = new HashSet<>();
+            for (Future<Town> town : towns)
+                ids.add(town.get(10, TimeUnit.SECONDS).getId());
+            Assertions.assertEquals(1, ids.size());
+            Town town = this.townService.resolve(name, " ");
+            Assertions.assertTrue(ids.contains(town.getId()));
+            Assertions.assertEquals("", town.getZipCode());
+            Assertions.assertEquals(List.of(new TownDTO(name, null)), this.townService.findByName(name, null));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Events are found by the start of their town's name, whatever the case, accents and punctuation,
+     * and by zip code
+     */
+    @DisplayName("Test search : events by town and zip code")
+    @Test
+    public void testSearchByTown() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        EventDTO first = this.createEvent("Saint-Étienne-"+suffix, "42000");
+        EventDTO second = this.createEvent("saint etienne "+suffix, "42100");
+        EventDTO other = this.createEvent("Sainte-Foy-"+suffix, "69110");
+        Assertions.assertEquals("Saint-Étienne-"+suffix, first.getLocation().getTown());
+
+        Assertions.assertEquals(Set.of(first.getUuid(), second.getUuid()),
+                this.search("SAINT ETIENNE "+suffix, null));
+        Assertions.assertEquals(Set.of(second.getUuid()), this.search("Saint-Etienne-"+suffix, "42100"));
+        Assertions.assertTrue(this.search("saint-", "69110").isEmpty());
+        Assertions.assertEquals(Set.of(other.getUuid()), this.search("sainte", "69110"));
+    }
+
+    /**
+     * Locations written before the dictionary are linked to their town
+     */
+    @DisplayName("Test linkLocations : locations without town are linked")
+    @Test
+    public void testLinkLocations() {
+        String name = "Legacy "+UUID.randomUUID();
+        Location first = this.locationRepository.save(new Location(null, name, "62300", null, null));
+        Location second = this.locationRepository.save(new Location(null, name.toLowerCase(), "62300", null, null));
+        Location without = this.locationRepository.save(new Location(null, null, null, null, null));
+        Assertions.assertTrue(this.townService.linkLocations()>=2);
+        Long town = this.locationRepository.findById(first.getId()).orElseThrow().getReferenceTown().getId();
+        Assertions.assertEquals(town,
+                this.locationRepository.findById(second.getId()).orElseThrow().getReferenceTown().getId());
+        Assertions.assertNull(this.locationRepository.findById(without.getId()).orElseThrow().getReferenceTown());
+        Assertions.assertEquals(name, this.townRepository.findById(town).orElseThrow().getName());
+        Assertions.assertEquals(0, this.townService.linkLocations());
+    }
+}
@@ -0,0 +1,100 @@
+package fr.oukilson.backend.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.util.UUID;
+
+/**
+ * Users' ids found by nickname are cached, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class UserIdCacheTest {
+    @Autowired
+    private UserService service;
+    @Autowired
+    private UserRepository repository;
+    @Autowired
+    private CacheManager cacheManager;
+    private CaffeineCache cache;
+
+    @BeforeAll
+    public void init() {
+        this.cache = (CaffeineCache) this.cacheManager.getCache(UserRepository.ID_CACHE);
+    }
+
+    @BeforeEach
+    public void clear() {
+        this.cache.clear();
+    }
+
+    /**
+     * Save a user with a random nickname
+     * @return User
+     */
+    private User createUser() {
+        User user = new User();
+        user.setNickname("cached-"+UUID.randomUUID());
+        user.setPassword("password");
+        user.setEmail("email@test.com");
+        return this.repository.save(user);
+    }
+
+    /**
+     * Operations on the same user only read his id once
+     */
+    @DisplayName("Test id cache : a found id is cached")
+    @Test
+    public void testFindIdByNicknameIsCached() {
+        User user = this.createUser();
+        User friend = this.createUser();
+        CacheStats before = this.cache.getNativeCache().stats();
+        Assertions.assertTrue(this.service.addUserToFriendList(user.getNickname(), friend.getNickname()));
+        Assertions.assertTrue(this.service.removeUserFromFriendList(user.getNickname(), friend.getNickname()));
+        CacheStats stats = this.cache.getNativeCache().stats().minus(before);
+        Assertions.assertEquals(2, stats.missCount());
+        Assertions.assertEquals(2, stats.hitCount());
+        Assertions.assertEquals(user.getId(), this.cache.get(user.getNickname()).get());
+    }
+
+    /**
+     * An unknown nickname is not cached, so the user is found once created
+     */
+    @DisplayName("Test id cache : an unknown nickname is not cached")
+    @Test
+    public void testUnknownNicknameIsNotCached() {
+        String nickname = "cached-"+UUID.randomUUID();
+        Assertions.assertTrue(this.repository.findIdByNickname(nickname).isEmpty());
+        Assertions.assertNull(this.cache.get(nickname));
+
+        User user = new User();
+        user.setNickname(nickname);
+        user.setPassword("password");
+        user.setEmail("email@test.com");
+        user = this.repository.save(user);
+        Assertions.assertEquals(user.getId(), this.repository.findIdByNickname(nickname).orElse(null));
+    }
+
+    /**
+     * A deleted user is not found anymore
+     */
+    @DisplayName("Test id cache : deleting a user evicts his id")
+    @Test
+    public void testDeleteEvictsId() {
+        User user = this.createUser();
+        Assertions.assertTrue(this.repository.findIdByNickname(user.getNickname()).isPresent());
+        this.repository.deleteById(user.getId());
+        Assertions.assertNull(this.cache.get(user.getNickname()));
+        Assertions.assertTrue(this.repository.findIdByNickname(user.getNickname()).isEmpty());
+    }
+}
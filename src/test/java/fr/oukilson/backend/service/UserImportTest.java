@@ -0,0 +1,124 @@
+package fr.oukilson.backend.service;
+
+import fr.oukilson.backend.dto.user.UserCreationDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserImportResultDTO;
+import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.EntityMapper;
+import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Users imported in batches, on the test database
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+public class UserImportTest {
+    @Autowired
+    private UserService service;
+    @Autowired
+    private UserRepository repository;
+    @Autowired
+    private PasswordHasher hasher;
+    @Autowired
+    private ModelMapper modelMapper;
+    @Autowired
+    private EntityMapper<User, UserDTO> userMapper;
+    @Autowired
+    private RegexCollection regexCollection;
+    @Autowired
+    private FriendshipStore friendshipStore;
+    @Autowired
+    private FriendGraph friendGraph;
+    @Autowired
+    private DeniedIndex deniedIndex;
+    @Autowired
+    private ThreadPoolTaskExecutor userWriteExecutor;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Members of a club are all inserted, more than one batch of them, except the nicknames already taken
+     */
+    @DisplayName("Test importUsers : users inserted in batches")
+    @Test
+    public void testImportUsers() {
+        String club = UUID.randomUUID().toString().substring(0, 8);
+        User existing = new User();
+        existing.setNickname(club+"_0");
+        existing.setPassword("password");
+        existing.setEmail("email@test.com");
+        this.repository.save(existing);
+        List<UserCreationDTO> users = new ArrayList<>();
+        for (int i=0; i<250; i++)
+            users.add(new UserCreationDTO(club+"_"+i, "password"+i, "member"+i+"@club.fr"));
+
+        UserImportReportDTO report = this.service.importUsers(users).join();
+        Assertions.assertEquals(249, report.getCreated());
+        Assertions.assertEquals(UserImportResultDTO.Status.ALREADY_EXISTS, report.getResults().get(0).getStatus());
+        Assertions.assertEquals(UserImportResultDTO.Status.CREATED, report.getResults().get(249).getStatus());
+        User member = this.repository.findByNickname(club+"_249").orElseThrow();
+        Assertions.assertEquals("member249@club.fr", member.getEmail());
+        Assertions.assertTrue(this.hasher.matches("password249", member.getPassword()));
+
+        // Importing them again creates nobody
+        report = this.service.importUsers(users).join();
+        Assertions.assertEquals(0, report.getCreated());
+        Assertions.assertEquals(0, report.getRowsPerSecond());
+        Assertions.assertTrue(report.getResults().stream()
+                .allMatch(result -> result.getStatus()==UserImportResultDTO.Status.ALREADY_EXISTS));
+    }
+
+    /**
+     * A member signs up while the club is imported, after the nicknames have been checked : the import
+     * still inserts all the other members, in one transaction, and reports this one as already existing
+     */
+    @DisplayName("Test importUsers : nickname taken by a sign-up during the import")
+    @Test
+    public void testImportUsersWithConcurrentSignUp() {
+        String club = UUID.randomUUID().toString().substring(0, 8);
+        PasswordHasher signUpWhileHashing = new PasswordHasher(4, 1, 10, new SimpleMeterRegistry()) {
+            @Override
+            public CompletableFuture<List<String>> hashAll(List<String> passwords) {
+                User member = new User();
+                member.setNickname(club+"_180");
+                member.setPassword("password");
+                member.setEmail("early@club.fr");
+                repository.save(member);
+                return super.hashAll(passwords);
+            }
+        };
+        UserService service = new UserService(this.repository, this.modelMapper, this.userMapper,
+                this.regexCollection, this.friendshipStore, this.friendGraph, this.deniedIndex, signUpWhileHashing,
+                this.userWriteExecutor, new TransactionTemplate(this.transactionManager));
+        List<UserCreationDTO> users = new ArrayList<>();
+        for (int i=0; i<250; i++)
+            users.add(new UserCreationDTO(club+"_"+i, "password"+i, "member"+i+"@club.fr"));
+
+        UserImportReportDTO report = service.importUsers(users).join();
+        Assertions.assertEquals(249, report.getCreated());
+        Assertions.assertEquals(UserImportResultDTO.Status.ALREADY_EXISTS, report.getResults().get(180).getStatus());
+        Assertions.assertEquals(UserImportResultDTO.Status.CREATED, report.getResults().get(249).getStatus());
+        Assertions.assertEquals("early@club.fr", this.repository.findByNickname(club+"_180").orElseThrow().getEmail());
+        Assertions.assertEquals("member249@club.fr",
+                this.repository.findByNickname(club+"_249").orElseThrow().getEmail());
+        signUpWhileHashing.shutdown();
+    }
+}
@@ -1,21 +1,46 @@
 package fr.oukilson.backend.service;
 
+import fr.oukilson.backend.dto.user.FriendAddResultDTO;
+import fr.oukilson.backend.dto.user.FriendPageDTO;
+import fr.oukilson.backend.dto.user.FriendSuggestionDTO;
+import fr.oukilson.backend.dto.user.MutualFriendsDTO;
 import fr.oukilson.backend.dto.user.UserCreationDTO;
 import fr.oukilson.backend.dto.user.UserDTO;
+import fr.oukilson.backend.dto.user.UserImportReportDTO;
+import fr.oukilson.backend.dto.user.UserImportResultDTO;
+import fr.oukilson.backend.dto.user.UserNameDTO;
 import fr.oukilson.backend.entity.User;
+import fr.oukilson.backend.mapper.UserDTOMapper;
+import fr.oukilson.backend.model.FriendCursor;
 import fr.oukilson.backend.model.RegexCollection;
+import fr.oukilson.backend.model.UserIdentity;
 import fr.oukilson.backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -25,11 +50,26 @@ public class UserServiceTest {
     private UserRepository userRepository;
     @Autowired
     private RegexCollection regexCollection;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
     private UserService service;
+    private FriendshipStore store;
+    private FriendGraph graph;
+    private DeniedIndex deniedIndex;
+    private PasswordHasher hasher;
 
     @BeforeAll
     public void init() {
-        service = new UserService(userRepository, new ModelMapper(), regexCollection);
+        graph = new FriendGraph();
+        store = new FriendshipStore(userRepository, graph);
+        deniedIndex = new DeniedIndex(userRepository, 1 << 16);
+        hasher = new PasswordHasher(4, 1, 10, new SimpleMeterRegistry());
+        service = new UserService(userRepository, new ModelMapper(), new UserDTOMapper(), regexCollection, store,
+                graph, deniedIndex, hasher, Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "user-write-test");
+                    thread.setDaemon(true);
+                    return thread;
+                }), new TransactionTemplate(transactionManager));
     }
 
     // Method findUserByNickname
@@ -60,25 +100,54 @@ public class UserServiceTest {
     @Test
     public void testFindUserByNicknameUserNotFound() {
         String nickname = "Popo";
-        BDDMockito.when(this.userRepository.findByNickname(nickname)).thenReturn(Optional.empty());
+        BDDMockito.when(this.userRepository.findIdentityByNickname(nickname)).thenReturn(Optional.empty());
         Assertions.assertNull(this.service.findUserByNickname(nickname));
     }
 
     /**
-     * Test findUserByNickname when nickname is valid and the user is found
+     * Test findUserByNickname when nickname is valid and the user is found :
+     * his stored nickname is returned, and he is not loaded
      */
     @DisplayName("Test findUserByNickname : user found")
     @Test
     public void testFindUserByNicknameUserFound() {
+        BDDMockito.when(this.userRepository.findIdentityByNickname("bruce"))
+                .thenReturn(Optional.of(new UserIdentity(100060L, "Bruce")));
+        UserDTO result = this.service.findUserByNickname("bruce");
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(new UserDTO("Bruce", 0, List.of(), null), result);
+        BDDMockito.verify(this.userRepository, BDDMockito.never()).findByNickname(ArgumentMatchers.anyString());
+    }
+
+    /**
+     * Test findUserByNickname for a user with many friends :
+     * only the friend count and the first page must be returned, with a cursor to the next one
+     */
+    @DisplayName("Test findUserByNickname : friend count and first page only")
+    @Test
+    public void testFindUserByNicknameWithManyFriends() {
         User user = new User();
-        user.setNickname("Bruce");
-        user.setPassword("kljsgfsmirgu");
-        user.setId(1L);
-        BDDMockito.when(this.userRepository.findByNickname(user.getNickname())).thenReturn(Optional.of(user));
+        user.setNickname("Wayne");
+        user.setId(100030L);
+        List<UserIdentity> friends = new LinkedList<>();
+        for (long i=1; i<=25; i++) {
+            BDDMockito.when(this.userRepository.insertFriend(user.getId(), 200030L+i)).thenReturn(1);
+            this.store.add(user.getId(), 200030L+i);
+            if (i<=21)
+                friends.add(new UserIdentity(200030L+i, "Robin"+i));
+        }
+        BDDMockito.when(this.userRepository.findIdentityByNickname(user.getNickname()))
+                .thenReturn(Optional.of(new UserIdentity(user.getId(), user.getNickname())));
+        BDDMockito.when(this.userRepository.findFriends(user.getId(), Long.MIN_VALUE, PageRequest.of(0, 21)))
+                .thenReturn(friends);
+
         UserDTO result = this.service.findUserByNickname(user.getNickname());
         Assertions.assertNotNull(result);
-        ModelMapper mapper = new ModelMapper();
-        Assertions.assertEquals(mapper.map(user, UserDTO.class), result);
+        Assertions.assertEquals("Wayne", result.getNickname());
+        Assertions.assertEquals(25, result.getFriendCount());
+        Assertions.assertEquals(20, result.getFriendList().size());
+        Assertions.assertEquals(new UserNameDTO("Robin1"), result.getFriendList().get(0));
+        Assertions.assertEquals(200050L, FriendCursor.decode(result.getNextFriendCursor()).getId());
     }
 
     // Method createUser
@@ -89,7 +158,7 @@ public class UserServiceTest {
     @DisplayName("Test createUser : userCreationDTO null")
     @Test
     public void testCreateUserNullDTO() {
-        UserDTO dto = Assertions.assertDoesNotThrow(() -> this.service.createUser(null));
+        UserDTO dto = Assertions.assertDoesNotThrow(() -> this.service.createUser(null).join());
         Assertions.assertNull(dto);
     }
 
@@ -100,7 +169,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNullNickname() {
         UserCreationDTO dto = new UserCreationDTO(null, "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -110,7 +179,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNullPassword() {
         UserCreationDTO dto = new UserCreationDTO("Raymond", null, "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -120,7 +189,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNullEmail() {
         UserCreationDTO dto = new UserCreationDTO("Trevor", "esdrftghjkkl", null);
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -130,7 +199,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmptyNickname() {
         UserCreationDTO dto = new UserCreationDTO("", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -140,7 +209,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmptyPassword() {
         UserCreationDTO dto = new UserCreationDTO("Billy", "", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -150,7 +219,7 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmptyEmail() {
         UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -160,11 +229,11 @@ public class UserServiceTest {
     @Test
     public void testCreateUserEmailNotValid() {
         UserCreationDTO dto = new UserCreationDTO("Touty", "esdrftghjkkl", "blabla@tutu.");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("Touty", "esdrftghjkkl", "blablatutu.");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("Touty", "esdrftghjkkl", "blabla@tutu");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -174,22 +243,22 @@ public class UserServiceTest {
     @Test
     public void testCreateUserNicknameNotValid() {
         UserCreationDTO dto = new UserCreationDTO("Eloïse", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("Un nickname", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("Boréale", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("P89", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO(
                 "Piiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiiii",
                 "esdrftghjkkl",
                 "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("P", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
         dto = new UserCreationDTO("Moldu!", "esdrftghjkkl", "blabla@tutu.com");
-        Assertions.assertNull(this.service.createUser(dto));
+        Assertions.assertNull(this.service.createUser(dto).join());
     }
 
     /**
@@ -203,7 +272,25 @@ public class UserServiceTest {
         User user = mapper.map(dto, User.class);
         BDDMockito.given(userRepository.save(ArgumentMatchers.any(User.class)))
                 .willAnswer(inv -> { throw new SQLException("Duplicate entry");});
-        Assertions.assertThrows(SQLException.class, () -> this.service.createUser(dto));
+        CompletionException exception = Assertions.assertThrows(CompletionException.class,
+                () -> this.service.createUser(dto).join());
+        Assertions.assertTrue(exception.getCause() instanceof SQLException);
+    }
+
+    /**
+     * Test createUser when the write executor is full : the future fails and nothing is saved
+     */
+    @DisplayName("Test createUser : too many users waiting to be saved")
+    @Test
+    public void testCreateUserSavingRejected() {
+        UserService busy = new UserService(userRepository, new ModelMapper(), new UserDTOMapper(), regexCollection,
+                store, graph, deniedIndex, hasher, runnable -> { throw new RejectedExecutionException("Queue full."); },
+                new TransactionTemplate(transactionManager));
+        UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "letruc@yahoo.de");
+        CompletionException exception = Assertions.assertThrows(CompletionException.class,
+                () -> busy.createUser(dto).join());
+        Assertions.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        BDDMockito.verify(userRepository, BDDMockito.never()).save(ArgumentMatchers.any(User.class));
     }
 
     /**
@@ -215,21 +302,134 @@ public class UserServiceTest {
         UserCreationDTO dto = new UserCreationDTO("Jimmy", "esdrftghjkkl", "letruc@yahoo.de");
         ModelMapper mapper = new ModelMapper();
         User user = mapper.map(dto, User.class);
-        BDDMockito.when(userRepository.save(ArgumentMatchers.any(User.class))).thenReturn(user);
-        UserDTO result = this.service.createUser(dto);
+        AtomicReference<String> savingThread = new AtomicReference<>();
+        BDDMockito.when(userRepository.save(ArgumentMatchers.any(User.class))).thenAnswer(invocation -> {
+            savingThread.set(Thread.currentThread().getName());
+            return user;
+        });
+        UserDTO result = this.service.createUser(dto).join();
         Assertions.assertNotNull(result);
         Assertions.assertEquals(mapper.map(user, UserDTO.class), result);
+
+        // The user is saved on the write executor, not on a hashing thread
+        Assertions.assertEquals("user-write-test", savingThread.get());
+
+        // The password is saved hashed
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        BDDMockito.verify(userRepository).save(saved.capture());
+        Assertions.assertNotEquals(dto.getPassword(), saved.getValue().getPassword());
+        Assertions.assertTrue(this.hasher.matches(dto.getPassword(), saved.getValue().getPassword()));
+    }
+
+    // Method importUsers
+
+    /**
+     * Test importUsers : only the valid users with a free nickname are inserted, with their password hashed
+     */
+    @DisplayName("Test importUsers : outcome of each user")
+    @Test
+    public void testImportUsers() {
+        BDDMockito.when(this.userRepository.findIdentitiesByNicknames(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of(new UserIdentity(300001L, "Ancien")));
+        List<UserCreationDTO> users = new LinkedList<>();
+        users.add(new UserCreationDTO("Nouveau", "password1", "nouveau@club.fr"));
+        users.add(new UserCreationDTO("ancien", "password2", "ancien@club.fr"));
+        users.add(new UserCreationDTO("Moldu!", "password3", "moldu@club.fr"));
+        users.add(new UserCreationDTO("NOUVEAU", "password4", "double@club.fr"));
+        users.add(null);
+        users.add(new UserCreationDTO("Membre", "password5", "membre@club.fr"));
+
+        UserImportReportDTO report = this.service.importUsers(users).join();
+        Assertions.assertEquals(List.of(
+                new UserImportResultDTO("Nouveau", UserImportResultDTO.Status.CREATED),
+                new UserImportResultDTO("ancien", UserImportResultDTO.Status.ALREADY_EXISTS),
+                new UserImportResultDTO("Moldu!", UserImportResultDTO.Status.INVALID),
+                new UserImportResultDTO("NOUVEAU", UserImportResultDTO.Status.DUPLICATE),
+                new UserImportResultDTO(null, UserImportResultDTO.Status.INVALID),
+                new UserImportResultDTO("Membre", UserImportResultDTO.Status.CREATED)), report.getResults());
+        Assertions.assertEquals(2, report.getCreated());
+        Assertions.assertTrue(report.getRowsPerSecond()>0);
+
+        // One query for the nicknames, one batch for the users
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.forClass(List.class);
+        BDDMockito.verify(this.userRepository, BDDMockito.times(1))
+                .findIdentitiesByNicknames(ArgumentMatchers.anyCollection());
+        BDDMockito.verify(this.userRepository).insertUsers(inserted.capture());
+        BDDMockito.verify(this.userRepository, BDDMockito.never()).save(ArgumentMatchers.any(User.class));
+        Assertions.assertEquals(2, inserted.getValue().size());
+        Assertions.assertEquals("Membre", inserted.getValue().get(1).getNickname());
+        Assertions.assertEquals("membre@club.fr", inserted.getValue().get(1).getEmail());
+        Assertions.assertTrue(this.hasher.matches("password5", inserted.getValue().get(1).getPassword()));
+    }
+
+    /**
+     * Test importUsers when a nickname is taken by a sign-up between its check and the insert :
+     * the insert is done again without this user, who is reported as already existing
+     */
+    @DisplayName("Test importUsers : nickname taken during the import")
+    @Test
+    public void testImportUsersNicknameTakenMeanwhile() {
+        BDDMockito.when(this.userRepository.findIdentitiesByNicknames(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new UserIdentity(300002L, "membre")));
+        BDDMockito.when(this.userRepository.insertUsers(ArgumentMatchers.anyList()))
+                .thenThrow(new DuplicateKeyException("uk_user_nickname"))
+                .thenReturn(new int[] {1});
+        List<UserCreationDTO> users = List.of(new UserCreationDTO("Nouveau", "password1", "nouveau@club.fr"),
+                new UserCreationDTO("Membre", "password2", "membre@club.fr"));
+
+        UserImportReportDTO report = this.service.importUsers(users).join();
+        Assertions.assertEquals(List.of(
+                new UserImportResultDTO("Nouveau", UserImportResultDTO.Status.CREATED),
+                new UserImportResultDTO("Membre", UserImportResultDTO.Status.ALREADY_EXISTS)), report.getResults());
+        Assertions.assertEquals(1, report.getCreated());
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.forClass(List.class);
+        BDDMockito.verify(this.userRepository, BDDMockito.times(2)).insertUsers(inserted.capture());
+        Assertions.assertEquals(List.of("Nouveau"), inserted.getValue().stream()
+                .map(User::getNickname).collect(Collectors.toList()));
+    }
+
+    /**
+     * Test importUsers when no user can be created, or when the list is invalid
+     */
+    @DisplayName("Test importUsers : nothing to insert and invalid lists")
+    @Test
+    public void testImportUsersInvalid() {
+        UserImportReportDTO report = this.service.importUsers(
+                List.of(new UserCreationDTO("Moldu!", "password", "moldu@club.fr"))).join();
+        Assertions.assertEquals(0, report.getCreated());
+        Assertions.assertEquals(0, report.getRowsPerSecond());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.importUsers(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.importUsers(List.of()));
+        UserCreationDTO user = new UserCreationDTO("Membre", "password", "membre@club.fr");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.importUsers(Collections.nCopies(5001, user)));
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .findIdentitiesByNicknames(ArgumentMatchers.anyCollection());
+        BDDMockito.verify(this.userRepository, BDDMockito.never()).insertUsers(ArgumentMatchers.anyList());
     }
 
     // Method addUserToFriendList
 
+    /**
+     * Mock the ids of two users
+     * @param nickname1 First user's nickname
+     * @param id1 First user's id
+     * @param nickname2 Second user's nickname
+     * @param id2 Second user's id
+     */
+    private void mockIds(String nickname1, Long id1, String nickname2, Long id2) {
+        BDDMockito.when(this.userRepository.findIdByNickname(nickname1)).thenReturn(Optional.ofNullable(id1));
+        BDDMockito.when(this.userRepository.findIdByNickname(nickname2)).thenReturn(Optional.ofNullable(id2));
+    }
+
     /**
      * Test addUserToFriendList when mainUser is null
      */
     @DisplayName("Test addUserToFriendList : mainUser is null")
     @Test
     public void testAddUserToFriendListNullMainUser() {
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findIdByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.addUserToFriendList(null, "Machin"));
@@ -242,8 +442,8 @@ public class UserServiceTest {
     @Test
     public void testAddUserToFriendListNullSecondUser() {
         String mainUser = "Ortie";
-        BDDMockito.when(userRepository.findByNickname(mainUser)).thenThrow(NullPointerException.class);
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findIdByNickname(mainUser)).thenReturn(Optional.of(100000L));
+        BDDMockito.when(userRepository.findIdByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.addUserToFriendList(mainUser, null));
@@ -255,14 +455,10 @@ public class UserServiceTest {
     @DisplayName("Test addUserToFriendList : mainUser is not found")
     @Test
     public void testAddUserToFriendListMainUserNotFound() {
-        User mainUser = new User();
-        mainUser.setId(100000L);
-        mainUser.setNickname("Eliott");
-        User secondUser = new User();
-        secondUser.setId(200000L);
-        secondUser.setNickname("Dorian");
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
+        this.mockIds("Eliott", null, "Dorian", 200000L);
+        Assertions.assertFalse(this.service.addUserToFriendList("Eliott", "Dorian"));
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .insertFriend(ArgumentMatchers.any(), ArgumentMatchers.eq(200000L));
     }
 
     /**
@@ -271,37 +467,55 @@ public class UserServiceTest {
     @DisplayName("Test addUserToFriendList : secondUser is not found")
     @Test
     public void testAddUserToFriendListSecondUserNotFound() {
-        User mainUser = new User();
-        mainUser.setId(100000L);
-        mainUser.setNickname("Eliott");
-        User secondUser = new User();
-        secondUser.setId(200000L);
-        secondUser.setNickname("Dorian");
-        BDDMockito.when(userRepository.findByNickname(secondUser.getNickname())).thenReturn(Optional.of(secondUser));
-        Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
+        this.mockIds("Eliott", 100001L, "Dorian", null);
+        Assertions.assertFalse(this.service.addUserToFriendList("Eliott", "Dorian"));
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .insertFriend(ArgumentMatchers.eq(100001L), ArgumentMatchers.any());
     }
 
     /**
-     * Test addUserToFriendList when secondUser is already in the friend list
+     * Test addUserToFriendList when secondUser is already in the friend list :
+     * the row is still sent, and ignored by the database
      */
     @DisplayName("Test addUserToFriendList : secondUser already in")
     @Test
     public void testAddUserToFriendListSecondUserAlreadyInFriendList() {
         // Setting up
-        User mainUser = new User();
-        mainUser.setId(100000L);
-        mainUser.setNickname("Eliott");
-        User secondUser = new User();
-        secondUser.setId(200000L);
-        secondUser.setNickname("Dorian");
-        mainUser.getFriendList().add(secondUser);
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        BDDMockito.when(userRepository.findByNickname(secondUser.getNickname())).thenReturn(Optional.of(secondUser));
+        this.mockIds("Eliott", 100002L, "Dorian", 200002L);
+        BDDMockito.when(this.userRepository.insertFriend(100002L, 200002L)).thenReturn(1, 0);
+        Assertions.assertTrue(this.store.add(100002L, 200002L));
 
         // Assert
-        Assertions.assertTrue(mainUser.getFriendList().contains(secondUser));
-        Assertions.assertFalse(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
-        Assertions.assertTrue(mainUser.getFriendList().contains(secondUser));
+        Assertions.assertTrue(this.store.areFriends(100002L, 200002L));
+        Assertions.assertFalse(this.service.addUserToFriendList("Eliott", "Dorian"));
+        Assertions.assertTrue(this.store.areFriends(100002L, 200002L));
+        BDDMockito.verify(this.userRepository, BDDMockito.times(2)).insertFriend(100002L, 200002L);
+    }
+
+    /**
+     * Test addUserToFriendList when the memory wrongly has secondUser in the friend list :
+     * the database decides, and the row is written
+     */
+    @DisplayName("Test addUserToFriendList : the database decides over the memory")
+    @Test
+    public void testAddUserToFriendListDatabaseDecides() {
+        this.mockIds("Eliott", 100070L, "Dorian", 200070L);
+        BDDMockito.when(this.userRepository.insertFriend(100070L, 200070L)).thenReturn(1);
+        this.store.add(100070L, 200070L);
+        Assertions.assertTrue(this.service.addUserToFriendList("Eliott", "Dorian"));
+        BDDMockito.verify(this.userRepository, BDDMockito.times(2)).insertFriend(100070L, 200070L);
+    }
+
+    /**
+     * Test addUserToFriendList when the database refuses the row, as the friendship already exists there
+     */
+    @DisplayName("Test addUserToFriendList : secondUser already in the database")
+    @Test
+    public void testAddUserToFriendListSecondUserAlreadyInDatabase() {
+        this.mockIds("Eliott", 100003L, "Dorian", 200003L);
+        BDDMockito.when(this.userRepository.insertFriend(100003L, 200003L)).thenReturn(0);
+        Assertions.assertFalse(this.service.addUserToFriendList("Eliott", "Dorian"));
+        Assertions.assertFalse(this.store.areFriends(100003L, 200003L));
     }
 
     /**
@@ -311,19 +525,122 @@ public class UserServiceTest {
     @Test
     public void testAddUserToFriendListSecondUserAddedSuccessfully() {
         // Setting up
-        User mainUser = new User();
-        mainUser.setId(100000L);
-        mainUser.setNickname("Eliott");
-        User secondUser = new User();
-        secondUser.setId(200000L);
-        secondUser.setNickname("Dorian");
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        BDDMockito.when(userRepository.findByNickname(secondUser.getNickname())).thenReturn(Optional.of(secondUser));
+        this.mockIds("Eliott", 100004L, "Dorian", 200004L);
+        BDDMockito.when(this.userRepository.insertFriend(100004L, 200004L)).thenReturn(1);
 
         // Assert
-        Assertions.assertFalse(mainUser.getFriendList().contains(secondUser));
-        Assertions.assertTrue(this.service.addUserToFriendList(mainUser.getNickname(), secondUser.getNickname()));
-        Assertions.assertTrue(mainUser.getFriendList().contains(secondUser));
+        Assertions.assertFalse(this.store.areFriends(100004L, 200004L));
+        Assertions.assertTrue(this.service.addUserToFriendList("Eliott", "Dorian"));
+        Assertions.assertTrue(this.store.areFriends(100004L, 200004L));
+        Assertions.assertFalse(this.store.areFriends(200004L, 100004L));
+    }
+
+    /**
+     * Test addUserToFriendList when secondUser has denied mainUser : the friendship must not be written
+     */
+    @DisplayName("Test addUserToFriendList : mainUser denied by secondUser")
+    @Test
+    public void testAddUserToFriendListDenied() {
+        this.mockIds("Eliott", 100005L, "Dorian", 200005L);
+        BDDMockito.when(this.userRepository.countDenied(200005L, 100005L)).thenReturn(1);
+        this.deniedIndex.add(200005L, 100005L);
+
+        Assertions.assertFalse(this.service.addUserToFriendList("Eliott", "Dorian"));
+        Assertions.assertFalse(this.store.areFriends(100005L, 200005L));
+        BDDMockito.verify(this.userRepository, BDDMockito.never()).insertFriend(100005L, 200005L);
+    }
+
+    /**
+     * Test addUserToFriendList when nobody has denied mainUser : the denials are not read from the database
+     */
+    @DisplayName("Test addUserToFriendList : denials checked in memory")
+    @Test
+    public void testAddUserToFriendListNotDenied() {
+        this.mockIds("Eliott", 100006L, "Dorian", 200006L);
+        BDDMockito.when(this.userRepository.insertFriend(100006L, 200006L)).thenReturn(1);
+        Assertions.assertTrue(this.service.addUserToFriendList("Eliott", "Dorian"));
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .countDenied(ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    // Method addUsersToFriendList
+
+    /**
+     * Test addUsersToFriendList : each nickname gets its own result, in the given order.
+     * The nicknames are resolved in one query, and all the allowed friends are sent to the database in one batch :
+     * its row counts tell which ones are added.
+     */
+    @DisplayName("Test addUsersToFriendList : result for each nickname")
+    @Test
+    public void testAddUsersToFriendList() {
+        long userId = 100040L;
+        BDDMockito.when(this.userRepository.findIdByNickname("Contacts")).thenReturn(Optional.of(userId));
+        BDDMockito.when(this.userRepository.insertFriend(userId, 200041L)).thenReturn(1);
+        this.store.add(userId, 200041L);
+        BDDMockito.when(this.userRepository.findIdentitiesByNicknames(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of(new UserIdentity(200041L, "Ancien"), new UserIdentity(200042L, "Nouveau"),
+                        new UserIdentity(200043L, "Refuse"), new UserIdentity(200044L, "Bloque")));
+        BDDMockito.when(this.userRepository.insertFriends(userId, List.of(200041L, 200042L, 200043L)))
+                .thenReturn(new int[] {0, 1, 0});
+        BDDMockito.when(this.userRepository.countDenied(200044L, userId)).thenReturn(1);
+        this.deniedIndex.add(200044L, userId);
+
+        List<FriendAddResultDTO> result = this.service.addUsersToFriendList("Contacts",
+                List.of("Nouveau", "Ancien", "Inconnu", "nouveau", "Refuse", "Bloque"));
+        Assertions.assertEquals(List.of(
+                new FriendAddResultDTO("Nouveau", FriendAddResultDTO.Status.ADDED),
+                new FriendAddResultDTO("Ancien", FriendAddResultDTO.Status.ALREADY_FRIEND),
+                new FriendAddResultDTO("Inconnu", FriendAddResultDTO.Status.NOT_FOUND),
+                new FriendAddResultDTO("nouveau", FriendAddResultDTO.Status.ALREADY_FRIEND),
+                new FriendAddResultDTO("Refuse", FriendAddResultDTO.Status.ALREADY_FRIEND),
+                new FriendAddResultDTO("Bloque", FriendAddResultDTO.Status.DENIED)), result);
+        Assertions.assertTrue(this.store.areFriends(userId, 200042L));
+        Assertions.assertFalse(this.store.areFriends(userId, 200043L));
+        BDDMockito.verify(this.userRepository, BDDMockito.times(1))
+                .findIdentitiesByNicknames(ArgumentMatchers.anyCollection());
+        BDDMockito.verify(this.userRepository, BDDMockito.never()).insertFriend(userId, 200042L);
+    }
+
+    /**
+     * Test addUsersToFriendList when the driver doesn't tell which rows are inserted :
+     * the friendships are read again and kept in memory, but not reported as added
+     */
+    @DisplayName("Test addUsersToFriendList : row counts unknown")
+    @Test
+    public void testAddUsersToFriendListWithoutRowCounts() {
+        long userId = 100071L;
+        BDDMockito.when(this.userRepository.findIdByNickname("Contacts")).thenReturn(Optional.of(userId));
+        BDDMockito.when(this.userRepository.findIdentitiesByNicknames(ArgumentMatchers.anyCollection()))
+                .thenReturn(List.of(new UserIdentity(200071L, "Ami"), new UserIdentity(200072L, "Disparu")));
+        BDDMockito.when(this.userRepository.insertFriends(userId, List.of(200071L, 200072L)))
+                .thenReturn(new int[] {Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        BDDMockito.when(this.userRepository.findFriendIds(userId, List.of(200071L, 200072L)))
+                .thenReturn(List.of(200071L));
+
+        Assertions.assertEquals(List.of(
+                new FriendAddResultDTO("Ami", FriendAddResultDTO.Status.ALREADY_FRIEND),
+                new FriendAddResultDTO("Disparu", FriendAddResultDTO.Status.ALREADY_FRIEND)),
+                this.service.addUsersToFriendList("Contacts", List.of("Ami", "Disparu")));
+        Assertions.assertTrue(this.store.areFriends(userId, 200071L));
+        Assertions.assertFalse(this.store.areFriends(userId, 200072L));
+    }
+
+    /**
+     * Test addUsersToFriendList when the main user is not found, or when the list is invalid
+     */
+    @DisplayName("Test addUsersToFriendList : unknown user and invalid lists")
+    @Test
+    public void testAddUsersToFriendListInvalid() {
+        BDDMockito.when(this.userRepository.findIdByNickname("Nobody")).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.addUsersToFriendList("Nobody", List.of("Ami")));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.addUsersToFriendList("Nobody", null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.addUsersToFriendList("Nobody", List.of()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.addUsersToFriendList("Nobody", Collections.nCopies(1001, "Ami")));
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .insertFriends(ArgumentMatchers.any(), ArgumentMatchers.anyList());
     }
 
     // Method removeUserFromFriendList
@@ -334,7 +651,7 @@ public class UserServiceTest {
     @DisplayName("Test removeUserFromFriendList : mainUser is null")
     @Test
     public void testRemoveUserFromFriendListNullMainUser() {
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(userRepository.findIdByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
                 () -> this.service.removeUserFromFriendList(null, "Machin"));
@@ -346,13 +663,12 @@ public class UserServiceTest {
     @DisplayName("Test removeUserFromFriendList : secondUser is null")
     @Test
     public void testRemoveUserFromFriendListNullSecondUser() {
-        User mainUser = new User();
-        mainUser.setNickname("Pouic");
-        BDDMockito.when(userRepository.findByNickname(mainUser.getNickname())).thenReturn(Optional.of(mainUser));
-        BDDMockito.when(userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        String nickname = "Pouic";
+        BDDMockito.when(userRepository.findIdByNickname(nickname)).thenReturn(Optional.of(100005L));
+        BDDMockito.when(userRepository.findIdByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(
                 NullPointerException.class,
-                () -> this.service.removeUserFromFriendList(mainUser.getNickname(), null));
+                () -> this.service.removeUserFromFriendList(nickname, null));
     }
 
     /**
@@ -361,10 +677,8 @@ public class UserServiceTest {
     @DisplayName("Test removeUserFromFriendList : mainUser is not found")
     @Test
     public void testRemoveUserFromFriendListMainUserNotFound() {
-        String nickname1 = "Radio";
-        String nickname2 = "Gaga";
-        BDDMockito.when(userRepository.findByNickname(nickname1)).thenReturn(Optional.empty());
-        Assertions.assertFalse(this.service.removeUserFromFriendList(nickname1, nickname2));
+        this.mockIds("Radio", null, "Gaga", 200006L);
+        Assertions.assertFalse(this.service.removeUserFromFriendList("Radio", "Gaga"));
     }
 
     /**
@@ -373,13 +687,10 @@ public class UserServiceTest {
     @DisplayName("Test removeUserFromFriendList : secondUser is not found")
     @Test
     public void testRemoveUserFromFriendListSecondUserNotFound() {
-        String nickname1 = "Radio";
-        String nickname2 = "Gaga";
-        User user = new User();
-        user.setNickname(nickname1);
-        BDDMockito.when(userRepository.findByNickname(nickname1)).thenReturn(Optional.of(user));
-        BDDMockito.when(userRepository.findByNickname(nickname2)).thenReturn(Optional.empty());
-        Assertions.assertFalse(this.service.removeUserFromFriendList(nickname1, nickname2));
+        this.mockIds("Radio", 100007L, "Gaga", null);
+        Assertions.assertFalse(this.service.removeUserFromFriendList("Radio", "Gaga"));
+        BDDMockito.verify(this.userRepository, BDDMockito.never())
+                .deleteFriend(ArgumentMatchers.eq(100007L), ArgumentMatchers.any());
     }
 
     /**
@@ -389,30 +700,21 @@ public class UserServiceTest {
     @Test
     public void testRemoveUserFromFriendListEverythingOk() {
         // Populate the friend list
-        String nickname1 = "Radio";
-        String nickname2 = "Gaga";
-        User user1 = new User();
-        user1.setNickname(nickname1);
-        User user2 = new User();
-        user2.setNickname(nickname2);
-        user2.setId(1000L);
-        user1.getFriendList().add(user2);
+        long userId = 100008L;
         int size = 3;
-        for (int i=0; i<size; i++) {
-            User temp = new User();
-            temp.setId((long)i);
-            temp.setNickname("User "+i);
-            user1.getFriendList().add(temp);
-        }
+        BDDMockito.when(this.userRepository.insertFriend(ArgumentMatchers.eq(userId), ArgumentMatchers.any()))
+                .thenReturn(1);
+        for (long i=0; i<=size; i++)
+            this.store.add(userId, 200008L+i);
 
         // Mock and assert
-        BDDMockito.when(userRepository.findByNickname(nickname1)).thenReturn(Optional.of(user1));
-        BDDMockito.when(userRepository.findByNickname(nickname2)).thenReturn(Optional.of(user2));
-        Assertions.assertEquals(size+1, user1.getFriendList().size());
-        Assertions.assertTrue(user1.getFriendList().contains(user2));
-        Assertions.assertTrue(this.service.removeUserFromFriendList(nickname1, nickname2));
-        Assertions.assertEquals(size, user1.getFriendList().size());
-        Assertions.assertFalse(user1.getFriendList().contains(user2));
+        this.mockIds("Radio", userId, "Gaga", 200008L);
+        BDDMockito.when(this.userRepository.deleteFriend(userId, 200008L)).thenReturn(1);
+        Assertions.assertEquals(size+1, this.store.countFriends(userId));
+        Assertions.assertTrue(this.service.removeUserFromFriendList("Radio", "Gaga"));
+        Assertions.assertEquals(size, this.store.countFriends(userId));
+        Assertions.assertFalse(this.store.areFriends(userId, 200008L));
+        BDDMockito.verify(this.userRepository).deleteFriend(userId, 200008L);
     }
 
     // Method emptyFriendList
@@ -423,40 +725,204 @@ public class UserServiceTest {
     @DisplayName("Test emptyFriendList : null nickname")
     @Test
     public void testEmptyFriendListNullNickname() {
-        BDDMockito.when(this.userRepository.findByNickname(null)).thenThrow(NullPointerException.class);
+        BDDMockito.when(this.userRepository.findIdByNickname(null)).thenThrow(NullPointerException.class);
         Assertions.assertThrows(NullPointerException.class, () -> this.service.emptyFriendList(null));
     }
 
     /**
-     * Test emptyFriendList when user is found
+     * Test emptyFriendList when user is not found
      */
     @DisplayName("Test emptyFriendList : user not found")
     @Test
     public void testEmptyFriendListUserIsFound() {
         String nickname = "Alpha";
-        BDDMockito.when(this.userRepository.findByNickname(nickname)).thenReturn(Optional.empty());
+        BDDMockito.when(this.userRepository.findIdByNickname(nickname)).thenReturn(Optional.empty());
         Assertions.assertFalse(this.service.emptyFriendList(nickname));
     }
 
     /**
-     * Test emptyFriendList when user is not found
+     * Test emptyFriendList when user is found
      */
     @DisplayName("Test emptyFriendList : user found, empty successful")
     @Test
     public void testEmptyFriendListUserNotFound() {
-        String nickname = "Alpha";
-        User user = new User();
-        user.setNickname(nickname);
+        String nickname = "Beta";
+        long userId = 100009L;
         int size = 2;
-        for (int i=0; i<size; i++) {
-            User temp = new User();
-            temp.setId((long)i);
-            temp.setNickname("User "+i);
-            user.getFriendList().add(temp);
-        }
-        BDDMockito.when(this.userRepository.findByNickname(nickname)).thenReturn(Optional.of(user));
-        Assertions.assertEquals(size, user.getFriendList().size());
+        BDDMockito.when(this.userRepository.insertFriend(ArgumentMatchers.eq(userId), ArgumentMatchers.any()))
+                .thenReturn(1);
+        for (long i=0; i<size; i++)
+            this.store.add(userId, 200009L+i);
+        BDDMockito.when(this.userRepository.findIdByNickname(nickname)).thenReturn(Optional.of(userId));
+        BDDMockito.when(this.userRepository.deleteFriends(userId)).thenReturn(size);
+
+        Assertions.assertEquals(size, this.store.countFriends(userId));
         Assertions.assertTrue(this.service.emptyFriendList(nickname));
-        Assertions.assertEquals(0, user.getFriendList().size());
+        Assertions.assertEquals(0, this.store.countFriends(userId));
+        BDDMockito.verify(this.userRepository).deleteFriends(userId);
+    }
+
+    // Methods denyUser and allowUser
+
+    /**
+     * Test denyUser : the denial is written, and the main user leaves the denied user's friend list
+     */
+    @DisplayName("Test denyUser : denial written and friendship removed")
+    @Test
+    public void testDenyUser() {
+        this.mockIds("Garde", 100050L, "Intrus", 200050L);
+        BDDMockito.when(this.userRepository.insertDenied(100050L, 200050L)).thenReturn(1);
+        Assertions.assertTrue(this.service.denyUser("Garde", "Intrus"));
+        Assertions.assertTrue(this.deniedIndex.mayBeDenied(200050L));
+        BDDMockito.verify(this.userRepository).deleteFriend(200050L, 100050L);
+
+        BDDMockito.when(this.userRepository.deleteDenied(100050L, 200050L)).thenReturn(1);
+        Assertions.assertTrue(this.service.allowUser("Garde", "Intrus"));
+        BDDMockito.verify(this.userRepository).deleteDenied(100050L, 200050L);
+    }
+
+    /**
+     * Test denyUser and allowUser when a user doesn't exist, or when there is nothing to change
+     */
+    @DisplayName("Test denyUser and allowUser : unknown users and no change")
+    @Test
+    public void testDenyUserNothingDone() {
+        this.mockIds("Garde", 100051L, "Personne", null);
+        Assertions.assertFalse(this.service.denyUser("Garde", "Personne"));
+        Assertions.assertFalse(this.service.allowUser("Garde", "Personne"));
+
+        this.mockIds("Garde", 100051L, "Intrus", 200051L);
+        Assertions.assertFalse(this.service.denyUser("Garde", "Intrus"));
+        Assertions.assertFalse(this.service.allowUser("Garde", "Intrus"));
+        BDDMockito.verify(this.userRepository, BDDMockito.never()).deleteFriend(200051L, 100051L);
+    }
+
+    // Method findFriends
+
+    /**
+     * Test findFriends when the user is not found
+     */
+    @DisplayName("Test findFriends : user not found")
+    @Test
+    public void testFindFriendsUserNotFound() {
+        BDDMockito.when(this.userRepository.findIdByNickname("Nobody")).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.findFriends("Nobody", null, null));
+    }
+
+    /**
+     * Test findFriends when there are more friends than the page size :
+     * the cursor must point to the last friend of the page
+     */
+    @DisplayName("Test findFriends : more friends than the page size")
+    @Test
+    public void testFindFriendsWithNextPage() {
+        long userId = 100010L;
+        List<UserIdentity> friends = new LinkedList<>();
+        for (long i=1; i<=3; i++)
+            friends.add(new UserIdentity(200010L+i, "Ami"+i));
+        BDDMockito.when(this.userRepository.findIdByNickname("Gamma")).thenReturn(Optional.of(userId));
+        BDDMockito.when(this.userRepository.findFriends(userId, 200010L, PageRequest.of(0, 3))).thenReturn(friends);
+
+        FriendPageDTO result = this.service.findFriends("Gamma", new FriendCursor(200010L).encode(), 2);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(List.of(new UserNameDTO("Ami1"), new UserNameDTO("Ami2")), result.getFriends());
+        Assertions.assertEquals(200012L, FriendCursor.decode(result.getNextCursor()).getId());
+    }
+
+    /**
+     * Test findFriends on the last page : no cursor
+     */
+    @DisplayName("Test findFriends : last page")
+    @Test
+    public void testFindFriendsLastPage() {
+        long userId = 100011L;
+        BDDMockito.when(this.userRepository.findIdByNickname("Delta")).thenReturn(Optional.of(userId));
+        BDDMockito.when(this.userRepository.findFriends(userId, Long.MIN_VALUE, PageRequest.of(0, 21)))
+                .thenReturn(List.of(new UserIdentity(200011L, "Ami")));
+
+        FriendPageDTO result = this.service.findFriends("Delta", "", null);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(List.of(new UserNameDTO("Ami")), result.getFriends());
+        Assertions.assertNull(result.getNextCursor());
+    }
+
+    /**
+     * Test findFriends with an invalid page size or cursor
+     */
+    @DisplayName("Test findFriends : invalid parameters throw IllegalArgumentException")
+    @Test
+    public void testFindFriendsInvalidParameters() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.findFriends("Gamma", null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.findFriends("Gamma", null, 101));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> this.service.findFriends("Gamma", "not a cursor", null));
+    }
+
+    // Method suggestFriends
+
+    /**
+     * Test suggestFriends : the friends of friends come with their nickname, most shared first
+     */
+    @DisplayName("Test suggestFriends : friends of friends")
+    @Test
+    public void testSuggestFriends() {
+        long userId = 100012L;
+        this.graph.add(userId, 200012L);
+        this.graph.add(userId, 200013L);
+        this.graph.add(200012L, 300012L);
+        this.graph.add(200013L, 300012L);
+        this.graph.add(200013L, 300013L);
+        BDDMockito.when(this.userRepository.findIdByNickname("Epsilon")).thenReturn(Optional.of(userId));
+        BDDMockito.when(this.userRepository.findIdentities(List.of(300012L, 300013L)))
+                .thenReturn(List.of(new UserIdentity(300013L, "Zeta"), new UserIdentity(300012L, "Eta")));
+
+        Assertions.assertEquals(List.of(new FriendSuggestionDTO("Eta", 2), new FriendSuggestionDTO("Zeta", 1)),
+                this.service.suggestFriends("Epsilon", null));
+    }
+
+    /**
+     * Test suggestFriends when the user is not found or the size is invalid
+     */
+    @DisplayName("Test suggestFriends : unknown user or invalid size")
+    @Test
+    public void testSuggestFriendsInvalid() {
+        BDDMockito.when(this.userRepository.findIdByNickname("Nobody")).thenReturn(Optional.empty());
+        Assertions.assertNull(this.service.suggestFriends("Nobody", 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.suggestFriends("Epsilon", 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.service.suggestFriends("Epsilon", 51));
+    }
+
+    // Method findMutualFriends
+
+    /**
+     * Test findMutualFriends : common friends and distance between the users
+     */
+    @DisplayName("Test findMutualFriends : common friends")
+    @Test
+    public void testFindMutualFriends() {
+        this.graph.add(100014L, 200014L);
+        this.graph.add(100015L, 200014L);
+        this.graph.add(200014L, 100015L);
+        this.mockIds("Theta", 100014L, "Iota", 100015L);
+        BDDMockito.when(this.userRepository.findIdentities(List.of(200014L)))
+                .thenReturn(List.of(new UserIdentity(200014L, "Kappa")));
+
+        MutualFriendsDTO result = this.service.findMutualFriends("Theta", "Iota");
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(1, result.getCount());
+        Assertions.assertEquals(List.of(new UserNameDTO("Kappa")), result.getFriends());
+        Assertions.assertEquals(2, result.getDistance());
+        Assertions.assertNull(this.service.findMutualFriends("Iota", "Theta").getDistance());
+    }
+
+    /**
+     * Test findMutualFriends when a user is not found
+     */
+    @DisplayName("Test findMutualFriends : user not found")
+    @Test
+    public void testFindMutualFriendsUserNotFound() {
+        this.mockIds("Lambda", 100016L, "Nobody", null);
+        Assertions.assertNull(this.service.findMutualFriends("Lambda", "Nobody"));
+        Assertions.assertNull(this.service.findMutualFriends("Nobody", "Lambda"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package fr.oukilson.backend.validator;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark of the hand-written validators against the regexes of the configuration,
+ * on a valid text, an invalid one, and a long text making the email regex backtrack.
+ * Run with : mvn -P benchmark test -Dbenchmark=TextValidatorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextValidatorBenchmark {
+    private static final String NICKNAME_REGEX = "^[a-zA-Z0-9_-]{4,16}$";
+    @Param({"valid", "invalid", "adversarial"})
+    private String kind;
+    private String nickname;
+    private String email;
+    private Pattern nicknamePattern;
+    private Pattern emailPattern;
+    private TextValidator nicknameValidator;
+    private TextValidator emailValidator;
+
+    @Setup
+    public void setUp() {
+        this.nicknamePattern = Pattern.compile(NICKNAME_REGEX);
+        this.emailPattern = Pattern.compile(EmailValidator.REGEX);
+        this.nicknameValidator = CharacterClassValidator.of(NICKNAME_REGEX);
+        this.emailValidator = new EmailValidator();
+        switch (this.kind) {
+            case "valid":
+                this.nickname = "Regis_59";
+                this.email = "regis.dupont@thales.fr";
+                break;
+            case "invalid":
+                this.nickname = "Régis 59";
+                this.email = "regis.dupont@thales";
+                break;
+            default:
+                this.nickname = "a".repeat(1000);
+                this.email = "a".repeat(1000)+"@";
+        }
+    }
+
+    @Benchmark
+    public boolean nicknameRegex() {
+        return this.nicknamePattern.matcher(this.nickname).find();
+    }
+
+    @Benchmark
+    public boolean nicknameValidator() {
+        return this.nicknameValidator.isValid(this.nickname);
+    }
+
+    @Benchmark
+    public boolean emailRegex() {
+        return this.emailPattern.matcher(this.email).find();
+    }
+
+    @Benchmark
+    public boolean emailValidator() {
+        return this.emailValidator.isValid(this.email);
+    }
+}
@@ -0,0 +1,148 @@
+package fr.oukilson.backend.validator;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * The hand-written validators give the same answers as the regexes of the configuration, on random texts,
+ * and stay fast on the texts making the regexes backtrack
+ */
+public class TextValidatorTest {
+    private static final String[] EMAIL_TOKENS = {"a", "Zz", "0", "9", "-", "_", ".", "..", "@", "@@", "\"", "co",
+            "x.fr", "[", "]", "[1.2.3.4]", "[127.0.0.1]", "[1234.1.1.1]", "[1.2.3]", "<", ">", "(", ")", ",", ";",
+            ":", "\\", " ", "\t", "\n", "\r", "\u2028", "\u0085", "é", "ü.de"};
+    private static final String CHARACTERS = "aAzZ09_-.@\" \n\u2028é";
+    private static Pattern email;
+    private static Pattern nickname;
+    private static Pattern name;
+
+    @BeforeAll
+    public static void init() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Properties properties = yaml.getObject();
+        email = Pattern.compile(properties.getProperty("environment.emailRegex"));
+        nickname = Pattern.compile(properties.getProperty("environment.nicknameRegex"));
+        name = Pattern.compile(properties.getProperty("environment.nameRegex"));
+    }
+
+    /**
+     * Random text made of characters, or of tokens close to the parts of an email
+     * @param random Random
+     * @param tokens True to use tokens
+     * @return String
+     */
+    private String randomText(Random random, boolean tokens) {
+        StringBuilder result = new StringBuilder();
+        int length = random.nextInt(tokens ? 12 : 24);
+        for (int i=0; i<length; i++) {
+            if (tokens)
+                result.append(EMAIL_TOKENS[random.nextInt(EMAIL_TOKENS.length)]);
+            else
+                result.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        }
+        return result.toString();
+    }
+
+    /**
+     * The configured email regex is the one implemented by EmailValidator
+     */
+    @DisplayName("Test EmailValidator : same regex as the configuration")
+    @Test
+    public void testEmailRegexIsConfigured() {
+        Assertions.assertEquals(EmailValidator.REGEX, email.pattern());
+    }
+
+    /**
+     * EmailValidator finds an email where the regex does, and only there
+     */
+    @DisplayName("Test EmailValidator : same answers as the regex")
+    @Test
+    public void testEmailValidatorFuzz() {
+        EmailValidator validator = new EmailValidator();
+        Random random = new Random(42);
+        for (int i=0; i<200_000; i++) {
+            String text = this.randomText(random, i%2==0);
+            Assertions.assertEquals(email.matcher(text).find(), validator.isValid(text), text);
+        }
+    }
+
+    /**
+     * Some known emails and texts
+     */
+    @DisplayName("Test EmailValidator : known cases")
+    @Test
+    public void testEmailValidatorCases() {
+        EmailValidator validator = new EmailValidator();
+        for (String text : new String[] {"regis@thales.fr", "a.b-c@sub.domain.com", "\"john doe\"@x.org",
+                "user@[192.168.0.1]", "x@a-b.c.de"})
+            Assertions.assertTrue(validator.isValid(text), text);
+        for (String text : new String[] {"", "@", "regis@", "@thales.fr", "regis@thales", "regis@thales.f",
+                "regis.@thales.fr", "\"\"@x.org", "user@[1234.0.0.1]", "user@[1.2.3]", "x@.fr", "x@a..fr"})
+            Assertions.assertFalse(validator.isValid(text), text);
+    }
+
+    /**
+     * Texts making the regex backtrack are checked in linear time
+     */
+    @DisplayName("Test EmailValidator : no catastrophic backtracking")
+    @Test
+    public void testEmailValidatorAdversarial() {
+        EmailValidator validator = new EmailValidator();
+        String[] texts = {"a".repeat(1_000_000), "\"".repeat(1_000_000), "a.".repeat(500_000),
+                "a@".repeat(500_000), "x@"+"a-".repeat(500_000), "x@"+"a.1".repeat(300_000),
+                "\"".repeat(500_000)+"@"+"a.".repeat(250_000)};
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            for (String text : texts)
+                Assertions.assertFalse(validator.isValid(text));
+            Assertions.assertTrue(validator.isValid("a".repeat(1_000_000)+"@x.fr"));
+        });
+    }
+
+    /**
+     * The validators built from the nickname and name regexes match the same texts as the regexes
+     */
+    @DisplayName("Test CharacterClassValidator : same answers as the regexes")
+    @Test
+    public void testCharacterClassValidatorFuzz() {
+        Random random = new Random(42);
+        for (Pattern pattern : new Pattern[] {nickname, name}) {
+            CharacterClassValidator validator = CharacterClassValidator.of(pattern.pattern());
+            Assertions.assertNotNull(validator, pattern.pattern());
+            for (int i=0; i<200_000; i++) {
+                String text = this.randomText(random, false);
+                Assertions.assertEquals(pattern.matcher(text).matches(), validator.isValid(text), text);
+            }
+        }
+    }
+
+    /**
+     * Unlike "$" in the regex, a line terminator at the end of a nickname is refused
+     */
+    @DisplayName("Test CharacterClassValidator : trailing line terminator refused")
+    @Test
+    public void testCharacterClassValidatorLineTerminator() {
+        CharacterClassValidator validator = CharacterClassValidator.of(nickname.pattern());
+        Assertions.assertTrue(validator.isValid("Regis_59"));
+        Assertions.assertTrue(nickname.matcher("Regis_59\n").find());
+        Assertions.assertFalse(validator.isValid("Regis_59\n"));
+    }
+
+    /**
+     * Only the regexes made of a single class of ASCII characters get a validator
+     */
+    @DisplayName("Test CharacterClassValidator : supported regexes")
+    @Test
+    public void testCharacterClassValidatorOf() {
+        Assertions.assertNotNull(CharacterClassValidator.of("^[a-z]{0,3}$"));
+        Assertions.assertNotNull(CharacterClassValidator.of("^[-a]{1,1}$"));
+        for (String regex : new String[] {"[a-z]{4,16}", "^[a-z]+$", "^[^a-z]{4,16}$", "^[a\\-z]{4,16}$",
+                "^[a-z&&[def]]{4,16}$", "^[z-a]{4,16}$", "^[a-é]{4,16}$", "^[a-z]{5,4}$", "^[a-z]{4,16}$x"})
+            Assertions.assertNull(CharacterClassValidator.of(regex), regex);
+    }
+}